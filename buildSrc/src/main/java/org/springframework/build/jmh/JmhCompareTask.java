@@ -0,0 +1,159 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.build.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import groovy.json.JsonSlurper;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Task that compares the JSON results of a JMH run with the results of a baseline
+ * run, typically produced on the main branch before applying a change.
+ * <p>A textual report is written to {@code "build/reports/jmh/comparison.txt"} and
+ * the task fails if the score of any benchmark regressed by more than the configured
+ * threshold (in percent), taking into account whether higher or lower scores are
+ * better for the benchmark mode.
+ *
+ * @since 5.2.13
+ * @see JmhConventionsPlugin
+ */
+public class JmhCompareTask extends DefaultTask {
+
+	private File baselineFile;
+
+	private File resultsFile;
+
+	private File reportFile;
+
+	private double threshold;
+
+
+	@InputFile
+	public File getBaselineFile() {
+		return this.baselineFile;
+	}
+
+	public void setBaselineFile(File baselineFile) {
+		this.baselineFile = baselineFile;
+	}
+
+	@InputFile
+	public File getResultsFile() {
+		return this.resultsFile;
+	}
+
+	public void setResultsFile(File resultsFile) {
+		this.resultsFile = resultsFile;
+	}
+
+	@OutputFile
+	public File getReportFile() {
+		return this.reportFile;
+	}
+
+	public void setReportFile(File reportFile) {
+		this.reportFile = reportFile;
+	}
+
+	@Input
+	public double getThreshold() {
+		return this.threshold;
+	}
+
+	public void setThreshold(double threshold) {
+		this.threshold = threshold;
+	}
+
+
+	@TaskAction
+	public void compare() throws IOException {
+		Map<String, Score> baseline = readScores(this.baselineFile);
+		Map<String, Score> current = readScores(this.resultsFile);
+		List<String> regressions = new ArrayList<>();
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%-80s %16s %16s %10s%n", "Benchmark", "Baseline", "Current", "Change"));
+		current.forEach((key, score) -> {
+			Score previous = baseline.get(key);
+			if (previous == null) {
+				report.append(String.format("%-80s %16s %16.3f %10s%n", key, "-", score.value, "new"));
+				return;
+			}
+			double change = (score.value - previous.value) / previous.value * 100;
+			double improvement = (score.higherIsBetter ? change : -change);
+			report.append(String.format("%-80s %16.3f %16.3f %+9.2f%%%n", key, previous.value, score.value, change));
+			if (improvement < -this.threshold) {
+				regressions.add(key);
+			}
+		});
+		this.reportFile.getParentFile().mkdirs();
+		Files.write(this.reportFile.toPath(), report.toString().getBytes(StandardCharsets.UTF_8));
+		getLogger().lifecycle(report.toString());
+		if (!regressions.isEmpty()) {
+			throw new GradleException("Benchmarks regressed by more than " + this.threshold + "%: " +
+					regressions + " - see " + this.reportFile);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Score> readScores(File file) {
+		if (!file.exists()) {
+			throw new GradleException("JMH results file not found: " + file);
+		}
+		List<Map<String, Object>> results = (List<Map<String, Object>>) new JsonSlurper().parse(file);
+		Map<String, Score> scores = new LinkedHashMap<>();
+		for (Map<String, Object> result : results) {
+			StringBuilder key = new StringBuilder((String) result.get("benchmark"));
+			Map<String, Object> params = (Map<String, Object>) result.get("params");
+			if (params != null) {
+				new TreeMap<>(params).forEach((name, value) -> key.append(':').append(name).append('=').append(value));
+			}
+			String mode = (String) result.get("mode");
+			Map<String, Object> metric = (Map<String, Object>) result.get("primaryMetric");
+			double value = ((Number) metric.get("score")).doubleValue();
+			scores.put(key.append(" (").append(mode).append(')').toString(), new Score(value, "thrpt".equals(mode)));
+		}
+		return scores;
+	}
+
+
+	private static class Score {
+
+		private final double value;
+
+		private final boolean higherIsBetter;
+
+		Score(double value, boolean higherIsBetter) {
+			this.value = value;
+			this.higherIsBetter = higherIsBetter;
+		}
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.build.jmh;
+
+import java.io.File;
+import java.util.Collections;
+
+import me.champeau.gradle.JMHPlugin;
+import me.champeau.gradle.JMHPluginExtension;
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.file.DuplicatesStrategy;
+import org.gradle.api.plugins.JavaPlugin;
+
+/**
+ * {@link Plugin} that applies the {@code "jmh-gradle-plugin"} with the conventions
+ * used for micro-benchmarks in Spring Framework modules.
+ * <p>Benchmarks live in the {@code src/jmh/java} source set of each module and can
+ * be run with {@code "./gradlew :spring-core:jmh"}. A subset of benchmarks can be
+ * selected with a regular expression: {@code "./gradlew :spring-core:jmh -PjmhInclude=AntPathMatcher"}.
+ * <p>Results are written as JSON to {@code "build/reports/jmh/results.json"}, and can
+ * be compared with a previous run through the {@value #COMPARE_TASK_NAME} task:
+ * {@code "./gradlew :spring-core:jmhCompare -PjmhBaseline=/path/to/results.json"}.
+ *
+ * @since 5.2.13
+ * @see JmhCompareTask
+ */
+public class JmhConventionsPlugin implements Plugin<Project> {
+
+	/**
+	 * Name of the task comparing benchmark results with a baseline.
+	 */
+	public static final String COMPARE_TASK_NAME = "jmhCompare";
+
+	/**
+	 * The project property that can be used to select benchmarks to run.
+	 */
+	public static final String INCLUDE_PROPERTY = "jmhInclude";
+
+	/**
+	 * The project property pointing to the JSON results file of a baseline run.
+	 */
+	public static final String BASELINE_PROPERTY = "jmhBaseline";
+
+	/**
+	 * The project property defining the tolerated score regression, in percent.
+	 */
+	public static final String THRESHOLD_PROPERTY = "jmhThreshold";
+
+	private static final String JMH_VERSION = "1.25";
+
+	private static final double DEFAULT_THRESHOLD = 10.0d;
+
+
+	@Override
+	public void apply(Project project) {
+		project.getPlugins().withType(JavaPlugin.class, javaPlugin -> applyJmhConventions(project));
+	}
+
+	private void applyJmhConventions(Project project) {
+		project.getPluginManager().apply(JMHPlugin.class);
+		JMHPluginExtension jmh = project.getExtensions().getByType(JMHPluginExtension.class);
+		jmh.setJmhVersion(JMH_VERSION);
+		jmh.setDuplicateClassesStrategy(DuplicatesStrategy.EXCLUDE);
+		jmh.setIncludeTests(false);
+		jmh.setResultFormat("JSON");
+		jmh.setResultsFile(getResultsFile(project));
+		if (project.hasProperty(INCLUDE_PROPERTY)) {
+			jmh.setInclude(Collections.singletonList(project.property(INCLUDE_PROPERTY).toString()));
+		}
+		createCompareTask(project);
+	}
+
+	private void createCompareTask(Project project) {
+		JmhCompareTask compare = project.getTasks().create(COMPARE_TASK_NAME, JmhCompareTask.class);
+		compare.setDescription("Compares JMH benchmark results with a baseline run");
+		compare.setGroup("benchmark");
+		compare.setResultsFile(getResultsFile(project));
+		compare.setReportFile(new File(project.getBuildDir(), "reports/jmh/comparison.txt"));
+		if (project.hasProperty(BASELINE_PROPERTY)) {
+			compare.setBaselineFile(project.file(project.property(BASELINE_PROPERTY)));
+		}
+		compare.setThreshold(project.hasProperty(THRESHOLD_PROPERTY) ?
+				Double.parseDouble(project.property(THRESHOLD_PROPERTY).toString()) : DEFAULT_THRESHOLD);
+		compare.onlyIf(task -> project.hasProperty(BASELINE_PROPERTY));
+		compare.mustRunAfter("jmh");
+	}
+
+	private File getResultsFile(Project project) {
+		return new File(project.getBuildDir(), "reports/jmh/results.json");
+	}
+
+}
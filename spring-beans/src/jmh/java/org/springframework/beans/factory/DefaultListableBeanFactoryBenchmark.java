@@ -0,0 +1,138 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+/**
+ * Benchmarks for {@link DefaultListableBeanFactory#getBean} on singleton
+ * and prototype bean definitions.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class DefaultListableBeanFactoryBenchmark {
+
+	@Benchmark
+	public Object getSingletonByName(BeanFactoryData data) {
+		return data.beanFactory.getBean("service");
+	}
+
+	@Benchmark
+	public Object getSingletonByType(BeanFactoryData data) {
+		return data.beanFactory.getBean(Service.class);
+	}
+
+	@Benchmark
+	public Object getPrototype(BeanFactoryData data) {
+		return data.beanFactory.getBean("prototype");
+	}
+
+	@Benchmark
+	public Object getAutowiredPrototype(BeanFactoryData data) {
+		return data.beanFactory.getBean("autowiredPrototype");
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class BeanFactoryData {
+
+		@Param({"10", "1000"})
+		public int extraBeans;
+
+		public DefaultListableBeanFactory beanFactory;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.beanFactory = new DefaultListableBeanFactory();
+			for (int i = 0; i < this.extraBeans; i++) {
+				this.beanFactory.registerBeanDefinition("extra" + i, new RootBeanDefinition(Repository.class));
+			}
+			this.beanFactory.registerBeanDefinition("repository", new RootBeanDefinition(Repository.class));
+
+			RootBeanDefinition service = new RootBeanDefinition(Service.class);
+			service.getPropertyValues().add("repository", new RuntimeBeanReference("repository"));
+			this.beanFactory.registerBeanDefinition("service", service);
+
+			RootBeanDefinition prototype = new RootBeanDefinition(Service.class);
+			prototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+			prototype.setAutowireCandidate(false);
+			prototype.getPropertyValues().add("repository", new RuntimeBeanReference("repository"));
+			prototype.getPropertyValues().add("name", "prototype");
+			this.beanFactory.registerBeanDefinition("prototype", prototype);
+
+			RootBeanDefinition autowiredPrototype = new RootBeanDefinition(AutowiredService.class);
+			autowiredPrototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+			autowiredPrototype.setAutowireMode(RootBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+			this.beanFactory.registerBeanDefinition("autowiredPrototype", autowiredPrototype);
+			this.beanFactory.preInstantiateSingletons();
+		}
+	}
+
+
+	public static class Repository {
+	}
+
+
+	public static class Service {
+
+		private Repository repository;
+
+		private String name;
+
+		public void setRepository(Repository repository) {
+			this.repository = repository;
+		}
+
+		public Repository getRepository() {
+			return this.repository;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+	}
+
+
+	public static class AutowiredService {
+
+		private final Service service;
+
+		public AutowiredService(Service service) {
+			this.service = service;
+		}
+
+		public Service getService() {
+			return this.service;
+		}
+	}
+
+}
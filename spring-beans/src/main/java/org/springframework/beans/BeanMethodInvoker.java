@@ -0,0 +1,50 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Strategy interface for invoking methods on bean instances, e.g. property
+ * write methods or injection methods. Can be used to replace reflective
+ * {@link Method#invoke} calls with more efficient invocation mechanisms.
+ *
+ * @since 5.2.13
+ * @see BeanWrapperImpl#setMethodInvoker
+ * @see org.springframework.beans.factory.support.FastClassInstantiationStrategy
+ */
+@FunctionalInterface
+public interface BeanMethodInvoker {
+
+	/**
+	 * Invoke the given method on the given target, with the same semantics
+	 * as {@link Method#invoke}.
+	 * @param method the method to invoke (already made accessible)
+	 * @param target the target instance, or {@code null} for a static method
+	 * @param args the arguments to apply
+	 * @return the method's return value, or {@code null} for a {@code void} method
+	 * @throws IllegalAccessException if the method is not accessible
+	 * @throws InvocationTargetException if the method threw an exception
+	 */
+	@Nullable
+	Object invoke(Method method, @Nullable Object target, Object... args)
+			throws IllegalAccessException, InvocationTargetException;
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -75,6 +75,12 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 	@Nullable
 	private AccessControlContext acc;
 
+	/**
+	 * The invoker used for invoking the property methods, if not reflective.
+	 */
+	@Nullable
+	private BeanMethodInvoker methodInvoker;
+
 
 	/**
 	 * Create a new empty BeanWrapperImpl. Wrapped instance needs to be set afterwards.
@@ -132,6 +138,7 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 	private BeanWrapperImpl(Object object, String nestedPath, BeanWrapperImpl parent) {
 		super(object, nestedPath, parent);
 		setSecurityContext(parent.acc);
+		setMethodInvoker(parent.methodInvoker);
 	}
 
 
@@ -193,6 +200,26 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 		return this.acc;
 	}
 
+	/**
+	 * Set the invoker to use for the property methods of the wrapped instance,
+	 * e.g. for invoking them through generated accessor classes.
+	 * <p>Default is none, invoking the property methods via reflection.
+	 * Not applied when running under a security manager.
+	 * @since 5.2.13
+	 */
+	public void setMethodInvoker(@Nullable BeanMethodInvoker methodInvoker) {
+		this.methodInvoker = methodInvoker;
+	}
+
+	/**
+	 * Return the invoker to use for the property methods of the wrapped instance, if any.
+	 * @since 5.2.13
+	 */
+	@Nullable
+	public BeanMethodInvoker getMethodInvoker() {
+		return this.methodInvoker;
+	}
+
 
 	/**
 	 * Convert the given value for the specified property to the latter's type.
@@ -305,6 +332,9 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 			}
 			else {
 				ReflectionUtils.makeAccessible(readMethod);
+				if (methodInvoker != null) {
+					return methodInvoker.invoke(readMethod, getWrappedInstance());
+				}
 				return readMethod.invoke(getWrappedInstance(), (Object[]) null);
 			}
 		}
@@ -329,7 +359,12 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 			}
 			else {
 				ReflectionUtils.makeAccessible(writeMethod);
-				writeMethod.invoke(getWrappedInstance(), value);
+				if (methodInvoker != null) {
+					methodInvoker.invoke(writeMethod, getWrappedInstance(), value);
+				}
+				else {
+					writeMethod.invoke(getWrappedInstance(), value);
+				}
 			}
 		}
 	}
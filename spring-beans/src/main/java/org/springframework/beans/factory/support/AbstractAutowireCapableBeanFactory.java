@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -39,6 +39,7 @@ import java.util.function.Supplier;
 
 import org.apache.commons.logging.Log;
 
+import org.springframework.beans.BeanMethodInvoker;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeanWrapper;
 import org.springframework.beans.BeanWrapperImpl;
@@ -191,7 +192,10 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	/**
 	 * Set the instantiation strategy to use for creating bean instances.
 	 * Default is CglibSubclassingInstantiationStrategy.
+	 * <p>A strategy that also implements {@link BeanMethodInvoker} is used for
+	 * invoking property methods on bean instances as well.
 	 * @see CglibSubclassingInstantiationStrategy
+	 * @see FastClassInstantiationStrategy
 	 */
 	public void setInstantiationStrategy(InstantiationStrategy instantiationStrategy) {
 		this.instantiationStrategy = instantiationStrategy;
@@ -983,6 +987,11 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	 */
 	@Nullable
 	private FactoryBean<?> getSingletonFactoryBeanForTypeCheck(String beanName, RootBeanDefinition mbd) {
+		// Quick check for fully initialized FactoryBean without full singleton lock
+		Object existingInstance = getSingleton(beanName, false);
+		if (existingInstance instanceof FactoryBean) {
+			return (FactoryBean<?>) existingInstance;
+		}
 		synchronized (getSingletonMutex()) {
 			BeanWrapper bw = this.factoryBeanInstanceCache.get(beanName);
 			if (bw != null) {
@@ -1246,6 +1255,20 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		return bw;
 	}
 
+	/**
+	 * Overridden in order to apply an instantiation strategy that is also a
+	 * {@link BeanMethodInvoker} to the given BeanWrapper.
+	 * @see #setInstantiationStrategy
+	 * @see BeanWrapperImpl#setMethodInvoker
+	 */
+	@Override
+	protected void initBeanWrapper(BeanWrapper bw) {
+		super.initBeanWrapper(bw);
+		if (bw instanceof BeanWrapperImpl && this.instantiationStrategy instanceof BeanMethodInvoker) {
+			((BeanWrapperImpl) bw).setMethodInvoker((BeanMethodInvoker) this.instantiationStrategy);
+		}
+	}
+
 	/**
 	 * Overridden in order to implicitly register the currently created bean as
 	 * dependent on further beans getting programmatically retrieved during a
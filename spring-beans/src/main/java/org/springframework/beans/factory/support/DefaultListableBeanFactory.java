@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -31,6 +31,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -40,6 +41,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -47,6 +49,7 @@ import java.util.stream.Stream;
 import javax.inject.Provider;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyValue;
 import org.springframework.beans.TypeConverter;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanCurrentlyInCreationException;
@@ -70,8 +73,10 @@ import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
 import org.springframework.beans.factory.config.DependencyDescriptor;
 import org.springframework.beans.factory.config.NamedBeanHolder;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.core.OrderComparator;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.MergedAnnotation;
@@ -185,6 +190,10 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Whether bean definition metadata may be cached for all beans. */
 	private volatile boolean configurationFrozen;
 
+	/** Optional Executor for pre-instantiating independent singletons in parallel. */
+	@Nullable
+	private Executor preInstantiationExecutor;
+
 
 	/**
 	 * Create a new DefaultListableBeanFactory.
@@ -288,6 +297,38 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return this.dependencyComparator;
 	}
 
+	/**
+	 * Set an {@link Executor} for pre-instantiating independent singletons in parallel.
+	 * <p>Default is none, creating all singletons one after another on the thread that
+	 * calls {@link #preInstantiateSingletons()}. With an executor, singletons are created
+	 * as soon as the beans that their definitions refer to have been created: through
+	 * {@code depends-on} declarations, a factory bean, or bean references among constructor
+	 * argument and property values. Dependencies that are only resolved at creation time,
+	 * such as autowired ones, are created on demand by the requesting thread or awaited if
+	 * another thread creates them. Singletons that are part of a cycle of definition-level
+	 * dependencies are created one after another once all other singletons have been created.
+	 * <p>This is worth considering for singletons with expensive, mostly independent
+	 * initialization, e.g. connection pools or caches that are warmed up on startup.
+	 * Note that singletons are then created on the executor's threads, so their
+	 * initialization must not rely on thread-bound state of the calling thread.
+	 * @param preInstantiationExecutor the executor to use, typically with a bounded
+	 * number of threads (or {@code null} for sequential pre-instantiation)
+	 * @since 5.2.13
+	 * @see #preInstantiateSingletons()
+	 */
+	public void setPreInstantiationExecutor(@Nullable Executor preInstantiationExecutor) {
+		this.preInstantiationExecutor = preInstantiationExecutor;
+	}
+
+	/**
+	 * Return the {@link Executor} for pre-instantiating singletons in parallel, if any.
+	 * @since 5.2.13
+	 */
+	@Nullable
+	public Executor getPreInstantiationExecutor() {
+		return this.preInstantiationExecutor;
+	}
+
 	/**
 	 * Set a custom autowire candidate resolver for this BeanFactory to use
 	 * when deciding whether a bean definition should be considered as a
@@ -325,6 +366,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			this.allowBeanDefinitionOverriding = otherListableFactory.allowBeanDefinitionOverriding;
 			this.allowEagerClassLoading = otherListableFactory.allowEagerClassLoading;
 			this.dependencyComparator = otherListableFactory.dependencyComparator;
+			this.preInstantiationExecutor = otherListableFactory.preInstantiationExecutor;
 			// A clone of the AutowireCandidateResolver since it is potentially BeanFactoryAware
 			setAutowireCandidateResolver(otherListableFactory.getAutowireCandidateResolver().cloneIfNecessary());
 			// Make resolvable dependencies (e.g. ResourceLoader) available here as well
@@ -871,31 +913,13 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		List<String> beanNames = new ArrayList<>(this.beanDefinitionNames);
 
 		// Trigger initialization of all non-lazy singleton beans...
-		for (String beanName : beanNames) {
-			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
-			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
-				if (isFactoryBean(beanName)) {
-					Object bean = getBean(FACTORY_BEAN_PREFIX + beanName);
-					if (bean instanceof FactoryBean) {
-						FactoryBean<?> factory = (FactoryBean<?>) bean;
-						boolean isEagerInit;
-						if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
-							isEagerInit = AccessController.doPrivileged(
-									(PrivilegedAction<Boolean>) ((SmartFactoryBean<?>) factory)::isEagerInit,
-									getAccessControlContext());
-						}
-						else {
-							isEagerInit = (factory instanceof SmartFactoryBean &&
-									((SmartFactoryBean<?>) factory).isEagerInit());
-						}
-						if (isEagerInit) {
-							getBean(beanName);
-						}
-					}
-				}
-				else {
-					getBean(beanName);
-				}
+		Executor executor = this.preInstantiationExecutor;
+		if (executor != null) {
+			preInstantiateSingletonsInParallel(beanNames, executor);
+		}
+		else {
+			for (String beanName : beanNames) {
+				preInstantiateSingleton(beanName);
 			}
 		}
 
@@ -917,6 +941,99 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		}
 	}
 
+	private void preInstantiateSingleton(String beanName) {
+		RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+		if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+			if (isFactoryBean(beanName)) {
+				Object bean = getBean(FACTORY_BEAN_PREFIX + beanName);
+				if (bean instanceof FactoryBean) {
+					FactoryBean<?> factory = (FactoryBean<?>) bean;
+					boolean isEagerInit;
+					if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
+						isEagerInit = AccessController.doPrivileged(
+								(PrivilegedAction<Boolean>) ((SmartFactoryBean<?>) factory)::isEagerInit,
+								getAccessControlContext());
+					}
+					else {
+						isEagerInit = (factory instanceof SmartFactoryBean &&
+								((SmartFactoryBean<?>) factory).isEagerInit());
+					}
+					if (isEagerInit) {
+						getBean(beanName);
+					}
+				}
+			}
+			else {
+				getBean(beanName);
+			}
+		}
+	}
+
+	private void preInstantiateSingletonsInParallel(List<String> beanNames, Executor executor) {
+		Set<String> candidateNames = new LinkedHashSet<>(beanNames.size());
+		for (String beanName : beanNames) {
+			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+				candidateNames.add(beanName);
+			}
+		}
+		Map<String, Set<String>> dependencies = new LinkedHashMap<>(candidateNames.size());
+		for (String beanName : candidateNames) {
+			dependencies.put(beanName, getDefinitionDependencies(beanName, candidateNames));
+		}
+		PreInstantiationScheduler scheduler = new PreInstantiationScheduler(dependencies, executor);
+		setParallelSingletonCreation(true);
+		try {
+			scheduler.run();
+		}
+		finally {
+			setParallelSingletonCreation(false);
+		}
+		// Remaining beans depend on each other in cycles: create them one after another,
+		// applying regular circular reference resolution and detection.
+		for (String beanName : scheduler.getUnscheduledBeanNames()) {
+			preInstantiateSingleton(beanName);
+		}
+	}
+
+	/**
+	 * Determine the beans among the given candidates that the definition of the
+	 * given bean refers to through {@code depends-on} declarations, its factory
+	 * bean, or bean references among its constructor argument and property values.
+	 */
+	private Set<String> getDefinitionDependencies(String beanName, Set<String> candidateNames) {
+		RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+		Set<String> dependencies = new LinkedHashSet<>();
+		String[] dependsOn = bd.getDependsOn();
+		if (dependsOn != null) {
+			for (String dependency : dependsOn) {
+				dependencies.add(canonicalName(dependency));
+			}
+		}
+		if (bd.getFactoryBeanName() != null) {
+			dependencies.add(canonicalName(bd.getFactoryBeanName()));
+		}
+		ConstructorArgumentValues args = bd.getConstructorArgumentValues();
+		for (ConstructorArgumentValues.ValueHolder valueHolder : args.getIndexedArgumentValues().values()) {
+			addReferencedBeanName(valueHolder.getValue(), dependencies);
+		}
+		for (ConstructorArgumentValues.ValueHolder valueHolder : args.getGenericArgumentValues()) {
+			addReferencedBeanName(valueHolder.getValue(), dependencies);
+		}
+		for (PropertyValue pv : bd.getPropertyValues().getPropertyValues()) {
+			addReferencedBeanName(pv.getValue(), dependencies);
+		}
+		dependencies.retainAll(candidateNames);
+		dependencies.remove(beanName);
+		return dependencies;
+	}
+
+	private void addReferencedBeanName(@Nullable Object value, Set<String> beanNames) {
+		if (value instanceof RuntimeBeanReference && !((RuntimeBeanReference) value).isToParent()) {
+			beanNames.add(canonicalName(((RuntimeBeanReference) value).getBeanName()));
+		}
+	}
+
 
 	//---------------------------------------------------------------------
 	// Implementation of BeanDefinitionRegistry interface
@@ -2061,4 +2178,121 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		}
 	}
 
+
+	/**
+	 * Schedules the creation of singletons on an executor once the singletons
+	 * that they depend on have been created.
+	 */
+	private class PreInstantiationScheduler {
+
+		private final Map<String, Set<String>> dependents = new HashMap<>();
+
+		private final Map<String, Integer> pendingDependencies = new LinkedHashMap<>();
+
+		private final Executor executor;
+
+		private int running;
+
+		@Nullable
+		private Throwable failure;
+
+		PreInstantiationScheduler(Map<String, Set<String>> dependencies, Executor executor) {
+			dependencies.forEach((beanName, beanDependencies) -> {
+				this.pendingDependencies.put(beanName, beanDependencies.size());
+				for (String dependency : beanDependencies) {
+					this.dependents.computeIfAbsent(dependency, key -> new LinkedHashSet<>()).add(beanName);
+				}
+			});
+			this.executor = executor;
+		}
+
+		/**
+		 * Create all singletons that do not depend on each other in cycles,
+		 * returning once no creation is in progress anymore.
+		 */
+		public void run() {
+			List<String> ready = new ArrayList<>();
+			synchronized (this) {
+				this.pendingDependencies.forEach((beanName, count) -> {
+					if (count == 0) {
+						ready.add(beanName);
+					}
+				});
+				ready.forEach(this.pendingDependencies::remove);
+			}
+			ready.forEach(this::schedule);
+			synchronized (this) {
+				while (this.running > 0) {
+					try {
+						wait();
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						throw new IllegalStateException("Interrupted while pre-instantiating singletons", ex);
+					}
+				}
+				if (this.failure instanceof RuntimeException) {
+					throw (RuntimeException) this.failure;
+				}
+				if (this.failure instanceof Error) {
+					throw (Error) this.failure;
+				}
+			}
+		}
+
+		/**
+		 * Return the names of the singletons that have not been scheduled
+		 * since they depend on each other in cycles.
+		 */
+		public synchronized Set<String> getUnscheduledBeanNames() {
+			return new LinkedHashSet<>(this.pendingDependencies.keySet());
+		}
+
+		private void schedule(String beanName) {
+			synchronized (this) {
+				this.running++;
+			}
+			try {
+				this.executor.execute(() -> {
+					Throwable failure = null;
+					try {
+						preInstantiateSingleton(beanName);
+					}
+					catch (Throwable ex) {
+						failure = ex;
+					}
+					complete(beanName, failure);
+				});
+			}
+			catch (RuntimeException ex) {
+				complete(beanName, ex);
+			}
+		}
+
+		private void complete(String beanName, @Nullable Throwable failure) {
+			List<String> ready = new ArrayList<>();
+			synchronized (this) {
+				if (this.failure == null) {
+					this.failure = failure;
+				}
+				Set<String> beanDependents = this.dependents.get(beanName);
+				if (this.failure == null && beanDependents != null) {
+					for (String dependent : beanDependents) {
+						int count = this.pendingDependencies.merge(dependent, -1, Integer::sum);
+						if (count == 0) {
+							this.pendingDependencies.remove(dependent);
+							ready.add(dependent);
+						}
+					}
+				}
+			}
+			// Schedule dependents before completing, not to return from run() prematurely
+			ready.forEach(this::schedule);
+			synchronized (this) {
+				this.running--;
+				notifyAll();
+			}
+		}
+	}
+
 }
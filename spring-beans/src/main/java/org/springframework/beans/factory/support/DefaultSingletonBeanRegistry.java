@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,12 +16,14 @@
 
 package org.springframework.beans.factory.support;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -90,6 +92,15 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	private final Set<String> singletonsCurrentlyInCreation =
 			Collections.newSetFromMap(new ConcurrentHashMap<>(16));
 
+	/** Threads creating singletons in parallel creation mode: bean name to creating thread. */
+	private final Map<String, Thread> singletonCreationThreads = new ConcurrentHashMap<>(16);
+
+	/** Threads waiting for a singleton in parallel creation mode: thread to awaited bean name. */
+	private final Map<Thread, String> singletonWaitingThreads = new ConcurrentHashMap<>(16);
+
+	/** Whether singletons may currently be created by several threads in parallel. */
+	private volatile boolean parallelSingletonCreation;
+
 	/** Names of beans currently excluded from in creation checks. */
 	private final Set<String> inCreationCheckExclusions =
 			Collections.newSetFromMap(new ConcurrentHashMap<>(16));
@@ -181,26 +192,37 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		// Quick check for existing instance without full singleton lock
 		Object singletonObject = this.singletonObjects.get(beanName);
 		if (singletonObject == null && isSingletonCurrentlyInCreation(beanName)) {
+			if (this.parallelSingletonCreation && !isSingletonCreatedByCurrentThread(beanName)) {
+				// Early references are only exposed to another thread for resolving
+				// a circular reference: see getSingletonInParallel
+				return null;
+			}
 			singletonObject = this.earlySingletonObjects.get(beanName);
 			if (singletonObject == null && allowEarlyReference) {
-				synchronized (this.singletonObjects) {
-					// Consistent creation of early reference within full singleton lock
-					singletonObject = this.singletonObjects.get(beanName);
-					if (singletonObject == null) {
-						singletonObject = this.earlySingletonObjects.get(beanName);
-						if (singletonObject == null) {
-							ObjectFactory<?> singletonFactory = this.singletonFactories.get(beanName);
-							if (singletonFactory != null) {
-								singletonObject = singletonFactory.getObject();
-								this.earlySingletonObjects.put(beanName, singletonObject);
-								this.singletonFactories.remove(beanName);
-							}
-						}
+				singletonObject = getEarlySingletonReference(beanName);
+			}
+		}
+		return singletonObject;
+	}
+
+	@Nullable
+	private Object getEarlySingletonReference(String beanName) {
+		synchronized (this.singletonObjects) {
+			// Consistent creation of early reference within full singleton lock
+			Object singletonObject = this.singletonObjects.get(beanName);
+			if (singletonObject == null) {
+				singletonObject = this.earlySingletonObjects.get(beanName);
+				if (singletonObject == null) {
+					ObjectFactory<?> singletonFactory = this.singletonFactories.get(beanName);
+					if (singletonFactory != null) {
+						singletonObject = singletonFactory.getObject();
+						this.earlySingletonObjects.put(beanName, singletonObject);
+						this.singletonFactories.remove(beanName);
 					}
 				}
 			}
+			return singletonObject;
 		}
-		return singletonObject;
 	}
 
 	/**
@@ -213,6 +235,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	public Object getSingleton(String beanName, ObjectFactory<?> singletonFactory) {
 		Assert.notNull(beanName, "Bean name must not be null");
+		if (this.parallelSingletonCreation) {
+			return getSingletonInParallel(beanName, singletonFactory);
+		}
 		synchronized (this.singletonObjects) {
 			Object singletonObject = this.singletonObjects.get(beanName);
 			if (singletonObject == null) {
@@ -264,6 +289,138 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		}
 	}
 
+	/**
+	 * Variant of {@link #getSingleton(String, ObjectFactory)} for parallel creation
+	 * mode, invoking the singleton factory outside of the full singleton lock.
+	 * <p>A singleton is created by one thread at most, with other threads requesting
+	 * it waiting for its creation to complete. A thread that would wait for a singleton
+	 * whose creating thread (transitively) waits for the current thread, i.e. a circular
+	 * reference across threads, receives an early reference to the singleton instead,
+	 * just like it would when resolving the circular reference within a single thread.
+	 * Suppressed exceptions are not recorded in this mode.
+	 */
+	private Object getSingletonInParallel(String beanName, ObjectFactory<?> singletonFactory) {
+		Thread currentThread = Thread.currentThread();
+		synchronized (this.singletonObjects) {
+			while (true) {
+				Object singletonObject = this.singletonObjects.get(beanName);
+				if (singletonObject != null) {
+					return singletonObject;
+				}
+				if (this.singletonsCurrentlyInDestruction) {
+					throw new BeanCreationNotAllowedException(beanName,
+							"Singleton bean creation not allowed while singletons of this factory are in destruction " +
+							"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
+				}
+				Thread creatingThread = this.singletonCreationThreads.get(beanName);
+				if (creatingThread == null || creatingThread == currentThread) {
+					break;
+				}
+				List<String> circularWait = getCircularWait(creatingThread, currentThread);
+				if (circularWait != null) {
+					Object earlyReference = getEarlySingletonReference(beanName);
+					if (earlyReference != null) {
+						return earlyReference;
+					}
+					if (circularWait.stream().noneMatch(this::hasEarlySingletonReference)) {
+						throw new BeanCurrentlyInCreationException(beanName);
+					}
+					// Another thread in the cycle is able to proceed with an early reference
+					this.singletonObjects.notifyAll();
+				}
+				this.singletonWaitingThreads.put(currentThread, beanName);
+				try {
+					this.singletonObjects.wait();
+				}
+				catch (InterruptedException ex) {
+					currentThread.interrupt();
+					throw new BeanCreationException(beanName,
+							"Interrupted while waiting for singleton creation in another thread");
+				}
+				finally {
+					this.singletonWaitingThreads.remove(currentThread);
+				}
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
+			}
+			beforeSingletonCreation(beanName);
+			this.singletonCreationThreads.put(beanName, currentThread);
+		}
+
+		Object singletonObject = null;
+		boolean newSingleton = false;
+		try {
+			singletonObject = singletonFactory.getObject();
+			newSingleton = true;
+		}
+		catch (IllegalStateException ex) {
+			// Has the singleton object implicitly appeared in the meantime ->
+			// if yes, proceed with it since the exception indicates that state.
+			singletonObject = this.singletonObjects.get(beanName);
+			if (singletonObject == null) {
+				throw ex;
+			}
+		}
+		finally {
+			synchronized (this.singletonObjects) {
+				if (newSingleton) {
+					addSingleton(beanName, singletonObject);
+				}
+				this.singletonCreationThreads.remove(beanName);
+				this.singletonObjects.notifyAll();
+				afterSingletonCreation(beanName);
+			}
+		}
+		return singletonObject;
+	}
+
+	/**
+	 * Return the names of the beans awaited along a chain of threads, starting with
+	 * the given creating thread, that waits for the given thread, or {@code null} if
+	 * there is no such chain. To be called within the full singleton lock.
+	 */
+	@Nullable
+	private List<String> getCircularWait(Thread creatingThread, Thread currentThread) {
+		List<String> awaitedBeans = new ArrayList<>();
+		Thread thread = creatingThread;
+		while (thread != null && awaitedBeans.size() <= this.singletonWaitingThreads.size()) {
+			String awaitedBean = this.singletonWaitingThreads.get(thread);
+			if (awaitedBean == null) {
+				return null;
+			}
+			awaitedBeans.add(awaitedBean);
+			thread = this.singletonCreationThreads.get(awaitedBean);
+			if (thread == currentThread) {
+				return awaitedBeans;
+			}
+		}
+		return null;
+	}
+
+	private boolean hasEarlySingletonReference(String beanName) {
+		return (this.earlySingletonObjects.containsKey(beanName) || this.singletonFactories.containsKey(beanName));
+	}
+
+	private boolean isSingletonCreatedByCurrentThread(String beanName) {
+		Thread creatingThread = this.singletonCreationThreads.get(beanName);
+		return (creatingThread == null || creatingThread == Thread.currentThread());
+	}
+
+	/**
+	 * Specify whether singletons may be created by several threads in parallel,
+	 * typically while pre-instantiating independent singletons concurrently.
+	 * <p>In this mode, singletons are not created within the full singleton lock:
+	 * each singleton is created by one thread, and early references to it are only
+	 * exposed to other threads for resolving circular references between them.
+	 * @param parallelSingletonCreation whether to create singletons in parallel
+	 * @since 5.2.13
+	 * @see #getSingleton(String, ObjectFactory)
+	 */
+	protected void setParallelSingletonCreation(boolean parallelSingletonCreation) {
+		this.parallelSingletonCreation = parallelSingletonCreation;
+	}
+
 	/**
 	 * Register an exception that happened to get suppressed during the creation of a
 	 * singleton bean instance, e.g. a temporary circular reference resolution problem.
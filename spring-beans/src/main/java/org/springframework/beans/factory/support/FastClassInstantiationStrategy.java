@@ -0,0 +1,238 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.beans.BeanMethodInvoker;
+import org.springframework.cglib.core.ClassLoaderAwareGeneratorStrategy;
+import org.springframework.cglib.core.SpringNamingPolicy;
+import org.springframework.cglib.reflect.FastClass;
+import org.springframework.core.KotlinDetector;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Instantiation strategy that replaces reflective constructor, factory method
+ * and property method calls with calls through CGLIB-generated
+ * {@link FastClass} accessors, for bean classes that get instantiated repeatedly
+ * (typically prototype and request/session-scoped beans).
+ *
+ * <p>An accessor class is generated per bean class once the class has been
+ * used more often than the configured {@link #setCompileThreshold threshold},
+ * so that rarely created beans (e.g. most singletons) do not pay for class
+ * generation. Until then, and whenever the generated accessor cannot handle a
+ * given invocation (e.g. private members, Kotlin classes, arguments that need
+ * reflective conversion), this strategy falls back to reflection.
+ *
+ * <p>Also acts as {@link BeanMethodInvoker} for the bean wrappers of an
+ * {@link AbstractAutowireCapableBeanFactory} that it is set on.
+ *
+ * @since 5.2.13
+ * @see AbstractAutowireCapableBeanFactory#setInstantiationStrategy
+ * @see org.springframework.beans.BeanWrapperImpl#setMethodInvoker
+ */
+public class FastClassInstantiationStrategy extends CglibSubclassingInstantiationStrategy
+		implements BeanMethodInvoker {
+
+	/**
+	 * The default number of invocations per bean class before an accessor
+	 * class gets generated for it.
+	 */
+	public static final int DEFAULT_COMPILE_THRESHOLD = 16;
+
+
+	private static final Log logger = LogFactory.getLog(FastClassInstantiationStrategy.class);
+
+	private int compileThreshold = DEFAULT_COMPILE_THRESHOLD;
+
+	private final Map<Class<?>, AccessorHolder> accessorCache = new ConcurrentReferenceHashMap<>(256);
+
+
+	/**
+	 * Set the number of invocations per bean class after which an accessor
+	 * class gets generated for it. Default is {@value #DEFAULT_COMPILE_THRESHOLD}.
+	 * <p>Specify 0 for generating accessor classes right away.
+	 */
+	public void setCompileThreshold(int compileThreshold) {
+		Assert.isTrue(compileThreshold >= 0, "Compile threshold must not be negative");
+		this.compileThreshold = compileThreshold;
+	}
+
+	/**
+	 * Return the number of invocations per bean class after which an accessor
+	 * class gets generated for it.
+	 */
+	public int getCompileThreshold() {
+		return this.compileThreshold;
+	}
+
+
+	@Override
+	protected Object instantiateClass(Constructor<?> ctor, Object... args) {
+		Class<?> clazz = ctor.getDeclaringClass();
+		if (!Modifier.isAbstract(clazz.getModifiers()) &&
+				!(KotlinDetector.isKotlinReflectPresent() && KotlinDetector.isKotlinType(clazz))) {
+			FastClass fastClass = getFastClass(clazz);
+			if (fastClass != null && isApplicable(ctor.getParameterTypes(), args)) {
+				int index = fastClass.getIndex(ctor.getParameterTypes());
+				if (index >= 0) {
+					try {
+						return fastClass.newInstance(index, args);
+					}
+					catch (InvocationTargetException ex) {
+						throw new BeanInstantiationException(ctor, "Constructor threw exception", ex.getTargetException());
+					}
+				}
+			}
+		}
+		return super.instantiateClass(ctor, args);
+	}
+
+	@Override
+	@Nullable
+	protected Object invokeFactoryMethod(Method factoryMethod, @Nullable Object factoryBean, Object... args)
+			throws IllegalAccessException, InvocationTargetException {
+
+		return invoke(factoryMethod, factoryBean, args);
+	}
+
+	@Override
+	@Nullable
+	public Object invoke(Method method, @Nullable Object target, Object... args)
+			throws IllegalAccessException, InvocationTargetException {
+
+		Class<?> clazz = method.getDeclaringClass();
+		if (!clazz.isInterface() && (target != null || Modifier.isStatic(method.getModifiers()))) {
+			FastClass fastClass = getFastClass(clazz);
+			if (fastClass != null && isApplicable(method.getParameterTypes(), args)) {
+				int index = fastClass.getIndex(method.getName(), method.getParameterTypes());
+				if (index >= 0) {
+					return fastClass.invoke(index, target, args);
+				}
+			}
+		}
+		return method.invoke(target, args);
+	}
+
+	/**
+	 * Obtain the accessor class for the given bean class, generating it once the
+	 * class has reached the compile threshold.
+	 * @param clazz the bean class (or factory class)
+	 * @return the accessor class, or {@code null} if not available (yet)
+	 */
+	@Nullable
+	private FastClass getFastClass(Class<?> clazz) {
+		AccessorHolder holder = this.accessorCache.computeIfAbsent(clazz, key -> new AccessorHolder());
+		FastClass fastClass = holder.fastClass;
+		if (fastClass != null || holder.failed) {
+			return fastClass;
+		}
+		if (holder.invocationCount.incrementAndGet() <= this.compileThreshold) {
+			return null;
+		}
+		synchronized (holder) {
+			if (holder.fastClass == null && !holder.failed) {
+				try {
+					holder.fastClass = generateFastClass(clazz);
+				}
+				catch (Throwable ex) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Failed to generate accessor class for [" + clazz.getName() +
+								"] - falling back to reflection", ex);
+					}
+					holder.failed = true;
+				}
+			}
+			return holder.fastClass;
+		}
+	}
+
+	/**
+	 * Return the accessor class that has been generated for the given bean class,
+	 * without counting towards the compile threshold.
+	 * @param clazz the bean class (or factory class)
+	 * @return the accessor class, or {@code null} if none has been generated
+	 */
+	@Nullable
+	FastClass getGeneratedFastClass(Class<?> clazz) {
+		AccessorHolder holder = this.accessorCache.get(clazz);
+		return (holder != null ? holder.fastClass : null);
+	}
+
+	/**
+	 * Generate an accessor class for the given bean class.
+	 * <p>The default implementation defines the accessor class in the class loader
+	 * of the given bean class. Can be overridden in subclasses.
+	 * @param clazz the bean class (or factory class)
+	 * @return the accessor class
+	 */
+	protected FastClass generateFastClass(Class<?> clazz) {
+		ClassLoader classLoader = clazz.getClassLoader();
+		Assert.state(classLoader != null, "Cannot generate accessor class for bootstrap class");
+		FastClass.Generator generator = new FastClass.Generator();
+		generator.setType(clazz);
+		generator.setContextClass(clazz);
+		generator.setClassLoader(classLoader);
+		generator.setNamingPolicy(SpringNamingPolicy.INSTANCE);
+		generator.setStrategy(new ClassLoaderAwareGeneratorStrategy(classLoader));
+		return generator.create();
+	}
+
+	/**
+	 * Check whether the given arguments can be passed to a generated accessor
+	 * as-is: that is, without the argument checks and {@code null} defaulting
+	 * for primitive parameters that the reflective invocation path applies.
+	 */
+	private static boolean isApplicable(Class<?>[] parameterTypes, Object[] args) {
+		if (parameterTypes.length != args.length) {
+			return false;
+		}
+		for (int i = 0; i < args.length; i++) {
+			if (!ClassUtils.isAssignableValue(parameterTypes[i], args[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Holder for the invocation count and the accessor class of a bean class.
+	 */
+	private static class AccessorHolder {
+
+		final AtomicInteger invocationCount = new AtomicInteger();
+
+		@Nullable
+		volatile FastClass fastClass;
+
+		volatile boolean failed;
+	}
+
+}
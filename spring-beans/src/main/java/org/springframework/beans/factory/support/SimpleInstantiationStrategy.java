@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -84,7 +84,7 @@ public class SimpleInstantiationStrategy implements InstantiationStrategy {
 					}
 				}
 			}
-			return BeanUtils.instantiateClass(constructorToUse);
+			return instantiateClass(constructorToUse);
 		}
 		else {
 			// Must generate CGLIB subclass.
@@ -114,7 +114,7 @@ public class SimpleInstantiationStrategy implements InstantiationStrategy {
 					return null;
 				});
 			}
-			return BeanUtils.instantiateClass(ctor, args);
+			return instantiateClass(ctor, args);
 		}
 		else {
 			return instantiateWithMethodInjection(bd, beanName, owner, ctor, args);
@@ -151,7 +151,7 @@ public class SimpleInstantiationStrategy implements InstantiationStrategy {
 			Method priorInvokedFactoryMethod = currentlyInvokedFactoryMethod.get();
 			try {
 				currentlyInvokedFactoryMethod.set(factoryMethod);
-				Object result = factoryMethod.invoke(factoryBean, args);
+				Object result = invokeFactoryMethod(factoryMethod, factoryBean, args);
 				if (result == null) {
 					result = new NullBean();
 				}
@@ -186,4 +186,37 @@ public class SimpleInstantiationStrategy implements InstantiationStrategy {
 		}
 	}
 
+	/**
+	 * Instantiate a bean class through the given constructor.
+	 * <p>The default implementation delegates to {@link BeanUtils#instantiateClass}.
+	 * Subclasses may override this to replace reflective constructor calls.
+	 * @param ctor the constructor to use
+	 * @param args the constructor arguments to apply
+	 * @return the new instance
+	 * @throws BeanInstantiationException if the bean cannot be instantiated
+	 * @since 5.2.13
+	 */
+	protected Object instantiateClass(Constructor<?> ctor, Object... args) {
+		return BeanUtils.instantiateClass(ctor, args);
+	}
+
+	/**
+	 * Invoke the given factory method on the given factory bean.
+	 * <p>The default implementation uses reflection. Subclasses may override this
+	 * to replace reflective factory method calls.
+	 * @param factoryMethod the factory method to invoke (already made accessible)
+	 * @param factoryBean the factory bean instance, or {@code null} for a static factory method
+	 * @param args the factory method arguments to apply
+	 * @return the factory method's return value
+	 * @throws IllegalAccessException if the factory method is not accessible
+	 * @throws InvocationTargetException if the factory method threw an exception
+	 * @since 5.2.13
+	 */
+	@Nullable
+	protected Object invokeFactoryMethod(Method factoryMethod, @Nullable Object factoryBean, Object... args)
+			throws IllegalAccessException, InvocationTargetException {
+
+		return factoryMethod.invoke(factoryBean, args);
+	}
+
 }
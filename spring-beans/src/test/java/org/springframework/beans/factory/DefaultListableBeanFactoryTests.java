@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -37,6 +37,8 @@ import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -1424,6 +1426,95 @@ class DefaultListableBeanFactoryTests {
 			.withMessageContaining("'tb1'");
 	}
 
+	@Test
+	void parallelPreInstantiation() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			lbf.setPreInstantiationExecutor(executor);
+			RootBeanDefinition bd1 = new RootBeanDefinition(TestBean.class);
+			bd1.getPropertyValues().add("spouse", new RuntimeBeanReference("tb2"));
+			lbf.registerBeanDefinition("tb1", bd1);
+			RootBeanDefinition bd2 = new RootBeanDefinition(TestBean.class);
+			bd2.setDependsOn("tb3");
+			lbf.registerBeanDefinition("tb2", bd2);
+			lbf.registerBeanDefinition("tb3", new RootBeanDefinition(TestBean.class));
+			RootBeanDefinition bd4 = new RootBeanDefinition(TestBean.class);
+			bd4.setLazyInit(true);
+			lbf.registerBeanDefinition("tb4", bd4);
+			lbf.preInstantiateSingletons();
+
+			assertThat(lbf.getSingletonNames()).containsExactlyInAnyOrder("tb1", "tb2", "tb3");
+			assertThat(lbf.getBean("tb1", TestBean.class).getSpouse()).isSameAs(lbf.getBean("tb2"));
+			assertThat(lbf.getDependentBeans("tb3")).containsExactly("tb2");
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void parallelPreInstantiationWithCircularReferenceAcrossThreads() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			lbf.setPreInstantiationExecutor(executor);
+			RootBeanDefinition bd1 = new RootBeanDefinition(SlowCircularBean.class);
+			bd1.setAutowireMode(RootBeanDefinition.AUTOWIRE_BY_NAME);
+			lbf.registerBeanDefinition("circular1", bd1);
+			RootBeanDefinition bd2 = new RootBeanDefinition(OtherSlowCircularBean.class);
+			bd2.setAutowireMode(RootBeanDefinition.AUTOWIRE_BY_NAME);
+			lbf.registerBeanDefinition("circular2", bd2);
+			lbf.preInstantiateSingletons();
+
+			SlowCircularBean circular1 = lbf.getBean(SlowCircularBean.class);
+			OtherSlowCircularBean circular2 = lbf.getBean(OtherSlowCircularBean.class);
+			assertThat(circular1.circular2).isSameAs(circular2);
+			assertThat(circular2.circular1).isSameAs(circular1);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void parallelPreInstantiationWithDependsOnCycle() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			lbf.setPreInstantiationExecutor(executor);
+			RootBeanDefinition bd1 = new RootBeanDefinition(TestBean.class);
+			bd1.setDependsOn("tb2");
+			lbf.registerBeanDefinition("tb1", bd1);
+			RootBeanDefinition bd2 = new RootBeanDefinition(TestBean.class);
+			bd2.setDependsOn("tb1");
+			lbf.registerBeanDefinition("tb2", bd2);
+			lbf.registerBeanDefinition("tb3", new RootBeanDefinition(TestBean.class));
+			assertThatExceptionOfType(BeanCreationException.class).isThrownBy(
+					lbf::preInstantiateSingletons)
+				.withMessageContaining("Circular");
+			assertThat(lbf.containsSingleton("tb3")).isTrue();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void parallelPreInstantiationWithFailure() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			lbf.setPreInstantiationExecutor(executor);
+			RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+			bd.getPropertyValues().add("age", "not a number");
+			lbf.registerBeanDefinition("tb1", bd);
+			lbf.registerBeanDefinition("tb2", new RootBeanDefinition(TestBean.class));
+			assertThatExceptionOfType(BeanCreationException.class).isThrownBy(
+					lbf::preInstantiateSingletons)
+				.satisfies(ex -> assertThat(ex.getBeanName()).isEqualTo("tb1"));
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
 	@Test
 	void getBeanByTypeWithNoneFound() {
 		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
@@ -3380,4 +3471,32 @@ class DefaultListableBeanFactoryTests {
 		}
 	}
 
+
+	public static class SlowCircularBean {
+
+		OtherSlowCircularBean circular2;
+
+		public SlowCircularBean() throws InterruptedException {
+			Thread.sleep(100);
+		}
+
+		public void setCircular2(OtherSlowCircularBean circular2) {
+			this.circular2 = circular2;
+		}
+	}
+
+
+	public static class OtherSlowCircularBean {
+
+		SlowCircularBean circular1;
+
+		public OtherSlowCircularBean() throws InterruptedException {
+			Thread.sleep(100);
+		}
+
+		public void setCircular1(SlowCircularBean circular1) {
+			this.circular1 = circular1;
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,13 @@
 
 package org.springframework.beans.factory.support;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.jupiter.api.Test;
 
 import org.springframework.beans.BeansException;
@@ -101,4 +108,71 @@ public class DefaultSingletonBeanRegistryTests {
 		assertThat(beanRegistry.isDependent("c", "c")).isTrue();
 	}
 
+	@Test
+	public void testSingletonLookupDuringParallelCreation() throws Exception {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		beanRegistry.setParallelSingletonCreation(true);
+		TestBean tb = new TestBean();
+		CountDownLatch creationStarted = new CountDownLatch(1);
+		CountDownLatch lookupDone = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Object> creation = executor.submit(() -> beanRegistry.getSingleton("tb", () -> {
+				creationStarted.countDown();
+				try {
+					lookupDone.await();
+				}
+				catch (InterruptedException ex) {
+					throw new IllegalStateException(ex);
+				}
+				return tb;
+			}));
+			assertThat(creationStarted.await(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(beanRegistry.isSingletonCurrentlyInCreation("tb")).isTrue();
+			assertThat(beanRegistry.getSingleton("tb")).isNull();
+			lookupDone.countDown();
+			assertThat(creation.get(5, TimeUnit.SECONDS)).isSameAs(tb);
+			assertThat(beanRegistry.getSingleton("tb")).isSameAs(tb);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testEarlySingletonReferenceCreatedOnce() throws Exception {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		AtomicInteger earlyReferenceCount = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		int lookups = 8;
+
+		ExecutorService executor = Executors.newFixedThreadPool(lookups);
+		try {
+			beanRegistry.beforeSingletonCreation("tb");
+			beanRegistry.addSingletonFactory("tb", () -> {
+				earlyReferenceCount.incrementAndGet();
+				return new TestBean();
+			});
+			Future<?>[] results = new Future<?>[lookups];
+			for (int i = 0; i < lookups; i++) {
+				results[i] = executor.submit(() -> {
+					start.await();
+					return beanRegistry.getSingleton("tb");
+				});
+			}
+			start.countDown();
+			Object earlyReference = beanRegistry.getSingleton("tb");
+			assertThat(earlyReference).isNotNull();
+			for (Future<?> result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(earlyReference);
+			}
+			assertThat(earlyReferenceCount.get()).isEqualTo(1);
+			assertThat(beanRegistry.getSingleton("tb", false)).isSameAs(earlyReference);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
 }
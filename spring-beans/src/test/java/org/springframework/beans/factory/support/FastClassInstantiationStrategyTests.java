@@ -0,0 +1,135 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.testfixture.beans.TestBean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link FastClassInstantiationStrategy}.
+ */
+class FastClassInstantiationStrategyTests {
+
+	private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+	private final FastClassInstantiationStrategy strategy = new FastClassInstantiationStrategy();
+
+
+	@BeforeEach
+	void setup() {
+		this.strategy.setCompileThreshold(2);
+		this.beanFactory.setInstantiationStrategy(this.strategy);
+	}
+
+
+	@Test
+	void prototypeWithProperties() {
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bd.getPropertyValues().add("name", "juergen").add("age", "42");
+		this.beanFactory.registerBeanDefinition("tb", bd);
+
+		for (int i = 0; i < 5; i++) {
+			TestBean tb = (TestBean) this.beanFactory.getBean("tb");
+			assertThat(tb.getName()).isEqualTo("juergen");
+			assertThat(tb.getAge()).isEqualTo(42);
+		}
+		assertThat(this.strategy.getGeneratedFastClass(TestBean.class)).isNotNull();
+	}
+
+	@Test
+	void prototypeWithConstructorArguments() {
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bd.getConstructorArgumentValues().addIndexedArgumentValue(0, "juergen");
+		bd.getConstructorArgumentValues().addIndexedArgumentValue(1, 42);
+		this.beanFactory.registerBeanDefinition("tb", bd);
+
+		for (int i = 0; i < 5; i++) {
+			TestBean tb = (TestBean) this.beanFactory.getBean("tb");
+			assertThat(tb.getName()).isEqualTo("juergen");
+			assertThat(tb.getAge()).isEqualTo(42);
+		}
+		assertThat(this.strategy.getGeneratedFastClass(TestBean.class)).isNotNull();
+	}
+
+	@Test
+	void prototypeWithFactoryMethod() {
+		RootBeanDefinition bd = new RootBeanDefinition(TestBeanFactory.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bd.setFactoryMethodName("create");
+		bd.getConstructorArgumentValues().addGenericArgumentValue("juergen");
+		this.beanFactory.registerBeanDefinition("tb", bd);
+
+		for (int i = 0; i < 5; i++) {
+			TestBean tb = (TestBean) this.beanFactory.getBean("tb");
+			assertThat(tb.getName()).isEqualTo("juergen");
+			assertThat(tb.getTouchy()).isEqualTo(i < 2 ? "reflection" : "accessor");
+		}
+		assertThat(this.strategy.getGeneratedFastClass(TestBeanFactory.class)).isNotNull();
+	}
+
+	@Test
+	void prototypeWithFailingConstructor() {
+		RootBeanDefinition bd = new RootBeanDefinition(FailingBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		this.beanFactory.registerBeanDefinition("fb", bd);
+
+		for (int i = 0; i < 5; i++) {
+			boolean compiled = (i >= 2);
+			assertThatExceptionOfType(BeanCreationException.class).isThrownBy(() ->
+					this.beanFactory.getBean("fb"))
+				.withRootCauseInstanceOf(IllegalStateException.class)
+				.satisfies(ex -> assertThat(isInvokedThroughAccessor(ex.getRootCause().getStackTrace()))
+						.isEqualTo(compiled));
+		}
+		assertThat(this.strategy.getGeneratedFastClass(FailingBean.class)).isNotNull();
+	}
+
+
+	private static boolean isInvokedThroughAccessor(StackTraceElement[] stackTrace) {
+		return Arrays.stream(stackTrace).anyMatch(element -> element.getClassName().contains("$$FastClass"));
+	}
+
+
+	public static class TestBeanFactory {
+
+		public static TestBean create(String name) throws Exception {
+			TestBean tb = new TestBean(name);
+			tb.setTouchy(isInvokedThroughAccessor(new Throwable().getStackTrace()) ? "accessor" : "reflection");
+			return tb;
+		}
+	}
+
+
+	public static class FailingBean {
+
+		public FailingBean() {
+			throw new IllegalStateException("Expected");
+		}
+	}
+
+}
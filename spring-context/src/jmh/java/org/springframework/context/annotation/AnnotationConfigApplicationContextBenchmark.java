@@ -0,0 +1,126 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.support.GenericApplicationContext;
+
+/**
+ * Benchmarks for the startup of an {@link AnnotationConfigApplicationContext}
+ * and for bean retrieval from a refreshed context.
+ */
+public class AnnotationConfigApplicationContextBenchmark {
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void refreshWithConfigurationClass() {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(SampleConfig.class);
+		context.close();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	public Object getPrototypeBean(ContextData data) {
+		return data.context.getBean(PrototypeComponent.class);
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class ContextData {
+
+		public GenericApplicationContext context;
+
+		@Setup
+		public void setup() {
+			this.context = new AnnotationConfigApplicationContext(SampleConfig.class);
+		}
+
+		@TearDown
+		public void tearDown() {
+			this.context.close();
+		}
+	}
+
+
+	@Configuration
+	@Import(OtherConfig.class)
+	static class SampleConfig {
+
+		@Bean
+		public SingletonComponent singletonComponent() {
+			return new SingletonComponent();
+		}
+
+		@Bean
+		@org.springframework.context.annotation.Scope("prototype")
+		public PrototypeComponent prototypeComponent() {
+			return new PrototypeComponent();
+		}
+	}
+
+
+	@Configuration
+	static class OtherConfig {
+
+		@Bean
+		@Lazy
+		public SingletonComponent lazyComponent() {
+			return new SingletonComponent();
+		}
+	}
+
+
+	static class SingletonComponent {
+
+		private boolean initialized;
+
+		@PostConstruct
+		public void init() {
+			this.initialized = true;
+		}
+
+		public boolean isInitialized() {
+			return this.initialized;
+		}
+	}
+
+
+	static class PrototypeComponent {
+
+		@Autowired
+		private SingletonComponent singletonComponent;
+
+		public SingletonComponent getSingletonComponent() {
+			return this.singletonComponent;
+		}
+	}
+
+}
@@ -0,0 +1,685 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * A {@link ConcurrentMap} with a maximum number of entries and optional
+ * expiration of entries, suitable as a bounded store for a {@link ConcurrentMapCache}.
+ *
+ * <p>Entries are distributed over lock-striped segments, each of which applies
+ * a segmented LRU policy on its share of the maximum size: new entries are added
+ * to a probationary region and promoted to a protected region when accessed again,
+ * and entries are evicted from the probationary region first. This keeps frequently
+ * used entries around when the map is swept by entries that are used only once.
+ *
+ * <p>Reads do not block: entries are looked up in a concurrent table, and the
+ * access order is updated only if the segment lock is available right away.
+ * Otherwise the access is buffered and applied by the next operation holding
+ * the lock, or dropped if the buffer is full. {@link #computeIfAbsent} invokes
+ * the mapping function outside of the lock, so the function may be invoked
+ * more than once for the same key, with the first value stored winning.
+ *
+ * <p>Entries may also expire after a fixed duration since they were written or
+ * last accessed. Expired entries are never returned; they are removed when
+ * accessed (if the segment lock is available), when their segment needs room,
+ * or through {@link #cleanUp()}.
+ *
+ * <p>Hit, miss and eviction counts are recorded for lookups through
+ * {@link #get}, {@link #containsKey} and {@link #computeIfAbsent}.
+ *
+ * <p>This map does not support {@code null} keys or values.
+ *
+ * @since 5.2.13
+ * @param <K> the key type
+ * @param <V> the value type
+ * @see ConcurrentMapCacheManager#setMaximumSize
+ */
+public class BoundedConcurrentMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+	private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	private static final int PROTECTED_PERCENTAGE = 80;
+
+	private static final int READ_BUFFER_SIZE = 64;
+
+
+	private final Segment<K, V>[] segments;
+
+	private final int shift;
+
+	private final long expireAfterWriteNanos;
+
+	private final long expireAfterAccessNanos;
+
+	private final LongSupplier ticker;
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+	@Nullable
+	private volatile Set<Map.Entry<K, V>> entrySet;
+
+
+	/**
+	 * Create a new {@code BoundedConcurrentMap} with the given maximum size
+	 * and no expiration.
+	 * @param maximumSize the maximum number of entries
+	 */
+	public BoundedConcurrentMap(int maximumSize) {
+		this(maximumSize, null, null);
+	}
+
+	/**
+	 * Create a new {@code BoundedConcurrentMap} with the given maximum size
+	 * and expiration settings.
+	 * @param maximumSize the maximum number of entries
+	 * @param expireAfterWrite the duration after which an entry expires once
+	 * written, or {@code null} for no such expiration
+	 * @param expireAfterAccess the duration after which an entry expires once
+	 * last read or written, or {@code null} for no such expiration
+	 */
+	public BoundedConcurrentMap(int maximumSize,
+			@Nullable Duration expireAfterWrite, @Nullable Duration expireAfterAccess) {
+
+		this(maximumSize, expireAfterWrite, expireAfterAccess, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Create a new {@code BoundedConcurrentMap} with the given maximum size,
+	 * expiration settings and concurrency level.
+	 * @param maximumSize the maximum number of entries
+	 * @param expireAfterWrite the duration after which an entry expires once
+	 * written, or {@code null} for no such expiration
+	 * @param expireAfterAccess the duration after which an entry expires once
+	 * last read or written, or {@code null} for no such expiration
+	 * @param concurrencyLevel the expected number of threads that will
+	 * concurrently write to the map, used to size the number of segments
+	 */
+	public BoundedConcurrentMap(int maximumSize, @Nullable Duration expireAfterWrite,
+			@Nullable Duration expireAfterAccess, int concurrencyLevel) {
+
+		this(maximumSize, expireAfterWrite, expireAfterAccess, concurrencyLevel, System::nanoTime);
+	}
+
+	@SuppressWarnings("unchecked")
+	BoundedConcurrentMap(int maximumSize, @Nullable Duration expireAfterWrite,
+			@Nullable Duration expireAfterAccess, int concurrencyLevel, LongSupplier ticker) {
+
+		Assert.isTrue(maximumSize > 0, "Maximum size must be positive");
+		Assert.isTrue(concurrencyLevel > 0, "Concurrency level must be positive");
+		Assert.isTrue(expireAfterWrite == null || !expireAfterWrite.isNegative(),
+				"Expire-after-write duration must not be negative");
+		Assert.isTrue(expireAfterAccess == null || !expireAfterAccess.isNegative(),
+				"Expire-after-access duration must not be negative");
+		int shift = 0;
+		while ((1 << (shift + 1)) <= Math.min(concurrencyLevel, maximumSize)) {
+			shift++;
+		}
+		int segmentCount = 1 << shift;
+		this.shift = shift;
+		this.segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			int capacity = maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0);
+			this.segments[i] = new Segment<>(this, capacity);
+		}
+		this.expireAfterWriteNanos = (expireAfterWrite != null ? expireAfterWrite.toNanos() : -1);
+		this.expireAfterAccessNanos = (expireAfterAccess != null ? expireAfterAccess.toNanos() : -1);
+		this.ticker = ticker;
+	}
+
+
+	/**
+	 * Return the maximum number of entries that this map holds.
+	 */
+	public int getMaximumSize() {
+		int maximumSize = 0;
+		for (Segment<K, V> segment : this.segments) {
+			maximumSize += segment.capacity;
+		}
+		return maximumSize;
+	}
+
+	/**
+	 * Return the number of lookups that found a present entry.
+	 */
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+
+	/**
+	 * Return the number of lookups that did not find a present entry,
+	 * including lookups of expired entries.
+	 */
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+
+	/**
+	 * Return the number of entries removed because the map reached its
+	 * maximum size or because they expired.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount.sum();
+	}
+
+	/**
+	 * Remove all expired entries.
+	 */
+	public void cleanUp() {
+		for (Segment<K, V> segment : this.segments) {
+			segment.lock();
+			try {
+				segment.drainReadBuffer();
+				segment.removeExpired(this.ticker.getAsLong());
+			}
+			finally {
+				segment.unlock();
+			}
+		}
+	}
+
+
+	@Override
+	@Nullable
+	public V get(@Nullable Object key) {
+		V value = (key != null ? getSegment(key).get(key, this.ticker.getAsLong()) : null);
+		recordLookup(value != null);
+		return value;
+	}
+
+	@Override
+	public boolean containsKey(@Nullable Object key) {
+		return (get(key) != null);
+	}
+
+	@Override
+	@Nullable
+	public V put(K key, V value) {
+		Assert.notNull(value, "Value must not be null");
+		Segment<K, V> segment = getSegment(key);
+		segment.lock();
+		try {
+			return segment.put(key, value, true, this.ticker.getAsLong());
+		}
+		finally {
+			segment.unlock();
+		}
+	}
+
+	@Override
+	@Nullable
+	public V putIfAbsent(K key, V value) {
+		Assert.notNull(value, "Value must not be null");
+		Segment<K, V> segment = getSegment(key);
+		segment.lock();
+		try {
+			return segment.put(key, value, false, this.ticker.getAsLong());
+		}
+		finally {
+			segment.unlock();
+		}
+	}
+
+	@Override
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		V value = get(key);
+		if (value != null) {
+			return value;
+		}
+		value = mappingFunction.apply(key);
+		if (value == null) {
+			return null;
+		}
+		Segment<K, V> segment = getSegment(key);
+		segment.lock();
+		try {
+			V existing = segment.put(key, value, false, this.ticker.getAsLong());
+			return (existing != null ? existing : value);
+		}
+		finally {
+			segment.unlock();
+		}
+	}
+
+	@Override
+	@Nullable
+	public V remove(@Nullable Object key) {
+		if (key == null) {
+			return null;
+		}
+		Segment<K, V> segment = getSegment(key);
+		segment.lock();
+		try {
+			Node<K, V> node = segment.remove(key);
+			return (node != null && !isExpired(node, this.ticker.getAsLong()) ? node.value : null);
+		}
+		finally {
+			segment.unlock();
+		}
+	}
+
+	@Override
+	public boolean remove(@Nullable Object key, @Nullable Object value) {
+		if (key == null || value == null) {
+			return false;
+		}
+		Segment<K, V> segment = getSegment(key);
+		segment.lock();
+		try {
+			V existing = segment.get(key, this.ticker.getAsLong());
+			if (existing != null && ObjectUtils.nullSafeEquals(existing, value)) {
+				segment.remove(key);
+				return true;
+			}
+			return false;
+		}
+		finally {
+			segment.unlock();
+		}
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		Assert.notNull(newValue, "Value must not be null");
+		Segment<K, V> segment = getSegment(key);
+		segment.lock();
+		try {
+			long now = this.ticker.getAsLong();
+			V existing = segment.get(key, now);
+			if (existing != null && ObjectUtils.nullSafeEquals(existing, oldValue)) {
+				segment.put(key, newValue, true, now);
+				return true;
+			}
+			return false;
+		}
+		finally {
+			segment.unlock();
+		}
+	}
+
+	@Override
+	@Nullable
+	public V replace(K key, V value) {
+		Assert.notNull(value, "Value must not be null");
+		Segment<K, V> segment = getSegment(key);
+		segment.lock();
+		try {
+			long now = this.ticker.getAsLong();
+			V existing = segment.get(key, now);
+			if (existing != null) {
+				segment.put(key, value, true, now);
+			}
+			return existing;
+		}
+		finally {
+			segment.unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		for (Segment<K, V> segment : this.segments) {
+			segment.lock();
+			try {
+				segment.clear();
+			}
+			finally {
+				segment.unlock();
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> segment : this.segments) {
+			size += segment.data.size();
+		}
+		return size;
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		Set<Map.Entry<K, V>> entrySet = this.entrySet;
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+			this.entrySet = entrySet;
+		}
+		return entrySet;
+	}
+
+
+	private Segment<K, V> getSegment(Object key) {
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return this.segments[(hash * 0x9E3779B9) >>> (32 - this.shift) & (this.segments.length - 1)];
+	}
+
+	private void recordLookup(boolean hit) {
+		if (hit) {
+			this.hitCount.increment();
+		}
+		else {
+			this.missCount.increment();
+		}
+	}
+
+	private boolean isExpired(Node<K, V> node, long now) {
+		return ((this.expireAfterWriteNanos >= 0 && now - node.writeTime >= this.expireAfterWriteNanos) ||
+				(this.expireAfterAccessNanos >= 0 && now - node.accessTime >= this.expireAfterAccessNanos));
+	}
+
+
+	/**
+	 * A share of the entries: held in a concurrent table for lookups, and in
+	 * probationary and protected regions kept in access order, which are
+	 * guarded by the segment lock along with all modifications of the table.
+	 */
+	@SuppressWarnings("serial")
+	private static final class Segment<K, V> extends ReentrantLock {
+
+		private final BoundedConcurrentMap<K, V> map;
+
+		private final int capacity;
+
+		private final int protectedCapacity;
+
+		private final ConcurrentHashMap<Object, Node<K, V>> data = new ConcurrentHashMap<>(16);
+
+		private final LinkedHashMap<Object, Node<K, V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+
+		private final LinkedHashMap<Object, Node<K, V>> protectedRegion = new LinkedHashMap<>(16, 0.75f, true);
+
+		private final Queue<Node<K, V>> readBuffer = new ConcurrentLinkedQueue<>();
+
+		private final AtomicInteger readBufferSize = new AtomicInteger();
+
+		Segment(BoundedConcurrentMap<K, V> map, int capacity) {
+			this.map = map;
+			this.capacity = capacity;
+			this.protectedCapacity = (int) ((long) capacity * PROTECTED_PERCENTAGE / 100);
+		}
+
+		@Nullable
+		V get(Object key, long now) {
+			Node<K, V> node = this.data.get(key);
+			if (node == null) {
+				return null;
+			}
+			if (this.map.isExpired(node, now)) {
+				if (tryLock()) {
+					try {
+						removeIfExpired(node, now);
+					}
+					finally {
+						unlock();
+					}
+				}
+				return null;
+			}
+			node.accessTime = now;
+			recordAccess(node);
+			return node.value;
+		}
+
+		private void recordAccess(Node<K, V> node) {
+			if (tryLock()) {
+				try {
+					drainReadBuffer();
+					applyAccess(node);
+				}
+				finally {
+					unlock();
+				}
+			}
+			else if (this.readBufferSize.incrementAndGet() <= READ_BUFFER_SIZE) {
+				this.readBuffer.offer(node);
+			}
+			else {
+				this.readBufferSize.decrementAndGet();
+			}
+		}
+
+		void drainReadBuffer() {
+			Node<K, V> node;
+			while ((node = this.readBuffer.poll()) != null) {
+				this.readBufferSize.decrementAndGet();
+				applyAccess(node);
+			}
+		}
+
+		private void applyAccess(Node<K, V> node) {
+			if (this.data.get(node.key) != node) {
+				// Removed in the meantime
+				return;
+			}
+			if (node.protectedEntry) {
+				// Move to the most recently used position
+				this.protectedRegion.get(node.key);
+			}
+			else {
+				promote(node);
+			}
+		}
+
+		@Nullable
+		V put(K key, V value, boolean overwrite, long now) {
+			drainReadBuffer();
+			Node<K, V> node = this.data.get(key);
+			if (node != null) {
+				if (removeIfExpired(node, now)) {
+					node = null;
+				}
+				else {
+					V existing = node.value;
+					node.accessTime = now;
+					if (overwrite) {
+						node.value = value;
+						node.writeTime = now;
+					}
+					return existing;
+				}
+			}
+			if (this.data.size() >= this.capacity) {
+				removeExpired(now);
+			}
+			while (this.data.size() >= this.capacity) {
+				evictOne();
+			}
+			node = new Node<>(key, value, now);
+			this.probation.put(key, node);
+			this.data.put(key, node);
+			return null;
+		}
+
+		@Nullable
+		Node<K, V> remove(Object key) {
+			Node<K, V> node = this.data.remove(key);
+			if (node != null) {
+				if (node.protectedEntry) {
+					this.protectedRegion.remove(key);
+				}
+				else {
+					this.probation.remove(key);
+				}
+			}
+			return node;
+		}
+
+		private boolean removeIfExpired(Node<K, V> node, long now) {
+			if (this.data.get(node.key) == node && this.map.isExpired(node, now)) {
+				remove(node.key);
+				this.map.evictionCount.increment();
+				return true;
+			}
+			return false;
+		}
+
+		void removeExpired(long now) {
+			if (this.map.expireAfterWriteNanos < 0 && this.map.expireAfterAccessNanos < 0) {
+				return;
+			}
+			removeExpired(this.probation, now);
+			removeExpired(this.protectedRegion, now);
+		}
+
+		private void removeExpired(Map<Object, Node<K, V>> region, long now) {
+			for (Iterator<Node<K, V>> it = region.values().iterator(); it.hasNext();) {
+				Node<K, V> node = it.next();
+				if (this.map.isExpired(node, now)) {
+					it.remove();
+					this.data.remove(node.key);
+					this.map.evictionCount.increment();
+				}
+			}
+		}
+
+		void clear() {
+			this.data.clear();
+			this.probation.clear();
+			this.protectedRegion.clear();
+			this.readBuffer.clear();
+			this.readBufferSize.set(0);
+		}
+
+		void collectEntries(List<Map.Entry<K, V>> entries, long now) {
+			for (Node<K, V> node : this.data.values()) {
+				if (!this.map.isExpired(node, now)) {
+					entries.add(new SimpleImmutableEntry<>(node.key, node.value));
+				}
+			}
+		}
+
+		private void promote(Node<K, V> node) {
+			this.probation.remove(node.key);
+			node.protectedEntry = true;
+			this.protectedRegion.put(node.key, node);
+			if (this.protectedRegion.size() > this.protectedCapacity) {
+				Iterator<Node<K, V>> it = this.protectedRegion.values().iterator();
+				Node<K, V> demoted = it.next();
+				it.remove();
+				demoted.protectedEntry = false;
+				this.probation.put(demoted.key, demoted);
+			}
+		}
+
+		private void evictOne() {
+			Map<Object, Node<K, V>> region = (!this.probation.isEmpty() ? this.probation : this.protectedRegion);
+			Iterator<Node<K, V>> it = region.values().iterator();
+			Node<K, V> node = it.next();
+			it.remove();
+			this.data.remove(node.key);
+			this.map.evictionCount.increment();
+		}
+	}
+
+
+	private static final class Node<K, V> {
+
+		final K key;
+
+		volatile V value;
+
+		volatile long writeTime;
+
+		volatile long accessTime;
+
+		// Guarded by the segment lock
+		boolean protectedEntry;
+
+		Node(K key, V value, long now) {
+			this.key = key;
+			this.value = value;
+			this.writeTime = now;
+			this.accessTime = now;
+		}
+	}
+
+
+	/**
+	 * Weakly consistent view of the entries, based on a snapshot taken
+	 * when iterating.
+	 */
+	private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			List<Map.Entry<K, V>> entries = new ArrayList<>(size());
+			long now = ticker.getAsLong();
+			for (Segment<K, V> segment : segments) {
+				segment.collectEntries(entries, now);
+			}
+			Iterator<Map.Entry<K, V>> delegate = entries.iterator();
+			return new Iterator<Map.Entry<K, V>>() {
+				@Nullable
+				private Map.Entry<K, V> last;
+				@Override
+				public boolean hasNext() {
+					return delegate.hasNext();
+				}
+				@Override
+				public Map.Entry<K, V> next() {
+					this.last = delegate.next();
+					return this.last;
+				}
+				@Override
+				public void remove() {
+					Assert.state(this.last != null, "No current entry");
+					BoundedConcurrentMap.this.remove(this.last.getKey(), this.last.getValue());
+					this.last = null;
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return BoundedConcurrentMap.this.size();
+		}
+
+		@Override
+		public void clear() {
+			BoundedConcurrentMap.this.clear();
+		}
+	}
+
+}
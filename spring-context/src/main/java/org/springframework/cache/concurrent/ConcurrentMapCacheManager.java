@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.cache.concurrent;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -28,6 +29,7 @@ import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.core.serializer.support.SerializationDelegate;
 import org.springframework.lang.Nullable;
+import org.springframework.util.ObjectUtils;
 
 /**
  * {@link CacheManager} implementation that lazily builds {@link ConcurrentMapCache}
@@ -35,9 +37,10 @@ import org.springframework.lang.Nullable;
  * the set of cache names is pre-defined through {@link #setCacheNames}, with no
  * dynamic creation of further cache regions at runtime.
  *
- * <p>Note: This is by no means a sophisticated CacheManager; it comes with no
- * cache configuration options. However, it may be useful for testing or simple
- * caching scenarios. For advanced local caching needs, consider
+ * <p>Note: This is by no means a sophisticated CacheManager; it only comes with
+ * basic size and expiration limits backed by a {@link BoundedConcurrentMap}.
+ * However, it may be useful for testing or simple caching scenarios. For advanced
+ * local caching needs, consider
  * {@link org.springframework.cache.jcache.JCacheCacheManager},
  * {@link org.springframework.cache.ehcache.EhCacheCacheManager},
  * {@link org.springframework.cache.caffeine.CaffeineCacheManager}.
@@ -56,6 +59,14 @@ public class ConcurrentMapCacheManager implements CacheManager, BeanClassLoaderA
 
 	private boolean storeByValue = false;
 
+	private int maximumSize = -1;
+
+	@Nullable
+	private Duration expireAfterWrite;
+
+	@Nullable
+	private Duration expireAfterAccess;
+
 	@Nullable
 	private SerializationDelegate serialization;
 
@@ -146,6 +157,77 @@ public class ConcurrentMapCacheManager implements CacheManager, BeanClassLoaderA
 		return this.storeByValue;
 	}
 
+	/**
+	 * Specify the maximum number of entries for each cache in this cache manager,
+	 * with the least recently used entries being evicted when a cache is full.
+	 * <p>Default is none, i.e. unbounded caches.
+	 * <p>Note: A change of the maximum size will reset all existing caches,
+	 * if any, to reconfigure them with the new size limit.
+	 * @since 5.2.13
+	 * @see BoundedConcurrentMap
+	 */
+	public void setMaximumSize(int maximumSize) {
+		if (maximumSize != this.maximumSize) {
+			this.maximumSize = maximumSize;
+			// Need to recreate all Cache instances with the new size limit...
+			recreateCaches();
+		}
+	}
+
+	/**
+	 * Return the maximum number of entries for each cache, or -1 if unbounded.
+	 * @since 5.2.13
+	 */
+	public int getMaximumSize() {
+		return this.maximumSize;
+	}
+
+	/**
+	 * Specify the duration after which cache entries expire once written.
+	 * <p>Default is none, i.e. no expiration.
+	 * <p>Note: A change of the expiration setting will reset all existing caches,
+	 * if any, to reconfigure them with the new expiration setting.
+	 * @since 5.2.13
+	 */
+	public void setExpireAfterWrite(@Nullable Duration expireAfterWrite) {
+		if (!ObjectUtils.nullSafeEquals(expireAfterWrite, this.expireAfterWrite)) {
+			this.expireAfterWrite = expireAfterWrite;
+			recreateCaches();
+		}
+	}
+
+	/**
+	 * Return the duration after which cache entries expire once written, if any.
+	 * @since 5.2.13
+	 */
+	@Nullable
+	public Duration getExpireAfterWrite() {
+		return this.expireAfterWrite;
+	}
+
+	/**
+	 * Specify the duration after which cache entries expire once last read or written.
+	 * <p>Default is none, i.e. no expiration.
+	 * <p>Note: A change of the expiration setting will reset all existing caches,
+	 * if any, to reconfigure them with the new expiration setting.
+	 * @since 5.2.13
+	 */
+	public void setExpireAfterAccess(@Nullable Duration expireAfterAccess) {
+		if (!ObjectUtils.nullSafeEquals(expireAfterAccess, this.expireAfterAccess)) {
+			this.expireAfterAccess = expireAfterAccess;
+			recreateCaches();
+		}
+	}
+
+	/**
+	 * Return the duration after which cache entries expire once last read or written, if any.
+	 * @since 5.2.13
+	 */
+	@Nullable
+	public Duration getExpireAfterAccess() {
+		return this.expireAfterAccess;
+	}
+
 	@Override
 	public void setBeanClassLoader(ClassLoader classLoader) {
 		this.serialization = new SerializationDelegate(classLoader);
@@ -190,7 +272,15 @@ public class ConcurrentMapCacheManager implements CacheManager, BeanClassLoaderA
 	 */
 	protected Cache createConcurrentMapCache(String name) {
 		SerializationDelegate actualSerialization = (isStoreByValue() ? this.serialization : null);
-		return new ConcurrentMapCache(name, new ConcurrentHashMap<>(256), isAllowNullValues(), actualSerialization);
+		return new ConcurrentMapCache(name, createStore(), isAllowNullValues(), actualSerialization);
+	}
+
+	private ConcurrentMap<Object, Object> createStore() {
+		if (this.maximumSize <= 0 && this.expireAfterWrite == null && this.expireAfterAccess == null) {
+			return new ConcurrentHashMap<>(256);
+		}
+		int size = (this.maximumSize > 0 ? this.maximumSize : Integer.MAX_VALUE);
+		return new BoundedConcurrentMap<>(size, this.expireAfterWrite, this.expireAfterAccess);
 	}
 
 }
@@ -0,0 +1,453 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Build-time generator for a snapshot of the bean definitions of an application
+ * context, allowing the context to be started without scanning the classpath for
+ * components and parsing configuration classes.
+ *
+ * <p>The generator invokes the {@link ConfigurationClassPostProcessor} of a context
+ * that has not been refreshed, and writes the resulting bean definitions as the
+ * source code of an
+ * {@link org.springframework.context.ApplicationContextInitializer} for a
+ * {@link GenericApplicationContext}:
+ *
+ * <pre class="code">
+ * GenericApplicationContext context = new GenericApplicationContext();
+ * new com.example.AppBeanDefinitions().initialize(context);
+ * context.refresh();
+ * </pre>
+ *
+ * <p>Other {@link BeanDefinitionRegistryPostProcessor BeanDefinitionRegistryPostProcessors}
+ * are not invoked: they remain part of the snapshot and register their bean
+ * definitions when the context is refreshed, as usual. The configuration class
+ * post-processor runs again at that point as well, but skips the configuration
+ * classes that have already been processed.
+ *
+ * <p>Conditions, profiles and property placeholders in {@code @ComponentScan} or
+ * {@code @Import} declarations are evaluated against the build-time environment:
+ * the snapshot has to be regenerated whenever the configuration changes or is meant
+ * to differ at runtime. Configuration classes remain enhanced at runtime, and the
+ * importing class of each imported configuration class is preserved for
+ * {@link ImportAware} beans.
+ *
+ * <p>Bean definitions that cannot be expressed as code, for example definitions
+ * with an instance supplier, method overrides, a parent definition or inner bean
+ * values, as well as {@code @PropertySource} declarations, are rejected with an
+ * {@link IllegalStateException}. Bean definition attributes that are not strings,
+ * booleans or numbers are not part of the snapshot.
+ *
+ * <p>The {@link #main} method allows for running the generator as a build step,
+ * for example from a Gradle {@code JavaExec} task with the runtime classpath of
+ * the application.
+ *
+ * @since 5.2.13
+ * @see SnapshotImportRegistry
+ */
+public class BeanDefinitionSnapshotGenerator {
+
+	private static final int DEFINITIONS_PER_METHOD = 50;
+
+	private static final AbstractBeanDefinition DEFAULTS = new RootBeanDefinition();
+
+
+	private final GenericApplicationContext context;
+
+
+	/**
+	 * Create a new generator for the given context.
+	 * @param context the context to take a snapshot of, with its component
+	 * classes or bean definitions registered but not refreshed yet
+	 */
+	public BeanDefinitionSnapshotGenerator(GenericApplicationContext context) {
+		Assert.notNull(context, "GenericApplicationContext must not be null");
+		Assert.isTrue(!context.isActive(), "GenericApplicationContext must not be refreshed");
+		this.context = context;
+	}
+
+
+	/**
+	 * Process the bean definitions of the context and write the generated
+	 * initializer to the given source directory.
+	 * @param sourceDirectory the root directory for generated sources
+	 * @param className the fully qualified name of the initializer class to generate
+	 * @return the path of the generated source file
+	 * @throws IOException in case of I/O errors
+	 */
+	public Path generate(Path sourceDirectory, String className) throws IOException {
+		Path file = sourceDirectory.resolve(className.replace('.', '/') + ".java");
+		Files.createDirectories(file.getParent());
+		Files.write(file, generate(className).getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	/**
+	 * Process the bean definitions of the context and return the source code
+	 * of the generated initializer.
+	 * @param className the fully qualified name of the initializer class to generate
+	 */
+	public String generate(String className) {
+		DefaultListableBeanFactory beanFactory = this.context.getDefaultListableBeanFactory();
+		Set<String> propertySources = getPropertySourceNames();
+		invokeConfigurationClassPostProcessors(beanFactory);
+		if (!propertySources.containsAll(getPropertySourceNames())) {
+			throw new IllegalStateException("Property sources added while processing configuration classes " +
+					"cannot be part of a bean definition snapshot - register them with the Environment instead");
+		}
+
+		String packageName = ClassUtils.getPackageName(className);
+		String simpleName = (packageName.isEmpty() ? className : className.substring(packageName.length() + 1));
+		StringBuilder code = new StringBuilder();
+		if (!packageName.isEmpty()) {
+			code.append("package ").append(packageName).append(";\n\n");
+		}
+		code.append("/**\n * Bean definitions generated by {@link ")
+				.append(getClass().getName()).append("}.\n */\n");
+		code.append("public class ").append(simpleName).append(" implements org.springframework.context.")
+				.append("ApplicationContextInitializer<org.springframework.context.support.GenericApplicationContext> {\n\n");
+
+		String[] beanNames = beanFactory.getBeanDefinitionNames();
+		int methodCount = (beanNames.length + DEFINITIONS_PER_METHOD - 1) / DEFINITIONS_PER_METHOD;
+		code.append("\t@Override\n\tpublic void initialize(org.springframework.context.support.GenericApplicationContext context) {\n");
+		for (int i = 0; i < methodCount; i++) {
+			code.append("\t\tregisterBeanDefinitions").append(i).append("(context);\n");
+		}
+		code.append("\t\tregisterImports(context);\n\t}\n");
+
+		for (int i = 0; i < methodCount; i++) {
+			code.append("\n\tprivate static void registerBeanDefinitions").append(i)
+					.append("(org.springframework.context.support.GenericApplicationContext context) {\n");
+			code.append("\t\torg.springframework.beans.factory.support.RootBeanDefinition bd;\n");
+			int end = Math.min(beanNames.length, (i + 1) * DEFINITIONS_PER_METHOD);
+			for (int j = i * DEFINITIONS_PER_METHOD; j < end; j++) {
+				writeBeanDefinition(beanFactory, beanNames[j], code);
+			}
+			code.append("\t}\n");
+		}
+
+		code.append("\n\tprivate static void registerImports(org.springframework.context.support.GenericApplicationContext context) {\n");
+		code.append("\t\tjava.util.Map<String, String> imports = new java.util.LinkedHashMap<>();\n");
+		getImportingClassNames(beanFactory, beanNames).forEach((imported, importing) ->
+				code.append("\t\timports.put(").append(literal(imported)).append(", ")
+						.append(literal(importing)).append(");\n"));
+		code.append("\t\torg.springframework.context.annotation.SnapshotImportRegistry.register(\n")
+				.append("\t\t\t\tcontext.getBeanFactory(), imports, context.getClassLoader());\n\t}\n\n}\n");
+		return code.toString();
+	}
+
+	private Set<String> getPropertySourceNames() {
+		Set<String> names = new HashSet<>();
+		for (PropertySource<?> propertySource : this.context.getEnvironment().getPropertySources()) {
+			names.add(propertySource.getName());
+		}
+		return names;
+	}
+
+	private void invokeConfigurationClassPostProcessors(DefaultListableBeanFactory beanFactory) {
+		for (String name : beanFactory.getBeanNamesForType(ConfigurationClassPostProcessor.class, true, false)) {
+			ConfigurationClassPostProcessor postProcessor =
+					beanFactory.getBean(name, ConfigurationClassPostProcessor.class);
+			postProcessor.setEnvironment(this.context.getEnvironment());
+			postProcessor.setResourceLoader(this.context);
+			postProcessor.postProcessBeanDefinitionRegistry(beanFactory);
+		}
+	}
+
+	private Map<String, String> getImportingClassNames(DefaultListableBeanFactory beanFactory, String[] beanNames) {
+		Map<String, String> importingClassNames = new LinkedHashMap<>();
+		if (!beanFactory.containsSingleton(ConfigurationClassPostProcessor.IMPORT_REGISTRY_BEAN_NAME)) {
+			return importingClassNames;
+		}
+		ImportRegistry importRegistry = (ImportRegistry)
+				beanFactory.getSingleton(ConfigurationClassPostProcessor.IMPORT_REGISTRY_BEAN_NAME);
+		Set<String> classNames = new LinkedHashSet<>();
+		for (String beanName : beanNames) {
+			String className = beanFactory.getBeanDefinition(beanName).getBeanClassName();
+			if (className != null) {
+				classNames.add(className);
+			}
+		}
+		for (String className : classNames) {
+			AnnotationMetadata importingClass = importRegistry.getImportingClassFor(className);
+			if (importingClass != null) {
+				importingClassNames.put(className, importingClass.getClassName());
+			}
+		}
+		return importingClassNames;
+	}
+
+	private void writeBeanDefinition(DefaultListableBeanFactory beanFactory, String beanName, StringBuilder code) {
+		BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+		if (!(beanDefinition instanceof AbstractBeanDefinition)) {
+			throw unsupported(beanName, "unsupported bean definition type " + beanDefinition.getClass().getName());
+		}
+		AbstractBeanDefinition bd = (AbstractBeanDefinition) beanDefinition;
+		if (bd.getInstanceSupplier() != null) {
+			throw unsupported(beanName, "instance supplier");
+		}
+		if (bd.hasMethodOverrides()) {
+			throw unsupported(beanName, "method overrides");
+		}
+		if (!bd.getQualifiers().isEmpty()) {
+			throw unsupported(beanName, "qualifiers");
+		}
+		if (bd.getParentName() != null) {
+			throw unsupported(beanName, "parent bean definition");
+		}
+
+		code.append("\t\tbd = new org.springframework.beans.factory.support.RootBeanDefinition();\n");
+		if (bd.getBeanClassName() != null) {
+			setter(code, "setBeanClassName", literal(bd.getBeanClassName()));
+		}
+		if (StringUtils.hasLength(bd.getScope())) {
+			setter(code, "setScope", literal(bd.getScope()));
+		}
+		if (bd.isAbstract()) {
+			setter(code, "setAbstract", "true");
+		}
+		if (bd.getLazyInit() != null) {
+			setter(code, "setLazyInit", bd.getLazyInit().toString());
+		}
+		if (bd.getAutowireMode() != DEFAULTS.getAutowireMode()) {
+			setter(code, "setAutowireMode", Integer.toString(bd.getAutowireMode()));
+		}
+		if (bd.getDependencyCheck() != DEFAULTS.getDependencyCheck()) {
+			setter(code, "setDependencyCheck", Integer.toString(bd.getDependencyCheck()));
+		}
+		if (!ObjectUtils.isEmpty(bd.getDependsOn())) {
+			StringBuilder dependsOn = new StringBuilder();
+			for (String name : bd.getDependsOn()) {
+				dependsOn.append(dependsOn.length() > 0 ? ", " : "").append(literal(name));
+			}
+			setter(code, "setDependsOn", dependsOn.toString());
+		}
+		if (!bd.isAutowireCandidate()) {
+			setter(code, "setAutowireCandidate", "false");
+		}
+		if (bd.isPrimary()) {
+			setter(code, "setPrimary", "true");
+		}
+		if (!bd.isNonPublicAccessAllowed()) {
+			setter(code, "setNonPublicAccessAllowed", "false");
+		}
+		if (!bd.isLenientConstructorResolution()) {
+			setter(code, "setLenientConstructorResolution", "false");
+		}
+		if (bd.getFactoryBeanName() != null) {
+			setter(code, "setFactoryBeanName", literal(bd.getFactoryBeanName()));
+		}
+		if (bd.getFactoryMethodName() != null) {
+			String setter = (isUniqueFactoryMethod(beanFactory, bd) ?
+					"setUniqueFactoryMethodName" : "setNonUniqueFactoryMethodName");
+			setter(code, setter, literal(bd.getFactoryMethodName()));
+		}
+		if (bd.getInitMethodName() != null) {
+			setter(code, "setInitMethodName", literal(bd.getInitMethodName()));
+			setter(code, "setEnforceInitMethod", Boolean.toString(bd.isEnforceInitMethod()));
+		}
+		if (bd.getDestroyMethodName() != null) {
+			setter(code, "setDestroyMethodName", literal(bd.getDestroyMethodName()));
+			setter(code, "setEnforceDestroyMethod", Boolean.toString(bd.isEnforceDestroyMethod()));
+		}
+		if (bd.isSynthetic()) {
+			setter(code, "setSynthetic", "true");
+		}
+		if (bd.getRole() != DEFAULTS.getRole()) {
+			setter(code, "setRole", Integer.toString(bd.getRole()));
+		}
+		if (bd.getDescription() != null) {
+			setter(code, "setDescription", literal(bd.getDescription()));
+		}
+		if (bd instanceof RootBeanDefinition) {
+			BeanDefinitionHolder decorated = ((RootBeanDefinition) bd).getDecoratedDefinition();
+			if (decorated != null) {
+				String decoratedName = decorated.getBeanName();
+				if (!beanFactory.containsBeanDefinition(decoratedName) ||
+						beanFactory.getBeanDefinition(decoratedName) != decorated.getBeanDefinition()) {
+					throw unsupported(beanName, "unregistered decorated bean definition");
+				}
+				setter(code, "setDecoratedDefinition", "new org.springframework.beans.factory.config.BeanDefinitionHolder(" +
+						"context.getBeanDefinition(" + literal(decoratedName) + "), " + literal(decoratedName) + ")");
+			}
+		}
+
+		ConstructorArgumentValues args = bd.getConstructorArgumentValues();
+		args.getIndexedArgumentValues().forEach((index, holder) ->
+				code.append("\t\tbd.getConstructorArgumentValues().addIndexedArgumentValue(").append(index)
+						.append(", ").append(valueHolder(beanName, holder)).append(");\n"));
+		for (ConstructorArgumentValues.ValueHolder holder : args.getGenericArgumentValues()) {
+			code.append("\t\tbd.getConstructorArgumentValues().addGenericArgumentValue(")
+					.append(valueHolder(beanName, holder)).append(");\n");
+		}
+		MutablePropertyValues propertyValues = bd.getPropertyValues();
+		for (PropertyValue propertyValue : propertyValues.getPropertyValueList()) {
+			code.append("\t\tbd.getPropertyValues().add(").append(literal(propertyValue.getName())).append(", ")
+					.append(value(beanName, propertyValue.getValue())).append(");\n");
+		}
+		for (String attributeName : bd.attributeNames()) {
+			Object attribute = bd.getAttribute(attributeName);
+			if (attribute instanceof String || attribute instanceof Boolean ||
+					attribute instanceof Integer || attribute instanceof Long) {
+				code.append("\t\tbd.setAttribute(").append(literal(attributeName)).append(", ")
+						.append(value(beanName, attribute)).append(");\n");
+			}
+		}
+
+		code.append("\t\tcontext.registerBeanDefinition(").append(literal(beanName)).append(", bd);\n");
+		for (String alias : beanFactory.getAliases(beanName)) {
+			code.append("\t\tcontext.registerAlias(").append(literal(beanName)).append(", ")
+					.append(literal(alias)).append(");\n");
+		}
+	}
+
+	private boolean isUniqueFactoryMethod(DefaultListableBeanFactory beanFactory, AbstractBeanDefinition bd) {
+		String factoryClassName = (bd.getFactoryBeanName() != null ?
+				beanFactory.getMergedBeanDefinition(bd.getFactoryBeanName()).getBeanClassName() : bd.getBeanClassName());
+		if (factoryClassName == null) {
+			return false;
+		}
+		Class<?> factoryClass = ClassUtils.resolveClassName(factoryClassName, beanFactory.getBeanClassLoader());
+		String factoryMethodName = bd.getFactoryMethodName();
+		return (ReflectionUtils.getUniqueDeclaredMethods(factoryClass,
+				method -> method.getName().equals(factoryMethodName)).length == 1);
+	}
+
+	private String valueHolder(String beanName, ConstructorArgumentValues.ValueHolder holder) {
+		return "new org.springframework.beans.factory.config.ConstructorArgumentValues.ValueHolder(" +
+				value(beanName, holder.getValue()) + ", " + literal(holder.getType()) + ", " +
+				literal(holder.getName()) + ")";
+	}
+
+	private String value(String beanName, @Nullable Object value) {
+		if (value == null || value instanceof String) {
+			return literal((String) value);
+		}
+		if (value instanceof Boolean || value instanceof Integer) {
+			return value.toString();
+		}
+		if (value instanceof Long) {
+			return value + "L";
+		}
+		if (value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference reference = (RuntimeBeanReference) value;
+			if (reference.getBeanType() != null) {
+				throw unsupported(beanName, "typed bean reference " + reference);
+			}
+			return "new org.springframework.beans.factory.config.RuntimeBeanReference(" +
+					literal(reference.getBeanName()) + ", " + reference.isToParent() + ")";
+		}
+		if (value instanceof TypedStringValue) {
+			TypedStringValue typedValue = (TypedStringValue) value;
+			if (typedValue.hasTargetType()) {
+				throw unsupported(beanName, "resolved typed string value " + typedValue);
+			}
+			String targetTypeName = typedValue.getTargetTypeName();
+			return "new org.springframework.beans.factory.config.TypedStringValue(" + literal(typedValue.getValue()) +
+					(targetTypeName != null ? ", " + literal(targetTypeName) : "") + ")";
+		}
+		throw unsupported(beanName, "value of type " + value.getClass().getName());
+	}
+
+	private static void setter(StringBuilder code, String setter, String argument) {
+		code.append("\t\tbd.").append(setter).append('(').append(argument).append(");\n");
+	}
+
+	private static String literal(@Nullable String value) {
+		if (value == null) {
+			return "null";
+		}
+		StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				literal.append('\\').append(c);
+			}
+			else if (c < 0x20) {
+				// Octal escape since a unicode escape of a line terminator would break the literal
+				literal.append(String.format("\\%03o", (int) c));
+			}
+			else if (c > 0x7e) {
+				literal.append(String.format("\\u%04x", (int) c));
+			}
+			else {
+				literal.append(c);
+			}
+		}
+		return literal.append('"').toString();
+	}
+
+	private static IllegalStateException unsupported(String beanName, String feature) {
+		return new IllegalStateException("Bean definition '" + beanName +
+				"' cannot be part of a bean definition snapshot: " + feature);
+	}
+
+
+	/**
+	 * Generate a bean definition snapshot for the given component classes.
+	 * <p>Expects the root directory for generated sources, the fully qualified
+	 * name of the initializer class to generate, and the names of one or more
+	 * component classes to register with an {@link AnnotationConfigApplicationContext},
+	 * typically {@code @Configuration} classes.
+	 * @param args the command-line arguments
+	 * @throws Exception in case of generation failures
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			throw new IllegalArgumentException(
+					"Usage: BeanDefinitionSnapshotGenerator <sourceDirectory> <className> <componentClass>...");
+		}
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		for (int i = 2; i < args.length; i++) {
+			context.register(ClassUtils.forName(args[i], context.getClassLoader()));
+		}
+		new BeanDefinitionSnapshotGenerator(context).generate(Paths.get(args[0]), args[1]);
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.config.SingletonBeanRegistry;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+import org.springframework.lang.Nullable;
+
+/**
+ * {@link ImportRegistry} restored from a bean definition snapshot, exposing the
+ * importing class of each imported configuration class to {@link ImportAware} beans
+ * when the configuration classes are not parsed at runtime.
+ *
+ * <p>Registered by the initializers that {@link BeanDefinitionSnapshotGenerator}
+ * generates; not intended to be used directly.
+ *
+ * @since 5.2.13
+ * @see BeanDefinitionSnapshotGenerator
+ */
+public final class SnapshotImportRegistry implements ImportRegistry {
+
+	private final Map<String, String> importingClassNames;
+
+	private final MetadataReaderFactory metadataReaderFactory;
+
+	private final Map<String, AnnotationMetadata> metadataCache = new ConcurrentHashMap<>();
+
+
+	private SnapshotImportRegistry(Map<String, String> importingClassNames, @Nullable ClassLoader classLoader) {
+		this.importingClassNames = new ConcurrentHashMap<>(importingClassNames);
+		this.metadataReaderFactory = new SimpleMetadataReaderFactory(classLoader);
+	}
+
+
+	@Override
+	@Nullable
+	public AnnotationMetadata getImportingClassFor(String importedClass) {
+		String importingClass = this.importingClassNames.get(importedClass);
+		if (importingClass == null) {
+			return null;
+		}
+		return this.metadataCache.computeIfAbsent(importingClass, className -> {
+			try {
+				return this.metadataReaderFactory.getMetadataReader(className).getAnnotationMetadata();
+			}
+			catch (IOException ex) {
+				throw new IllegalStateException("Failed to read metadata of importing class " + className, ex);
+			}
+		});
+	}
+
+	@Override
+	public void removeImportingClass(String importingClass) {
+		this.importingClassNames.values().removeIf(importingClass::equals);
+	}
+
+
+	/**
+	 * Register an import registry for the given imported classes with the
+	 * given bean factory.
+	 * @param registry the bean factory to register the import registry with
+	 * @param importingClassNames the names of the importing classes, keyed by
+	 * the names of the classes they import
+	 * @param classLoader the class loader to read the importing classes with
+	 */
+	public static void register(SingletonBeanRegistry registry,
+			Map<String, String> importingClassNames, @Nullable ClassLoader classLoader) {
+
+		if (!registry.containsSingleton(ConfigurationClassPostProcessor.IMPORT_REGISTRY_BEAN_NAME)) {
+			registry.registerSingleton(ConfigurationClassPostProcessor.IMPORT_REGISTRY_BEAN_NAME,
+					new SnapshotImportRegistry(importingClassNames, classLoader));
+		}
+	}
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link BoundedConcurrentMap}.
+ */
+public class BoundedConcurrentMapTests {
+
+	private final AtomicLong ticker = new AtomicLong();
+
+
+	@Test
+	public void putAndGet() {
+		BoundedConcurrentMap<String, String> map = new BoundedConcurrentMap<>(10);
+		assertThat(map.put("a", "1")).isNull();
+		assertThat(map.put("a", "2")).isEqualTo("1");
+		assertThat(map.putIfAbsent("a", "3")).isEqualTo("2");
+		assertThat(map.putIfAbsent("b", "3")).isNull();
+		assertThat(map.get("a")).isEqualTo("2");
+		assertThat(map.get("c")).isNull();
+		assertThat(map).hasSize(2).containsEntry("a", "2").containsEntry("b", "3");
+		assertThat(map.remove("a", "1")).isFalse();
+		assertThat(map.remove("a")).isEqualTo("2");
+		assertThat(map).hasSize(1);
+		map.clear();
+		assertThat(map).isEmpty();
+	}
+
+	@Test
+	public void evictsWhenFull() {
+		BoundedConcurrentMap<Integer, Integer> map = new BoundedConcurrentMap<>(100);
+		for (int i = 0; i < 1000; i++) {
+			map.put(i, i);
+		}
+		assertThat(map.size()).isLessThanOrEqualTo(100);
+		assertThat(map.getMaximumSize()).isEqualTo(100);
+		assertThat(map.getEvictionCount()).isEqualTo(1000 - map.size());
+	}
+
+	@Test
+	public void evictsProbationaryEntriesFirst() {
+		BoundedConcurrentMap<String, String> map = new BoundedConcurrentMap<>(4, null, null, 1);
+		map.put("hot", "value");
+		map.get("hot");
+		for (int i = 0; i < 100; i++) {
+			map.put("cold" + i, "value");
+		}
+		assertThat(map).hasSize(4).containsKey("hot");
+	}
+
+	@Test
+	public void expireAfterWrite() {
+		BoundedConcurrentMap<String, String> map = new BoundedConcurrentMap<>(
+				10, Duration.ofNanos(100), null, 1, this.ticker::get);
+		map.put("a", "1");
+		this.ticker.addAndGet(50);
+		assertThat(map.get("a")).isEqualTo("1");
+		this.ticker.addAndGet(50);
+		assertThat(map.get("a")).isNull();
+		assertThat(map).isEmpty();
+		assertThat(map.getEvictionCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void expireAfterAccess() {
+		BoundedConcurrentMap<String, String> map = new BoundedConcurrentMap<>(
+				10, null, Duration.ofNanos(100), 1, this.ticker::get);
+		map.put("a", "1");
+		map.put("b", "2");
+		this.ticker.addAndGet(60);
+		assertThat(map.get("a")).isEqualTo("1");
+		this.ticker.addAndGet(60);
+		map.cleanUp();
+		assertThat(map).hasSize(1).containsEntry("a", "1");
+	}
+
+	@Test
+	public void computeIfAbsentRecordsStatistics() {
+		BoundedConcurrentMap<String, String> map = new BoundedConcurrentMap<>(10);
+		assertThat(map.computeIfAbsent("a", key -> "1")).isEqualTo("1");
+		assertThat(map.computeIfAbsent("a", key -> "2")).isEqualTo("1");
+		assertThat(map.computeIfAbsent("b", key -> null)).isNull();
+		assertThat(map).hasSize(1);
+		assertThat(map.getHitCount()).isEqualTo(1);
+		assertThat(map.getMissCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void computeIfAbsentOutsideOfLock() throws Exception {
+		BoundedConcurrentMap<String, String> map = new BoundedConcurrentMap<>(10, null, null, 1);
+		map.put("a", "1");
+		CountDownLatch computing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> result = executor.submit(() -> map.computeIfAbsent("b", key -> {
+				computing.countDown();
+				try {
+					release.await();
+				}
+				catch (InterruptedException ex) {
+					throw new IllegalStateException(ex);
+				}
+				return "2";
+			}));
+			assertThat(computing.await(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(map.get("a")).isEqualTo("1");
+			assertThat(map.put("c", "3")).isNull();
+			assertThat(map.putIfAbsent("b", "4")).isNull();
+			release.countDown();
+			assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("4");
+			assertThat(map).hasSize(3).containsEntry("b", "4");
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void concurrentAccess() throws Exception {
+		BoundedConcurrentMap<Integer, Integer> map = new BoundedConcurrentMap<>(50, null, null, 2);
+		int threads = 4;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				results.add(executor.submit(() -> {
+					for (int j = 0; j < 10000; j++) {
+						Integer key = j % 100;
+						assertThat(map.computeIfAbsent(key, k -> k)).isEqualTo(key);
+						Integer value = map.get(key);
+						assertThat(value == null || value.equals(key)).isTrue();
+					}
+				}));
+			}
+			for (Future<?> result : results) {
+				result.get(30, TimeUnit.SECONDS);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertThat(map.size()).isLessThanOrEqualTo(50);
+		assertThat(map.entrySet()).hasSize(map.size());
+	}
+
+	@Test
+	public void entrySetIteratorRemove() {
+		BoundedConcurrentMap<String, String> map = new BoundedConcurrentMap<>(10);
+		map.put("a", "1");
+		map.put("b", "2");
+		for (Iterator<Map.Entry<String, String>> it = map.entrySet().iterator(); it.hasNext();) {
+			if (it.next().getKey().equals("a")) {
+				it.remove();
+			}
+		}
+		assertThat(map).hasSize(1).containsKey("b");
+	}
+
+	@Test
+	public void invalidMaximumSize() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new BoundedConcurrentMap<>(0));
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 
 package org.springframework.cache.concurrent;
 
+import java.time.Duration;
+
 import org.junit.jupiter.api.Test;
 
 import org.springframework.cache.Cache;
@@ -131,4 +133,38 @@ public class ConcurrentMapCacheManagerTests {
 		assertThat(cache1x.get("key")).isNull();
 	}
 
+	@Test
+	public void testChangeMaximumSize() {
+		ConcurrentMapCacheManager cm = new ConcurrentMapCacheManager("c1");
+		assertThat(cm.getMaximumSize()).isEqualTo(-1);
+		ConcurrentMapCache cache1 = (ConcurrentMapCache) cm.getCache("c1");
+		assertThat(cache1.getNativeCache()).isNotInstanceOf(BoundedConcurrentMap.class);
+
+		cm.setMaximumSize(2);
+		ConcurrentMapCache cache1x = (ConcurrentMapCache) cm.getCache("c1");
+		assertThat(cache1x).isNotSameAs(cache1);
+		assertThat(cache1x.getNativeCache()).isInstanceOf(BoundedConcurrentMap.class);
+		cache1x.put("key1", "value1");
+		cache1x.put("key2", "value2");
+		cache1x.put("key3", "value3");
+		assertThat(cache1x.getNativeCache()).hasSize(2);
+		assertThat(cache1x.get("key3").get()).isEqualTo("value3");
+	}
+
+	@Test
+	public void testChangeExpiration() {
+		ConcurrentMapCacheManager cm = new ConcurrentMapCacheManager("c1");
+		Cache cache1 = cm.getCache("c1");
+
+		cm.setExpireAfterWrite(Duration.ofMinutes(10));
+		assertThat(cm.getExpireAfterWrite()).isEqualTo(Duration.ofMinutes(10));
+		ConcurrentMapCache cache1x = (ConcurrentMapCache) cm.getCache("c1");
+		assertThat(cache1x).isNotSameAs(cache1);
+		BoundedConcurrentMap<?, ?> store = (BoundedConcurrentMap<?, ?>) cache1x.getNativeCache();
+		assertThat(store.getMaximumSize()).isEqualTo(Integer.MAX_VALUE);
+
+		cm.setExpireAfterWrite(Duration.ofMinutes(10));
+		assertThat(cm.getCache("c1")).isSameAs(cache1x);
+	}
+
 }
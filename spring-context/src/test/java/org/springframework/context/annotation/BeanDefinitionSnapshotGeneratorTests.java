@@ -0,0 +1,250 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.logging.LogFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.support.BeanDefinitionReaderUtils;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.beans.testfixture.beans.TestBean;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.ClassUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link BeanDefinitionSnapshotGenerator}.
+ */
+public class BeanDefinitionSnapshotGeneratorTests {
+
+	@Test
+	public void generateForConfigurationClass() {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.register(SnapshotConfig.class);
+		String code = new BeanDefinitionSnapshotGenerator(context).generate("com.example.SnapshotInitializer");
+
+		assertThat(code).startsWith("package com.example;");
+		assertThat(code).contains("public class SnapshotInitializer implements " +
+				"org.springframework.context.ApplicationContextInitializer<" +
+				"org.springframework.context.support.GenericApplicationContext>");
+		assertThat(code).contains("bd.setBeanClassName(\"" + SnapshotConfig.class.getName() + "\");");
+		assertThat(code).contains("bd.setAttribute(\"" + ConfigurationClassUtils.CONFIGURATION_CLASS_ATTRIBUTE +
+				"\", \"full\");");
+		assertThat(code).contains("bd.setFactoryBeanName(\"beanDefinitionSnapshotGeneratorTests.SnapshotConfig\");");
+		assertThat(code).contains("bd.setUniqueFactoryMethodName(\"testBean\");");
+		assertThat(code).contains("bd.setPrimary(true);");
+		assertThat(code).contains("bd.setLazyInit(true);");
+		assertThat(code).contains("context.registerBeanDefinition(\"testBean\", bd);");
+		assertThat(code).contains("context.registerAlias(\"testBean\", \"alias\");");
+		assertThat(code).contains("context.registerBeanDefinition(\"" +
+				AnnotationConfigUtils.CONFIGURATION_ANNOTATION_PROCESSOR_BEAN_NAME + "\", bd);");
+		assertThat(code).doesNotContain("conditionalBean");
+		assertThat(code).contains("imports.put(\"" + ImportedConfig.class.getName() + "\", \"" +
+				SnapshotConfig.class.getName() + "\");");
+		assertThat(code).contains("context.registerBeanDefinition(\"importedBean\", bd);");
+	}
+
+	@Test
+	public void refreshFromSnapshot(@TempDir Path tempDir) throws Exception {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.register(RoundTripConfig.class);
+		new BeanDefinitionSnapshotGenerator(context).generate(tempDir, "com.example.RoundTripInitializer");
+		ApplicationContextInitializer<GenericApplicationContext> initializer =
+				compile(tempDir, "com.example.RoundTripInitializer");
+
+		GenericApplicationContext snapshotContext = new GenericApplicationContext();
+		initializer.initialize(snapshotContext);
+		snapshotContext.refresh();
+		AnnotationConfigApplicationContext expectedContext = new AnnotationConfigApplicationContext(RoundTripConfig.class);
+
+		assertThat(snapshotContext.getBeanDefinitionNames())
+				.containsExactlyInAnyOrder(expectedContext.getBeanDefinitionNames());
+		assertThat(snapshotContext.getBeansOfType(RegisteredBean.class)).hasSize(1);
+		assertThat(ClassUtils.isCglibProxy(snapshotContext.getBean(RoundTripConfig.class))).isTrue();
+		TestBean spouse = snapshotContext.getBean("spouse", TestBean.class);
+		assertThat(spouse.getSpouse()).isSameAs(snapshotContext.getBean("testBean"));
+		assertThat(snapshotContext.getBean(ImportAwareConfig.class).importMetadata.getClassName())
+				.isEqualTo(RoundTripConfig.class.getName());
+		snapshotContext.close();
+		expectedContext.close();
+	}
+
+	@Test
+	public void generateWithEscapedValues() {
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.registerBeanDefinition("testBean", new RootBeanDefinition(TestBean.class,
+				new ConstructorArgumentValues(), new MutablePropertyValues().add("name", "a \"quoted\"\nname")));
+		String code = new BeanDefinitionSnapshotGenerator(context).generate("SnapshotInitializer");
+
+		assertThat(code).startsWith("/**");
+		assertThat(code).contains("bd.getPropertyValues().add(\"name\", \"a \\\"quoted\\\"\\012name\");");
+	}
+
+	@Test
+	public void rejectInstanceSupplier() {
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.registerBean("testBean", TestBean.class, TestBean::new);
+		assertThatIllegalStateException().isThrownBy(() ->
+				new BeanDefinitionSnapshotGenerator(context).generate("SnapshotInitializer"))
+				.withMessageContaining("testBean");
+	}
+
+	@Test
+	public void rejectRefreshedContext() {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(SnapshotConfig.class);
+		assertThatIllegalArgumentException().isThrownBy(() -> new BeanDefinitionSnapshotGenerator(context));
+		context.close();
+	}
+
+
+	@SuppressWarnings("unchecked")
+	private static ApplicationContextInitializer<GenericApplicationContext> compile(
+			Path sourceDirectory, String className) throws Exception {
+
+		Path source = sourceDirectory.resolve(className.replace('.', '/') + ".java");
+		String classPath = Stream.of(GenericApplicationContext.class, RootBeanDefinition.class,
+				ResourceLoader.class, LogFactory.class)
+				.map(type -> type.getProtectionDomain().getCodeSource().getLocation().getPath())
+				.collect(Collectors.joining(File.pathSeparator));
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertThat(compiler.run(null, null, null, "-proc:none", "-d", sourceDirectory.toString(),
+				"-classpath", classPath, source.toString())).isEqualTo(0);
+
+		ClassLoader classLoader = new URLClassLoader(new URL[] {sourceDirectory.toUri().toURL()},
+				BeanDefinitionSnapshotGeneratorTests.class.getClassLoader());
+		return (ApplicationContextInitializer<GenericApplicationContext>)
+				classLoader.loadClass(className).getDeclaredConstructor().newInstance();
+	}
+
+
+	@Configuration
+	@Import(ImportedConfig.class)
+	static class SnapshotConfig {
+
+		@Bean({"testBean", "alias"})
+		@Primary
+		@Lazy
+		public TestBean testBean() {
+			return new TestBean();
+		}
+
+		@Bean
+		@Conditional(NeverCondition.class)
+		public TestBean conditionalBean() {
+			return new TestBean();
+		}
+	}
+
+
+	@Configuration
+	static class ImportedConfig implements ImportAware {
+
+		@Bean
+		public TestBean importedBean() {
+			return new TestBean();
+		}
+
+		@Override
+		public void setImportMetadata(AnnotationMetadata importMetadata) {
+		}
+	}
+
+
+	@Configuration
+	@Import(ImportAwareConfig.class)
+	static class RoundTripConfig {
+
+		@Bean
+		public TestBean testBean() {
+			return new TestBean("testBean");
+		}
+
+		@Bean
+		public TestBean spouse() {
+			TestBean spouse = new TestBean("spouse");
+			spouse.setSpouse(testBean());
+			return spouse;
+		}
+
+		@Bean
+		public static RegisteringPostProcessor registeringPostProcessor() {
+			return new RegisteringPostProcessor();
+		}
+	}
+
+
+	@Configuration
+	static class ImportAwareConfig implements ImportAware {
+
+		AnnotationMetadata importMetadata;
+
+		@Override
+		public void setImportMetadata(AnnotationMetadata importMetadata) {
+			this.importMetadata = importMetadata;
+		}
+	}
+
+
+	static class RegisteringPostProcessor implements BeanDefinitionRegistryPostProcessor {
+
+		@Override
+		public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+			BeanDefinitionReaderUtils.registerWithGeneratedName(new RootBeanDefinition(RegisteredBean.class), registry);
+		}
+
+		@Override
+		public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+		}
+	}
+
+
+	static class RegisteredBean {
+	}
+
+
+	static class NeverCondition implements Condition {
+
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+			return false;
+		}
+	}
+
+}
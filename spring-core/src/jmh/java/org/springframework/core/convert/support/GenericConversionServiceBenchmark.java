@@ -0,0 +1,87 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.convert.support;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.core.convert.TypeDescriptor;
+
+/**
+ * Benchmarks for {@link GenericConversionService}.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class GenericConversionServiceBenchmark {
+
+	@Benchmark
+	public Integer convertStringToInteger(ConversionData data) {
+		return data.conversionService.convert("42", Integer.class);
+	}
+
+	@Benchmark
+	public Object convertListOfStringToListOfInteger(ConversionData data) {
+		return data.conversionService.convert(data.strings,
+				TypeDescriptor.forObject(data.strings), data.targetListType);
+	}
+
+	@Benchmark
+	public Object convertMapOfStringToMapOfInteger(ConversionData data) {
+		return data.conversionService.convert(data.stringMap,
+				TypeDescriptor.forObject(data.stringMap), data.targetMapType);
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class ConversionData {
+
+		@Param({"10", "1000"})
+		public int size;
+
+		public GenericConversionService conversionService = new DefaultConversionService();
+
+		public List<String> strings;
+
+		public Map<String, String> stringMap;
+
+		public TypeDescriptor targetListType = TypeDescriptor.collection(List.class, TypeDescriptor.valueOf(Integer.class));
+
+		public TypeDescriptor targetMapType = TypeDescriptor.map(Map.class,
+				TypeDescriptor.valueOf(String.class), TypeDescriptor.valueOf(Integer.class));
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.strings = new ArrayList<>(this.size);
+			this.stringMap = new LinkedHashMap<>(this.size);
+			for (int i = 0; i < this.size; i++) {
+				this.strings.add(String.valueOf(i));
+				this.stringMap.put("key" + i, String.valueOf(i));
+			}
+		}
+	}
+
+}
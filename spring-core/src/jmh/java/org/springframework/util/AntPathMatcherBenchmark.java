@@ -0,0 +1,110 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link AntPathMatcher}.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class AntPathMatcherBenchmark {
+
+	@Benchmark
+	public void matchAllRoutes(RoutesData data, Blackhole bh) {
+		for (String path : data.requestPaths) {
+			for (String route : data.routes) {
+				bh.consume(data.matcher.match(route, path));
+			}
+		}
+	}
+
+	@Benchmark
+	public void extractUriTemplateVariables(RoutesData data, Blackhole bh) {
+		for (int i = 0; i < data.requestPaths.size(); i++) {
+			String route = data.routes.get(i % data.routes.size());
+			String path = data.requestPaths.get(i);
+			if (data.matcher.match(route, path)) {
+				bh.consume(data.matcher.extractUriTemplateVariables(route, path));
+			}
+		}
+	}
+
+	@Benchmark
+	public void sortMatchingRoutes(RoutesData data, Blackhole bh) {
+		for (String path : data.requestPaths) {
+			Comparator<String> comparator = data.matcher.getPatternComparator(path);
+			List<String> matching = new ArrayList<>();
+			for (String route : data.routes) {
+				if (data.matcher.match(route, path)) {
+					matching.add(route);
+				}
+			}
+			matching.sort(comparator);
+			bh.consume(matching);
+		}
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class RoutesData {
+
+		@Param({"true", "false"})
+		public boolean cachePatterns;
+
+		public AntPathMatcher matcher;
+
+		public List<String> routes = new ArrayList<>();
+
+		public List<String> requestPaths = new ArrayList<>();
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.matcher = new AntPathMatcher();
+			this.matcher.setCachePatterns(this.cachePatterns);
+			for (String resource : new String[] {"users", "orders", "products", "invoices", "accounts"}) {
+				this.routes.add("/api/" + resource);
+				this.routes.add("/api/" + resource + "/{id}");
+				this.routes.add("/api/" + resource + "/{id}/history");
+				this.routes.add("/api/" + resource + "/{id}/items/{itemId}");
+				this.routes.add("/api/" + resource + "/search/**");
+				this.requestPaths.add("/api/" + resource);
+				this.requestPaths.add("/api/" + resource + "/42");
+				this.requestPaths.add("/api/" + resource + "/42/history");
+				this.requestPaths.add("/api/" + resource + "/42/items/7");
+				this.requestPaths.add("/api/" + resource + "/search/by/name");
+			}
+			this.routes.add("/static/**/*.css");
+			this.routes.add("/static/**/*.js");
+			this.requestPaths.add("/static/css/app/main.css");
+			this.requestPaths.add("/static/js/vendor/lib.js");
+		}
+	}
+
+}
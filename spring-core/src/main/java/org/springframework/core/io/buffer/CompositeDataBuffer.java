@@ -0,0 +1,494 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+import org.springframework.util.Assert;
+
+/**
+ * Read-only {@link DataBuffer} that presents a sequence of component buffers
+ * as a single buffer, without copying their contents.
+ *
+ * <p>The readable bytes of each component at construction time make up the
+ * content of the composite; the read and write positions of the components
+ * themselves are not changed by reading from the composite. Content can be
+ * consumed via {@link #asInputStream()} or {@link #read(byte[])}, or obtained
+ * as a {@linkplain #asByteBuffers() ByteBuffer array} for scatter/gather I/O,
+ * all without an intermediate copy. Note that {@link #asByteBuffer(int, int)}
+ * has to copy if the requested range spans more than one component.
+ *
+ * <p>The composite is a {@link PooledDataBuffer}: retaining or releasing it
+ * retains or releases all of its components. Write operations are not
+ * supported, other than moving the {@linkplain #writePosition(int) write
+ * position} within the existing content.
+ *
+ * @since 5.2.13
+ * @see DataBufferUtils#compose(List)
+ */
+public class CompositeDataBuffer implements PooledDataBuffer {
+
+	private final DataBuffer[] components;
+
+	/** The index at which the content of each component starts, within that component. */
+	private final int[] componentStarts;
+
+	/** The index at which each component starts within this buffer, plus the capacity. */
+	private final int[] offsets;
+
+	private int readPosition;
+
+	private int writePosition;
+
+
+	/**
+	 * Create a new {@code CompositeDataBuffer} for the readable bytes of the
+	 * given components.
+	 * @param components the buffers to compose; ownership is transferred
+	 * to the composite, which releases them when it is released itself
+	 */
+	public CompositeDataBuffer(List<? extends DataBuffer> components) {
+		Assert.notEmpty(components, "Components must not be empty");
+		int count = components.size();
+		this.components = new DataBuffer[count];
+		this.componentStarts = new int[count];
+		this.offsets = new int[count + 1];
+		int offset = 0;
+		for (int i = 0; i < count; i++) {
+			DataBuffer component = components.get(i);
+			Assert.notNull(component, "Components must not contain null");
+			this.components[i] = component;
+			this.componentStarts[i] = component.readPosition();
+			this.offsets[i] = offset;
+			offset = Math.addExact(offset, component.readableByteCount());
+		}
+		this.offsets[count] = offset;
+		this.writePosition = offset;
+	}
+
+
+	/**
+	 * Return the component buffers of this composite. Note that their read
+	 * and write positions are not updated when reading from the composite.
+	 */
+	public List<DataBuffer> getComponents() {
+		return Collections.unmodifiableList(Arrays.asList(this.components));
+	}
+
+	/**
+	 * Return the readable bytes of this buffer as a sequence of byte buffers,
+	 * one per (non-empty) component range, sharing data with the components.
+	 * Suited for {@link java.nio.channels.GatheringByteChannel gathering writes}.
+	 */
+	public ByteBuffer[] asByteBuffers() {
+		return asByteBuffers(this.readPosition, readableByteCount());
+	}
+
+	/**
+	 * Return the given range of this buffer as a sequence of byte buffers,
+	 * one per (non-empty) component range, sharing data with the components.
+	 * @param index the index at which to start the range
+	 * @param length the length of the range
+	 */
+	public ByteBuffer[] asByteBuffers(int index, int length) {
+		checkIndex(index, length);
+		List<ByteBuffer> result = new ArrayList<>(this.components.length);
+		int pos = index;
+		int end = index + length;
+		while (pos < end) {
+			int i = componentIndex(pos);
+			int count = Math.min(end, this.offsets[i + 1]) - pos;
+			result.add(this.components[i].asByteBuffer(toComponentIndex(i, pos), count));
+			pos += count;
+		}
+		return result.toArray(new ByteBuffer[0]);
+	}
+
+
+	@Override
+	public DataBufferFactory factory() {
+		return this.components[0].factory();
+	}
+
+	@Override
+	public int indexOf(IntPredicate predicate, int fromIndex) {
+		Assert.notNull(predicate, "IntPredicate must not be null");
+		if (fromIndex < 0) {
+			fromIndex = 0;
+		}
+		else if (fromIndex >= this.writePosition) {
+			return -1;
+		}
+		for (int i = fromIndex; i < this.writePosition; i++) {
+			if (predicate.test(getByte(i))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(IntPredicate predicate, int fromIndex) {
+		Assert.notNull(predicate, "IntPredicate must not be null");
+		int i = Math.min(fromIndex, this.writePosition - 1);
+		for (; i >= 0; i--) {
+			if (predicate.test(getByte(i))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int readableByteCount() {
+		return this.writePosition - this.readPosition;
+	}
+
+	@Override
+	public int writableByteCount() {
+		return capacity() - this.writePosition;
+	}
+
+	@Override
+	public int capacity() {
+		return this.offsets[this.components.length];
+	}
+
+	@Override
+	public DataBuffer capacity(int capacity) {
+		throw readOnly();
+	}
+
+	@Override
+	public DataBuffer ensureCapacity(int capacity) {
+		if (capacity > writableByteCount()) {
+			throw readOnly();
+		}
+		return this;
+	}
+
+	@Override
+	public int readPosition() {
+		return this.readPosition;
+	}
+
+	@Override
+	public CompositeDataBuffer readPosition(int readPosition) {
+		assertIndex(readPosition >= 0, "'readPosition' %d must be >= 0", readPosition);
+		assertIndex(readPosition <= this.writePosition, "'readPosition' %d must be <= %d",
+				readPosition, this.writePosition);
+		this.readPosition = readPosition;
+		return this;
+	}
+
+	@Override
+	public int writePosition() {
+		return this.writePosition;
+	}
+
+	@Override
+	public CompositeDataBuffer writePosition(int writePosition) {
+		assertIndex(writePosition >= this.readPosition, "'writePosition' %d must be >= %d",
+				writePosition, this.readPosition);
+		assertIndex(writePosition <= capacity(), "'writePosition' %d must be <= %d",
+				writePosition, capacity());
+		this.writePosition = writePosition;
+		return this;
+	}
+
+	@Override
+	public byte getByte(int index) {
+		assertIndex(index >= 0, "index %d must be >= 0", index);
+		assertIndex(index <= this.writePosition - 1, "index %d must be <= %d", index, this.writePosition - 1);
+		int i = componentIndex(index);
+		return this.components[i].getByte(toComponentIndex(i, index));
+	}
+
+	@Override
+	public byte read() {
+		assertIndex(this.readPosition <= this.writePosition - 1, "readPosition %d must be <= %d",
+				this.readPosition, this.writePosition - 1);
+		byte b = getByte(this.readPosition);
+		this.readPosition++;
+		return b;
+	}
+
+	@Override
+	public CompositeDataBuffer read(byte[] destination) {
+		Assert.notNull(destination, "Byte array must not be null");
+		return read(destination, 0, destination.length);
+	}
+
+	@Override
+	public CompositeDataBuffer read(byte[] destination, int offset, int length) {
+		Assert.notNull(destination, "Byte array must not be null");
+		assertIndex(this.readPosition <= this.writePosition - length,
+				"readPosition %d and length %d should be smaller than writePosition %d",
+				this.readPosition, length, this.writePosition);
+		int pos = this.readPosition;
+		int end = pos + length;
+		while (pos < end) {
+			int i = componentIndex(pos);
+			int count = Math.min(end, this.offsets[i + 1]) - pos;
+			this.components[i].asByteBuffer(toComponentIndex(i, pos), count).get(destination, offset, count);
+			offset += count;
+			pos += count;
+		}
+		this.readPosition = end;
+		return this;
+	}
+
+	@Override
+	public DataBuffer write(byte b) {
+		throw readOnly();
+	}
+
+	@Override
+	public DataBuffer write(byte[] source) {
+		throw readOnly();
+	}
+
+	@Override
+	public DataBuffer write(byte[] source, int offset, int length) {
+		throw readOnly();
+	}
+
+	@Override
+	public DataBuffer write(DataBuffer... buffers) {
+		throw readOnly();
+	}
+
+	@Override
+	public DataBuffer write(ByteBuffer... buffers) {
+		throw readOnly();
+	}
+
+	@Override
+	public DataBuffer write(CharSequence charSequence, Charset charset) {
+		throw readOnly();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The slice is a single component slice if the range is contained in
+	 * one component, or a composite of component slices otherwise.
+	 */
+	@Override
+	public DataBuffer slice(int index, int length) {
+		checkIndex(index, length);
+		int first = componentIndex(index);
+		if (length == 0 || index + length <= this.offsets[first + 1]) {
+			return this.components[first].slice(toComponentIndex(first, index), length);
+		}
+		List<DataBuffer> slices = new ArrayList<>();
+		int pos = index;
+		int end = index + length;
+		while (pos < end) {
+			int i = componentIndex(pos);
+			int count = Math.min(end, this.offsets[i + 1]) - pos;
+			slices.add(this.components[i].slice(toComponentIndex(i, pos), count));
+			pos += count;
+		}
+		return new CompositeDataBuffer(slices);
+	}
+
+	@Override
+	public ByteBuffer asByteBuffer() {
+		return asByteBuffer(this.readPosition, readableByteCount());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Data is shared if the range is contained in a single component.
+	 * Otherwise, the content of the range is copied into a new byte buffer.
+	 */
+	@Override
+	public ByteBuffer asByteBuffer(int index, int length) {
+		ByteBuffer[] byteBuffers = asByteBuffers(index, length);
+		if (byteBuffers.length == 1) {
+			return byteBuffers[0];
+		}
+		ByteBuffer result = ByteBuffer.allocate(length);
+		for (ByteBuffer byteBuffer : byteBuffers) {
+			result.put(byteBuffer);
+		}
+		result.flip();
+		return result;
+	}
+
+	@Override
+	public InputStream asInputStream() {
+		return new CompositeDataBufferInputStream(false);
+	}
+
+	@Override
+	public InputStream asInputStream(boolean releaseOnClose) {
+		return new CompositeDataBufferInputStream(releaseOnClose);
+	}
+
+	@Override
+	public OutputStream asOutputStream() {
+		throw readOnly();
+	}
+
+	@Override
+	public String toString(int index, int length, Charset charset) {
+		checkIndex(index, length);
+		Assert.notNull(charset, "Charset must not be null");
+		if (length == 0) {
+			return "";
+		}
+		int first = componentIndex(index);
+		if (index + length <= this.offsets[first + 1]) {
+			return this.components[first].toString(toComponentIndex(first, index), length, charset);
+		}
+		return charset.decode(asByteBuffer(index, length)).toString();
+	}
+
+	@Override
+	public boolean isAllocated() {
+		for (DataBuffer component : this.components) {
+			if (component instanceof PooledDataBuffer && ((PooledDataBuffer) component).isAllocated()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public PooledDataBuffer retain() {
+		for (DataBuffer component : this.components) {
+			DataBufferUtils.retain(component);
+		}
+		return this;
+	}
+
+	@Override
+	public boolean release() {
+		for (DataBuffer component : this.components) {
+			DataBufferUtils.release(component);
+		}
+		return !isAllocated();
+	}
+
+
+	/**
+	 * Return the index of the component that holds the byte at the given
+	 * index, which must be smaller than the capacity. Empty components are
+	 * never returned, since the next component starts at the same offset.
+	 */
+	private int componentIndex(int index) {
+		int low = 0;
+		int high = this.components.length - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (this.offsets[mid] <= index) {
+				low = mid;
+			}
+			else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	private int toComponentIndex(int component, int index) {
+		return this.componentStarts[component] + (index - this.offsets[component]);
+	}
+
+	private void checkIndex(int index, int length) {
+		assertIndex(index >= 0, "index %d must be >= 0", index);
+		assertIndex(length >= 0, "length %d must be >= 0", length);
+		assertIndex(index <= capacity() - length, "index %d and length %d must be within capacity %d",
+				index, length, capacity());
+	}
+
+	private static void assertIndex(boolean expression, String format, Object... args) {
+		if (!expression) {
+			String message = String.format(format, args);
+			throw new IndexOutOfBoundsException(message);
+		}
+	}
+
+	private static UnsupportedOperationException readOnly() {
+		return new UnsupportedOperationException("Writing to a CompositeDataBuffer is not supported");
+	}
+
+
+	@Override
+	public String toString() {
+		return String.format("CompositeDataBuffer (r: %d, w: %d, c: %d, components: %d)",
+				this.readPosition, this.writePosition, capacity(), this.components.length);
+	}
+
+
+	private class CompositeDataBufferInputStream extends InputStream {
+
+		private final boolean releaseOnClose;
+
+		private boolean closed;
+
+		CompositeDataBufferInputStream(boolean releaseOnClose) {
+			this.releaseOnClose = releaseOnClose;
+		}
+
+		@Override
+		public int available() {
+			return readableByteCount();
+		}
+
+		@Override
+		public int read() {
+			return (available() > 0 ? CompositeDataBuffer.this.read() & 0xFF : -1);
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) {
+			int available = available();
+			if (len == 0) {
+				return 0;
+			}
+			if (available > 0) {
+				len = Math.min(len, available);
+				CompositeDataBuffer.this.read(bytes, off, len);
+				return len;
+			}
+			else {
+				return -1;
+			}
+		}
+
+		@Override
+		public void close() {
+			if (!this.closed) {
+				this.closed = true;
+				if (this.releaseOnClose) {
+					release();
+				}
+			}
+		}
+	}
+
+}
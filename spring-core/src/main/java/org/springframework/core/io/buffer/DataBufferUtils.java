@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,17 +20,21 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousFileChannel;
 import java.nio.channels.Channel;
 import java.nio.channels.Channels;
 import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -232,6 +236,39 @@ public abstract class DataBufferUtils {
 		return position == 0 ? result : skipUntilByteCount(result, position);
 	}
 
+	/**
+	 * Read a region of the given file {@code Path} into a {@code Flux} of
+	 * {@code DataBuffer}s that wrap memory-mapped segments of the file, rather
+	 * than copying its content into allocated buffers.
+	 * <p>Mapped memory is only released when the wrapped buffers are garbage
+	 * collected, so this is best suited for large files that cannot be
+	 * transferred with zero-copy. The method ensures that the file is closed
+	 * when the flux is terminated.
+	 * @param path the path to read bytes from
+	 * @param position the position to start reading from
+	 * @param count the maximum number of bytes to read
+	 * @param bufferFactory the factory to wrap mapped segments with
+	 * @param bufferSize the maximum size of the data buffers
+	 * @return a Flux of data buffers read from the given file
+	 * @since 5.2.13
+	 */
+	public static Flux<DataBuffer> readMapped(
+			Path path, long position, long count, DataBufferFactory bufferFactory, int bufferSize) {
+
+		Assert.notNull(path, "Path must not be null");
+		Assert.isTrue(position >= 0, "'position' must be >= 0");
+		Assert.isTrue(count >= 0, "'count' must be >= 0");
+		Assert.notNull(bufferFactory, "BufferFactory must not be null");
+		Assert.isTrue(bufferSize > 0, "'bufferSize' must be > 0");
+
+		return Flux.using(() -> FileChannel.open(path, StandardOpenOption.READ),
+				channel -> Flux.generate(new MappedFileChannelGenerator(
+						channel, position, count, bufferFactory, bufferSize)),
+				DataBufferUtils::closeChannel);
+
+		// No doOnDiscard as mapped buffers are not pooled
+	}
+
 
 	//---------------------------------------------------------------------
 	// Writing
@@ -565,6 +602,49 @@ public abstract class DataBufferUtils {
 				.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
 	}
 
+	/**
+	 * Return a {@code DataBuffer} that presents the given buffers as one,
+	 * without copying their content: a {@link CompositeDataBuffer} for two or
+	 * more buffers, or the buffer itself if there is only one.
+	 * <p>Unlike {@link DataBufferFactory#join(List)}, the result is read-only,
+	 * and therefore best suited for consumers that only read the aggregated
+	 * content, e.g. through its {@link DataBuffer#asInputStream() InputStream}.
+	 * <p>Note that the given data buffers do <strong>not</strong> have to be
+	 * released. They will be released as part of the returned composite.
+	 * @param dataBuffers the data buffers that are to be composed
+	 * @return a buffer that is composed from the {@code dataBuffers} argument
+	 * @since 5.2.13
+	 */
+	public static DataBuffer compose(List<? extends DataBuffer> dataBuffers) {
+		Assert.notEmpty(dataBuffers, "DataBuffer List must not be empty");
+		return (dataBuffers.size() == 1 ? dataBuffers.get(0) : new CompositeDataBuffer(dataBuffers));
+	}
+
+	/**
+	 * Variant of {@link #join(Publisher, int)} that {@linkplain #compose(List)
+	 * composes} the buffers into a read-only view rather than joining them.
+	 * @param buffers the data buffers that are to be composed
+	 * @param maxByteCount the max number of bytes to buffer, or -1 for unlimited
+	 * @return a buffer with the aggregated content, possibly an empty Mono if
+	 * the max number of bytes to buffer is exceeded.
+	 * @throws DataBufferLimitException if maxByteCount is exceeded
+	 * @since 5.2.13
+	 */
+	@SuppressWarnings("unchecked")
+	public static Mono<DataBuffer> compose(Publisher<? extends DataBuffer> buffers, int maxByteCount) {
+		Assert.notNull(buffers, "'dataBuffers' must not be null");
+
+		if (buffers instanceof Mono) {
+			return (Mono<DataBuffer>) buffers;
+		}
+
+		return Flux.from(buffers)
+				.collect(() -> new LimitedDataBufferList(maxByteCount), LimitedDataBufferList::add)
+				.filter(list -> !list.isEmpty())
+				.map(DataBufferUtils::compose)
+				.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
+	}
+
 	/**
 	 * Return a {@link Matcher} for the given delimiter.
 	 * The matcher can be used to find the delimiters in a stream of data buffers.
@@ -578,14 +658,17 @@ public abstract class DataBufferUtils {
 
 	/**
 	 * Return a {@link Matcher} for the given delimiters.
-	 * The matcher can be used to find the delimiters in a stream of data buffers.
+	 * The matcher can be used to find the delimiters in a stream of data buffers,
+	 * including delimiters that span buffers. When multiple delimiters are given,
+	 * all of them are searched for in a single pass over the data, and the
+	 * longest delimiter wins if several end at the same byte.
 	 * @param delimiters the delimiters bytes to find
 	 * @return the matcher
 	 * @since 5.2
 	 */
 	public static Matcher matcher(byte[]... delimiters) {
 		Assert.isTrue(delimiters.length > 0, "Delimiters must not be empty");
-		return (delimiters.length == 1 ? createMatcher(delimiters[0]) : new CompositeMatcher(delimiters));
+		return (delimiters.length == 1 ? createMatcher(delimiters[0]) : new AhoCorasickMatcher(delimiters));
 	}
 
 	private static NestedMatcher createMatcher(byte[] delimiter) {
@@ -629,68 +712,164 @@ public abstract class DataBufferUtils {
 
 
 	/**
-	 * Matcher that supports searching for multiple delimiters.
+	 * Matcher that supports searching for multiple delimiters, based on an
+	 * Aho-Corasick automaton: each byte advances the automaton by a single
+	 * table lookup, regardless of the number of delimiters. If several
+	 * delimiters end at the same byte, the longest one is matched.
 	 */
-	private static class CompositeMatcher implements Matcher {
+	private static class AhoCorasickMatcher implements Matcher {
 
 		private static final byte[] NO_DELIMITER = new byte[0];
 
 
-		private final NestedMatcher[] matchers;
+		/** Maps each byte value to its class; 0 for bytes that occur in no delimiter. */
+		private final int[] byteClasses = new int[256];
 
-		byte[] longestDelimiter = NO_DELIMITER;
+		private final int classCount;
 
-		CompositeMatcher(byte[][] delimiters) {
-			this.matchers = initMatchers(delimiters);
-		}
+		/** State transitions, indexed by {@code state * classCount + byteClass}. */
+		private final int[] transitions;
+
+		/** The longest delimiter that ends in a given state, if any. */
+		private final byte[][] delimiters;
+
+		private int state;
+
+		private byte[] matchedDelimiter = NO_DELIMITER;
+
+		AhoCorasickMatcher(byte[][] delimiters) {
+			int classCount = 1;
+			int maxStates = 1;
+			for (byte[] delimiter : delimiters) {
+				Assert.isTrue(delimiter.length > 0, "Delimiter must not be empty");
+				for (byte b : delimiter) {
+					if (this.byteClasses[b & 0xFF] == 0) {
+						this.byteClasses[b & 0xFF] = classCount++;
+					}
+				}
+				maxStates += delimiter.length;
+			}
+			this.classCount = classCount;
+
+			// Build the trie of all delimiters
+			int[] transitions = new int[maxStates * classCount];
+			Arrays.fill(transitions, -1);
+			byte[][] outputs = new byte[maxStates][];
+			int stateCount = 1;
+			for (byte[] delimiter : delimiters) {
+				int state = 0;
+				for (byte b : delimiter) {
+					int index = state * classCount + this.byteClasses[b & 0xFF];
+					if (transitions[index] == -1) {
+						transitions[index] = stateCount++;
+					}
+					state = transitions[index];
+				}
+				outputs[state] = delimiter;
+			}
 
-		private static NestedMatcher[] initMatchers(byte[][] delimiters) {
-			NestedMatcher[] matchers = new NestedMatcher[delimiters.length];
-			for (int i = 0; i < delimiters.length; i++) {
-				matchers[i] = createMatcher(delimiters[i]);
+			// Breadth-first: add failure transitions, and inherit the longest
+			// delimiter that is a suffix of each state without its own
+			int[] failure = new int[stateCount];
+			int[] queue = new int[stateCount];
+			int head = 0;
+			int tail = 0;
+			for (int c = 0; c < classCount; c++) {
+				if (transitions[c] == -1) {
+					transitions[c] = 0;
+				}
+				else {
+					queue[tail++] = transitions[c];
+				}
 			}
-			return matchers;
+			while (head < tail) {
+				int state = queue[head++];
+				if (outputs[state] == null) {
+					outputs[state] = outputs[failure[state]];
+				}
+				for (int c = 0; c < classCount; c++) {
+					int index = state * classCount + c;
+					int fallback = transitions[failure[state] * classCount + c];
+					if (transitions[index] == -1) {
+						transitions[index] = fallback;
+					}
+					else {
+						failure[transitions[index]] = fallback;
+						queue[tail++] = transitions[index];
+					}
+				}
+			}
+			this.transitions = Arrays.copyOf(transitions, stateCount * classCount);
+			this.delimiters = Arrays.copyOf(outputs, stateCount);
 		}
 
 		@Override
 		public int match(DataBuffer dataBuffer) {
-			this.longestDelimiter = NO_DELIMITER;
-
-			for (int pos = dataBuffer.readPosition(); pos < dataBuffer.writePosition(); pos++) {
-				byte b = dataBuffer.getByte(pos);
-
-				for (NestedMatcher matcher : this.matchers) {
-					if (matcher.match(b) && matcher.delimiter().length > this.longestDelimiter.length) {
-						this.longestDelimiter = matcher.delimiter();
-					}
+			int start = dataBuffer.readPosition();
+			int end = dataBuffer.writePosition();
+			if (dataBuffer instanceof DefaultDataBuffer && start < end) {
+				// Slice of a duplicate: leaves position and limit of the shared buffer untouched
+				ByteBuffer byteBuffer = dataBuffer.asByteBuffer(start, end - start);
+				if (byteBuffer.hasArray()) {
+					return match(byteBuffer.array(), byteBuffer.arrayOffset() - start, start, end);
+				}
+			}
+			int[] byteClasses = this.byteClasses;
+			int[] transitions = this.transitions;
+			byte[][] delimiters = this.delimiters;
+			int classCount = this.classCount;
+			int state = this.state;
+			for (int pos = start; pos < end; pos++) {
+				state = transitions[state * classCount + byteClasses[dataBuffer.getByte(pos) & 0xFF]];
+				if (delimiters[state] != null) {
+					return matched(state, pos);
 				}
+			}
+			this.state = state;
+			return -1;
+		}
 
-				if (this.longestDelimiter != NO_DELIMITER) {
-					reset();
-					return pos;
+		/**
+		 * Scan the backing array of a heap buffer directly, avoiding a
+		 * bounds-checked accessor call per byte.
+		 */
+		private int match(byte[] array, int arrayOffset, int start, int end) {
+			int[] byteClasses = this.byteClasses;
+			int[] transitions = this.transitions;
+			byte[][] delimiters = this.delimiters;
+			int classCount = this.classCount;
+			int state = this.state;
+			for (int i = arrayOffset + start, last = arrayOffset + end; i < last; i++) {
+				state = transitions[state * classCount + byteClasses[array[i] & 0xFF]];
+				if (delimiters[state] != null) {
+					return matched(state, i - arrayOffset);
 				}
 			}
+			this.state = state;
 			return -1;
 		}
 
+		private int matched(int state, int pos) {
+			this.matchedDelimiter = this.delimiters[state];
+			this.state = 0;
+			return pos;
+		}
+
 		@Override
 		public byte[] delimiter() {
-			Assert.state(this.longestDelimiter != NO_DELIMITER, "Illegal state!");
-			return this.longestDelimiter;
+			Assert.state(this.matchedDelimiter != NO_DELIMITER, "Illegal state!");
+			return this.matchedDelimiter;
 		}
 
 		@Override
 		public void reset() {
-			for (NestedMatcher matcher : this.matchers) {
-				matcher.reset();
-			}
+			this.state = 0;
 		}
 	}
 
 
 	/**
-	 * Matcher that can be nested within {@link CompositeMatcher} where multiple
-	 * matchers advance together using the same index, one byte at a time.
+	 * Matcher for a single delimiter that can also be advanced one byte at a time.
 	 */
 	private interface NestedMatcher extends Matcher {
 
@@ -809,6 +988,15 @@ public abstract class DataBufferUtils {
 			super(delimiter);
 			Assert.isTrue(delimiter.length == 2, "Expected a 2-byte delimiter");
 		}
+
+		@Override
+		public boolean match(byte b) {
+			if (getMatches() == 1 && b != delimiter()[1]) {
+				// Mismatch on the second byte: the current byte may start a new match
+				setMatches(0);
+			}
+			return super.match(b);
+		}
 	}
 
 
@@ -895,6 +1083,64 @@ public abstract class DataBufferUtils {
 	}
 
 
+	private static class MappedFileChannelGenerator implements Consumer<SynchronousSink<DataBuffer>> {
+
+		private static final long MAX_SEGMENT_SIZE = 8 * 1024 * 1024;
+
+		private final FileChannel channel;
+
+		private final DataBufferFactory dataBufferFactory;
+
+		private final int bufferSize;
+
+		private long position;
+
+		private long count;
+
+		@Nullable
+		private ByteBuffer segment;
+
+		public MappedFileChannelGenerator(FileChannel channel, long position, long count,
+				DataBufferFactory dataBufferFactory, int bufferSize) {
+
+			this.channel = channel;
+			this.position = position;
+			this.count = count;
+			this.dataBufferFactory = dataBufferFactory;
+			this.bufferSize = bufferSize;
+		}
+
+		@Override
+		public void accept(SynchronousSink<DataBuffer> sink) {
+			try {
+				ByteBuffer segment = this.segment;
+				if (segment == null || !segment.hasRemaining()) {
+					long size = Math.min(Math.min(this.count, this.channel.size() - this.position), MAX_SEGMENT_SIZE);
+					if (size <= 0) {
+						sink.complete();
+						return;
+					}
+					segment = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, size);
+					this.segment = segment;
+					this.position += size;
+					this.count -= size;
+				}
+				// Explicit access via Buffer base type for compatibility
+				// with covariant return type on JDK 9's ByteBuffer...
+				ByteBuffer slice = segment.slice();
+				Buffer buffer = slice;
+				buffer.limit(Math.min(this.bufferSize, slice.remaining()));
+				buffer = segment;
+				buffer.position(segment.position() + slice.remaining());
+				sink.next(this.dataBufferFactory.wrap(slice));
+			}
+			catch (IOException ex) {
+				sink.error(ex);
+			}
+		}
+	}
+
+
 	private static class ReadCompletionHandler implements CompletionHandler<Integer, DataBuffer> {
 
 		private final AsynchronousFileChannel channel;
@@ -0,0 +1,517 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Extension of {@link DefaultDataBufferFactory} that recycles the memory of
+ * released buffers, for use on runtimes without Netty (i.e. Servlet containers
+ * and Undertow), where allocating a new {@code ByteBuffer} for every buffer
+ * results in a high allocation rate.
+ *
+ * <p>Allocated buffers are {@link PooledDataBuffer PooledDataBuffers} with
+ * reference counting semantics: once released, the underlying memory is
+ * returned to the pool, and must no longer be accessed. Memory is pooled in
+ * power-of-two size classes, each with a shared arena of bounded size and
+ * a small per-thread cache for the smaller size classes. Buffers larger than
+ * the {@linkplain #DEFAULT_MAX_POOLED_CAPACITY maximum pooled capacity}, as
+ * well as {@linkplain #wrap(byte[]) wrapped} buffers, are not pooled.
+ *
+ * <p>Note that a buffer that is never released is reclaimed by the garbage
+ * collector as usual, but its memory is lost to the pool. Such leaks can be
+ * reported through {@link #setLeakDetection(boolean)}.
+ *
+ * <p>This factory can be used on the reactive Servlet and Undertow server
+ * adapters through their {@code setDataBufferFactory} methods, provided that
+ * all application components release the buffers they consume.
+ *
+ * @since 5.2.13
+ * @see PooledDataBuffer
+ * @see DataBufferUtils#release(DataBuffer)
+ */
+public class PooledDefaultDataBufferFactory extends DefaultDataBufferFactory {
+
+	/**
+	 * The default maximum capacity of buffers taken from the pool.
+	 */
+	public static final int DEFAULT_MAX_POOLED_CAPACITY = 64 * 1024;
+
+	/**
+	 * The default maximum number of buffers retained per size class.
+	 */
+	public static final int DEFAULT_MAX_POOLED_BUFFERS = 128;
+
+	private static final int MIN_POOLED_CAPACITY = 64;
+
+	private static final int MAX_THREAD_CACHED_CAPACITY = 8 * 1024;
+
+	private static final int THREAD_CACHE_SIZE = 8;
+
+	private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+	private static final Log logger = LogFactory.getLog(PooledDefaultDataBufferFactory.class);
+
+
+	private final boolean preferDirect;
+
+	private final int maxPooledCapacity;
+
+	private final Arena[] arenas;
+
+	private final ThreadLocal<ThreadCache> threadCache;
+
+	private final AtomicLong activeBufferCount = new AtomicLong();
+
+	private final Set<LeakTracker> leakTrackers = ConcurrentHashMap.newKeySet();
+
+	private final ReferenceQueue<PooledDataBuffer> leakQueue = new ReferenceQueue<>();
+
+	private volatile boolean leakDetection;
+
+
+	/**
+	 * Creates a new {@code PooledDefaultDataBufferFactory} with default settings.
+	 */
+	public PooledDefaultDataBufferFactory() {
+		this(false);
+	}
+
+	/**
+	 * Creates a new {@code PooledDefaultDataBufferFactory}, indicating whether
+	 * direct buffers should be pooled.
+	 * @param preferDirect {@code true} if direct buffers are to be preferred;
+	 * {@code false} otherwise
+	 */
+	public PooledDefaultDataBufferFactory(boolean preferDirect) {
+		this(preferDirect, DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_POOLED_CAPACITY, DEFAULT_MAX_POOLED_BUFFERS);
+	}
+
+	/**
+	 * Creates a new {@code PooledDefaultDataBufferFactory} with the given settings.
+	 * @param preferDirect {@code true} if direct buffers are to be preferred;
+	 * {@code false} otherwise
+	 * @param defaultInitialCapacity the capacity used for {@link #allocateBuffer()}
+	 * @param maxPooledCapacity the maximum capacity of pooled buffers, which
+	 * must be a power of two; larger buffers are allocated without pooling
+	 * @param maxPooledBuffers the maximum number of released buffers retained
+	 * per size class, in addition to the ones cached per thread
+	 */
+	public PooledDefaultDataBufferFactory(boolean preferDirect, int defaultInitialCapacity,
+			int maxPooledCapacity, int maxPooledBuffers) {
+
+		super(preferDirect, defaultInitialCapacity);
+		Assert.isTrue(maxPooledCapacity >= MIN_POOLED_CAPACITY && Integer.bitCount(maxPooledCapacity) == 1,
+				() -> "'maxPooledCapacity' should be a power of two larger than " + MIN_POOLED_CAPACITY);
+		Assert.isTrue(maxPooledBuffers >= 0, "'maxPooledBuffers' should not be negative");
+		this.preferDirect = preferDirect;
+		this.maxPooledCapacity = maxPooledCapacity;
+		this.arenas = new Arena[sizeClass(maxPooledCapacity) + 1];
+		for (int i = 0; i < this.arenas.length; i++) {
+			this.arenas[i] = new Arena(maxPooledBuffers);
+		}
+		int threadCachedClasses = sizeClass(Math.min(maxPooledCapacity, MAX_THREAD_CACHED_CAPACITY)) + 1;
+		this.threadCache = ThreadLocal.withInitial(() -> new ThreadCache(threadCachedClasses));
+	}
+
+
+	/**
+	 * Whether to track allocated buffers, and log an error with the stack trace
+	 * of the allocation when a buffer is garbage collected without having been
+	 * released. This is a diagnostic aid with a significant overhead per
+	 * allocation, and should not be enabled in production.
+	 * <p>By default this is set to {@code false}.
+	 */
+	public void setLeakDetection(boolean leakDetection) {
+		this.leakDetection = leakDetection;
+	}
+
+	/**
+	 * Whether leak detection is enabled.
+	 */
+	public boolean isLeakDetection() {
+		return this.leakDetection;
+	}
+
+	/**
+	 * Return the number of buffers allocated by this factory that have not
+	 * been released yet, excluding leaked buffers that have been detected.
+	 */
+	public long getActiveBufferCount() {
+		return this.activeBufferCount.get();
+	}
+
+
+	@Override
+	public DefaultDataBuffer allocateBuffer(int initialCapacity) {
+		Assert.isTrue(initialCapacity >= 0, "'initialCapacity' should not be negative");
+		ByteBuffer chunk = acquire(initialCapacity);
+		ByteBuffer byteBuffer = (chunk != null ? view(chunk, initialCapacity) : allocateUnpooled(initialCapacity));
+		PooledBuffer buffer = new PooledBuffer(chunk, byteBuffer);
+		this.activeBufferCount.incrementAndGet();
+		if (this.leakDetection) {
+			reportLeaks();
+			buffer.leakTracker = new LeakTracker(buffer, this.leakQueue);
+			this.leakTrackers.add(buffer.leakTracker);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Take a buffer for the given capacity from the pool, or allocate a new one.
+	 * @return the pooled buffer, or {@code null} if the capacity is too large
+	 * to be pooled
+	 */
+	@Nullable
+	private ByteBuffer acquire(int capacity) {
+		if (capacity > this.maxPooledCapacity) {
+			return null;
+		}
+		int sizeClass = sizeClass(capacity);
+		ByteBuffer chunk = this.threadCache.get().poll(sizeClass);
+		if (chunk == null) {
+			chunk = this.arenas[sizeClass].poll();
+		}
+		return (chunk != null ? chunk : allocateUnpooled(MIN_POOLED_CAPACITY << sizeClass));
+	}
+
+	/**
+	 * Return the given buffer to the pool, unless both the thread cache and
+	 * the arena for its size class are full.
+	 */
+	private void recycle(ByteBuffer chunk) {
+		((Buffer) chunk).clear();
+		int sizeClass = sizeClass(chunk.capacity());
+		if (!this.threadCache.get().offer(sizeClass, chunk)) {
+			this.arenas[sizeClass].offer(chunk);
+		}
+	}
+
+	private ByteBuffer allocateUnpooled(int capacity) {
+		return (this.preferDirect ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity));
+	}
+
+	private void reportLeaks() {
+		LeakTracker tracker;
+		while ((tracker = (LeakTracker) this.leakQueue.poll()) != null) {
+			if (this.leakTrackers.remove(tracker)) {
+				this.activeBufferCount.decrementAndGet();
+				logger.error("DataBuffer was garbage collected without having been released, " +
+						"see the stack trace below for where it was allocated", tracker.allocation);
+			}
+		}
+	}
+
+	private static int sizeClass(int capacity) {
+		if (capacity <= MIN_POOLED_CAPACITY) {
+			return 0;
+		}
+		return (Integer.SIZE - Integer.numberOfLeadingZeros(capacity - 1)) -
+				Integer.numberOfTrailingZeros(MIN_POOLED_CAPACITY);
+	}
+
+	private static ByteBuffer view(ByteBuffer chunk, int capacity) {
+		ByteBuffer duplicate = chunk.duplicate();
+		// Explicit access via Buffer base type for compatibility
+		// with covariant return type on JDK 9's ByteBuffer...
+		((Buffer) duplicate).limit(capacity);
+		return duplicate.slice();
+	}
+
+
+	@Override
+	public String toString() {
+		return "PooledDefaultDataBufferFactory (preferDirect=" + this.preferDirect +
+				", maxPooledCapacity=" + this.maxPooledCapacity + ")";
+	}
+
+
+	/**
+	 * Buffer allocated by this factory, backed by a pooled chunk of memory
+	 * if not too large.
+	 */
+	private final class PooledBuffer extends DefaultDataBuffer implements PooledDataBuffer {
+
+		private final AtomicInteger refCount = new AtomicInteger(1);
+
+		@Nullable
+		private ByteBuffer chunk;
+
+		/** Whether slices or views of the current chunk have been handed out. */
+		private boolean chunkShared;
+
+		/** Previous chunks still referenced by slices or views, recycled on release. */
+		@Nullable
+		private List<ByteBuffer> retiredChunks;
+
+		@Nullable
+		private LeakTracker leakTracker;
+
+		PooledBuffer(@Nullable ByteBuffer chunk, ByteBuffer byteBuffer) {
+			super(PooledDefaultDataBufferFactory.this, byteBuffer);
+			this.chunk = chunk;
+		}
+
+		@Override
+		public DefaultDataBuffer capacity(int newCapacity) {
+			ByteBuffer oldChunk = this.chunk;
+			boolean oldChunkShared = this.chunkShared;
+			super.capacity(newCapacity);
+			if (oldChunk != null && oldChunk != this.chunk) {
+				if (oldChunkShared) {
+					// Slices share our reference count: keep the chunk until we are released
+					if (this.retiredChunks == null) {
+						this.retiredChunks = new ArrayList<>(2);
+					}
+					this.retiredChunks.add(oldChunk);
+				}
+				else {
+					recycle(oldChunk);
+				}
+			}
+			return this;
+		}
+
+		@Override
+		ByteBuffer allocate(int capacity, boolean direct) {
+			if (!isAllocated()) {
+				throw new IllegalStateException("DataBuffer has been released");
+			}
+			this.chunk = acquire(capacity);
+			this.chunkShared = false;
+			return (this.chunk != null ? view(this.chunk, capacity) : allocateUnpooled(capacity));
+		}
+
+		@Override
+		public ByteBuffer getNativeBuffer() {
+			this.chunkShared = true;
+			return super.getNativeBuffer();
+		}
+
+		@Override
+		public ByteBuffer asByteBuffer(int index, int length) {
+			this.chunkShared = true;
+			return super.asByteBuffer(index, length);
+		}
+
+		@Override
+		public DefaultDataBuffer slice(int index, int length) {
+			return new PooledSlice(this, asByteBuffer(index, length));
+		}
+
+		@Override
+		public boolean isAllocated() {
+			return this.refCount.get() > 0;
+		}
+
+		@Override
+		public PooledDataBuffer retain() {
+			int count;
+			do {
+				count = this.refCount.get();
+				if (count <= 0) {
+					throw new IllegalStateException("DataBuffer has been released");
+				}
+			}
+			while (!this.refCount.compareAndSet(count, count + 1));
+			return this;
+		}
+
+		@Override
+		public boolean release() {
+			int count;
+			do {
+				count = this.refCount.get();
+				if (count <= 0) {
+					throw new IllegalStateException("DataBuffer has already been released");
+				}
+			}
+			while (!this.refCount.compareAndSet(count, count - 1));
+			if (count == 1) {
+				deallocate();
+				return true;
+			}
+			return false;
+		}
+
+		private void deallocate() {
+			ByteBuffer chunk = this.chunk;
+			this.chunk = null;
+			// Make sure that the recycled memory cannot be accessed through this buffer
+			readPosition(0);
+			writePosition(0);
+			setNativeBuffer(EMPTY_BUFFER);
+			if (this.leakTracker != null) {
+				leakTrackers.remove(this.leakTracker);
+				this.leakTracker.clear();
+				this.leakTracker = null;
+			}
+			activeBufferCount.decrementAndGet();
+			if (chunk != null) {
+				recycle(chunk);
+			}
+			if (this.retiredChunks != null) {
+				this.retiredChunks.forEach(PooledDefaultDataBufferFactory.this::recycle);
+				this.retiredChunks = null;
+			}
+		}
+	}
+
+
+	/**
+	 * Slice of a {@link PooledBuffer}, sharing the reference count of the
+	 * buffer it was created from.
+	 */
+	private static final class PooledSlice extends DefaultDataBuffer implements PooledDataBuffer {
+
+		private final PooledBuffer parent;
+
+		PooledSlice(PooledBuffer parent, ByteBuffer byteBuffer) {
+			super(parent.factory(), byteBuffer);
+			this.parent = parent;
+			writePosition(byteBuffer.remaining());
+		}
+
+		@Override
+		public DefaultDataBuffer capacity(int newCapacity) {
+			throw new UnsupportedOperationException("Changing the capacity of a sliced buffer is not supported");
+		}
+
+		@Override
+		public DefaultDataBuffer slice(int index, int length) {
+			return new PooledSlice(this.parent, asByteBuffer(index, length));
+		}
+
+		@Override
+		public boolean isAllocated() {
+			return this.parent.isAllocated();
+		}
+
+		@Override
+		public PooledDataBuffer retain() {
+			this.parent.retain();
+			return this;
+		}
+
+		@Override
+		public boolean release() {
+			return this.parent.release();
+		}
+	}
+
+
+	/**
+	 * Shared pool of released buffers of one size class.
+	 */
+	private static final class Arena {
+
+		private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+		private final AtomicInteger size = new AtomicInteger();
+
+		private final int maxSize;
+
+		Arena(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		@Nullable
+		ByteBuffer poll() {
+			ByteBuffer buffer = this.buffers.poll();
+			if (buffer != null) {
+				this.size.decrementAndGet();
+			}
+			return buffer;
+		}
+
+		void offer(ByteBuffer buffer) {
+			if (this.size.incrementAndGet() <= this.maxSize) {
+				this.buffers.offer(buffer);
+			}
+			else {
+				this.size.decrementAndGet();
+			}
+		}
+	}
+
+
+	/**
+	 * Per-thread cache of released buffers of the smaller size classes,
+	 * avoiding contention on the shared arenas.
+	 */
+	private static final class ThreadCache {
+
+		private final ByteBuffer[][] buffers;
+
+		private final int[] counts;
+
+		ThreadCache(int sizeClasses) {
+			this.buffers = new ByteBuffer[sizeClasses][THREAD_CACHE_SIZE];
+			this.counts = new int[sizeClasses];
+		}
+
+		@Nullable
+		ByteBuffer poll(int sizeClass) {
+			if (sizeClass >= this.counts.length || this.counts[sizeClass] == 0) {
+				return null;
+			}
+			int index = --this.counts[sizeClass];
+			ByteBuffer buffer = this.buffers[sizeClass][index];
+			this.buffers[sizeClass][index] = null;
+			return buffer;
+		}
+
+		boolean offer(int sizeClass, ByteBuffer buffer) {
+			if (sizeClass >= this.counts.length || this.counts[sizeClass] == THREAD_CACHE_SIZE) {
+				return false;
+			}
+			this.buffers[sizeClass][this.counts[sizeClass]++] = buffer;
+			return true;
+		}
+	}
+
+
+	/**
+	 * Phantom reference to an allocated buffer, recording where it was allocated.
+	 */
+	private static final class LeakTracker extends PhantomReference<PooledDataBuffer> {
+
+		private final Throwable allocation = new Throwable("DataBuffer allocation");
+
+		LeakTracker(PooledDataBuffer buffer, ReferenceQueue<PooledDataBuffer> queue) {
+			super(buffer, queue);
+		}
+	}
+
+}
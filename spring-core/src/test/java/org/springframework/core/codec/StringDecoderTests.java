@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,6 +30,7 @@ import reactor.test.StepVerifier;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.core.testfixture.codec.AbstractDecoderTests;
 import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
@@ -163,6 +164,20 @@ class StringDecoderTests extends AbstractDecoderTests<StringDecoder> {
 				.verify());
 	}
 
+	@Test
+	void decodeNewLineFromSingleDefaultDataBuffer() {
+		byte[] bytes = "abc\ndef\r\nghi\n\njkl".getBytes(StandardCharsets.UTF_8);
+		DataBuffer buffer = new DefaultDataBufferFactory().allocateBuffer(bytes.length);
+		buffer.write(bytes);
+
+		Flux<String> output = this.decoder.decode(Flux.just(buffer), TYPE, null, Collections.emptyMap());
+
+		StepVerifier.create(output)
+				.expectNext("abc", "def", "ghi", "", "jkl")
+				.expectComplete()
+				.verify();
+	}
+
 	@Test // gh-24339
 	void maxInMemoryLimitReleaseUnprocessedLinesWhenUnlimited() {
 		Flux<DataBuffer> input = Flux.just(stringBuffer("Line 1\nLine 2\nLine 3\n"));
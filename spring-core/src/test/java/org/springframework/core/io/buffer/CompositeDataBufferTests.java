@@ -0,0 +1,177 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import org.springframework.core.testfixture.io.buffer.AbstractDataBufferAllocatingTests;
+import org.springframework.util.StreamUtils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Unit tests for {@link CompositeDataBuffer}.
+ */
+class CompositeDataBufferTests extends AbstractDataBufferAllocatingTests {
+
+	@ParameterizedDataBufferAllocatingTest
+	void read(String displayName, DataBufferFactory bufferFactory) {
+		super.bufferFactory = bufferFactory;
+
+		CompositeDataBuffer composite = compose("foo", "", "bar");
+		assertThat(composite.capacity()).isEqualTo(6);
+		assertThat(composite.readableByteCount()).isEqualTo(6);
+		assertThat(composite.getByte(3)).isEqualTo((byte) 'b');
+		assertThat(composite.indexOf(b -> b == 'a', 0)).isEqualTo(4);
+		assertThat(composite.lastIndexOf(b -> b == 'o', 5)).isEqualTo(2);
+
+		byte[] bytes = new byte[4];
+		composite.read(bytes);
+		assertThat(new String(bytes, UTF_8)).isEqualTo("foob");
+		assertThat(composite.readPosition()).isEqualTo(4);
+		assertThat(composite.read()).isEqualTo((byte) 'a');
+		assertThat(composite.toString(UTF_8)).isEqualTo("r");
+
+		release(composite);
+	}
+
+	@ParameterizedDataBufferAllocatingTest
+	void componentPositionsUnchanged(String displayName, DataBufferFactory bufferFactory) {
+		super.bufferFactory = bufferFactory;
+
+		DataBuffer foo = stringBuffer("xfoo");
+		foo.readPosition(1);
+		DataBuffer bar = stringBuffer("bar");
+		CompositeDataBuffer composite = new CompositeDataBuffer(Arrays.asList(foo, bar));
+		assertThat(composite.toString(UTF_8)).isEqualTo("foobar");
+
+		composite.read(new byte[5]);
+		assertThat(foo.readPosition()).isEqualTo(1);
+		assertThat(bar.readPosition()).isEqualTo(0);
+
+		release(composite);
+	}
+
+	@ParameterizedDataBufferAllocatingTest
+	void asInputStream(String displayName, DataBufferFactory bufferFactory) throws IOException {
+		super.bufferFactory = bufferFactory;
+
+		CompositeDataBuffer composite = compose("foo", "bar", "baz");
+		try (InputStream inputStream = composite.asInputStream(true)) {
+			assertThat(inputStream.read()).isEqualTo('f');
+			assertThat(StreamUtils.copyToString(inputStream, UTF_8)).isEqualTo("oobarbaz");
+			assertThat(inputStream.read()).isEqualTo(-1);
+		}
+	}
+
+	@ParameterizedDataBufferAllocatingTest
+	void asByteBuffers(String displayName, DataBufferFactory bufferFactory) {
+		super.bufferFactory = bufferFactory;
+
+		CompositeDataBuffer composite = compose("foo", "bar", "baz");
+		composite.readPosition(2);
+		composite.writePosition(7);
+
+		ByteBuffer[] byteBuffers = composite.asByteBuffers();
+		assertThat(byteBuffers).hasSize(3);
+		assertThat(byteBuffers[0].remaining()).isEqualTo(1);
+		assertThat(byteBuffers[1].remaining()).isEqualTo(3);
+		assertThat(byteBuffers[2].remaining()).isEqualTo(1);
+
+		ByteBuffer byteBuffer = composite.asByteBuffer();
+		assertThat(UTF_8.decode(byteBuffer).toString()).isEqualTo("obarb");
+
+		byteBuffer = composite.asByteBuffer(3, 3);
+		assertThat(UTF_8.decode(byteBuffer).toString()).isEqualTo("bar");
+
+		release(composite);
+	}
+
+	@ParameterizedDataBufferAllocatingTest
+	void slice(String displayName, DataBufferFactory bufferFactory) {
+		super.bufferFactory = bufferFactory;
+
+		CompositeDataBuffer composite = compose("foo", "bar", "baz");
+
+		DataBuffer slice = composite.slice(1, 2);
+		assertThat(slice).isNotInstanceOf(CompositeDataBuffer.class);
+		assertThat(slice.toString(UTF_8)).isEqualTo("oo");
+
+		slice = composite.retainedSlice(2, 5);
+		assertThat(slice).isInstanceOf(CompositeDataBuffer.class);
+		assertThat(slice.toString(UTF_8)).isEqualTo("obarb");
+		release(slice);
+
+		release(composite);
+	}
+
+	@ParameterizedDataBufferAllocatingTest
+	void writeNotSupported(String displayName, DataBufferFactory bufferFactory) {
+		super.bufferFactory = bufferFactory;
+
+		CompositeDataBuffer composite = compose("foo", "bar");
+		assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() ->
+				composite.write((byte) 'a'));
+		assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() ->
+				composite.getByte(6));
+
+		release(composite);
+	}
+
+	@ParameterizedDataBufferAllocatingTest
+	void compose(String displayName, DataBufferFactory bufferFactory) {
+		super.bufferFactory = bufferFactory;
+
+		Flux<DataBuffer> flux = Flux.just(stringBuffer("foo"), stringBuffer("bar"), stringBuffer("baz"));
+
+		StepVerifier.create(DataBufferUtils.compose(flux, -1))
+				.consumeNextWith(buffer -> {
+					assertThat(buffer).isInstanceOf(CompositeDataBuffer.class);
+					assertThat(buffer.toString(UTF_8)).isEqualTo("foobarbaz");
+					release(buffer);
+				})
+				.verifyComplete();
+	}
+
+	@ParameterizedDataBufferAllocatingTest
+	void composeLimit(String displayName, DataBufferFactory bufferFactory) {
+		super.bufferFactory = bufferFactory;
+
+		Flux<DataBuffer> flux = Flux.just(stringBuffer("foo"), stringBuffer("bar"), stringBuffer("baz"));
+
+		StepVerifier.create(DataBufferUtils.compose(flux, 8))
+				.verifyError(DataBufferLimitException.class);
+	}
+
+
+	private CompositeDataBuffer compose(String... values) {
+		DataBuffer[] buffers = new DataBuffer[values.length];
+		for (int i = 0; i < values.length; i++) {
+			buffers[i] = stringBuffer(values[i]);
+		}
+		return new CompositeDataBuffer(Arrays.asList(buffers));
+	}
+
+}
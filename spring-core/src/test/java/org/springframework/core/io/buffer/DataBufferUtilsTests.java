@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -251,6 +251,30 @@ class DataBufferUtilsTests extends AbstractDataBufferAllocatingTests {
 				.verify(Duration.ofSeconds(5));
 	}
 
+	@ParameterizedDataBufferAllocatingTest
+	void readMapped(String displayName, DataBufferFactory bufferFactory) throws Exception {
+		super.bufferFactory = bufferFactory;
+
+		Flux<DataBuffer> flux = DataBufferUtils.readMapped(
+				this.resource.getFile().toPath(), 0, Long.MAX_VALUE, super.bufferFactory, 3);
+
+		verifyReadData(flux);
+	}
+
+	@ParameterizedDataBufferAllocatingTest
+	void readMappedPositionAndCount(String displayName, DataBufferFactory bufferFactory) throws Exception {
+		super.bufferFactory = bufferFactory;
+
+		Flux<DataBuffer> flux = DataBufferUtils.readMapped(
+				this.resource.getFile().toPath(), 3, 5, super.bufferFactory, 3);
+
+		StepVerifier.create(flux)
+				.consumeNextWith(stringConsumer("bar"))
+				.consumeNextWith(stringConsumer("ba"))
+				.expectComplete()
+				.verify(Duration.ofSeconds(5));
+	}
+
 	private void verifyReadData(Flux<DataBuffer> buffers) {
 		StepVerifier.create(buffers)
 				.consumeNextWith(stringConsumer("foo"))
@@ -940,6 +964,63 @@ class DataBufferUtilsTests extends AbstractDataBufferAllocatingTests {
 		release(foo);
 	}
 
+	@ParameterizedDataBufferAllocatingTest
+	void matcherTwoByteMismatch(String displayName, DataBufferFactory bufferFactory) {
+		super.bufferFactory = bufferFactory;
+
+		DataBuffer foo = stringBuffer("a\rb\r\n");
+
+		DataBufferUtils.Matcher matcher = DataBufferUtils.matcher("\r\n".getBytes(StandardCharsets.UTF_8));
+		int endIndex = matcher.match(foo);
+		assertThat(endIndex).isEqualTo(4);
+
+		release(foo);
+	}
+
+	@ParameterizedDataBufferAllocatingTest
+	void multipleDelimitersMatcher(String displayName, DataBufferFactory bufferFactory) {
+		super.bufferFactory = bufferFactory;
+
+		DataBuffer foo = stringBuffer("foo\r");
+		DataBuffer bar = stringBuffer("\nbar\nbaz");
+
+		DataBufferUtils.Matcher matcher = DataBufferUtils.matcher(
+				"\n".getBytes(StandardCharsets.UTF_8), "\r\n".getBytes(StandardCharsets.UTF_8));
+		int endIndex = matcher.match(foo);
+		assertThat(endIndex).isEqualTo(-1);
+		endIndex = matcher.match(bar);
+		assertThat(endIndex).isEqualTo(0);
+		assertThat(matcher.delimiter()).isEqualTo("\r\n".getBytes(StandardCharsets.UTF_8));
+		bar.readPosition(endIndex + 1);
+		endIndex = matcher.match(bar);
+		assertThat(endIndex).isEqualTo(4);
+		assertThat(matcher.delimiter()).isEqualTo("\n".getBytes(StandardCharsets.UTF_8));
+		bar.readPosition(endIndex + 1);
+		endIndex = matcher.match(bar);
+		assertThat(endIndex).isEqualTo(-1);
+
+		release(foo, bar);
+	}
+
+	@ParameterizedDataBufferAllocatingTest
+	void multipleDelimitersMatcherOverlapping(String displayName, DataBufferFactory bufferFactory) {
+		super.bufferFactory = bufferFactory;
+
+		DataBuffer foo = stringBuffer("ushers");
+
+		DataBufferUtils.Matcher matcher = DataBufferUtils.matcher(
+				"he".getBytes(StandardCharsets.UTF_8), "she".getBytes(StandardCharsets.UTF_8),
+				"hers".getBytes(StandardCharsets.UTF_8));
+		int endIndex = matcher.match(foo);
+		assertThat(endIndex).isEqualTo(3);
+		assertThat(matcher.delimiter()).isEqualTo("she".getBytes(StandardCharsets.UTF_8));
+		foo.readPosition(endIndex + 1);
+		endIndex = matcher.match(foo);
+		assertThat(endIndex).isEqualTo(-1);
+
+		release(foo);
+	}
+
 
 	private static class ZeroDemandSubscriber extends BaseSubscriber<DataBuffer> {
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -66,6 +66,24 @@ class PooledDataBufferTests {
 		}
 	}
 
+	@Nested
+	class PooledDefaultDataBufferFactoryWithPreferDirectTrueTests implements PooledDataBufferTestingTrait {
+
+		@Override
+		public DataBufferFactory createDataBufferFactory() {
+			return new PooledDefaultDataBufferFactory(true);
+		}
+	}
+
+	@Nested
+	class PooledDefaultDataBufferFactoryWithPreferDirectFalseTests implements PooledDataBufferTestingTrait {
+
+		@Override
+		public DataBufferFactory createDataBufferFactory() {
+			return new PooledDefaultDataBufferFactory(false);
+		}
+	}
+
 	interface PooledDataBufferTestingTrait {
 
 		DataBufferFactory createDataBufferFactory();
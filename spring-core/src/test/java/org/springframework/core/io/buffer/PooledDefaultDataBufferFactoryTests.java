@@ -0,0 +1,162 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Unit tests for {@link PooledDefaultDataBufferFactory}.
+ */
+class PooledDefaultDataBufferFactoryTests {
+
+	private PooledDefaultDataBufferFactory bufferFactory;
+
+
+	@AfterEach
+	void verifyReleased() {
+		assertThat(this.bufferFactory.getActiveBufferCount()).isEqualTo(0);
+	}
+
+
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	void allocateAndRelease(boolean preferDirect) {
+		this.bufferFactory = new PooledDefaultDataBufferFactory(preferDirect, 256, 1024, 4);
+
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(100);
+		assertThat(buffer).isInstanceOf(PooledDataBuffer.class);
+		assertThat(buffer.capacity()).isEqualTo(100);
+		buffer.write("foo", UTF_8);
+		assertThat(this.bufferFactory.getActiveBufferCount()).isEqualTo(1);
+		assertThat(DataBufferUtils.release(buffer)).isTrue();
+
+		DataBuffer recycled = this.bufferFactory.allocateBuffer(120);
+		assertThat(recycled.capacity()).isEqualTo(120);
+		assertThat(recycled.readableByteCount()).isEqualTo(0);
+		DataBufferUtils.release(recycled);
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	void accessAfterRelease(boolean preferDirect) {
+		this.bufferFactory = new PooledDefaultDataBufferFactory(preferDirect);
+
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(10);
+		buffer.write("foo", UTF_8);
+		DataBufferUtils.release(buffer);
+
+		assertThat(buffer.readableByteCount()).isEqualTo(0);
+		assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> buffer.getByte(0));
+		assertThatIllegalStateException().isThrownBy(() -> buffer.write("bar", UTF_8));
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	void changeCapacity(boolean preferDirect) {
+		this.bufferFactory = new PooledDefaultDataBufferFactory(preferDirect, 256, 1024, 4);
+
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(2);
+		byte[] bytes = new byte[2000];
+		Arrays.fill(bytes, (byte) 'a');
+		buffer.write("foo", UTF_8);
+		buffer.write(bytes);
+		assertThat(buffer.readableByteCount()).isEqualTo(2003);
+		assertThat(buffer.toString(0, 3, UTF_8)).isEqualTo("foo");
+		assertThat(buffer.getByte(2002)).isEqualTo((byte) 'a');
+
+		buffer.capacity(3);
+		assertThat(buffer.capacity()).isEqualTo(3);
+		assertThat(buffer.toString(UTF_8)).isEqualTo("foo");
+		DataBufferUtils.release(buffer);
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	void retainedSlice(boolean preferDirect) {
+		this.bufferFactory = new PooledDefaultDataBufferFactory(preferDirect);
+
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(10);
+		buffer.write("foobar", UTF_8);
+
+		DataBuffer slice = buffer.retainedSlice(1, 4);
+		assertThat(slice).isInstanceOf(PooledDataBuffer.class);
+		assertThat(slice.toString(UTF_8)).isEqualTo("ooba");
+		assertThat(DataBufferUtils.release(buffer)).isFalse();
+		assertThat(((PooledDataBuffer) slice).isAllocated()).isTrue();
+		assertThat(DataBufferUtils.release(slice)).isTrue();
+		assertThat(((PooledDataBuffer) buffer).isAllocated()).isFalse();
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	void sliceRemainsValidAfterCapacityChange(boolean preferDirect) {
+		this.bufferFactory = new PooledDefaultDataBufferFactory(preferDirect, 256, 1024, 4);
+
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(10);
+		buffer.write("foo", UTF_8);
+		DataBuffer slice = buffer.slice(0, 3);
+		buffer.capacity(500);
+
+		DataBuffer other = this.bufferFactory.allocateBuffer(10);
+		other.write("xyz", UTF_8);
+		slice.writePosition(0).write("bar", UTF_8);
+		assertThat(slice.toString(UTF_8)).isEqualTo("bar");
+		assertThat(other.toString(UTF_8)).isEqualTo("xyz");
+		assertThat(buffer.toString(UTF_8)).isEqualTo("foo");
+
+		DataBufferUtils.release(other);
+		DataBufferUtils.release(buffer);
+		DataBuffer recycled = this.bufferFactory.allocateBuffer(10);
+		assertThat(recycled.capacity()).isEqualTo(10);
+		DataBufferUtils.release(recycled);
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	void join(boolean preferDirect) {
+		this.bufferFactory = new PooledDefaultDataBufferFactory(preferDirect);
+
+		DataBuffer foo = this.bufferFactory.allocateBuffer(3).write("foo", UTF_8);
+		DataBuffer bar = this.bufferFactory.wrap("bar".getBytes(UTF_8));
+
+		DataBuffer result = this.bufferFactory.join(Arrays.asList(foo, bar));
+		assertThat(result.toString(UTF_8)).isEqualTo("foobar");
+		assertThat(this.bufferFactory.getActiveBufferCount()).isEqualTo(1);
+		DataBufferUtils.release(result);
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	void notPooledAboveMaxCapacity(boolean preferDirect) {
+		this.bufferFactory = new PooledDefaultDataBufferFactory(preferDirect, 256, 1024, 4);
+
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(4096);
+		assertThat(buffer.capacity()).isEqualTo(4096);
+		buffer.write("foo", UTF_8);
+		assertThat(DataBufferUtils.release(buffer)).isTrue();
+	}
+
+}
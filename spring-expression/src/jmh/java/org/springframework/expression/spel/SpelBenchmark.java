@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+/**
+ * Benchmarks for parsing and evaluating SpEL expressions,
+ * in interpreted and compiled mode.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class SpelBenchmark {
+
+	@Benchmark
+	public Expression parseExpression(ExpressionData data) {
+		return data.parser.parseExpression(ExpressionData.EXPRESSION);
+	}
+
+	@Benchmark
+	public Object evaluatePropertyNavigation(ExpressionData data) {
+		return data.propertyExpression.getValue(data.context);
+	}
+
+	@Benchmark
+	public Object evaluateMethodInvocation(ExpressionData data) {
+		return data.methodExpression.getValue(data.context);
+	}
+
+	@Benchmark
+	public Object evaluateMapAccess(ExpressionData data) {
+		return data.mapExpression.getValue(data.context);
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class ExpressionData {
+
+		static final String EXPRESSION = "person.address.city.length() > 3 and person.age >= 18";
+
+		@Param({"OFF", "IMMEDIATE"})
+		public SpelCompilerMode compilerMode;
+
+		public SpelExpressionParser parser;
+
+		public EvaluationContext context;
+
+		public Expression propertyExpression;
+
+		public Expression methodExpression;
+
+		public Expression mapExpression;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.parser = new SpelExpressionParser(new SpelParserConfiguration(this.compilerMode, getClass().getClassLoader()));
+			Root root = new Root();
+			root.person = new Person();
+			root.person.age = 42;
+			root.person.address = new Address();
+			root.person.address.city = "Amsterdam";
+			root.attributes.put("region", "EMEA");
+			this.context = new StandardEvaluationContext(root);
+			this.propertyExpression = this.parser.parseExpression(EXPRESSION);
+			this.methodExpression = this.parser.parseExpression("person.greet('Hello')");
+			this.mapExpression = this.parser.parseExpression("attributes['region']");
+		}
+	}
+
+
+	public static class Root {
+
+		public Person person;
+
+		public Map<String, String> attributes = new HashMap<>();
+	}
+
+
+	public static class Person {
+
+		public int age;
+
+		public Address address;
+
+		public String greet(String greeting) {
+			return greeting + " from " + this.address.city;
+		}
+	}
+
+
+	public static class Address {
+
+		public String city;
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.namedparam;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks for {@link NamedParameterUtils}, parsing SQL statements and
+ * expanding named parameters including IN clause lists.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class NamedParameterUtilsBenchmark {
+
+	@Benchmark
+	public ParsedSql parseSql(SqlData data) {
+		return NamedParameterUtils.parseSqlStatement(SqlData.SQL);
+	}
+
+	@Benchmark
+	public String substituteNamedParameters(SqlData data) {
+		return NamedParameterUtils.substituteNamedParameters(data.parsedSql, data.parameters);
+	}
+
+	@Benchmark
+	public Object[] buildValueArray(SqlData data) {
+		return NamedParameterUtils.buildValueArray(data.parsedSql, data.parameters, null);
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class SqlData {
+
+		static final String SQL = "SELECT id, name, status FROM orders " +
+				"WHERE customer_id = :customerId AND status IN (:statuses) AND created > :since " +
+				"AND region = :region ORDER BY created DESC";
+
+		@Param({"1", "10", "100"})
+		public int inListSize;
+
+		public ParsedSql parsedSql;
+
+		public MapSqlParameterSource parameters;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.parsedSql = NamedParameterUtils.parseSqlStatement(SQL);
+			List<String> statuses = new ArrayList<>(this.inListSize);
+			for (int i = 0; i < this.inListSize; i++) {
+				statuses.add("STATUS_" + i);
+			}
+			this.parameters = new MapSqlParameterSource()
+					.addValue("customerId", 42L)
+					.addValue("statuses", statuses)
+					.addValue("since", new Timestamp(0))
+					.addValue("region", "EMEA");
+		}
+	}
+
+}
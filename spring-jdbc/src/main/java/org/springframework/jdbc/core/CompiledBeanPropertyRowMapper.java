@@ -0,0 +1,438 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link BeanPropertyRowMapper} variant for mapping large result sets, which
+ * resolves the mapping from result set columns to bean properties once per
+ * query shape rather than for every row.
+ *
+ * <p>For each distinct set of column labels, a mapping plan is created and
+ * cached, holding a {@link MethodHandle} for each property setter along with a
+ * {@link ResultSet} getter specialized for the property type. Rows are then
+ * mapped by reading each column by index and invoking the setter directly,
+ * without allocating a {@link BeanWrapper} per row. Values that are not of the
+ * property type are converted through the {@link #getConversionService()
+ * ConversionService}, falling back to a {@code BeanWrapper} if necessary.
+ * The plan is resolved once per result set, so a mapper instance may be shared
+ * across queries, including interleaved ones.
+ *
+ * <p>Column values are read through type-specialized getters unless
+ * {@link #getColumnValue(ResultSet, int, PropertyDescriptor)} is overridden.
+ * A {@code BeanWrapper} {@linkplain #initBeanWrapper initialized} for the
+ * mapped object is only used for values that cannot be set directly, so custom
+ * property editors only apply to values that are not of the property type.
+ *
+ * @since 5.2.13
+ * @param <T> the result type
+ * @see BeanPropertyRowMapper
+ */
+public class CompiledBeanPropertyRowMapper<T> extends BeanPropertyRowMapper<T> {
+
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+
+	/** Mapping plans by column labels. */
+	private final Map<List<String>, MappingPlan> mappingPlanCache = new ConcurrentReferenceHashMap<>(16);
+
+	/** Mapping plans for the result sets currently being mapped. */
+	private final Map<ResultSet, MappingPlan> resultSetPlans = Collections.synchronizedMap(new WeakHashMap<>(4));
+
+	/** The mapping plan for the result set that was mapped last. */
+	@Nullable
+	private volatile CurrentPlan currentPlan;
+
+	/** Whether {@link #getColumnValue} has been overridden. */
+	private final boolean customColumnValue = isCustomColumnValue(getClass());
+
+	@Nullable
+	private MethodHandle constructor;
+
+
+	/**
+	 * Create a new {@code CompiledBeanPropertyRowMapper} for bean-style configuration.
+	 * @see #setMappedClass
+	 * @see #setCheckFullyPopulated
+	 */
+	public CompiledBeanPropertyRowMapper() {
+	}
+
+	/**
+	 * Create a new {@code CompiledBeanPropertyRowMapper}, accepting unpopulated
+	 * properties in the target bean.
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public CompiledBeanPropertyRowMapper(Class<T> mappedClass) {
+		super(mappedClass);
+	}
+
+	/**
+	 * Create a new {@code CompiledBeanPropertyRowMapper}.
+	 * @param mappedClass the class that each row should be mapped to
+	 * @param checkFullyPopulated whether we're strictly validating that
+	 * all bean properties have been mapped from corresponding database fields
+	 */
+	public CompiledBeanPropertyRowMapper(Class<T> mappedClass, boolean checkFullyPopulated) {
+		super(mappedClass, checkFullyPopulated);
+	}
+
+
+	@Override
+	protected void initialize(Class<T> mappedClass) {
+		super.initialize(mappedClass);
+		this.constructor = null;
+		if (!Modifier.isAbstract(mappedClass.getModifiers())) {
+			try {
+				Constructor<T> ctor = ReflectionUtils.accessibleConstructor(mappedClass);
+				this.constructor = MethodHandles.lookup().unreflectConstructor(ctor).asType(CONSTRUCTOR_TYPE);
+			}
+			catch (NoSuchMethodException | IllegalAccessException ex) {
+				// No plain no-arg constructor: instantiate through BeanUtils
+			}
+		}
+	}
+
+
+	/**
+	 * Extract the values for all columns in the current row, using the mapping
+	 * plan for the column labels of the given result set.
+	 */
+	@Override
+	public T mapRow(ResultSet rs, int rowNumber) throws SQLException {
+		Class<T> mappedClass = getMappedClass();
+		Assert.state(mappedClass != null, "Mapped class was not specified");
+		MappingPlan plan = getMappingPlan(rs, rowNumber);
+		if (isCheckFullyPopulated() && !plan.fullyPopulated) {
+			throw new InvalidDataAccessApiUsageException("Given ResultSet does not contain all fields " +
+					"necessary to populate object of " + mappedClass + ": " + getMappedProperties());
+		}
+
+		T mappedObject = instantiate(mappedClass);
+		BeanWrapper bw = null;
+		for (ColumnMapping mapping : plan.mappings) {
+			Object value = mapping.reader.read(rs, mapping.index);
+			if (value == null && mapping.primitive) {
+				if (isPrimitivesDefaultedForNullValue()) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Ignoring null value for row " + rowNumber + " and column '" + mapping.column +
+								"' when setting primitive property '" + mapping.propertyName + "' on object: " +
+								mappedObject);
+					}
+					continue;
+				}
+				throw new TypeMismatchException(new PropertyChangeEvent(
+						mappedObject, mapping.propertyName, null, null), mapping.typeDescriptor.getType());
+			}
+			if (value == null || mapping.valueType.isInstance(value)) {
+				mapping.setValue(mappedObject, value);
+				continue;
+			}
+			ConversionService conversionService = getConversionService();
+			TypeDescriptor sourceType = TypeDescriptor.forObject(value);
+			if (conversionService != null && conversionService.canConvert(sourceType, mapping.typeDescriptor)) {
+				mapping.setValue(mappedObject, conversionService.convert(value, sourceType, mapping.typeDescriptor));
+			}
+			else {
+				if (bw == null) {
+					bw = PropertyAccessorFactory.forBeanPropertyAccess(mappedObject);
+					initBeanWrapper(bw);
+				}
+				bw.setPropertyValue(mapping.propertyName, value);
+			}
+		}
+		return mappedObject;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T instantiate(Class<T> mappedClass) {
+		MethodHandle constructor = this.constructor;
+		if (constructor == null) {
+			return BeanUtils.instantiateClass(mappedClass);
+		}
+		try {
+			return (T) constructor.invokeExact();
+		}
+		catch (Throwable ex) {
+			ReflectionUtils.rethrowRuntimeException(ex);
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private MappingPlan getMappingPlan(ResultSet rs, int rowNumber) throws SQLException {
+		CurrentPlan current = this.currentPlan;
+		if (rowNumber != 0) {
+			if (current != null && current.resultSet.get() == rs) {
+				return current.plan;
+			}
+			MappingPlan plan = this.resultSetPlans.get(rs);
+			if (plan != null) {
+				this.currentPlan = new CurrentPlan(rs, plan);
+				return plan;
+			}
+		}
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int columnCount = rsmd.getColumnCount();
+		String[] columns = new String[columnCount];
+		for (int index = 1; index <= columnCount; index++) {
+			columns[index - 1] = JdbcUtils.lookupColumnName(rsmd, index);
+		}
+		List<String> key = Arrays.asList(columns);
+		MappingPlan plan = this.mappingPlanCache.get(key);
+		if (plan == null) {
+			plan = createMappingPlan(columns);
+			this.mappingPlanCache.put(key, plan);
+		}
+		this.resultSetPlans.put(rs, plan);
+		this.currentPlan = new CurrentPlan(rs, plan);
+		return plan;
+	}
+
+	private MappingPlan createMappingPlan(String[] columns) {
+		List<ColumnMapping> mappings = new ArrayList<>(columns.length);
+		Set<String> populatedProperties = new HashSet<>();
+		for (int index = 1; index <= columns.length; index++) {
+			String column = columns[index - 1];
+			String field = lowerCaseName(StringUtils.delete(column, " "));
+			PropertyDescriptor pd = getMappedPropertyDescriptor(field);
+			if (pd != null) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Mapping column '" + column + "' to property '" + pd.getName() +
+							"' of type '" + ClassUtils.getQualifiedName(pd.getPropertyType()) + "'");
+				}
+				mappings.add(new ColumnMapping(index, column, pd, getColumnReader(pd)));
+				populatedProperties.add(pd.getName());
+			}
+			else {
+				// No PropertyDescriptor found
+				if (logger.isDebugEnabled()) {
+					logger.debug("No property found for column '" + column + "' mapped to field '" + field + "'");
+				}
+			}
+		}
+		return new MappingPlan(mappings, populatedProperties.equals(getMappedProperties()));
+	}
+
+	private ColumnReader getColumnReader(PropertyDescriptor pd) {
+		if (this.customColumnValue) {
+			return (rs, index) -> getColumnValue(rs, index, pd);
+		}
+		Class<?> type = pd.getPropertyType();
+		if (String.class == type) {
+			return ResultSet::getString;
+		}
+		else if (boolean.class == type || Boolean.class == type) {
+			return (rs, index) -> {
+				boolean value = rs.getBoolean(index);
+				return (rs.wasNull() ? null : value);
+			};
+		}
+		else if (int.class == type || Integer.class == type) {
+			return (rs, index) -> {
+				int value = rs.getInt(index);
+				return (rs.wasNull() ? null : value);
+			};
+		}
+		else if (long.class == type || Long.class == type) {
+			return (rs, index) -> {
+				long value = rs.getLong(index);
+				return (rs.wasNull() ? null : value);
+			};
+		}
+		else if (double.class == type || Double.class == type) {
+			return (rs, index) -> {
+				double value = rs.getDouble(index);
+				return (rs.wasNull() ? null : value);
+			};
+		}
+		else if (BigDecimal.class == type) {
+			return ResultSet::getBigDecimal;
+		}
+		else {
+			return (rs, index) -> JdbcUtils.getResultSetValue(rs, index, type);
+		}
+	}
+
+	private static boolean isCustomColumnValue(Class<?> mapperClass) {
+		Method method = ReflectionUtils.findMethod(mapperClass, "getColumnValue",
+				ResultSet.class, int.class, PropertyDescriptor.class);
+		return (method != null && method.getDeclaringClass() != BeanPropertyRowMapper.class);
+	}
+
+
+	/**
+	 * Static factory method to create a new {@code CompiledBeanPropertyRowMapper}.
+	 * @param mappedClass the class that each row should be mapped to
+	 * @see #newInstance(Class, ConversionService)
+	 */
+	public static <T> CompiledBeanPropertyRowMapper<T> newInstance(Class<T> mappedClass) {
+		return new CompiledBeanPropertyRowMapper<>(mappedClass);
+	}
+
+	/**
+	 * Static factory method to create a new {@code CompiledBeanPropertyRowMapper}.
+	 * @param mappedClass the class that each row should be mapped to
+	 * @param conversionService the {@link ConversionService} for binding
+	 * JDBC values to bean properties, or {@code null} for none
+	 * @see #newInstance(Class)
+	 * @see #setConversionService
+	 */
+	public static <T> CompiledBeanPropertyRowMapper<T> newInstance(
+			Class<T> mappedClass, @Nullable ConversionService conversionService) {
+
+		CompiledBeanPropertyRowMapper<T> rowMapper = newInstance(mappedClass);
+		rowMapper.setConversionService(conversionService);
+		return rowMapper;
+	}
+
+
+	/**
+	 * Reads the value of a column from the current row.
+	 */
+	@FunctionalInterface
+	private interface ColumnReader {
+
+		@Nullable
+		Object read(ResultSet rs, int index) throws SQLException;
+	}
+
+
+	/**
+	 * The mapping of a column to a bean property.
+	 */
+	private static final class ColumnMapping {
+
+		final int index;
+
+		final String column;
+
+		final String propertyName;
+
+		final TypeDescriptor typeDescriptor;
+
+		final Class<?> valueType;
+
+		final boolean primitive;
+
+		final ColumnReader reader;
+
+		final MethodHandle setter;
+
+		ColumnMapping(int index, String column, PropertyDescriptor pd, ColumnReader reader) {
+			this.index = index;
+			this.column = column;
+			this.propertyName = pd.getName();
+			this.typeDescriptor = new TypeDescriptor(BeanUtils.getWriteMethodParameter(pd));
+			this.valueType = ClassUtils.resolvePrimitiveIfNecessary(pd.getPropertyType());
+			this.primitive = pd.getPropertyType().isPrimitive();
+			this.reader = reader;
+			Method writeMethod = pd.getWriteMethod();
+			Assert.state(writeMethod != null, "No write method");
+			try {
+				ReflectionUtils.makeAccessible(writeMethod);
+				this.setter = MethodHandles.lookup().unreflect(writeMethod).asType(SETTER_TYPE);
+			}
+			catch (IllegalAccessException ex) {
+				throw new DataRetrievalFailureException(
+						"Unable to map column '" + column + "' to property '" + this.propertyName + "'", ex);
+			}
+		}
+
+		void setValue(Object mappedObject, @Nullable Object value) {
+			try {
+				this.setter.invokeExact(mappedObject, value);
+			}
+			catch (Throwable ex) {
+				throw new DataRetrievalFailureException(
+						"Unable to map column '" + this.column + "' to property '" + this.propertyName + "'", ex);
+			}
+		}
+	}
+
+
+	/**
+	 * The column mappings for a distinct set of column labels.
+	 */
+	private static final class MappingPlan {
+
+		final ColumnMapping[] mappings;
+
+		final boolean fullyPopulated;
+
+		MappingPlan(List<ColumnMapping> mappings, boolean fullyPopulated) {
+			this.mappings = mappings.toArray(new ColumnMapping[0]);
+			this.fullyPopulated = fullyPopulated;
+		}
+	}
+
+
+	/**
+	 * The mapping plan for a specific result set, which is only weakly
+	 * referenced in order not to hold on to it after the query.
+	 */
+	private static final class CurrentPlan {
+
+		final WeakReference<ResultSet> resultSet;
+
+		final MappingPlan plan;
+
+		CurrentPlan(ResultSet resultSet, MappingPlan plan) {
+			this.resultSet = new WeakReference<>(resultSet);
+			this.plan = plan;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -34,6 +34,11 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.sql.DataSource;
 
@@ -462,6 +467,11 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return result(query(sql, new RowMapperResultSetExtractor<>(rowMapper)));
 	}
 
+	@Override
+	public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper) throws DataAccessException {
+		return queryForStream(new SimplePreparedStatementCreator(sql), null, rowMapper, -1);
+	}
+
 	@Override
 	public Map<String, Object> queryForMap(String sql) throws DataAccessException {
 		return result(queryForObject(sql, getColumnMapRowMapper()));
@@ -688,6 +698,102 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		});
 	}
 
+	/**
+	 * Query using a prepared statement, allowing for a PreparedStatementCreator
+	 * and a PreparedStatementSetter, mapping each row to a result object via a
+	 * RowMapper, and turning it into an iterable and closeable Stream.
+	 * <p>In contrast to {@link #query(PreparedStatementCreator, PreparedStatementSetter, ResultSetExtractor)},
+	 * the JDBC Connection, PreparedStatement and ResultSet remain open after this
+	 * method returns: rows are read and mapped lazily while the Stream is being
+	 * consumed, and all resources are released once the Stream is closed. The
+	 * result set is of the default type, i.e. forward-only and read-only, so that
+	 * drivers can stream rows in batches of the given fetch size rather than
+	 * materializing the entire result.
+	 * @param psc a callback that creates a PreparedStatement given a Connection
+	 * @param pss a callback that knows how to set values on the prepared statement.
+	 * If this is {@code null}, the SQL will be assumed to contain no bind parameters.
+	 * @param rowMapper a callback that will map one object per row
+	 * @param fetchSize the fetch size to apply to the statement, overriding the
+	 * template's {@link #setFetchSize fetch size}, or -1 to keep the latter
+	 * @return the result Stream, containing mapped objects, which needs to be
+	 * closed once fully processed (e.g. through a try-with-resources clause)
+	 * @throws DataAccessException if there is any problem
+	 * @since 5.2.13
+	 */
+	public <T> Stream<T> queryForStream(PreparedStatementCreator psc, @Nullable PreparedStatementSetter pss,
+			RowMapper<T> rowMapper, int fetchSize) throws DataAccessException {
+
+		Assert.notNull(psc, "PreparedStatementCreator must not be null");
+		Assert.notNull(rowMapper, "RowMapper must not be null");
+		String sql = getSql(psc);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing prepared SQL query" + (sql != null ? " [" + sql + "]" : ""));
+		}
+
+		Connection con = DataSourceUtils.getConnection(obtainDataSource());
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			ps = psc.createPreparedStatement(con);
+			applyStatementSettings(ps);
+			if (fetchSize != -1) {
+				ps.setFetchSize(fetchSize);
+			}
+			if (pss != null) {
+				pss.setValues(ps);
+			}
+			rs = ps.executeQuery();
+			handleWarnings(ps);
+			Runnable closeHandler = new ResourceCloseHandler(con, ps, rs, psc, pss);
+			return StreamSupport.stream(new ResultSetSpliterator<>(rs, rowMapper, sql), false).onClose(closeHandler);
+		}
+		catch (SQLException ex) {
+			// Release Connection early, as in execute(PreparedStatementCreator, ...)
+			new ResourceCloseHandler(con, ps, rs, psc, pss).run();
+			throw translateException("PreparedStatementCallback", sql, ex);
+		}
+		catch (RuntimeException | Error ex) {
+			new ResourceCloseHandler(con, ps, rs, psc, pss).run();
+			throw ex;
+		}
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForStream(psc, null, rowMapper, -1);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper, int fetchSize)
+			throws DataAccessException {
+
+		return queryForStream(psc, null, rowMapper, fetchSize);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, @Nullable PreparedStatementSetter pss, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForStream(new SimplePreparedStatementCreator(sql), pss, rowMapper, -1);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, @Nullable Object... args)
+			throws DataAccessException {
+
+		return queryForStream(new SimplePreparedStatementCreator(sql), newArgPreparedStatementSetter(args), rowMapper, -1);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, int fetchSize, RowMapper<T> rowMapper, @Nullable Object... args)
+			throws DataAccessException {
+
+		return queryForStream(new SimplePreparedStatementCreator(sql), newArgPreparedStatementSetter(args),
+				rowMapper, fetchSize);
+	}
+
 	@Override
 	@Nullable
 	public <T> T query(PreparedStatementCreator psc, ResultSetExtractor<T> rse) throws DataAccessException {
@@ -1610,4 +1716,94 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		}
 	}
 
+
+
+	/**
+	 * Spliterator for queryForStream, mapping each row of an open ResultSet
+	 * as the Stream is consumed, and translating SQLExceptions on the way.
+	 */
+	private class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+		private final ResultSet rs;
+
+		private final RowMapper<T> rowMapper;
+
+		@Nullable
+		private final String sql;
+
+		private int rowNum = 0;
+
+		public ResultSetSpliterator(ResultSet rs, RowMapper<T> rowMapper, @Nullable String sql) {
+			super(Long.MAX_VALUE, Spliterator.ORDERED);
+			this.rs = rs;
+			this.rowMapper = rowMapper;
+			this.sql = sql;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			try {
+				if (this.rs.next()) {
+					action.accept(this.rowMapper.mapRow(this.rs, this.rowNum++));
+					return true;
+				}
+				return false;
+			}
+			catch (SQLException ex) {
+				throw translateException("ResultSetSpliterator", this.sql, ex);
+			}
+		}
+
+		@Override
+		@Nullable
+		public Spliterator<T> trySplit() {
+			// Rows can only be read sequentially from a forward-only ResultSet
+			return null;
+		}
+	}
+
+
+	/**
+	 * Close handler for queryForStream, releasing the JDBC resources in the
+	 * same order as {@link JdbcTemplate#execute(PreparedStatementCreator, PreparedStatementCallback)}.
+	 */
+	private class ResourceCloseHandler implements Runnable {
+
+		private final Connection con;
+
+		@Nullable
+		private final PreparedStatement ps;
+
+		@Nullable
+		private final ResultSet rs;
+
+		private final PreparedStatementCreator psc;
+
+		@Nullable
+		private final PreparedStatementSetter pss;
+
+		public ResourceCloseHandler(Connection con, @Nullable PreparedStatement ps, @Nullable ResultSet rs,
+				PreparedStatementCreator psc, @Nullable PreparedStatementSetter pss) {
+
+			this.con = con;
+			this.ps = ps;
+			this.rs = rs;
+			this.psc = psc;
+			this.pss = pss;
+		}
+
+		@Override
+		public void run() {
+			JdbcUtils.closeResultSet(this.rs);
+			if (this.pss instanceof ParameterDisposer) {
+				((ParameterDisposer) this.pss).cleanupParameters();
+			}
+			if (this.psc instanceof ParameterDisposer) {
+				((ParameterDisposer) this.psc).cleanupParameters();
+			}
+			JdbcUtils.closeStatement(this.ps);
+			DataSourceUtils.releaseConnection(this.con, getDataSource());
+		}
+	}
+
 }
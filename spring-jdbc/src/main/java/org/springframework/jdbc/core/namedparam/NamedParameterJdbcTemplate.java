@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,10 +18,12 @@ package org.springframework.jdbc.core.namedparam;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
@@ -39,11 +41,13 @@ import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.SingleColumnRowMapper;
 import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.SqlParameterValue;
 import org.springframework.jdbc.core.SqlRowSetResultSetExtractor;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentLruCache;
 
 /**
  * Template class with a basic set of JDBC operations, allowing the use
@@ -75,17 +79,11 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	/** The JdbcTemplate we are wrapping. */
 	private final JdbcOperations classicJdbcTemplate;
 
-	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
-
 	/** Cache of original SQL String to ParsedSql representation. */
-	@SuppressWarnings("serial")
-	private final Map<String, ParsedSql> parsedSqlCache =
-			new LinkedHashMap<String, ParsedSql>(DEFAULT_CACHE_LIMIT, 0.75f, true) {
-				@Override
-				protected boolean removeEldestEntry(Map.Entry<String, ParsedSql> eldest) {
-					return size() > getCacheLimit();
-				}
-			};
+	private volatile ConcurrentLruCache<String, ParsedSql> parsedSqlCache =
+			new ConcurrentLruCache<>(DEFAULT_CACHE_LIMIT, NamedParameterUtils::parseSqlStatement);
+
+	private boolean inClauseParameterPadding = false;
 
 
 	/**
@@ -135,14 +133,40 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	 * Default is 256.
 	 */
 	public void setCacheLimit(int cacheLimit) {
-		this.cacheLimit = cacheLimit;
+		this.parsedSqlCache = new ConcurrentLruCache<>(Math.max(cacheLimit, 0), NamedParameterUtils::parseSqlStatement);
 	}
 
 	/**
 	 * Return the maximum number of entries for this template's SQL cache.
 	 */
 	public int getCacheLimit() {
-		return this.cacheLimit;
+		return this.parsedSqlCache.sizeLimit();
+	}
+
+	/**
+	 * Set whether to pad the expansion of {@link Collection} parameter values,
+	 * typically used in {@code IN} clauses, to the next power of two, repeating
+	 * the last element of the collection as often as necessary.
+	 * <p>Since every collection size otherwise results in a different SQL statement,
+	 * this keeps the number of distinct statements bounded for collections of
+	 * varying sizes, which allows for effective reuse of cached statements and
+	 * execution plans in the JDBC driver and the database. Repeated values do not
+	 * change the result of an {@code IN} clause, but note that a padded list may
+	 * exceed the maximum number of elements that a database supports.
+	 * <p>Default is "false".
+	 * @since 5.2.13
+	 */
+	public void setInClauseParameterPadding(boolean inClauseParameterPadding) {
+		this.inClauseParameterPadding = inClauseParameterPadding;
+	}
+
+	/**
+	 * Return whether the expansion of collection parameter values is padded
+	 * to the next power of two.
+	 * @since 5.2.13
+	 */
+	public boolean isInClauseParameterPadding() {
+		return this.inClauseParameterPadding;
 	}
 
 
@@ -223,6 +247,27 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		return query(sql, new MapSqlParameterSource(paramMap), rowMapper);
 	}
 
+	@Override
+	public <T> Stream<T> queryForStream(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return getJdbcOperations().queryForStream(getPreparedStatementCreator(sql, paramSource), rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper,
+			int fetchSize) throws DataAccessException {
+
+		return getJdbcOperations().queryForStream(getPreparedStatementCreator(sql, paramSource), rowMapper, fetchSize);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForStream(sql, new MapSqlParameterSource(paramMap), rowMapper);
+	}
+
 	@Override
 	public <T> List<T> query(String sql, RowMapper<T> rowMapper) throws DataAccessException {
 		return query(sql, EmptySqlParameterSource.INSTANCE, rowMapper);
@@ -361,14 +406,16 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		}
 
 		ParsedSql parsedSql = getParsedSql(sql);
-		PreparedStatementCreatorFactory pscf = getPreparedStatementCreatorFactory(parsedSql, batchArgs[0]);
+		PreparedStatementCreatorFactory pscf =
+				getPreparedStatementCreatorFactory(parsedSql, applyInClauseParameterPadding(batchArgs[0]));
 
 		return getJdbcOperations().batchUpdate(
 				pscf.getSql(),
 				new BatchPreparedStatementSetter() {
 					@Override
 					public void setValues(PreparedStatement ps, int i) throws SQLException {
-						Object[] values = NamedParameterUtils.buildValueArray(parsedSql, batchArgs[i], null);
+						Object[] values = NamedParameterUtils.buildValueArray(
+								parsedSql, applyInClauseParameterPadding(batchArgs[i]), null);
 						pscf.newPreparedStatementSetter(values).setValues(ps);
 					}
 					@Override
@@ -411,27 +458,32 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 			@Nullable Consumer<PreparedStatementCreatorFactory> customizer) {
 
 		ParsedSql parsedSql = getParsedSql(sql);
-		PreparedStatementCreatorFactory pscf = getPreparedStatementCreatorFactory(parsedSql, paramSource);
+		SqlParameterSource paramSourceToUse = applyInClauseParameterPadding(paramSource);
+		PreparedStatementCreatorFactory pscf = getPreparedStatementCreatorFactory(parsedSql, paramSourceToUse);
 		if (customizer != null) {
 			customizer.accept(pscf);
 		}
-		Object[] params = NamedParameterUtils.buildValueArray(parsedSql, paramSource, null);
+		Object[] params = NamedParameterUtils.buildValueArray(parsedSql, paramSourceToUse, null);
 		return pscf.newPreparedStatementCreator(params);
 	}
 
 	/**
 	 * Obtain a parsed representation of the given SQL statement.
-	 * <p>The default implementation uses an LRU cache with an upper limit of 256 entries.
+	 * <p>The default implementation uses a concurrent LRU cache with an upper limit
+	 * of 256 entries, which does not require any locking for cache hits below its limit.
 	 * @param sql the original SQL statement
 	 * @return a representation of the parsed SQL statement
 	 */
 	protected ParsedSql getParsedSql(String sql) {
-		if (getCacheLimit() <= 0) {
-			return NamedParameterUtils.parseSqlStatement(sql);
-		}
-		synchronized (this.parsedSqlCache) {
-			return this.parsedSqlCache.computeIfAbsent(sql, NamedParameterUtils::parseSqlStatement);
-		}
+		return this.parsedSqlCache.get(sql);
+	}
+
+	/**
+	 * Apply {@link #setInClauseParameterPadding IN clause parameter padding}
+	 * to the given parameter source, if enabled.
+	 */
+	private SqlParameterSource applyInClauseParameterPadding(SqlParameterSource paramSource) {
+		return (this.inClauseParameterPadding ? new InClausePaddingSqlParameterSource(paramSource) : paramSource);
 	}
 
 	/**
@@ -451,4 +503,72 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		return new PreparedStatementCreatorFactory(sqlToUse, declaredParameters);
 	}
 
+
+	/**
+	 * {@link SqlParameterSource} decorator which pads {@link Collection} values
+	 * to the next power of two, repeating their last element.
+	 */
+	private static class InClausePaddingSqlParameterSource implements SqlParameterSource {
+
+		private final SqlParameterSource paramSource;
+
+		public InClausePaddingSqlParameterSource(SqlParameterSource paramSource) {
+			this.paramSource = paramSource;
+		}
+
+		@Override
+		public boolean hasValue(String paramName) {
+			return this.paramSource.hasValue(paramName);
+		}
+
+		@Override
+		@Nullable
+		public Object getValue(String paramName) throws IllegalArgumentException {
+			Object value = this.paramSource.getValue(paramName);
+			if (value instanceof SqlParameterValue) {
+				SqlParameterValue paramValue = (SqlParameterValue) value;
+				Object padded = pad(paramValue.getValue());
+				return (padded != paramValue.getValue() ? new SqlParameterValue(paramValue, padded) : paramValue);
+			}
+			return pad(value);
+		}
+
+		@Nullable
+		private static Object pad(@Nullable Object value) {
+			if (!(value instanceof Collection)) {
+				return value;
+			}
+			Collection<?> collection = (Collection<?>) value;
+			int size = collection.size();
+			if (size < 3 || (size & (size - 1)) == 0) {
+				return value;
+			}
+			int paddedSize = Integer.highestOneBit(size) << 1;
+			List<Object> padded = new ArrayList<>(paddedSize);
+			padded.addAll(collection);
+			Object last = padded.get(size - 1);
+			while (padded.size() < paddedSize) {
+				padded.add(last);
+			}
+			return padded;
+		}
+
+		@Override
+		public int getSqlType(String paramName) {
+			return this.paramSource.getSqlType(paramName);
+		}
+
+		@Override
+		@Nullable
+		public String getTypeName(String paramName) {
+			return this.paramSource.getTypeName(paramName);
+		}
+
+		@Override
+		@Nullable
+		public String[] getParameterNames() {
+			return this.paramSource.getParameterNames();
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -270,52 +270,59 @@ public abstract class NamedParameterUtils {
 		if (paramNames.isEmpty()) {
 			return originalSql;
 		}
-		StringBuilder actualSql = new StringBuilder(originalSql.length());
+		// Only build a new String once a parameter needs to be expanded:
+		// otherwise, the pre-computed substituted SQL String is returned as-is.
+		StringBuilder actualSql = null;
 		int lastIndex = 0;
 		for (int i = 0; i < paramNames.size(); i++) {
 			String paramName = paramNames.get(i);
 			int[] indexes = parsedSql.getParameterIndexes(i);
-			int startIndex = indexes[0];
-			int endIndex = indexes[1];
-			actualSql.append(originalSql, lastIndex, startIndex);
+			Object value = null;
 			if (paramSource != null && paramSource.hasValue(paramName)) {
-				Object value = paramSource.getValue(paramName);
+				value = paramSource.getValue(paramName);
 				if (value instanceof SqlParameterValue) {
 					value = ((SqlParameterValue) value).getValue();
 				}
-				if (value instanceof Iterable) {
-					Iterator<?> entryIter = ((Iterable<?>) value).iterator();
-					int k = 0;
-					while (entryIter.hasNext()) {
-						if (k > 0) {
-							actualSql.append(", ");
-						}
-						k++;
-						Object entryItem = entryIter.next();
-						if (entryItem instanceof Object[]) {
-							Object[] expressionList = (Object[]) entryItem;
-							actualSql.append('(');
-							for (int m = 0; m < expressionList.length; m++) {
-								if (m > 0) {
-									actualSql.append(", ");
-								}
-								actualSql.append('?');
+			}
+			if (value instanceof Iterable) {
+				if (actualSql == null) {
+					actualSql = new StringBuilder(originalSql.length() + 32);
+					actualSql.append(parsedSql.getSubstitutedSql(), 0, parsedSql.getSubstitutedIndex(i));
+				}
+				else {
+					actualSql.append(originalSql, lastIndex, indexes[0]);
+				}
+				Iterator<?> entryIter = ((Iterable<?>) value).iterator();
+				int k = 0;
+				while (entryIter.hasNext()) {
+					if (k > 0) {
+						actualSql.append(", ");
+					}
+					k++;
+					Object entryItem = entryIter.next();
+					if (entryItem instanceof Object[]) {
+						Object[] expressionList = (Object[]) entryItem;
+						actualSql.append('(');
+						for (int m = 0; m < expressionList.length; m++) {
+							if (m > 0) {
+								actualSql.append(", ");
 							}
-							actualSql.append(')');
-						}
-						else {
 							actualSql.append('?');
 						}
+						actualSql.append(')');
+					}
+					else {
+						actualSql.append('?');
 					}
-				}
-				else {
-					actualSql.append('?');
 				}
 			}
-			else {
-				actualSql.append('?');
+			else if (actualSql != null) {
+				actualSql.append(originalSql, lastIndex, indexes[0]).append('?');
 			}
-			lastIndex = endIndex;
+			lastIndex = indexes[1];
+		}
+		if (actualSql == null) {
+			return parsedSql.getSubstitutedSql();
 		}
 		actualSql.append(originalSql, lastIndex, originalSql.length());
 		return actualSql.toString();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,8 @@ package org.springframework.jdbc.core.namedparam;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.springframework.lang.Nullable;
+
 /**
  * Holds information about a parsed SQL statement.
  *
@@ -40,6 +42,9 @@ public class ParsedSql {
 
 	private int totalParameterCount;
 
+	@Nullable
+	private volatile SubstitutionPlan substitutionPlan;
+
 
 	/**
 	 * Create a new instance of the {@link ParsedSql} class.
@@ -134,6 +139,38 @@ public class ParsedSql {
 	}
 
 
+	/**
+	 * Return the substituted SQL String for parameter values which are rendered
+	 * as a single placeholder each, i.e. with every parameter replaced by {@code ?}.
+	 * <p>Computed once and then reused for every subsequent substitution.
+	 * @since 5.2.13
+	 * @see #getSubstitutedIndex(int)
+	 */
+	String getSubstitutedSql() {
+		return getSubstitutionPlan().substitutedSql;
+	}
+
+	/**
+	 * Return the index of the placeholder for the specified parameter in the
+	 * {@link #getSubstitutedSql() substituted SQL String}.
+	 * @param parameterPosition the position of the parameter
+	 * (as index in the parameter names List)
+	 * @since 5.2.13
+	 */
+	int getSubstitutedIndex(int parameterPosition) {
+		return getSubstitutionPlan().substitutedIndexes[parameterPosition];
+	}
+
+	private SubstitutionPlan getSubstitutionPlan() {
+		SubstitutionPlan plan = this.substitutionPlan;
+		if (plan == null) {
+			plan = new SubstitutionPlan(this.originalSql, this.parameterIndexes);
+			this.substitutionPlan = plan;
+		}
+		return plan;
+	}
+
+
 	/**
 	 * Exposes the original SQL String.
 	 */
@@ -142,4 +179,32 @@ public class ParsedSql {
 		return this.originalSql;
 	}
 
+
+	/**
+	 * The SQL String with all parameters replaced by a single placeholder,
+	 * along with the index of each placeholder.
+	 */
+	private static final class SubstitutionPlan {
+
+		final String substitutedSql;
+
+		final int[] substitutedIndexes;
+
+		SubstitutionPlan(String originalSql, List<int[]> parameterIndexes) {
+			StringBuilder sql = new StringBuilder(originalSql.length());
+			int[] substitutedIndexes = new int[parameterIndexes.size()];
+			int lastIndex = 0;
+			for (int i = 0; i < parameterIndexes.size(); i++) {
+				int[] indexes = parameterIndexes.get(i);
+				sql.append(originalSql, lastIndex, indexes[0]);
+				substitutedIndexes[i] = sql.length();
+				sql.append('?');
+				lastIndex = indexes[1];
+			}
+			sql.append(originalSql, lastIndex, originalSql.length());
+			this.substitutedSql = sql.toString();
+			this.substitutedIndexes = substitutedIndexes;
+		}
+	}
+
 }
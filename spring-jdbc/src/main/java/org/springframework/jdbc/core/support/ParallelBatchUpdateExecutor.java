@@ -0,0 +1,389 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.support;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Executes very large batch updates in chunks, running multiple chunks in
+ * parallel on separate connections obtained from the {@link JdbcTemplate}'s
+ * {@link javax.sql.DataSource}, typically a connection pool.
+ *
+ * <p>The batch arguments are read from an {@link Iterable}, e.g. a lazily
+ * populated {@link java.util.stream.Stream}, and collected into chunks of the
+ * {@linkplain #setChunkSize chunk size}. Each chunk is executed through
+ * {@link JdbcTemplate#batchUpdate(String, java.util.Collection, int, ParameterizedPreparedStatementSetter)}
+ * on a thread of the {@linkplain #setTaskExecutor task executor}, with at most
+ * {@linkplain #setConcurrency concurrency} chunks being executed at the same time.
+ * The reading of batch arguments blocks while that limit is reached, so that
+ * only a bounded number of chunks is held in memory at any time.
+ *
+ * <p>Chunks which fail with a {@link TransientDataAccessException} or a
+ * {@link RecoverableDataAccessException}, e.g. on a deadlock or a lock timeout,
+ * are retried up to the {@linkplain #setMaxAttempts maximum number of attempts}.
+ * Since a failed chunk may have been partially applied when executed in
+ * auto-commit mode, retries should only be enabled for idempotent statements
+ * unless a {@linkplain #setTransactionManager transaction manager} is set,
+ * in which case every chunk is executed in a transaction of its own.
+ *
+ * <p><b>NOTE:</b> Chunks never participate in a transaction of the calling thread,
+ * and chunks which completed successfully remain committed if another chunk fails.
+ *
+ * @since 5.2.13
+ * @see JdbcTemplate#batchUpdate(String, java.util.Collection, int, ParameterizedPreparedStatementSetter)
+ */
+public class ParallelBatchUpdateExecutor {
+
+	/** Default number of batch arguments per chunk: 10000. */
+	public static final int DEFAULT_CHUNK_SIZE = 10000;
+
+	/** Default number of batch arguments per JDBC batch within a chunk: 1000. */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	/** Default number of chunks executed in parallel: 4. */
+	public static final int DEFAULT_CONCURRENCY = 4;
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private TaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("batch-update-");
+
+	private int concurrency = DEFAULT_CONCURRENCY;
+
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	@Nullable
+	private TransactionTemplate transactionTemplate;
+
+	private int maxAttempts = 1;
+
+	private long retryInterval = 100;
+
+
+	/**
+	 * Create a new ParallelBatchUpdateExecutor for the given {@link JdbcTemplate}.
+	 * @param jdbcTemplate the JdbcTemplate to execute each chunk with
+	 */
+	public ParallelBatchUpdateExecutor(JdbcTemplate jdbcTemplate) {
+		Assert.notNull(jdbcTemplate, "JdbcTemplate must not be null");
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+
+	/**
+	 * Return the JdbcTemplate that each chunk is executed with.
+	 */
+	public JdbcTemplate getJdbcTemplate() {
+		return this.jdbcTemplate;
+	}
+
+	/**
+	 * Set the {@link TaskExecutor} to execute chunks on.
+	 * <p>Default is a {@link SimpleAsyncTaskExecutor}, creating a new thread for
+	 * every chunk. Consider a thread pool for a large number of chunks.
+	 */
+	public void setTaskExecutor(TaskExecutor taskExecutor) {
+		Assert.notNull(taskExecutor, "TaskExecutor must not be null");
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Set the maximum number of chunks to execute in parallel, each on a
+	 * connection of its own. This should not exceed the size of the
+	 * connection pool, taking other users of the pool into account.
+	 * <p>Default is {@value #DEFAULT_CONCURRENCY}.
+	 */
+	public void setConcurrency(int concurrency) {
+		Assert.isTrue(concurrency > 0, "'concurrency' must be larger than 0");
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Return the maximum number of chunks to execute in parallel.
+	 */
+	public int getConcurrency() {
+		return this.concurrency;
+	}
+
+	/**
+	 * Set the number of batch arguments to execute per chunk, i.e. per
+	 * connection and transaction.
+	 * <p>Default is {@value #DEFAULT_CHUNK_SIZE}.
+	 */
+	public void setChunkSize(int chunkSize) {
+		Assert.isTrue(chunkSize > 0, "'chunkSize' must be larger than 0");
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Return the number of batch arguments to execute per chunk.
+	 */
+	public int getChunkSize() {
+		return this.chunkSize;
+	}
+
+	/**
+	 * Set the number of batch arguments to send to the database per JDBC
+	 * batch within a chunk.
+	 * <p>Default is {@value #DEFAULT_BATCH_SIZE}.
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "'batchSize' must be larger than 0");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Return the number of batch arguments to send per JDBC batch.
+	 */
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * Set the transaction manager to execute every chunk in a transaction
+	 * of its own with, or {@code null} to execute chunks in auto-commit mode.
+	 * <p>The transaction manager needs to manage the {@code DataSource}
+	 * of the {@link JdbcTemplate}, e.g. a
+	 * {@link org.springframework.jdbc.datasource.DataSourceTransactionManager}.
+	 */
+	public void setTransactionManager(@Nullable PlatformTransactionManager transactionManager) {
+		this.transactionTemplate = (transactionManager != null ? new TransactionTemplate(transactionManager) : null);
+	}
+
+	/**
+	 * Set the maximum number of attempts to execute a chunk which fails
+	 * with a transient exception.
+	 * <p>Default is 1, i.e. no retries.
+	 * @see TransientDataAccessException
+	 * @see RecoverableDataAccessException
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		Assert.isTrue(maxAttempts > 0, "'maxAttempts' must be larger than 0");
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Return the maximum number of attempts to execute a chunk.
+	 */
+	public int getMaxAttempts() {
+		return this.maxAttempts;
+	}
+
+	/**
+	 * Set the interval in milliseconds to wait before the first retry of a
+	 * chunk, doubled for every further retry.
+	 * <p>Default is 100.
+	 */
+	public void setRetryInterval(long retryInterval) {
+		Assert.isTrue(retryInterval >= 0, "'retryInterval' must not be negative");
+		this.retryInterval = retryInterval;
+	}
+
+	/**
+	 * Return the interval in milliseconds to wait before the first retry.
+	 */
+	public long getRetryInterval() {
+		return this.retryInterval;
+	}
+
+
+	/**
+	 * Execute multiple batches using the supplied SQL statement, with the
+	 * batch arguments split into chunks which are executed in parallel.
+	 * <p>Returns once all chunks have completed. If any chunk fails, no further
+	 * chunks are started, and the exception of the first failed chunk is
+	 * thrown once the chunks in progress have completed.
+	 * @param sql the SQL statement to execute
+	 * @param batchArgs the batch arguments, read as chunks are started
+	 * @param pss the ParameterizedPreparedStatementSetter to use, which
+	 * may be invoked concurrently for different chunks
+	 * @return an array containing an array of the number of rows affected
+	 * for each JDBC batch, in the order of the batch arguments
+	 * @throws DataAccessException if there is any problem issuing the update
+	 */
+	public <T> int[][] batchUpdate(String sql, Iterable<T> batchArgs, ParameterizedPreparedStatementSetter<T> pss)
+			throws DataAccessException {
+
+		Assert.notNull(sql, "SQL must not be null");
+		Assert.notNull(batchArgs, "Batch arguments must not be null");
+		Assert.notNull(pss, "ParameterizedPreparedStatementSetter must not be null");
+
+		Semaphore permits = new Semaphore(this.concurrency);
+		AtomicBoolean failed = new AtomicBoolean();
+		List<CompletableFuture<int[][]>> chunkResults = new ArrayList<>();
+		Iterator<T> iterator = batchArgs.iterator();
+		try {
+			while (iterator.hasNext() && !failed.get()) {
+				List<T> chunk = new ArrayList<>(this.chunkSize);
+				while (iterator.hasNext() && chunk.size() < this.chunkSize) {
+					chunk.add(iterator.next());
+				}
+				// Wait for a chunk in progress to complete, if at the limit
+				permits.acquire();
+				if (failed.get()) {
+					permits.release();
+					break;
+				}
+				CompletableFuture<int[][]> chunkResult = new CompletableFuture<>();
+				chunkResults.add(chunkResult);
+				int chunkIndex = chunkResults.size();
+				try {
+					this.taskExecutor.execute(() -> {
+						try {
+							chunkResult.complete(executeChunk(sql, chunk, pss, chunkIndex, failed));
+						}
+						catch (Throwable ex) {
+							failed.set(true);
+							chunkResult.completeExceptionally(ex);
+						}
+						finally {
+							permits.release();
+						}
+					});
+				}
+				catch (RuntimeException ex) {
+					permits.release();
+					failed.set(true);
+					chunkResult.completeExceptionally(ex);
+				}
+			}
+		}
+		catch (InterruptedException ex) {
+			failed.set(true);
+			Thread.currentThread().interrupt();
+			awaitCompletion(chunkResults);
+			throw new IllegalStateException("Interrupted while waiting for a batch update chunk to complete");
+		}
+		return awaitCompletion(chunkResults);
+	}
+
+	private <T> int[][] executeChunk(String sql, List<T> chunk, ParameterizedPreparedStatementSetter<T> pss,
+			int chunkIndex, AtomicBoolean failed) {
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing batch update chunk #" + chunkIndex + " with " + chunk.size() + " items");
+		}
+		long retryInterval = this.retryInterval;
+		for (int attempt = 1; ; attempt++) {
+			try {
+				if (this.transactionTemplate != null) {
+					int[][] result = this.transactionTemplate.execute(
+							status -> this.jdbcTemplate.batchUpdate(sql, chunk, this.batchSize, pss));
+					Assert.state(result != null, "No result array");
+					return result;
+				}
+				return this.jdbcTemplate.batchUpdate(sql, chunk, this.batchSize, pss);
+			}
+			catch (TransientDataAccessException | RecoverableDataAccessException ex) {
+				if (attempt >= this.maxAttempts || failed.get()) {
+					throw ex;
+				}
+				if (logger.isDebugEnabled()) {
+					logger.debug("Retrying batch update chunk #" + chunkIndex + " after attempt " + attempt +
+							" of " + this.maxAttempts + " failed: " + ex.getMessage());
+				}
+				try {
+					Thread.sleep(retryInterval);
+				}
+				catch (InterruptedException interruptedEx) {
+					Thread.currentThread().interrupt();
+					throw ex;
+				}
+				retryInterval *= 2;
+			}
+		}
+	}
+
+	private static int[][] awaitCompletion(List<CompletableFuture<int[][]>> chunkResults) {
+		List<int[][]> results = new ArrayList<>(chunkResults.size());
+		Throwable failure = null;
+		boolean interrupted = false;
+		int batchCount = 0;
+		for (CompletableFuture<int[][]> chunkResult : chunkResults) {
+			int[][] result = null;
+			while (true) {
+				try {
+					result = chunkResult.get();
+					break;
+				}
+				catch (InterruptedException ex) {
+					// Keep waiting: chunks in progress need to complete before returning
+					interrupted = true;
+				}
+				catch (ExecutionException ex) {
+					if (failure == null) {
+						failure = ex.getCause();
+					}
+					else if (failure != ex.getCause()) {
+						failure.addSuppressed(ex.getCause());
+					}
+					break;
+				}
+			}
+			if (result != null) {
+				results.add(result);
+				batchCount += result.length;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if (failure != null) {
+			throw new IllegalStateException("Batch update chunk failed", failure);
+		}
+
+		int[][] rowsAffected = new int[batchCount][];
+		int i = 0;
+		for (int[][] result : results) {
+			System.arraycopy(result, 0, rowsAffected, i, result.length);
+			i += result.length;
+		}
+		return rowsAffected;
+	}
+
+}
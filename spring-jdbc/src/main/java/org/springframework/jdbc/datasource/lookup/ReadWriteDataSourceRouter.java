@@ -0,0 +1,590 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+import org.springframework.util.CustomizableThreadCreator;
+
+/**
+ * DataSource that routes read-only transactions to one of a number of replica
+ * DataSources, and all other connection requests to the primary DataSource,
+ * based on the {@linkplain TransactionSynchronizationManager#isCurrentTransactionReadOnly()
+ * read-only flag} of the current transaction.
+ *
+ * <p>A replica is chosen per connection request through a {@link ReplicaSelector},
+ * {@linkplain ReplicaSelector#roundRobin() round-robin} by default. Replicas that fail
+ * to provide a connection are ejected for the {@linkplain #setEjectionDuration ejection
+ * duration}, and replicas can be checked periodically through a {@link ReplicaHealthCheck},
+ * e.g. for their {@linkplain ReplicaHealthCheck#replicationLag replication lag}. If no
+ * replica is available, read-only transactions fall back to the primary DataSource.
+ * Optionally, read-only transactions can be routed to the primary DataSource for a
+ * {@linkplain #setStickyPrimaryDuration period of time} after a read-write transaction
+ * on the same thread, so that a thread reads its own writes despite replication lag.
+ *
+ * <p><b>NOTE:</b> Transaction managers such as
+ * {@link org.springframework.jdbc.datasource.DataSourceTransactionManager} obtain a
+ * connection when a transaction begins, before its read-only flag is exposed. This
+ * router therefore needs to be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which
+ * only obtains a target connection once the first statement is created:
+ *
+ * <pre class="code">
+ * &lt;bean id="dataSource" class="org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy"&gt;
+ *   &lt;property name="targetDataSource"&gt;
+ *     &lt;bean class="org.springframework.jdbc.datasource.lookup.ReadWriteDataSourceRouter"&gt;
+ *       &lt;property name="primaryDataSource" ref="myPrimaryDataSource"/&gt;
+ *       &lt;property name="replicaDataSources"&gt;
+ *         &lt;list&gt;
+ *           &lt;ref bean="myReplicaDataSource1"/&gt;
+ *           &lt;ref bean="myReplicaDataSource2"/&gt;
+ *         &lt;/list&gt;
+ *       &lt;/property&gt;
+ *     &lt;/bean&gt;
+ *   &lt;/property&gt;
+ * &lt;/bean&gt;</pre>
+ *
+ * @since 5.2.13
+ * @see #setPrimaryDataSource
+ * @see #setReplicaDataSources
+ * @see org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy
+ * @see org.springframework.transaction.TransactionDefinition#isReadOnly()
+ */
+public class ReadWriteDataSourceRouter extends AbstractDataSource implements InitializingBean, DisposableBean {
+
+	/** Default duration in milliseconds that a failed replica is ejected for: 30000. */
+	public static final long DEFAULT_EJECTION_DURATION = 30000;
+
+	/** Default interval in milliseconds between replica health checks: 10000. */
+	public static final long DEFAULT_HEALTH_CHECK_INTERVAL = 10000;
+
+
+	@Nullable
+	private DataSource primaryDataSource;
+
+	private List<Replica> replicas = Collections.emptyList();
+
+	private ReplicaSelector replicaSelector = ReplicaSelector.roundRobin();
+
+	private boolean fallbackToPrimary = true;
+
+	private long ejectionDuration = DEFAULT_EJECTION_DURATION;
+
+	@Nullable
+	private ReplicaHealthCheck healthCheck;
+
+	private long healthCheckInterval = DEFAULT_HEALTH_CHECK_INTERVAL;
+
+	private long stickyPrimaryDuration = 0;
+
+	private final ThreadLocal<Long> lastPrimaryRouting =
+			new NamedThreadLocal<>("Last read-write routing to primary DataSource");
+
+	@Nullable
+	private ScheduledExecutorService healthCheckExecutor;
+
+
+	/**
+	 * Set the primary DataSource that read-write connection requests are routed to.
+	 */
+	public void setPrimaryDataSource(DataSource primaryDataSource) {
+		Assert.notNull(primaryDataSource, "Primary DataSource must not be null");
+		this.primaryDataSource = primaryDataSource;
+	}
+
+	/**
+	 * Return the primary DataSource.
+	 */
+	@Nullable
+	public DataSource getPrimaryDataSource() {
+		return this.primaryDataSource;
+	}
+
+	/**
+	 * Set the replica DataSources that read-only transactions are routed to.
+	 */
+	public void setReplicaDataSources(List<DataSource> replicaDataSources) {
+		Assert.notNull(replicaDataSources, "Replica DataSources must not be null");
+		List<Replica> replicas = new ArrayList<>(replicaDataSources.size());
+		for (DataSource dataSource : replicaDataSources) {
+			Assert.notNull(dataSource, "Replica DataSource must not be null");
+			replicas.add(new Replica(dataSource));
+		}
+		this.replicas = Collections.unmodifiableList(replicas);
+	}
+
+	/**
+	 * Return the replicas that read-only transactions are routed to,
+	 * including those which are currently not available.
+	 */
+	public List<Replica> getReplicas() {
+		return this.replicas;
+	}
+
+	/**
+	 * Set the strategy for choosing a replica among the available replicas.
+	 * <p>Default is {@link ReplicaSelector#roundRobin()}.
+	 * @see ReplicaSelector#leastInFlight()
+	 */
+	public void setReplicaSelector(ReplicaSelector replicaSelector) {
+		Assert.notNull(replicaSelector, "ReplicaSelector must not be null");
+		this.replicaSelector = replicaSelector;
+	}
+
+	/**
+	 * Set whether to route read-only transactions to the primary DataSource
+	 * if no replica is available, rather than failing.
+	 * <p>Default is "true".
+	 */
+	public void setFallbackToPrimary(boolean fallbackToPrimary) {
+		this.fallbackToPrimary = fallbackToPrimary;
+	}
+
+	/**
+	 * Set the duration in milliseconds that a replica is ejected for after
+	 * failing to provide a connection.
+	 * <p>Default is {@value #DEFAULT_EJECTION_DURATION}.
+	 */
+	public void setEjectionDuration(long ejectionDuration) {
+		Assert.isTrue(ejectionDuration >= 0, "'ejectionDuration' must not be negative");
+		this.ejectionDuration = ejectionDuration;
+	}
+
+	/**
+	 * Set a health check to run against every replica at the
+	 * {@linkplain #setHealthCheckInterval health check interval}. Replicas
+	 * that fail the check are not routed to until they pass it again.
+	 * <p>Default is none, only ejecting replicas which fail to provide a connection.
+	 * @see ReplicaHealthCheck#connectionValid(int)
+	 * @see ReplicaHealthCheck#replicationLag(String, long)
+	 */
+	public void setHealthCheck(@Nullable ReplicaHealthCheck healthCheck) {
+		this.healthCheck = healthCheck;
+	}
+
+	/**
+	 * Set the interval in milliseconds between replica health checks.
+	 * <p>Default is {@value #DEFAULT_HEALTH_CHECK_INTERVAL}.
+	 */
+	public void setHealthCheckInterval(long healthCheckInterval) {
+		Assert.isTrue(healthCheckInterval > 0, "'healthCheckInterval' must be larger than 0");
+		this.healthCheckInterval = healthCheckInterval;
+	}
+
+	/**
+	 * Set the duration in milliseconds for which read-only transactions are
+	 * routed to the primary DataSource after a read-write connection request
+	 * on the same thread, so that recent writes are visible despite replication lag.
+	 * <p>Since this router cannot tell whether statements actually write, every
+	 * read-write connection request counts. Default is 0, i.e. no sticky routing.
+	 */
+	public void setStickyPrimaryDuration(long stickyPrimaryDuration) {
+		Assert.isTrue(stickyPrimaryDuration >= 0, "'stickyPrimaryDuration' must not be negative");
+		this.stickyPrimaryDuration = stickyPrimaryDuration;
+	}
+
+
+	@Override
+	public void afterPropertiesSet() {
+		Assert.notNull(this.primaryDataSource, "Property 'primaryDataSource' is required");
+		ReplicaHealthCheck healthCheck = this.healthCheck;
+		if (healthCheck != null && !this.replicas.isEmpty()) {
+			CustomizableThreadCreator threadCreator = new CustomizableThreadCreator("replica-health-check-");
+			threadCreator.setDaemon(true);
+			ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, threadCreator::createThread);
+			executor.scheduleWithFixedDelay(() -> checkReplicas(healthCheck),
+					0, this.healthCheckInterval, TimeUnit.MILLISECONDS);
+			this.healthCheckExecutor = executor;
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (this.healthCheckExecutor != null) {
+			this.healthCheckExecutor.shutdownNow();
+			this.healthCheckExecutor = null;
+		}
+	}
+
+	private void checkReplicas(ReplicaHealthCheck healthCheck) {
+		for (Replica replica : this.replicas) {
+			boolean healthy;
+			try {
+				healthy = healthCheck.isHealthy(replica.getDataSource());
+			}
+			catch (Throwable ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Health check failed for replica DataSource [" + replica.getDataSource() + "]", ex);
+				}
+				healthy = false;
+			}
+			if (replica.healthy != healthy && logger.isInfoEnabled()) {
+				logger.info("Replica DataSource [" + replica.getDataSource() + "] is " +
+						(healthy ? "healthy again" : "unhealthy, not routing to it until it is healthy again"));
+			}
+			replica.healthy = healthy;
+		}
+	}
+
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return getConnection(DataSource::getConnection);
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return getConnection(dataSource -> dataSource.getConnection(username, password));
+	}
+
+	private Connection getConnection(ConnectionSupplier supplier) throws SQLException {
+		DataSource primary = obtainPrimaryDataSource();
+		if (!isReadOnly() || this.replicas.isEmpty()) {
+			if (this.stickyPrimaryDuration > 0) {
+				this.lastPrimaryRouting.set(System.currentTimeMillis());
+			}
+			return supplier.getConnection(primary);
+		}
+		if (this.stickyPrimaryDuration > 0) {
+			Long lastRouting = this.lastPrimaryRouting.get();
+			if (lastRouting != null) {
+				if (System.currentTimeMillis() - lastRouting < this.stickyPrimaryDuration) {
+					return supplier.getConnection(primary);
+				}
+				this.lastPrimaryRouting.remove();
+			}
+		}
+
+		List<Replica> candidates = getAvailableReplicas();
+		SQLException lastException = null;
+		while (!candidates.isEmpty()) {
+			Replica replica = this.replicaSelector.select(candidates);
+			if (replica == null) {
+				break;
+			}
+			try {
+				return replica.track(supplier.getConnection(replica.getDataSource()));
+			}
+			catch (SQLException ex) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("Ejecting replica DataSource [" + replica.getDataSource() + "] for " +
+							this.ejectionDuration + " ms after failure to obtain connection: " + ex.getMessage());
+				}
+				replica.ejectedUntil = System.currentTimeMillis() + this.ejectionDuration;
+				candidates.remove(replica);
+				lastException = ex;
+			}
+		}
+		if (!this.fallbackToPrimary) {
+			if (lastException != null) {
+				throw lastException;
+			}
+			throw new IllegalStateException("No replica DataSource available for read-only transaction");
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("No replica DataSource available - routing read-only transaction to primary DataSource");
+		}
+		return supplier.getConnection(primary);
+	}
+
+	private List<Replica> getAvailableReplicas() {
+		long now = System.currentTimeMillis();
+		List<Replica> available = new ArrayList<>(this.replicas.size());
+		for (Replica replica : this.replicas) {
+			if (replica.isAvailable(now)) {
+				available.add(replica);
+			}
+		}
+		return available;
+	}
+
+	/**
+	 * Determine whether the current connection request is read-only, i.e. may
+	 * be routed to a replica.
+	 * <p>The default implementation checks the read-only flag of the current
+	 * transaction, if any.
+	 * @see TransactionSynchronizationManager#isCurrentTransactionReadOnly()
+	 */
+	protected boolean isReadOnly() {
+		return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+	}
+
+	private DataSource obtainPrimaryDataSource() {
+		DataSource primaryDataSource = this.primaryDataSource;
+		Assert.state(primaryDataSource != null, "No primary DataSource set");
+		return primaryDataSource;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return (T) this;
+		}
+		return obtainPrimaryDataSource().unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return (iface.isInstance(this) || obtainPrimaryDataSource().isWrapperFor(iface));
+	}
+
+
+	@FunctionalInterface
+	private interface ConnectionSupplier {
+
+		Connection getConnection(DataSource dataSource) throws SQLException;
+	}
+
+
+	/**
+	 * A replica DataSource, along with its current state.
+	 */
+	public static final class Replica {
+
+		private final DataSource dataSource;
+
+		private final AtomicInteger inFlightCount = new AtomicInteger();
+
+		private volatile boolean healthy = true;
+
+		private volatile long ejectedUntil;
+
+		Replica(DataSource dataSource) {
+			this.dataSource = dataSource;
+		}
+
+		/**
+		 * Return the replica DataSource.
+		 */
+		public DataSource getDataSource() {
+			return this.dataSource;
+		}
+
+		/**
+		 * Return the number of connections obtained from this replica
+		 * which have not been closed yet.
+		 */
+		public int getInFlightCount() {
+			return this.inFlightCount.get();
+		}
+
+		/**
+		 * Return whether this replica is currently routed to, i.e. it is
+		 * neither ejected nor failing its health check.
+		 */
+		public boolean isAvailable() {
+			return isAvailable(System.currentTimeMillis());
+		}
+
+		boolean isAvailable(long now) {
+			return (this.healthy && now >= this.ejectedUntil);
+		}
+
+		Connection track(Connection connection) {
+			this.inFlightCount.incrementAndGet();
+			return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+					new Class<?>[] {ConnectionProxy.class}, new InFlightTrackingInvocationHandler(connection));
+		}
+
+		@Override
+		public String toString() {
+			return "Replica [" + this.dataSource + "]";
+		}
+
+
+		/**
+		 * Invocation handler that decrements the in-flight count of the
+		 * replica once the connection is closed.
+		 */
+		private class InFlightTrackingInvocationHandler implements InvocationHandler {
+
+			private final Connection target;
+
+			private final AtomicBoolean closed = new AtomicBoolean();
+
+			InFlightTrackingInvocationHandler(Connection target) {
+				this.target = target;
+			}
+
+			@Override
+			@Nullable
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("equals")) {
+					// Only consider equal when proxies are identical.
+					return (proxy == args[0]);
+				}
+				else if (method.getName().equals("hashCode")) {
+					// Use hashCode of Connection proxy.
+					return System.identityHashCode(proxy);
+				}
+				else if (method.getName().equals("toString")) {
+					return "Replica Connection proxy for target Connection [" + this.target + "]";
+				}
+				else if (method.getName().equals("getTargetConnection")) {
+					// Handle getTargetConnection method: return underlying Connection.
+					return this.target;
+				}
+				else if (method.getName().equals("unwrap")) {
+					if (((Class<?>) args[0]).isInstance(proxy)) {
+						return proxy;
+					}
+				}
+				else if (method.getName().equals("isWrapperFor")) {
+					if (((Class<?>) args[0]).isInstance(proxy)) {
+						return true;
+					}
+				}
+				else if (method.getName().equals("close")) {
+					// Release the in-flight slot only once, even if closed repeatedly.
+					if (this.closed.compareAndSet(false, true)) {
+						Replica.this.inFlightCount.decrementAndGet();
+					}
+				}
+
+				try {
+					return method.invoke(this.target, args);
+				}
+				catch (InvocationTargetException ex) {
+					throw ex.getTargetException();
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Strategy for choosing a replica to route a read-only transaction to.
+	 */
+	@FunctionalInterface
+	public interface ReplicaSelector {
+
+		/**
+		 * Choose one of the given replicas.
+		 * @param candidates the currently available replicas (never empty)
+		 * @return the chosen replica, or {@code null} to not route to any replica
+		 */
+		@Nullable
+		Replica select(List<Replica> candidates);
+
+		/**
+		 * Return a selector that chooses each available replica in turn.
+		 */
+		static ReplicaSelector roundRobin() {
+			AtomicInteger counter = new AtomicInteger();
+			return candidates -> candidates.get(Math.floorMod(counter.getAndIncrement(), candidates.size()));
+		}
+
+		/**
+		 * Return a selector that chooses the available replica with the fewest
+		 * connections in flight, which adapts to replicas of differing capacity.
+		 */
+		static ReplicaSelector leastInFlight() {
+			return candidates -> {
+				Replica selected = null;
+				int minInFlight = Integer.MAX_VALUE;
+				for (Replica candidate : candidates) {
+					int inFlight = candidate.getInFlightCount();
+					if (inFlight < minInFlight) {
+						selected = candidate;
+						minInFlight = inFlight;
+					}
+				}
+				return selected;
+			};
+		}
+	}
+
+
+	/**
+	 * Health check for replicas, run periodically in the background.
+	 * @see #setHealthCheck
+	 */
+	@FunctionalInterface
+	public interface ReplicaHealthCheck {
+
+		/**
+		 * Check the given replica.
+		 * @param dataSource the replica DataSource
+		 * @return {@code true} if the replica may be routed to, {@code false} otherwise
+		 * @throws SQLException in case of JDBC errors, counting as a failed check
+		 */
+		boolean isHealthy(DataSource dataSource) throws SQLException;
+
+		/**
+		 * Return a health check that validates a connection obtained from the replica.
+		 * @param timeout the validation timeout in seconds
+		 * @see Connection#isValid(int)
+		 */
+		static ReplicaHealthCheck connectionValid(int timeout) {
+			return dataSource -> {
+				try (Connection con = dataSource.getConnection()) {
+					return con.isValid(timeout);
+				}
+			};
+		}
+
+		/**
+		 * Return a health check that fails for replicas that lag behind the
+		 * primary by more than the given maximum.
+		 * @param lagQuery a query returning the current replication lag in
+		 * milliseconds as a number in the first column of a single row,
+		 * or {@code NULL} if unknown, e.g. when replication is stopped
+		 * @param maxLag the maximum replication lag in milliseconds
+		 */
+		static ReplicaHealthCheck replicationLag(String lagQuery, long maxLag) {
+			Assert.hasText(lagQuery, "Replication lag query must not be empty");
+			return dataSource -> {
+				try (Connection con = dataSource.getConnection();
+						Statement stmt = con.createStatement();
+						ResultSet rs = stmt.executeQuery(lagQuery)) {
+					if (!rs.next()) {
+						return false;
+					}
+					long lag = rs.getLong(1);
+					return (!rs.wasNull() && lag <= maxLag);
+				}
+			};
+		}
+	}
+
+}
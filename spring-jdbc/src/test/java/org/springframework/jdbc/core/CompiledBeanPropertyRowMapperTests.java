@@ -0,0 +1,177 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.test.ConcretePerson;
+import org.springframework.jdbc.core.test.DatePerson;
+import org.springframework.jdbc.core.test.ExtendedPerson;
+import org.springframework.jdbc.core.test.Person;
+import org.springframework.jdbc.core.test.SpacePerson;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link CompiledBeanPropertyRowMapper}.
+ */
+public class CompiledBeanPropertyRowMapperTests extends AbstractRowMapperTests {
+
+	@Test
+	public void testStaticQueryWithRowMapper() throws Exception {
+		Mock mock = new Mock();
+		List<Person> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(Person.class));
+		assertThat(result.size()).isEqualTo(1);
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithInheritance() throws Exception {
+		Mock mock = new Mock();
+		List<ConcretePerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(ConcretePerson.class, true));
+		assertThat(result.size()).isEqualTo(1);
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithUnpopulatedFieldsNotAccepted() throws Exception {
+		Mock mock = new Mock();
+		assertThatExceptionOfType(InvalidDataAccessApiUsageException.class).isThrownBy(() ->
+				mock.getJdbcTemplate().query("select name, age, birth_date, balance from people",
+						new CompiledBeanPropertyRowMapper<>(ExtendedPerson.class, true)));
+	}
+
+	@Test
+	public void testMappingNullValue() throws Exception {
+		CompiledBeanPropertyRowMapper<Person> mapper = new CompiledBeanPropertyRowMapper<>(Person.class);
+		Mock mock = new Mock(MockType.TWO);
+		assertThatExceptionOfType(TypeMismatchException.class).isThrownBy(() ->
+				mock.getJdbcTemplate().query("select name, null as age, birth_date, balance from people", mapper));
+	}
+
+	@Test
+	public void testMappingNullValueWithPrimitivesDefaulted() throws Exception {
+		CompiledBeanPropertyRowMapper<Person> mapper = new CompiledBeanPropertyRowMapper<>(Person.class);
+		mapper.setPrimitivesDefaultedForNullValue(true);
+		Mock mock = new Mock(MockType.TWO);
+		List<Person> result = mock.getJdbcTemplate().query(
+				"select name, null as age, birth_date, balance from people", mapper);
+		assertThat(result.size()).isEqualTo(1);
+		assertThat(result.get(0).getName()).isEqualTo("Bubba");
+		assertThat(result.get(0).getAge()).isEqualTo(0);
+	}
+
+	@Test
+	public void testQueryWithSpaceInColumnNameAndLocalDateTime() throws Exception {
+		Mock mock = new Mock(MockType.THREE);
+		List<SpacePerson> result = mock.getJdbcTemplate().query(
+				"select last_name as \"Last Name\", age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(SpacePerson.class));
+		assertThat(result.size()).isEqualTo(1);
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testQueryWithSpaceInColumnNameAndLocalDate() throws Exception {
+		Mock mock = new Mock(MockType.THREE);
+		List<DatePerson> result = mock.getJdbcTemplate().query(
+				"select last_name as \"Last Name\", age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(DatePerson.class));
+		assertThat(result.size()).isEqualTo(1);
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingPlanResolvedOncePerResultSet() throws Exception {
+		ResultSet resultSet = mock(ResultSet.class);
+		ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+		given(resultSet.getMetaData()).willReturn(metaData);
+		given(metaData.getColumnCount()).willReturn(2);
+		given(metaData.getColumnLabel(1)).willReturn("name");
+		given(metaData.getColumnLabel(2)).willReturn("age");
+		given(resultSet.getString(1)).willReturn("Bubba", "Bob");
+		given(resultSet.getLong(2)).willReturn(22L, 33L);
+
+		CompiledBeanPropertyRowMapper<Person> mapper = CompiledBeanPropertyRowMapper.newInstance(Person.class);
+		Person first = mapper.mapRow(resultSet, 0);
+		Person second = mapper.mapRow(resultSet, 1);
+
+		assertThat(first.getName()).isEqualTo("Bubba");
+		assertThat(first.getAge()).isEqualTo(22L);
+		assertThat(second.getName()).isEqualTo("Bob");
+		assertThat(second.getAge()).isEqualTo(33L);
+		verify(resultSet, times(1)).getMetaData();
+		verify(metaData, times(1)).getColumnLabel(1);
+	}
+
+	@Test
+	public void testMappingPlanResolvedOncePerInterleavedResultSet() throws Exception {
+		ResultSet resultSet1 = mock(ResultSet.class);
+		ResultSetMetaData metaData1 = mock(ResultSetMetaData.class);
+		given(resultSet1.getMetaData()).willReturn(metaData1);
+		given(metaData1.getColumnCount()).willReturn(2);
+		given(metaData1.getColumnLabel(1)).willReturn("name");
+		given(metaData1.getColumnLabel(2)).willReturn("age");
+		given(resultSet1.getString(1)).willReturn("Bubba", "Bob");
+		given(resultSet1.getLong(2)).willReturn(22L, 33L);
+		ResultSet resultSet2 = mock(ResultSet.class);
+		ResultSetMetaData metaData2 = mock(ResultSetMetaData.class);
+		given(resultSet2.getMetaData()).willReturn(metaData2);
+		given(metaData2.getColumnCount()).willReturn(2);
+		given(metaData2.getColumnLabel(1)).willReturn("age");
+		given(metaData2.getColumnLabel(2)).willReturn("name");
+		given(resultSet2.getLong(1)).willReturn(44L, 55L);
+		given(resultSet2.getString(2)).willReturn("Alice", "Ann");
+
+		CompiledBeanPropertyRowMapper<Person> mapper = CompiledBeanPropertyRowMapper.newInstance(Person.class);
+		Person first1 = mapper.mapRow(resultSet1, 0);
+		Person first2 = mapper.mapRow(resultSet2, 0);
+		Person second1 = mapper.mapRow(resultSet1, 1);
+		Person second2 = mapper.mapRow(resultSet2, 1);
+
+		assertThat(first1.getName()).isEqualTo("Bubba");
+		assertThat(first1.getAge()).isEqualTo(22L);
+		assertThat(first2.getName()).isEqualTo("Alice");
+		assertThat(first2.getAge()).isEqualTo(44L);
+		assertThat(second1.getName()).isEqualTo("Bob");
+		assertThat(second1.getAge()).isEqualTo(33L);
+		assertThat(second2.getName()).isEqualTo("Ann");
+		assertThat(second2.getAge()).isEqualTo(55L);
+		verify(resultSet1, times(1)).getMetaData();
+		verify(resultSet2, times(1)).getMetaData();
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,8 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
@@ -44,7 +46,9 @@ import org.springframework.jdbc.core.SqlParameterValue;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.inOrder;
@@ -342,6 +346,57 @@ public class NamedParameterJdbcTemplateTests {
 		verify(connection).close();
 	}
 
+	@Test
+	public void testQueryWithInClauseParameterPadding() throws SQLException {
+		given(resultSet.next()).willReturn(false);
+		namedParameterTemplate.setInClauseParameterPadding(true);
+
+		params.put("ids", Arrays.asList(1, 2, 3));
+		params.put("country", new SqlParameterValue(Types.VARCHAR, Arrays.asList("UK", "NL", "DE", "FR", "BE")));
+		namedParameterTemplate.query("select id from custmr where id in (:ids) and country in (:country)",
+				params, (rs, rownum) -> rs.getInt(1));
+
+		verify(connection).prepareStatement(
+				"select id from custmr where id in (?, ?, ?, ?) and country in (?, ?, ?, ?, ?, ?, ?, ?)");
+		verify(preparedStatement).setObject(3, 3);
+		verify(preparedStatement).setObject(4, 3);
+		verify(preparedStatement).setString(9, "BE");
+		verify(preparedStatement, times(4)).setString(anyInt(), eq("BE"));
+		verify(preparedStatement).close();
+		verify(connection).close();
+	}
+
+	@Test
+	public void testQueryForStreamWithRowMapper() throws SQLException {
+		given(resultSet.next()).willReturn(true, false);
+		given(resultSet.getInt("id")).willReturn(1);
+		given(resultSet.getString("forename")).willReturn("rod");
+
+		params.put("id", new SqlParameterValue(Types.DECIMAL, 1));
+		params.put("country", "UK");
+		List<Customer> customers;
+		try (Stream<Customer> stream = namedParameterTemplate.queryForStream(
+				SELECT_NAMED_PARAMETERS, new MapSqlParameterSource(params), (rs, rownum) -> {
+					Customer cust = new Customer();
+					cust.setId(rs.getInt(COLUMN_NAMES[0]));
+					cust.setForename(rs.getString(COLUMN_NAMES[1]));
+					return cust;
+				}, 500)) {
+			customers = stream.collect(Collectors.toList());
+		}
+
+		assertThat(customers.size()).isEqualTo(1);
+		assertThat(customers.get(0).getId()).isEqualTo(1);
+		assertThat(customers.get(0).getForename()).isEqualTo("rod");
+		verify(connection).prepareStatement(SELECT_NAMED_PARAMETERS_PARSED);
+		verify(preparedStatement).setFetchSize(500);
+		verify(preparedStatement).setObject(1, 1, Types.DECIMAL);
+		verify(preparedStatement).setString(2, "UK");
+		verify(resultSet).close();
+		verify(preparedStatement).close();
+		verify(connection).close();
+	}
+
 	@Test
 	public void testQueryWithRowMapperNoParameters() throws SQLException {
 		given(resultSet.next()).willReturn(true, false);
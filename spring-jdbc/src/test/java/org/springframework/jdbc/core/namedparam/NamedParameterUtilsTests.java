@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.jdbc.core.namedparam;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -68,6 +69,29 @@ public class NamedParameterUtilsTests {
 		assertThat(NamedParameterUtils.substituteNamedParameters("xxx :a :b :c xx :a :a", namedParams)).isEqualTo("xxx ? ? ? xx ? ?");
 	}
 
+	@Test
+	public void substituteNamedParametersReusesSubstitutedSql() {
+		MapSqlParameterSource namedParams = new MapSqlParameterSource();
+		namedParams.addValue("a", "a").addValue("b", "b");
+		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement("xxx :a :b xx :a");
+		String sql = NamedParameterUtils.substituteNamedParameters(parsedSql, namedParams);
+		assertThat(sql).isEqualTo("xxx ? ? xx ?");
+		assertThat(NamedParameterUtils.substituteNamedParameters(parsedSql, null)).isSameAs(sql);
+		assertThat(NamedParameterUtils.substituteNamedParameters(parsedSql, namedParams)).isSameAs(sql);
+	}
+
+	@Test
+	public void substituteNamedParametersWithCollectionAfterPlainParameters() {
+		MapSqlParameterSource namedParams = new MapSqlParameterSource();
+		namedParams.addValue("a", "a").addValue("ids", Arrays.asList(1, 2, 3));
+		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement("xxx :a yy in (:ids) zz :a :b");
+		assertThat(NamedParameterUtils.substituteNamedParameters(parsedSql, namedParams))
+				.isEqualTo("xxx ? yy in (?, ?, ?) zz ? ?");
+		namedParams.addValue("ids", Collections.singletonList(1));
+		assertThat(NamedParameterUtils.substituteNamedParameters(parsedSql, namedParams))
+				.isEqualTo("xxx ? yy in (?) zz ? ?");
+	}
+
 	@Test
 	public void convertParamMapToArray() {
 		Map<String, String> paramMap = new HashMap<>();
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.support;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.support.SQLExceptionSubclassTranslator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link ParallelBatchUpdateExecutor}.
+ */
+public class ParallelBatchUpdateExecutorTests {
+
+	private static final String SQL = "UPDATE NOSUCHTABLE SET DATE_DISPATCHED = SYSDATE WHERE ID = ?";
+
+	private final ParameterizedPreparedStatementSetter<Integer> setter = (ps, id) -> ps.setInt(1, id);
+
+	private DataSource dataSource;
+
+	private Connection connection;
+
+	private PreparedStatement preparedStatement;
+
+	private ParallelBatchUpdateExecutor executor;
+
+
+	@BeforeEach
+	public void setup() throws Exception {
+		this.dataSource = mock(DataSource.class);
+		this.connection = mock(Connection.class);
+		this.preparedStatement = mock(PreparedStatement.class);
+		given(this.dataSource.getConnection()).willReturn(this.connection);
+		given(this.connection.prepareStatement(anyString())).willReturn(this.preparedStatement);
+		given(this.preparedStatement.getConnection()).willReturn(this.connection);
+		given(this.preparedStatement.executeUpdate()).willReturn(1);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(this.dataSource);
+		jdbcTemplate.setExceptionTranslator(new SQLExceptionSubclassTranslator());
+		this.executor = new ParallelBatchUpdateExecutor(jdbcTemplate);
+		this.executor.setTaskExecutor(new SyncTaskExecutor());
+	}
+
+
+	@Test
+	public void batchUpdateInChunks() throws Exception {
+		this.executor.setChunkSize(3);
+
+		int[][] rowsAffected = this.executor.batchUpdate(SQL, Arrays.asList(1, 2, 3, 4, 5, 6, 7), this.setter);
+
+		assertThat(rowsAffected).hasSize(7);
+		assertThat(rowsAffected).allSatisfy(batch -> assertThat(batch).containsExactly(1));
+		for (int id = 1; id <= 7; id++) {
+			verify(this.preparedStatement).setInt(1, id);
+		}
+		verify(this.dataSource, times(3)).getConnection();
+		verify(this.preparedStatement, times(3)).close();
+		verify(this.connection, times(3)).close();
+	}
+
+	@Test
+	public void batchUpdateInParallel() throws Exception {
+		AtomicInteger setValuesCount = new AtomicInteger();
+		this.executor.setTaskExecutor(new SimpleAsyncTaskExecutor());
+		this.executor.setConcurrency(2);
+		this.executor.setChunkSize(10);
+		List<Integer> ids = IntStream.rangeClosed(1, 95).boxed().collect(Collectors.toList());
+
+		int[][] rowsAffected = this.executor.batchUpdate(SQL, ids, (ps, id) -> setValuesCount.incrementAndGet());
+
+		assertThat(rowsAffected).hasSize(95);
+		assertThat(setValuesCount.get()).isEqualTo(95);
+		verify(this.dataSource, times(10)).getConnection();
+		verify(this.connection, times(10)).close();
+	}
+
+	@Test
+	public void retryChunkOnTransientFailure() throws Exception {
+		given(this.preparedStatement.executeUpdate())
+				.willThrow(new SQLTransientConnectionException("Connection reset"))
+				.willReturn(1);
+		this.executor.setMaxAttempts(2);
+		this.executor.setRetryInterval(0);
+
+		int[][] rowsAffected = this.executor.batchUpdate(SQL, Arrays.asList(1, 2), this.setter);
+
+		assertThat(rowsAffected).hasSize(2);
+		verify(this.dataSource, times(2)).getConnection();
+		verify(this.connection, times(2)).close();
+	}
+
+	@Test
+	public void failWhenRetriesExhausted() throws Exception {
+		given(this.preparedStatement.executeUpdate()).willThrow(new SQLTransientConnectionException("Connection reset"));
+		this.executor.setMaxAttempts(3);
+		this.executor.setRetryInterval(0);
+
+		assertThatExceptionOfType(TransientDataAccessResourceException.class).isThrownBy(() ->
+				this.executor.batchUpdate(SQL, Arrays.asList(1, 2), this.setter));
+		verify(this.dataSource, times(3)).getConnection();
+	}
+
+	@Test
+	public void stopAfterFailedChunk() throws Exception {
+		SQLException sqlException = new SQLException("bad update");
+		given(this.preparedStatement.executeUpdate()).willThrow(sqlException);
+		this.executor.setChunkSize(1);
+		this.executor.setMaxAttempts(3);
+
+		assertThatExceptionOfType(UncategorizedSQLException.class).isThrownBy(() ->
+				this.executor.batchUpdate(SQL, Arrays.asList(1, 2, 3), this.setter))
+			.withCause(sqlException);
+		verify(this.dataSource).getConnection();
+		verify(this.connection).close();
+	}
+
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.ReadWriteDataSourceRouter.ReplicaHealthCheck;
+import org.springframework.jdbc.datasource.lookup.ReadWriteDataSourceRouter.ReplicaSelector;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link ReadWriteDataSourceRouter}.
+ */
+public class ReadWriteDataSourceRouterTests {
+
+	private final DataSource primary = mock(DataSource.class);
+
+	private final DataSource replica1 = mock(DataSource.class);
+
+	private final DataSource replica2 = mock(DataSource.class);
+
+	private final Connection primaryConnection = mock(Connection.class);
+
+	private final Connection replicaConnection1 = mock(Connection.class);
+
+	private final Connection replicaConnection2 = mock(Connection.class);
+
+	private final ReadWriteDataSourceRouter router = new ReadWriteDataSourceRouter();
+
+
+	@BeforeEach
+	public void setup() throws Exception {
+		given(this.primary.getConnection()).willReturn(this.primaryConnection);
+		given(this.replica1.getConnection()).willReturn(this.replicaConnection1);
+		given(this.replica2.getConnection()).willReturn(this.replicaConnection2);
+		this.router.setPrimaryDataSource(this.primary);
+		this.router.setReplicaDataSources(Arrays.asList(this.replica1, this.replica2));
+	}
+
+	@AfterEach
+	public void cleanup() {
+		TransactionSynchronizationManager.clear();
+	}
+
+
+	@Test
+	public void routeReadWriteToPrimary() throws Exception {
+		this.router.afterPropertiesSet();
+
+		assertThat(this.router.getConnection()).isSameAs(this.primaryConnection);
+		verify(this.replica1, never()).getConnection();
+		verify(this.replica2, never()).getConnection();
+	}
+
+	@Test
+	public void routeReadOnlyToReplicasRoundRobin() throws Exception {
+		this.router.afterPropertiesSet();
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		assertThat(targetOf(this.router.getConnection())).isSameAs(this.replicaConnection1);
+		assertThat(targetOf(this.router.getConnection())).isSameAs(this.replicaConnection2);
+		assertThat(targetOf(this.router.getConnection())).isSameAs(this.replicaConnection1);
+		verify(this.primary, never()).getConnection();
+	}
+
+	@Test
+	public void routeReadOnlyToReplicaWithLeastInFlight() throws Exception {
+		this.router.setReplicaSelector(ReplicaSelector.leastInFlight());
+		this.router.afterPropertiesSet();
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		Connection con1 = this.router.getConnection();
+		Connection con2 = this.router.getConnection();
+		assertThat(targetOf(con1)).isSameAs(this.replicaConnection1);
+		assertThat(targetOf(con2)).isSameAs(this.replicaConnection2);
+		con1.close();
+		con1.close();
+		assertThat(this.router.getReplicas().get(0).getInFlightCount()).isEqualTo(0);
+		assertThat(this.router.getReplicas().get(1).getInFlightCount()).isEqualTo(1);
+		assertThat(targetOf(this.router.getConnection())).isSameAs(this.replicaConnection1);
+		verify(this.replicaConnection1, times(2)).close();
+	}
+
+	@Test
+	public void ejectFailingReplica() throws Exception {
+		given(this.replica1.getConnection()).willThrow(new SQLException("Connection refused"));
+		this.router.afterPropertiesSet();
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		assertThat(targetOf(this.router.getConnection())).isSameAs(this.replicaConnection2);
+		assertThat(this.router.getReplicas().get(0).isAvailable()).isFalse();
+		assertThat(targetOf(this.router.getConnection())).isSameAs(this.replicaConnection2);
+		assertThat(targetOf(this.router.getConnection())).isSameAs(this.replicaConnection2);
+		verify(this.replica1).getConnection();
+	}
+
+	@Test
+	public void readmitReplicaAfterEjectionDuration() throws Exception {
+		given(this.replica1.getConnection()).willThrow(new SQLException("Connection refused"))
+				.willReturn(this.replicaConnection1);
+		this.router.setEjectionDuration(0);
+		this.router.afterPropertiesSet();
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		assertThat(targetOf(this.router.getConnection())).isSameAs(this.replicaConnection2);
+		assertThat(this.router.getReplicas().get(0).isAvailable()).isTrue();
+	}
+
+	@Test
+	public void fallbackToPrimaryWithoutAvailableReplica() throws Exception {
+		given(this.replica1.getConnection()).willThrow(new SQLException("Connection refused"));
+		given(this.replica2.getConnection()).willThrow(new SQLException("Connection refused"));
+		this.router.afterPropertiesSet();
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		assertThat(this.router.getConnection()).isSameAs(this.primaryConnection);
+		assertThat(this.router.getConnection()).isSameAs(this.primaryConnection);
+		verify(this.replica1).getConnection();
+		verify(this.replica2).getConnection();
+	}
+
+	@Test
+	public void failWithoutAvailableReplica() throws Exception {
+		given(this.replica1.getConnection()).willThrow(new SQLException("Connection refused"));
+		given(this.replica2.getConnection()).willThrow(new SQLException("Connection refused"));
+		this.router.setFallbackToPrimary(false);
+		this.router.afterPropertiesSet();
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		assertThatExceptionOfType(SQLException.class).isThrownBy(() ->
+				this.router.getConnection()).withMessage("Connection refused");
+		verify(this.primary, never()).getConnection();
+	}
+
+	@Test
+	public void stickToPrimaryAfterReadWriteRouting() throws Exception {
+		this.router.setStickyPrimaryDuration(60000);
+		this.router.afterPropertiesSet();
+
+		assertThat(this.router.getConnection()).isSameAs(this.primaryConnection);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		assertThat(this.router.getConnection()).isSameAs(this.primaryConnection);
+		verify(this.replica1, never()).getConnection();
+		verify(this.replica2, never()).getConnection();
+	}
+
+	@Test
+	public void routeReadOnlyTransactionThroughLazyConnectionDataSourceProxy() throws Exception {
+		Statement statement = mock(Statement.class);
+		given(this.replicaConnection1.createStatement()).willReturn(statement);
+		this.router.afterPropertiesSet();
+		LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy();
+		dataSource.setTargetDataSource(this.router);
+		dataSource.setDefaultAutoCommit(true);
+		dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+		dataSource.afterPropertiesSet();
+
+		TransactionTemplate tt = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		tt.setReadOnly(true);
+		tt.executeWithoutResult(status -> {
+			try {
+				DataSourceUtils.getConnection(dataSource).createStatement();
+			}
+			catch (SQLException ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+
+		verify(this.replicaConnection1).createStatement();
+		verify(this.replicaConnection1).commit();
+		verify(this.replicaConnection1).close();
+		verify(this.primary, never()).getConnection();
+	}
+
+	@Test
+	public void replicationLagHealthCheck() throws Exception {
+		Statement statement = mock(Statement.class);
+		ResultSet resultSet = mock(ResultSet.class);
+		given(this.replicaConnection1.createStatement()).willReturn(statement);
+		given(statement.executeQuery("SELECT LAG_MILLIS FROM REPLICATION_STATUS")).willReturn(resultSet);
+		given(resultSet.next()).willReturn(true);
+		given(resultSet.getLong(1)).willReturn(500L, 5000L);
+		ReplicaHealthCheck healthCheck =
+				ReplicaHealthCheck.replicationLag("SELECT LAG_MILLIS FROM REPLICATION_STATUS", 1000);
+
+		assertThat(healthCheck.isHealthy(this.replica1)).isTrue();
+		assertThat(healthCheck.isHealthy(this.replica1)).isFalse();
+		verify(resultSet, times(2)).close();
+		verify(this.replicaConnection1, times(2)).close();
+	}
+
+
+	private static Connection targetOf(Connection connection) {
+		assertThat(connection).isInstanceOf(ConnectionProxy.class);
+		return ((ConnectionProxy) connection).getTargetConnection();
+	}
+
+}
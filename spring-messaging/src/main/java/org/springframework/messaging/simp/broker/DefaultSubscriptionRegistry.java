@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,13 @@
 
 package org.springframework.messaging.simp.broker;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -55,6 +59,11 @@ import org.springframework.util.StringUtils;
  * header on subscription messages with Spring EL expressions evaluated against
  * the headers to filter out messages in addition to destination matching.
  *
+ * <p>As of 5.2.13, subscribed destinations are indexed by their literal leading
+ * segments, so that resolving a destination that is not cached only matches it
+ * against the subscribed patterns that share its leading segments, rather than
+ * against all subscriptions.
+ *
  * @author Rossen Stoyanchev
  * @author Sebastien Deleuze
  * @author Juergen Hoeller
@@ -91,6 +100,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 	 */
 	public void setPathMatcher(PathMatcher pathMatcher) {
 		this.pathMatcher = pathMatcher;
+		this.destinationCache.reindex();
 	}
 
 	/**
@@ -148,8 +158,9 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			String sessionId, String subsId, String destination, Message<?> message) {
 
 		Expression expression = getSelectorExpression(message.getHeaders());
-		this.subscriptionRegistry.addSubscription(sessionId, subsId, destination, expression);
-		this.destinationCache.updateAfterNewSubscription(destination, sessionId, subsId);
+		SessionSubscriptionInfo info =
+				this.subscriptionRegistry.addSubscription(sessionId, subsId, destination, expression);
+		this.destinationCache.updateAfterNewSubscription(destination, info, subsId);
 	}
 
 	@Nullable
@@ -181,7 +192,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		if (info != null) {
 			String destination = info.removeSubscription(subsId);
 			if (destination != null) {
-				this.destinationCache.updateAfterRemovedSubscription(sessionId, subsId);
+				this.destinationCache.updateAfterRemovedSubscription(destination, info, subsId);
 			}
 		}
 	}
@@ -272,16 +283,22 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 					}
 				};
 
+		/** Index of subscribed destinations, guarded by the updateCache lock. */
+		private DestinationIndex destinationIndex = new DestinationIndex(getPathMatcher());
+
 
 		public LinkedMultiValueMap<String, String> getSubscriptions(String destination, Message<?> message) {
 			LinkedMultiValueMap<String, String> result = this.accessCache.get(destination);
 			if (result == null) {
 				synchronized (this.updateCache) {
 					result = new LinkedMultiValueMap<>();
-					for (SessionSubscriptionInfo info : subscriptionRegistry.getAllSubscriptions()) {
-						for (String destinationPattern : info.getDestinations()) {
-							if (getPathMatcher().match(destinationPattern, destination)) {
-								for (Subscription sub : info.getSubscriptions(destinationPattern)) {
+					Map<String, Set<SessionSubscriptionInfo>> matches = this.destinationIndex.findMatches(destination);
+					for (Map.Entry<String, Set<SessionSubscriptionInfo>> match : matches.entrySet()) {
+						String destinationPattern = match.getKey();
+						for (SessionSubscriptionInfo info : match.getValue()) {
+							Set<Subscription> subs = info.getSubscriptions(destinationPattern);
+							if (subs != null) {
+								for (Subscription sub : subs) {
 									result.add(info.sessionId, sub.getId());
 								}
 							}
@@ -296,8 +313,10 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			return result;
 		}
 
-		public void updateAfterNewSubscription(String destination, String sessionId, String subsId) {
+		public void updateAfterNewSubscription(String destination, SessionSubscriptionInfo info, String subsId) {
+			String sessionId = info.getSessionId();
 			synchronized (this.updateCache) {
+				this.destinationIndex.add(destination, info);
 				this.updateCache.forEach((cachedDestination, subscriptions) -> {
 					if (getPathMatcher().match(destination, cachedDestination)) {
 						// Subscription id's may also be populated via getSubscriptions()
@@ -311,8 +330,13 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			}
 		}
 
-		public void updateAfterRemovedSubscription(String sessionId, String subsId) {
+		public void updateAfterRemovedSubscription(String removedDestination, SessionSubscriptionInfo info, String subsId) {
+			String sessionId = info.getSessionId();
 			synchronized (this.updateCache) {
+				if (info.getSubscriptions(removedDestination) == null) {
+					// Last subscription of the session to this destination
+					this.destinationIndex.remove(removedDestination, info);
+				}
 				Set<String> destinationsToRemove = new HashSet<>();
 				this.updateCache.forEach((destination, sessionMap) -> {
 					List<String> subscriptions = sessionMap.get(sessionId);
@@ -338,6 +362,9 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 		public void updateAfterRemovedSession(SessionSubscriptionInfo info) {
 			synchronized (this.updateCache) {
+				for (String destination : info.getDestinations()) {
+					this.destinationIndex.remove(destination, info);
+				}
 				Set<String> destinationsToRemove = new HashSet<>();
 				this.updateCache.forEach((destination, sessionMap) -> {
 					if (sessionMap.remove(info.getSessionId()) != null) {
@@ -356,6 +383,18 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			}
 		}
 
+		public void reindex() {
+			synchronized (this.updateCache) {
+				DestinationIndex index = new DestinationIndex(getPathMatcher());
+				for (SessionSubscriptionInfo info : subscriptionRegistry.getAllSubscriptions()) {
+					for (String destination : info.getDestinations()) {
+						index.add(destination, info);
+					}
+				}
+				this.destinationIndex = index;
+			}
+		}
+
 		@Override
 		public String toString() {
 			return "cache[" + this.accessCache.size() + " destination(s)]";
@@ -363,6 +402,140 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 	}
 
 
+	/**
+	 * Index of subscribed destinations (typically patterns) by their literal
+	 * leading segments. A destination to resolve only needs to be matched against
+	 * the subscribed destinations stored along its own path of segments.
+	 * <p>Segments are only derived for a standard {@link AntPathMatcher} with
+	 * case-sensitive, untrimmed matching. For any other {@link PathMatcher}, all
+	 * subscribed destinations are kept at the root and matched as before.
+	 * <p>Not thread-safe: to be guarded by the caller.
+	 */
+	private static class DestinationIndex {
+
+		private final PathMatcher pathMatcher;
+
+		@Nullable
+		private final String pathSeparator;
+
+		private final Node root = new Node();
+
+		public DestinationIndex(PathMatcher pathMatcher) {
+			this.pathMatcher = pathMatcher;
+			this.pathSeparator = determinePathSeparator(pathMatcher);
+		}
+
+		/**
+		 * Determine the separator of the given PathMatcher, as long as destinations
+		 * can be indexed by their segments: that is, if segments that contain no
+		 * wildcards only ever match the exact same segment.
+		 */
+		@Nullable
+		private static String determinePathSeparator(PathMatcher pathMatcher) {
+			if (pathMatcher.getClass() != AntPathMatcher.class ||
+					pathMatcher.match("a", "A") || pathMatcher.match("a", " a")) {
+				return null;
+			}
+			// AntPathMatcher concatenates plain patterns with its separator
+			String combined = pathMatcher.combine("a", "b");
+			return (combined.length() > 2 ? combined.substring(1, combined.length() - 1) : null);
+		}
+
+		public void add(String destination, SessionSubscriptionInfo info) {
+			Node node = this.root;
+			for (String segment : getLiteralSegments(destination)) {
+				node = node.children.computeIfAbsent(segment, key -> new Node());
+			}
+			node.destinations.computeIfAbsent(destination, key -> new LinkedHashSet<>(4)).add(info);
+		}
+
+		public void remove(String destination, SessionSubscriptionInfo info) {
+			remove(this.root, getLiteralSegments(destination), 0, destination, info);
+		}
+
+		private boolean remove(Node node, List<String> segments, int index,
+				String destination, SessionSubscriptionInfo info) {
+
+			if (index < segments.size()) {
+				String segment = segments.get(index);
+				Node child = node.children.get(segment);
+				if (child != null && remove(child, segments, index + 1, destination, info)) {
+					node.children.remove(segment);
+				}
+			}
+			else {
+				Set<SessionSubscriptionInfo> sessions = node.destinations.get(destination);
+				if (sessions != null && sessions.remove(info) && sessions.isEmpty()) {
+					node.destinations.remove(destination);
+				}
+			}
+			return node.isEmpty();
+		}
+
+		/**
+		 * Find the subscribed destinations that match the given destination,
+		 * with the sessions subscribed to each of them. Destinations with more
+		 * literal leading segments come first.
+		 */
+		public Map<String, Set<SessionSubscriptionInfo>> findMatches(String destination) {
+			List<Node> nodes = new ArrayList<>();
+			Node node = this.root;
+			nodes.add(node);
+			if (this.pathSeparator != null) {
+				for (String segment : tokenize(destination)) {
+					node = node.children.get(segment);
+					if (node == null) {
+						break;
+					}
+					nodes.add(node);
+				}
+			}
+			Map<String, Set<SessionSubscriptionInfo>> matches = new LinkedHashMap<>();
+			for (int i = nodes.size() - 1; i >= 0; i--) {
+				nodes.get(i).destinations.forEach((subscribedDestination, sessions) -> {
+					if (this.pathMatcher.match(subscribedDestination, destination)) {
+						matches.put(subscribedDestination, sessions);
+					}
+				});
+			}
+			return matches;
+		}
+
+		private List<String> getLiteralSegments(String destination) {
+			if (this.pathSeparator == null) {
+				return Collections.emptyList();
+			}
+			String[] segments = tokenize(destination);
+			List<String> result = new ArrayList<>(segments.length);
+			for (String segment : segments) {
+				if (segment.indexOf('*') != -1 || segment.indexOf('?') != -1 || segment.indexOf('{') != -1) {
+					break;
+				}
+				result.add(segment);
+			}
+			return result;
+		}
+
+		private String[] tokenize(String destination) {
+			Assert.state(this.pathSeparator != null, "No path separator");
+			// Same tokenization as in AntPathMatcher
+			return StringUtils.tokenizeToStringArray(destination, this.pathSeparator, false, true);
+		}
+
+
+		private static final class Node {
+
+			final Map<String, Node> children = new HashMap<>(4);
+
+			final Map<String, Set<SessionSubscriptionInfo>> destinations = new LinkedHashMap<>(4);
+
+			boolean isEmpty() {
+				return (this.children.isEmpty() && this.destinations.isEmpty());
+			}
+		}
+	}
+
+
 	/**
 	 * Provide access to session subscriptions by sessionId.
 	 */
@@ -430,6 +603,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			return this.destinationLookup.keySet();
 		}
 
+		@Nullable
 		public Set<Subscription> getSubscriptions(String destination) {
 			return this.destinationLookup.get(destination);
 		}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,7 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.MultiValueMap;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -438,6 +439,68 @@ public class DefaultSubscriptionRegistryTests {
 		assertThat(this.registry.findSubscriptions(createMessage("/bar")).size()).isEqualTo(2);
 	}
 
+	@Test
+	public void findSubscriptionsWithManyDestinations() {
+		for (int i = 0; i < 1000; i++) {
+			this.registry.registerSubscription(subscribeMessage("sess" + i, "1", "/topic/stock/" + i));
+		}
+		this.registry.registerSubscription(subscribeMessage("sess1", "2", "/topic/stock/*"));
+		this.registry.registerSubscription(subscribeMessage("sess2", "2", "/topic/**"));
+		this.registry.registerSubscription(subscribeMessage("sess3", "2", "/queue/**"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage("/topic/stock/1"));
+		assertThat(actual).isNotNull();
+		assertThat(actual.size()).isEqualTo(2);
+		assertThat(actual.get("sess1")).isEqualTo(Arrays.asList("1", "2"));
+		assertThat(actual.get("sess2")).isEqualTo(Collections.singletonList("2"));
+
+		actual = this.registry.findSubscriptions(createMessage("/topic/stock/5000"));
+		assertThat(actual).isNotNull();
+		assertThat(actual.size()).isEqualTo(2);
+		assertThat(actual.get("sess1")).isEqualTo(Collections.singletonList("2"));
+		assertThat(actual.get("sess2")).isEqualTo(Collections.singletonList("2"));
+
+		this.registry.unregisterAllSubscriptions("sess2");
+		this.registry.unregisterSubscription(unsubscribeMessage("sess1", "2"));
+
+		actual = this.registry.findSubscriptions(createMessage("/topic/stock/6000"));
+		assertThat(actual).isNotNull();
+		assertThat(actual.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void findSubscriptionsWithCustomPathSeparator() {
+		this.registry.registerSubscription(subscribeMessage("sess1", "1", "price.stock.nasdaq.ibm"));
+		this.registry.setPathMatcher(new AntPathMatcher("."));
+		this.registry.registerSubscription(subscribeMessage("sess1", "2", "price.stock.*.ibm"));
+		this.registry.registerSubscription(subscribeMessage("sess2", "1", "price.**"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage("price.stock.nasdaq.ibm"));
+		assertThat(actual).isNotNull();
+		assertThat(actual.size()).isEqualTo(2);
+		assertThat(actual.get("sess1")).isEqualTo(Arrays.asList("1", "2"));
+		assertThat(actual.get("sess2")).isEqualTo(Collections.singletonList("1"));
+
+		actual = this.registry.findSubscriptions(createMessage("price.stock.nyse.goog"));
+		assertThat(actual).isNotNull();
+		assertThat(actual.size()).isEqualTo(1);
+		assertThat(actual.get("sess2")).isEqualTo(Collections.singletonList("1"));
+	}
+
+	@Test
+	public void findSubscriptionsWithCaseInsensitivePathMatcher() {
+		AntPathMatcher pathMatcher = new AntPathMatcher();
+		pathMatcher.setCaseSensitive(false);
+		this.registry.setPathMatcher(pathMatcher);
+		this.registry.registerSubscription(subscribeMessage("sess1", "1", "/Topic/Stock"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "2", "/TOPIC/*"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage("/topic/stock"));
+		assertThat(actual).isNotNull();
+		assertThat(actual.size()).isEqualTo(1);
+		assertThat(sort(actual.get("sess1"))).isEqualTo(Arrays.asList("1", "2"));
+	}
+
 	private Message<?> createMessage(String destination) {
 		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
 		accessor.setDestination(destination);
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+
+/**
+ * Benchmarks for {@link Jackson2JsonEncoder} and {@link Jackson2JsonDecoder},
+ * encoding and decoding single values as well as streams of values.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class Jackson2JsonCodecBenchmark {
+
+	@Benchmark
+	public void encodeValue(CodecData data, Blackhole bh) {
+		DataBuffer buffer = data.encoder.encodeValue(data.value, data.bufferFactory,
+				CodecData.ITEM_TYPE, MediaType.APPLICATION_JSON, Collections.emptyMap());
+		bh.consume(buffer);
+		DataBufferUtils.release(buffer);
+	}
+
+	@Benchmark
+	public void encodeStream(CodecData data, Blackhole bh) {
+		data.encoder.encode(Flux.fromIterable(data.values), data.bufferFactory,
+				CodecData.ITEM_TYPE, MediaType.APPLICATION_STREAM_JSON, Collections.emptyMap())
+				.doOnNext(bh::consume)
+				.doOnNext(DataBufferUtils::release)
+				.blockLast();
+	}
+
+	@Benchmark
+	public Object decodeToMono(CodecData data) {
+		return data.decoder.decodeToMono(Mono.fromSupplier(data::valueBuffer),
+				CodecData.ITEM_TYPE, MediaType.APPLICATION_JSON, Collections.emptyMap()).block();
+	}
+
+	@Benchmark
+	public Object decodeArray(CodecData data) {
+		return data.decoder.decode(Flux.fromIterable(data.arrayChunks).map(data::wrap),
+				CodecData.ITEM_TYPE, MediaType.APPLICATION_JSON, Collections.emptyMap())
+				.collectList().block();
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class CodecData {
+
+		static final ResolvableType ITEM_TYPE = ResolvableType.forClass(Item.class);
+
+		@Param({"10", "1000"})
+		public int elements;
+
+		public DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+		public Jackson2JsonEncoder encoder;
+
+		public Jackson2JsonDecoder decoder;
+
+		public Item value;
+
+		public List<Item> values;
+
+		public byte[] valueBytes;
+
+		public List<byte[]> arrayChunks;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			ObjectMapper mapper = new ObjectMapper();
+			this.encoder = new Jackson2JsonEncoder(mapper);
+			this.decoder = new Jackson2JsonDecoder(mapper);
+			this.decoder.setMaxInMemorySize(-1);
+			this.values = new ArrayList<>(this.elements);
+			for (int i = 0; i < this.elements; i++) {
+				this.values.add(new Item("item" + i, i, Collections.nCopies(5, "tag" + i)));
+			}
+			this.value = new Item("single", 42, new ArrayList<>(Collections.nCopies(this.elements, "tag")));
+			this.valueBytes = mapper.writeValueAsBytes(this.value);
+			byte[] array = mapper.writeValueAsString(this.values).getBytes(StandardCharsets.UTF_8);
+			this.arrayChunks = new ArrayList<>();
+			for (int offset = 0; offset < array.length; offset += 8192) {
+				byte[] chunk = new byte[Math.min(8192, array.length - offset)];
+				System.arraycopy(array, offset, chunk, 0, chunk.length);
+				this.arrayChunks.add(chunk);
+			}
+		}
+
+		public DataBuffer valueBuffer() {
+			return wrap(this.valueBytes);
+		}
+
+		public DataBuffer wrap(byte[] bytes) {
+			return this.bufferFactory.wrap(bytes);
+		}
+	}
+
+
+	public static class Item {
+
+		private String name;
+
+		private int count;
+
+		private List<String> tags;
+
+		public Item() {
+		}
+
+		public Item(String name, int count, List<String> tags) {
+			this.name = name;
+			this.count = count;
+			this.tags = tags;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getCount() {
+			return this.count;
+		}
+
+		public void setCount(int count) {
+			this.count = count;
+		}
+
+		public List<String> getTags() {
+			return this.tags;
+		}
+
+		public void setTags(List<String> tags) {
+			this.tags = tags;
+		}
+	}
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.protobuf;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Message;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.PooledDefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+
+/**
+ * Benchmarks comparing {@link ProtobufEncoder} and {@link ProtobufDecoder}
+ * with the Jackson JSON codecs, for streams of equivalent values written as
+ * delimited Protobuf messages and as newline delimited JSON respectively.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class ProtobufCodecBenchmark {
+
+	@Benchmark
+	public void encodeProtobufStream(CodecData data, Blackhole bh) {
+		data.protobufEncoder.encode(Flux.fromIterable(data.messages), data.bufferFactory,
+				CodecData.MESSAGE_TYPE, CodecData.PROTOBUF_TYPE, Collections.emptyMap())
+				.doOnNext(bh::consume)
+				.doOnNext(DataBufferUtils::release)
+				.blockLast();
+	}
+
+	@Benchmark
+	public void encodeJsonStream(CodecData data, Blackhole bh) {
+		data.jsonEncoder.encode(Flux.fromIterable(data.values), data.bufferFactory,
+				CodecData.VALUE_TYPE, MediaType.APPLICATION_STREAM_JSON, Collections.emptyMap())
+				.doOnNext(bh::consume)
+				.doOnNext(DataBufferUtils::release)
+				.blockLast();
+	}
+
+	@Benchmark
+	public Object decodeProtobufStream(CodecData data) {
+		return data.protobufDecoder.decode(Flux.fromIterable(data.protobufChunks).map(data::wrap),
+				CodecData.MESSAGE_TYPE, CodecData.PROTOBUF_TYPE, Collections.emptyMap())
+				.collectList().block();
+	}
+
+	@Benchmark
+	public Object decodeJsonStream(CodecData data) {
+		return data.jsonDecoder.decode(Flux.fromIterable(data.jsonChunks).map(data::wrap),
+				CodecData.VALUE_TYPE, MediaType.APPLICATION_STREAM_JSON, Collections.emptyMap())
+				.collectList().block();
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class CodecData {
+
+		static final ResolvableType MESSAGE_TYPE = ResolvableType.forClass(Struct.class);
+
+		static final ResolvableType VALUE_TYPE = ResolvableType.forClassWithGenerics(Map.class, String.class, Object.class);
+
+		static final MediaType PROTOBUF_TYPE = new MediaType("application", "x-protobuf");
+
+		@Param({"10", "1000"})
+		public int elements;
+
+		@Param({"default", "pooled"})
+		public String bufferFactoryType;
+
+		public DataBufferFactory bufferFactory;
+
+		public ProtobufEncoder protobufEncoder;
+
+		public ProtobufDecoder protobufDecoder;
+
+		public Jackson2JsonEncoder jsonEncoder;
+
+		public Jackson2JsonDecoder jsonDecoder;
+
+		public List<Message> messages;
+
+		public List<Map<String, Object>> values;
+
+		public List<byte[]> protobufChunks;
+
+		public List<byte[]> jsonChunks;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			this.bufferFactory = ("pooled".equals(this.bufferFactoryType) ?
+					new PooledDefaultDataBufferFactory() : new DefaultDataBufferFactory());
+			this.protobufEncoder = new ProtobufEncoder();
+			this.protobufDecoder = new ProtobufDecoder();
+			ObjectMapper mapper = new ObjectMapper();
+			this.jsonEncoder = new Jackson2JsonEncoder(mapper);
+			this.jsonDecoder = new Jackson2JsonDecoder(mapper);
+
+			this.messages = new ArrayList<>(this.elements);
+			this.values = new ArrayList<>(this.elements);
+			ByteArrayOutputStream protobuf = new ByteArrayOutputStream();
+			ByteArrayOutputStream json = new ByteArrayOutputStream();
+			for (int i = 0; i < this.elements; i++) {
+				ListValue.Builder tags = ListValue.newBuilder();
+				for (int j = 0; j < 5; j++) {
+					tags.addValues(Value.newBuilder().setStringValue("tag" + i));
+				}
+				Struct message = Struct.newBuilder()
+						.putFields("name", Value.newBuilder().setStringValue("item" + i).build())
+						.putFields("count", Value.newBuilder().setNumberValue(i).build())
+						.putFields("tags", Value.newBuilder().setListValue(tags).build())
+						.build();
+				this.messages.add(message);
+				message.writeDelimitedTo(protobuf);
+
+				Map<String, Object> value = new LinkedHashMap<>();
+				value.put("name", "item" + i);
+				value.put("count", (double) i);
+				value.put("tags", Collections.nCopies(5, "tag" + i));
+				this.values.add(value);
+				mapper.writeValue(json, value);
+				json.write('\n');
+			}
+			this.protobufChunks = chunk(protobuf.toByteArray());
+			this.jsonChunks = chunk(json.toByteArray());
+		}
+
+		private static List<byte[]> chunk(byte[] bytes) {
+			List<byte[]> chunks = new ArrayList<>();
+			for (int offset = 0; offset < bytes.length; offset += 8192) {
+				byte[] chunk = new byte[Math.min(8192, bytes.length - offset)];
+				System.arraycopy(bytes, offset, chunk, 0, chunk.length);
+				chunks.add(chunk);
+			}
+			return chunks;
+		}
+
+		public DataBuffer wrap(byte[] bytes) {
+			DataBuffer buffer = this.bufferFactory.allocateBuffer(bytes.length);
+			buffer.write(bytes);
+			return buffer;
+		}
+	}
+
+}
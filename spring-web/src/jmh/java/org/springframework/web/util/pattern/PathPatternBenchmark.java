@@ -0,0 +1,99 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.util.pattern;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.http.server.PathContainer;
+
+/**
+ * Benchmarks for parsing {@link PathPattern} instances and matching them
+ * against request paths.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class PathPatternBenchmark {
+
+	@Benchmark
+	public void parseAllRoutes(RoutesData data, Blackhole bh) {
+		for (String route : data.routes) {
+			bh.consume(data.parser.parse(route));
+		}
+	}
+
+	@Benchmark
+	public void matchAllRoutes(RoutesData data, Blackhole bh) {
+		for (PathContainer path : data.requestPaths) {
+			for (PathPattern pattern : data.patterns) {
+				bh.consume(pattern.matches(path));
+			}
+		}
+	}
+
+	@Benchmark
+	public void matchAndExtract(RoutesData data, Blackhole bh) {
+		for (PathContainer path : data.requestPaths) {
+			for (PathPattern pattern : data.patterns) {
+				bh.consume(pattern.matchAndExtract(path));
+			}
+		}
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class RoutesData {
+
+		public PathPatternParser parser = new PathPatternParser();
+
+		public List<String> routes = new ArrayList<>();
+
+		public List<PathPattern> patterns = new ArrayList<>();
+
+		public List<PathContainer> requestPaths = new ArrayList<>();
+
+		@Setup(Level.Trial)
+		public void setup() {
+			for (String resource : new String[] {"users", "orders", "products", "invoices", "accounts"}) {
+				this.routes.add("/api/" + resource);
+				this.routes.add("/api/" + resource + "/{id}");
+				this.routes.add("/api/" + resource + "/{id}/history");
+				this.routes.add("/api/" + resource + "/{id}/items/{itemId}");
+				this.routes.add("/api/" + resource + "/search/**");
+				this.requestPaths.add(PathContainer.parsePath("/api/" + resource));
+				this.requestPaths.add(PathContainer.parsePath("/api/" + resource + "/42"));
+				this.requestPaths.add(PathContainer.parsePath("/api/" + resource + "/42/history"));
+				this.requestPaths.add(PathContainer.parsePath("/api/" + resource + "/42/items/7"));
+				this.requestPaths.add(PathContainer.parsePath("/api/" + resource + "/search/by/name"));
+			}
+			this.routes.add("/static/{*path}");
+			this.requestPaths.add(PathContainer.parsePath("/static/css/app/main.css"));
+			for (String route : this.routes) {
+				this.patterns.add(this.parser.parse(route));
+			}
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,9 +18,15 @@ package org.springframework.http;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.List;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.util.StreamUtils;
+
 /**
  * Sub-interface of {@code ReactiveOutputMessage} that has support for "zero-copy"
  * file transfers.
@@ -55,4 +61,24 @@ public interface ZeroCopyHttpOutputMessage extends ReactiveHttpOutputMessage {
 	 */
 	Mono<Void> writeWith(Path file, long position, long count);
 
+	/**
+	 * Use the given {@link ResourceRegion regions} to write the body of the
+	 * message, in order, to the underlying HTTP layer. This allows for zero-copy
+	 * transfers of responses that combine file content with other content, e.g.
+	 * multipart byte range responses with their boundaries.
+	 * <p>By default, all regions are read into data buffers. Implementations
+	 * should override this to transfer regions of file-based resources with
+	 * zero-copy.
+	 * @param regions the regions to transfer
+	 * @return a publisher that indicates completion or error.
+	 * @since 5.2.13
+	 */
+	default Mono<Void> writeWith(List<ResourceRegion> regions) {
+		return writeWith(Flux.fromIterable(regions).concatMap(region ->
+				DataBufferUtils.takeUntilByteCount(
+						DataBufferUtils.read(region.getResource(), region.getPosition(),
+								bufferFactory(), StreamUtils.BUFFER_SIZE),
+						region.getCount())));
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,8 @@ package org.springframework.http.codec;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -32,10 +34,12 @@ import org.springframework.core.codec.Hints;
 import org.springframework.core.codec.ResourceDecoder;
 import org.springframework.core.codec.ResourceEncoder;
 import org.springframework.core.codec.ResourceRegionEncoder;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.io.support.ResourceRegion;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpLogging;
@@ -56,6 +60,10 @@ import org.springframework.util.MimeTypeUtils;
  * <p>Also an implementation of {@code HttpMessageWriter} with support for writing one
  * or more {@link ResourceRegion}'s based on the HTTP ranges specified in the request.
  *
+ * <p>File-based resources and regions are transferred with zero-copy if the
+ * output message is a {@link ZeroCopyHttpOutputMessage}, including multiple
+ * ranges. Otherwise, large files are read through memory-mapped buffers.
+ *
  * <p>For reading to a Resource, use {@link ResourceDecoder} wrapped with
  * {@link DecoderHttpMessageReader}.
  *
@@ -73,6 +81,12 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 
 	private static final Log logger = HttpLogging.forLogName(ResourceHttpMessageWriter.class);
 
+	/**
+	 * The minimum number of bytes to read through memory-mapped buffers,
+	 * when zero-copy is not available; smaller files are read into buffers.
+	 */
+	private static final long MAPPED_READ_THRESHOLD = 256 * 1024;
+
 
 	private final ResourceEncoder encoder;
 
@@ -80,6 +94,8 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 
 	private final List<MediaType> mediaTypes;
 
+	private final int bufferSize;
+
 
 	public ResourceHttpMessageWriter() {
 		this(ResourceEncoder.DEFAULT_BUFFER_SIZE);
@@ -89,6 +105,7 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 		this.encoder = new ResourceEncoder(bufferSize);
 		this.regionEncoder = new ResourceRegionEncoder(bufferSize);
 		this.mediaTypes = MediaType.asMediaTypes(this.encoder.getEncodableMimeTypes());
+		this.bufferSize = bufferSize;
 	}
 
 
@@ -127,7 +144,7 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 			}
 		}
 
-		return zeroCopy(resource, null, message, hints)
+		return transfer(resource, null, message, hints)
 				.orElseGet(() -> {
 					Mono<Resource> input = Mono.just(resource);
 					DataBufferFactory factory = message.bufferFactory();
@@ -161,19 +178,29 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 		return -1;
 	}
 
-	private static Optional<Mono<Void>> zeroCopy(Resource resource, @Nullable ResourceRegion region,
+	private Optional<Mono<Void>> transfer(Resource resource, @Nullable ResourceRegion region,
 			ReactiveHttpOutputMessage message, Map<String, Object> hints) {
 
-		if (message instanceof ZeroCopyHttpOutputMessage && resource.isFile()) {
+		if (resource.isFile()) {
 			try {
 				File file = resource.getFile();
 				long pos = region != null ? region.getPosition() : 0;
 				long count = region != null ? region.getCount() : file.length();
-				if (logger.isDebugEnabled()) {
-					String formatted = region != null ? "region " + pos + "-" + (count) + " of " : "";
-					logger.debug(Hints.getLogPrefix(hints) + "Zero-copy " + formatted + "[" + resource + "]");
+				if (message instanceof ZeroCopyHttpOutputMessage) {
+					if (logger.isDebugEnabled()) {
+						String formatted = region != null ? "region " + pos + "-" + (count) + " of " : "";
+						logger.debug(Hints.getLogPrefix(hints) + "Zero-copy " + formatted + "[" + resource + "]");
+					}
+					return Optional.of(((ZeroCopyHttpOutputMessage) message).writeWith(file, pos, count));
+				}
+				if (count >= MAPPED_READ_THRESHOLD) {
+					if (logger.isDebugEnabled()) {
+						String formatted = region != null ? "region " + pos + "-" + (count) + " of " : "";
+						logger.debug(Hints.getLogPrefix(hints) + "Memory-mapped " + formatted + "[" + resource + "]");
+					}
+					return Optional.of(message.writeWith(DataBufferUtils.readMapped(
+							file.toPath(), pos, count, message.bufferFactory(), this.bufferSize)));
 				}
-				return Optional.of(((ZeroCopyHttpOutputMessage) message).writeWith(file, pos, count));
 			}
 			catch (IOException ex) {
 				// should not happen
@@ -226,6 +253,14 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 				String boundary = MimeTypeUtils.generateMultipartBoundaryString();
 				MediaType multipartType = MediaType.parseMediaType("multipart/byteranges;boundary=" + boundary);
 				headers.setContentType(multipartType);
+				if (response instanceof ZeroCopyHttpOutputMessage && resource.isFile()) {
+					if (logger.isDebugEnabled()) {
+						logger.debug(Hints.getLogPrefix(hints) + "Zero-copy " + regions.size() +
+								" regions of [" + resource + "]");
+					}
+					List<ResourceRegion> parts = getMultipartRegions(regions, resourceMediaType, boundary);
+					return ((ZeroCopyHttpOutputMessage) response).writeWith(parts);
+				}
 				Map<String, Object> allHints = Hints.merge(hints, ResourceRegionEncoder.BOUNDARY_STRING_HINT, boundary);
 				return encodeAndWriteRegions(Flux.fromIterable(regions), resourceMediaType, response, allHints);
 			}
@@ -235,7 +270,7 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 	private Mono<Void> writeSingleRegion(ResourceRegion region, ReactiveHttpOutputMessage message,
 			Map<String, Object> hints) {
 
-		return zeroCopy(region.getResource(), region, message, hints)
+		return transfer(region.getResource(), region, message, hints)
 				.orElseGet(() -> {
 					Publisher<? extends ResourceRegion> input = Mono.just(region);
 					MediaType mediaType = message.getHeaders().getContentType();
@@ -243,6 +278,34 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 				});
 	}
 
+	/**
+	 * Interleave the given regions with in-memory regions for the boundaries and
+	 * headers of a multipart byte range response, in the same format as written
+	 * by {@link ResourceRegionEncoder}.
+	 */
+	private static List<ResourceRegion> getMultipartRegions(
+			List<ResourceRegion> regions, MediaType mediaType, String boundary) {
+
+		List<ResourceRegion> parts = new ArrayList<>(regions.size() * 2 + 1);
+		for (ResourceRegion region : regions) {
+			long start = region.getPosition();
+			long end = start + region.getCount() - 1;
+			long length = lengthOf(region.getResource());
+			String header = "\r\n--" + boundary + "\r\n" +
+					"Content-Type: " + mediaType + "\r\n" +
+					"Content-Range: bytes " + start + '-' + end + (length != -1 ? "/" + length : "") + "\r\n\r\n";
+			parts.add(inMemoryRegion(header));
+			parts.add(region);
+		}
+		parts.add(inMemoryRegion("\r\n--" + boundary + "--"));
+		return parts;
+	}
+
+	private static ResourceRegion inMemoryRegion(String content) {
+		byte[] bytes = content.getBytes(StandardCharsets.US_ASCII);
+		return new ResourceRegion(new ByteArrayResource(bytes), 0, bytes.length);
+	}
+
 	private Mono<Void> encodeAndWriteRegions(Publisher<? extends ResourceRegion> publisher,
 			@Nullable MediaType mediaType, ReactiveHttpOutputMessage message, Map<String, Object> hints) {
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,6 +32,7 @@ import com.fasterxml.jackson.databind.util.TokenBuffer;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
 
 import org.springframework.core.MethodParameter;
 import org.springframework.core.ResolvableType;
@@ -41,6 +42,7 @@ import org.springframework.core.codec.Hints;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferLimitException;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.PooledDataBuffer;
 import org.springframework.core.log.LogFormatUtils;
 import org.springframework.http.codec.HttpMessageDecoder;
 import org.springframework.http.server.reactive.ServerHttpRequest;
@@ -107,31 +109,9 @@ public abstract class AbstractJackson2Decoder extends Jackson2CodecSupport imple
 	public Flux<Object> decode(Publisher<DataBuffer> input, ResolvableType elementType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
-		ObjectMapper mapper = getObjectMapper();
-
-		boolean forceUseOfBigDecimal = mapper.isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
-		if (BigDecimal.class.equals(elementType.getType())) {
-			forceUseOfBigDecimal = true;
-		}
-
-		Flux<DataBuffer> processed = processInput(input, elementType, mimeType, hints);
-		Flux<TokenBuffer> tokens = Jackson2Tokenizer.tokenize(processed, mapper.getFactory(), mapper,
-				true, forceUseOfBigDecimal, getMaxInMemorySize());
-
+		Flux<TokenBuffer> tokens = tokenize(input, elementType, mimeType, hints, true);
 		ObjectReader reader = getObjectReader(elementType, hints);
-
-		return tokens.handle((tokenBuffer, sink) -> {
-			try {
-				Object value = reader.readValue(tokenBuffer.asParser(getObjectMapper()));
-				logValue(value, hints);
-				if (value != null) {
-					sink.next(value);
-				}
-			}
-			catch (IOException ex) {
-				sink.error(processException(ex));
-			}
-		});
+		return tokens.handle((tokenBuffer, sink) -> readValue(reader, tokenBuffer, hints, sink));
 	}
 
 	/**
@@ -155,8 +135,18 @@ public abstract class AbstractJackson2Decoder extends Jackson2CodecSupport imple
 	public Mono<Object> decodeToMono(Publisher<DataBuffer> input, ResolvableType elementType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
-		return DataBufferUtils.join(input, this.maxInMemorySize)
-				.flatMap(dataBuffer -> Mono.justOrEmpty(decode(dataBuffer, elementType, mimeType, hints)));
+		if (!getObjectMapper().getFactory().canParseAsync()) {
+			return DataBufferUtils.compose(input, this.maxInMemorySize)
+					.flatMap(dataBuffer -> Mono.justOrEmpty(decode(dataBuffer, elementType, mimeType, hints)));
+		}
+
+		// Feed buffers to the non-blocking parser as they arrive, rather than aggregating them.
+		// As with blocking parsing, only the first root-level value is read.
+		Flux<TokenBuffer> tokens = tokenize(input, elementType, mimeType, hints, false);
+		ObjectReader reader = getObjectReader(elementType, hints);
+		return tokens.doOnDiscard(PooledDataBuffer.class, PooledDataBuffer::release)
+				.next()
+				.handle((tokenBuffer, sink) -> readValue(reader, tokenBuffer, hints, sink));
 	}
 
 	@Override
@@ -177,6 +167,36 @@ public abstract class AbstractJackson2Decoder extends Jackson2CodecSupport imple
 		}
 	}
 
+	private Flux<TokenBuffer> tokenize(Publisher<DataBuffer> input, ResolvableType elementType,
+			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints, boolean tokenizeArrays) {
+
+		ObjectMapper mapper = getObjectMapper();
+
+		boolean forceUseOfBigDecimal = mapper.isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+		if (BigDecimal.class.equals(elementType.getType())) {
+			forceUseOfBigDecimal = true;
+		}
+
+		Flux<DataBuffer> processed = processInput(input, elementType, mimeType, hints);
+		return Jackson2Tokenizer.tokenize(processed, mapper.getFactory(), mapper,
+				tokenizeArrays, forceUseOfBigDecimal, getMaxInMemorySize());
+	}
+
+	private void readValue(ObjectReader reader, TokenBuffer tokenBuffer,
+			@Nullable Map<String, Object> hints, SynchronousSink<Object> sink) {
+
+		try {
+			Object value = reader.readValue(tokenBuffer.asParser(getObjectMapper()));
+			logValue(value, hints);
+			if (value != null) {
+				sink.next(value);
+			}
+		}
+		catch (IOException ex) {
+			sink.error(processException(ex));
+		}
+	}
+
 	private ObjectReader getObjectReader(ResolvableType elementType, @Nullable Map<String, Object> hints) {
 		Assert.notNull(elementType, "'elementType' must not be null");
 		Class<?> contextClass = getContextClass(elementType);
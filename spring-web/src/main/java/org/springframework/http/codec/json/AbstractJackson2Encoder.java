@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.http.codec.json;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -45,6 +46,8 @@ import org.springframework.core.codec.EncodingException;
 import org.springframework.core.codec.Hints;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.PooledDataBuffer;
 import org.springframework.core.log.LogFormatUtils;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.HttpMessageEncoder;
@@ -83,9 +86,18 @@ public abstract class AbstractJackson2Encoder extends Jackson2CodecSupport imple
 		ENCODINGS.put("US-ASCII", JsonEncoding.UTF8);
 	}
 
+	private static final int DEFAULT_BUFFER_SIZE_HINT = 256;
+
+	private static final int MAX_BUFFER_SIZE_HINT = 4 * 1024;
+
 
 	private final List<MediaType> streamingMediaTypes = new ArrayList<>(1);
 
+	private boolean writeDirectlyToDataBuffer = false;
+
+	// Shared by all requests and value types: only adjusted gradually, see nextBufferSizeHint
+	private volatile int bufferSizeHint = DEFAULT_BUFFER_SIZE_HINT;
+
 
 	/**
 	 * Constructor with a Jackson {@link ObjectMapper} to use.
@@ -107,6 +119,32 @@ public abstract class AbstractJackson2Encoder extends Jackson2CodecSupport imple
 		this.streamingMediaTypes.addAll(mediaTypes);
 	}
 
+	/**
+	 * Configure whether to let Jackson write directly into the {@link DataBuffer}
+	 * to return, through an {@link OutputStream} adapter, instead of serializing
+	 * into an intermediate byte array first. This avoids a copy per encoded value,
+	 * and with a pooling {@code DataBufferFactory} (e.g. for Reactor Netty) the
+	 * output goes straight into a pooled buffer.
+	 * <p>Buffers are pre-allocated based on the sizes of previously encoded
+	 * values, up to 4K, and grow as needed. They are released in case of an
+	 * encoding error.
+	 * <p>By default this is set to {@code false}.
+	 * @param writeDirectlyToDataBuffer whether to write directly to data buffers
+	 * @since 5.2.13
+	 */
+	public void setWriteDirectlyToDataBuffer(boolean writeDirectlyToDataBuffer) {
+		this.writeDirectlyToDataBuffer = writeDirectlyToDataBuffer;
+	}
+
+	/**
+	 * Return whether to let Jackson write directly into the {@link DataBuffer}
+	 * to return.
+	 * @since 5.2.13
+	 */
+	public boolean isWriteDirectlyToDataBuffer() {
+		return this.writeDirectlyToDataBuffer;
+	}
+
 
 	@Override
 	public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
@@ -139,7 +177,32 @@ public abstract class AbstractJackson2Encoder extends Jackson2CodecSupport imple
 		}
 		else {
 			byte[] separator = streamSeparator(mimeType);
-			if (separator != null) { // streaming
+			if (separator != null && this.writeDirectlyToDataBuffer) { // streaming into data buffers
+				try {
+					ObjectWriter writer = createObjectWriter(elementType, mimeType, hints);
+					DataBufferOutputStream outputStream = new DataBufferOutputStream();
+					JsonEncoding encoding = getJsonEncoding(mimeType);
+					JsonGenerator generator = getObjectMapper().getFactory().createGenerator(outputStream, encoding);
+					SequenceWriter sequenceWriter = writer.writeValues(generator);
+
+					return Flux.from(inputStream)
+							.map(value -> encodeStreamingValue(value, bufferFactory, hints, sequenceWriter, outputStream,
+									separator))
+							.doAfterTerminate(() -> {
+								try {
+									generator.close();
+								}
+								catch (IOException ex) {
+									logger.error("Could not close Encoder resources", ex);
+								}
+							})
+							.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
+				}
+				catch (IOException ex) {
+					return Flux.error(ex);
+				}
+			}
+			else if (separator != null) { // streaming
 				try {
 					ObjectWriter writer = createObjectWriter(elementType, mimeType, hints);
 					ByteArrayBuilder byteBuilder = new ByteArrayBuilder(writer.getFactory()._getBufferRecycler());
@@ -179,6 +242,10 @@ public abstract class AbstractJackson2Encoder extends Jackson2CodecSupport imple
 	public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory,
 			ResolvableType valueType, @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
+		if (this.writeDirectlyToDataBuffer) {
+			return encodeValueToDataBuffer(value, bufferFactory, valueType, mimeType, hints);
+		}
+
 		ObjectWriter writer = createObjectWriter(valueType, mimeType, hints);
 		ByteArrayBuilder byteBuilder = new ByteArrayBuilder(writer.getFactory()._getBufferRecycler());
 		try {
@@ -251,6 +318,87 @@ public abstract class AbstractJackson2Encoder extends Jackson2CodecSupport imple
 		return buffer;
 	}
 
+	private DataBuffer encodeValueToDataBuffer(Object value, DataBufferFactory bufferFactory,
+			ResolvableType valueType, @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+
+		ObjectWriter writer = createObjectWriter(valueType, mimeType, hints);
+		JsonEncoding encoding = getJsonEncoding(mimeType);
+
+		logValue(hints, value);
+
+		DataBuffer buffer = bufferFactory.allocateBuffer(this.bufferSizeHint);
+		boolean release = true;
+		try (JsonGenerator generator = getObjectMapper().getFactory().createGenerator(buffer.asOutputStream(), encoding)) {
+			writer.writeValue(generator, value);
+			generator.flush();
+			release = false;
+		}
+		catch (InvalidDefinitionException ex) {
+			throw new CodecException("Type definition error: " + ex.getType(), ex);
+		}
+		catch (JsonProcessingException ex) {
+			throw new EncodingException("JSON encoding error: " + ex.getOriginalMessage(), ex);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Unexpected I/O error while writing to data buffer", ex);
+		}
+		finally {
+			if (release) {
+				DataBufferUtils.release(buffer);
+			}
+		}
+
+		this.bufferSizeHint = nextBufferSizeHint(this.bufferSizeHint, buffer.readableByteCount());
+		return buffer;
+	}
+
+	private DataBuffer encodeStreamingValue(Object value, DataBufferFactory bufferFactory, @Nullable Map<String, Object> hints,
+			SequenceWriter sequenceWriter, DataBufferOutputStream outputStream, byte[] separator) {
+
+		logValue(hints, value);
+
+		DataBuffer buffer = bufferFactory.allocateBuffer(outputStream.getSizeHint() + separator.length);
+		outputStream.setDataBuffer(buffer);
+		boolean release = true;
+		try {
+			sequenceWriter.write(value);
+			sequenceWriter.flush();
+			release = false;
+		}
+		catch (InvalidDefinitionException ex) {
+			throw new CodecException("Type definition error: " + ex.getType(), ex);
+		}
+		catch (JsonProcessingException ex) {
+			throw new EncodingException("JSON encoding error: " + ex.getOriginalMessage(), ex);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Unexpected I/O error while writing to data buffer", ex);
+		}
+		finally {
+			outputStream.setDataBuffer(null);
+			if (release) {
+				DataBufferUtils.release(buffer);
+			}
+		}
+
+		if (buffer.readableByteCount() > 0 && buffer.getByte(buffer.readPosition()) == ' ') {
+			// SequenceWriter writes an unnecessary space in between values
+			buffer.readPosition(buffer.readPosition() + 1);
+		}
+		outputStream.setSizeHint(nextBufferSizeHint(outputStream.getSizeHint(), buffer.readableByteCount()));
+		buffer.write(separator);
+
+		return buffer;
+	}
+
+	/**
+	 * Move the given buffer size hint a quarter of the way towards the size of
+	 * the last encoded value, so that a single outlier has limited effect.
+	 */
+	private static int nextBufferSizeHint(int sizeHint, int size) {
+		return Math.min(sizeHint + (size - sizeHint) / 4, MAX_BUFFER_SIZE_HINT);
+	}
+
 	private void logValue(@Nullable Map<String, Object> hints, Object value) {
 		if (!Hints.isLoggingSuppressed(hints)) {
 			LogFormatUtils.traceDebug(logger, traceOn -> {
@@ -336,4 +484,46 @@ public abstract class AbstractJackson2Encoder extends Jackson2CodecSupport imple
 		return parameter.getMethodAnnotation(annotType);
 	}
 
+
+	/**
+	 * {@link OutputStream} that writes to a {@link DataBuffer} which can be
+	 * switched between values, so that a single {@link JsonGenerator} can
+	 * write each value of a stream into a buffer of its own. Output written
+	 * while no buffer is set (e.g. on close) is dropped. Also keeps the buffer
+	 * size hint for the values of the stream.
+	 */
+	private static class DataBufferOutputStream extends OutputStream {
+
+		@Nullable
+		private DataBuffer dataBuffer;
+
+		private int sizeHint = DEFAULT_BUFFER_SIZE_HINT;
+
+		public void setDataBuffer(@Nullable DataBuffer dataBuffer) {
+			this.dataBuffer = dataBuffer;
+		}
+
+		public void setSizeHint(int sizeHint) {
+			this.sizeHint = sizeHint;
+		}
+
+		public int getSizeHint() {
+			return this.sizeHint;
+		}
+
+		@Override
+		public void write(int b) {
+			if (this.dataBuffer != null) {
+				this.dataBuffer.write((byte) b);
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			if (this.dataBuffer != null) {
+				this.dataBuffer.write(b, off, len);
+			}
+		}
+	}
+
 }
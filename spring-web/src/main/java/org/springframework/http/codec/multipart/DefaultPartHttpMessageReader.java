@@ -0,0 +1,714 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.codec.Hints;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.log.LogFormatUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpInputMessage;
+import org.springframework.http.codec.HttpMessageReader;
+import org.springframework.http.codec.LoggingCodecSupport;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Default {@code HttpMessageReader} for parsing {@code "multipart/form-data"}
+ * requests to a stream of {@link Part}'s, without dependencies on a third-party
+ * multipart library.
+ *
+ * <p>The request body is parsed directly on the incoming {@link DataBuffer
+ * DataBuffers}: boundaries are located across buffer borders, and part content
+ * is kept as slices of the incoming buffers rather than being copied. Parts
+ * with a filename that exceed the {@link #setMaxInMemorySize in-memory limit}
+ * are written to a temporary file in the
+ * {@link #setFileStorageDirectory storage directory}, using the
+ * {@link #setBlockingOperationScheduler blocking operation scheduler}.
+ *
+ * <p>The content of a part can be consumed once: either via
+ * {@link Part#content()} or via {@link FilePart#transferTo(Path)}. Temporary
+ * files are deleted (or moved to the destination) at that point. Content that
+ * is not consumed is released via {@link Part#delete()}, which is done for
+ * the {@link org.springframework.web.server.ServerWebExchange#getMultipartData()
+ * multipart data} of an exchange when it completes.
+ *
+ * <p>This reader can be provided to {@link MultipartHttpMessageReader} in order
+ * to aggregate all parts into a Map.
+ *
+ * @since 5.2.13
+ * @see MultipartHttpMessageReader
+ * @see SynchronossPartHttpMessageReader
+ */
+public class DefaultPartHttpMessageReader extends LoggingCodecSupport implements HttpMessageReader<Part> {
+
+	private static final String FILE_STORAGE_DIRECTORY_PREFIX = "spring-multipart-";
+
+	// Static DataBufferFactory to wrap the bytes of form field values.
+	private static final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+
+	private int maxInMemorySize = 256 * 1024;
+
+	private int maxHeadersSize = 8 * 1024;
+
+	private long maxDiskUsagePerPart = -1;
+
+	private int maxParts = -1;
+
+	@Nullable
+	private Path fileStorageDirectory;
+
+	@Nullable
+	private volatile Path defaultFileStorageDirectory;
+
+	private Scheduler blockingOperationScheduler = Schedulers.boundedElastic();
+
+
+	/**
+	 * Configure the maximum amount of memory that is allowed to use per part.
+	 * When the limit is exceeded:
+	 * <ul>
+	 * <li>file parts are written to a temporary file.
+	 * <li>non-file parts are rejected with {@link DataBufferLimitException}.
+	 * </ul>
+	 * <p>By default this is set to 256K.
+	 * @param byteCount the in-memory limit in bytes; if set to -1 this limit is
+	 * not enforced, and all file parts are written to disk and are limited only
+	 * by the {@link #setMaxDiskUsagePerPart(long) maxDiskUsagePerPart} property.
+	 */
+	public void setMaxInMemorySize(int byteCount) {
+		this.maxInMemorySize = byteCount;
+	}
+
+	/**
+	 * Get the {@link #setMaxInMemorySize configured} maximum in-memory size.
+	 */
+	public int getMaxInMemorySize() {
+		return this.maxInMemorySize;
+	}
+
+	/**
+	 * Configure the maximum size of the header block of each part.
+	 * Parts with larger headers are rejected with {@link DataBufferLimitException}.
+	 * <p>By default this is set to 8K.
+	 */
+	public void setMaxHeadersSize(int byteCount) {
+		Assert.isTrue(byteCount > 0, "Max headers size must be greater than 0");
+		this.maxHeadersSize = byteCount;
+	}
+
+	/**
+	 * Get the {@link #setMaxHeadersSize configured} maximum headers size.
+	 */
+	public int getMaxHeadersSize() {
+		return this.maxHeadersSize;
+	}
+
+	/**
+	 * Configure the maximum amount of disk space allowed for file parts.
+	 * <p>By default this is set to -1.
+	 * @param maxDiskUsagePerPart the disk limit in bytes, or -1 for unlimited
+	 */
+	public void setMaxDiskUsagePerPart(long maxDiskUsagePerPart) {
+		this.maxDiskUsagePerPart = maxDiskUsagePerPart;
+	}
+
+	/**
+	 * Get the {@link #setMaxDiskUsagePerPart configured} maximum disk usage.
+	 */
+	public long getMaxDiskUsagePerPart() {
+		return this.maxDiskUsagePerPart;
+	}
+
+	/**
+	 * Specify the maximum number of parts allowed in a given multipart request.
+	 * <p>By default this is set to -1, i.e. unlimited.
+	 */
+	public void setMaxParts(int maxParts) {
+		this.maxParts = maxParts;
+	}
+
+	/**
+	 * Return the {@link #setMaxParts configured} limit on the number of parts.
+	 */
+	public int getMaxParts() {
+		return this.maxParts;
+	}
+
+	/**
+	 * Set the directory used to store parts larger than the
+	 * {@link #setMaxInMemorySize in-memory limit}.
+	 * <p>By default, a new directory is created in the system temporary
+	 * directory on first use.
+	 * @param fileStorageDirectory the directory to store temporary files in;
+	 * must exist and be writable
+	 */
+	public void setFileStorageDirectory(Path fileStorageDirectory) {
+		Assert.notNull(fileStorageDirectory, "FileStorageDirectory must not be null");
+		Assert.isTrue(Files.isDirectory(fileStorageDirectory),
+				() -> "FileStorageDirectory [" + fileStorageDirectory + "] is not a directory");
+		this.fileStorageDirectory = fileStorageDirectory;
+	}
+
+	/**
+	 * Set the Reactor {@link Scheduler} to be used for creating files and
+	 * directories, and for writing, moving and deleting temporary files.
+	 * <p>By default, {@link Schedulers#boundedElastic()} is used.
+	 * @param blockingOperationScheduler the scheduler to use for blocking operations
+	 */
+	public void setBlockingOperationScheduler(Scheduler blockingOperationScheduler) {
+		Assert.notNull(blockingOperationScheduler, "BlockingOperationScheduler must not be null");
+		this.blockingOperationScheduler = blockingOperationScheduler;
+	}
+
+
+	@Override
+	public List<MediaType> getReadableMediaTypes() {
+		return MultipartHttpMessageReader.MIME_TYPES;
+	}
+
+	@Override
+	public boolean canRead(ResolvableType elementType, @Nullable MediaType mediaType) {
+		if (Part.class.equals(elementType.toClass())) {
+			if (mediaType == null) {
+				return true;
+			}
+			for (MediaType supportedMediaType : getReadableMediaTypes()) {
+				if (supportedMediaType.isCompatibleWith(mediaType)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public Flux<Part> read(ResolvableType elementType, ReactiveHttpInputMessage message, Map<String, Object> hints) {
+		return Flux.defer(() -> {
+			MediaType contentType = message.getHeaders().getContentType();
+			byte[] boundary = (contentType != null ? getBoundary(contentType) : null);
+			if (contentType == null || boundary == null) {
+				return Flux.error(new DecodingException("No multipart boundary found in Content-Type: \"" +
+						contentType + "\""));
+			}
+			Charset headersCharset = (contentType.getCharset() != null ?
+					contentType.getCharset() : StandardCharsets.UTF_8);
+			PartGenerator generator = new PartGenerator();
+			return MultipartParser.parse(message.getBody(), boundary, this.maxHeadersSize, headersCharset)
+					.concatMap(generator::onToken)
+					.concatWith(Mono.defer(generator::onComplete))
+					.doFinally(signalType -> {
+						if (signalType != SignalType.ON_COMPLETE) {
+							generator.dispose();
+						}
+					})
+					.doOnDiscard(MultipartParser.BodyToken.class, token -> DataBufferUtils.release(token.buffer()));
+		})
+		.doOnNext(part -> {
+			if (!Hints.isLoggingSuppressed(hints)) {
+				LogFormatUtils.traceDebug(logger, traceOn -> Hints.getLogPrefix(hints) + "Parsed " +
+						(isEnableLoggingRequestDetails() ?
+								LogFormatUtils.formatValue(part, !traceOn) :
+								"parts '" + part.name() + "' (content masked)"));
+			}
+		});
+	}
+
+	@Override
+	public Mono<Part> readMono(ResolvableType elementType, ReactiveHttpInputMessage message, Map<String, Object> hints) {
+		return Mono.error(new UnsupportedOperationException("Cannot read multipart request body into single Part"));
+	}
+
+	@Nullable
+	private static byte[] getBoundary(MediaType contentType) {
+		String boundary = contentType.getParameter("boundary");
+		if (boundary == null || boundary.isEmpty()) {
+			return null;
+		}
+		int length = boundary.length();
+		if (length > 2 && boundary.charAt(0) == '"' && boundary.charAt(length - 1) == '"') {
+			boundary = boundary.substring(1, length - 1);
+		}
+		return boundary.getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	private Path getFileStorageDirectory() throws IOException {
+		if (this.fileStorageDirectory != null) {
+			return this.fileStorageDirectory;
+		}
+		Path directory = this.defaultFileStorageDirectory;
+		if (directory == null) {
+			synchronized (this) {
+				directory = this.defaultFileStorageDirectory;
+				if (directory == null) {
+					directory = Files.createTempDirectory(FILE_STORAGE_DIRECTORY_PREFIX);
+					this.defaultFileStorageDirectory = directory;
+				}
+			}
+		}
+		return directory;
+	}
+
+	private static boolean isFormField(HttpHeaders headers) {
+		MediaType contentType = headers.getContentType();
+		return ((contentType == null || MediaType.TEXT_PLAIN.equalsTypeAndSubtype(contentType)) &&
+				headers.getContentDisposition().getFilename() == null);
+	}
+
+
+	/**
+	 * Turns the tokens of a {@link MultipartParser} into parts. Tokens are passed
+	 * in sequentially (via {@code concatMap}), so no synchronization is needed,
+	 * even when content is written to disk on the blocking scheduler.
+	 */
+	private final class PartGenerator {
+
+		private int partCount;
+
+		@Nullable
+		private HttpHeaders headers;
+
+		@Nullable
+		private PartContent content;
+
+		public Mono<Part> onToken(MultipartParser.Token token) {
+			if (token instanceof MultipartParser.HeadersToken) {
+				if (maxParts > 0 && this.partCount >= maxParts) {
+					return Mono.error(new DecodingException("Too many parts (" + maxParts + " allowed)"));
+				}
+				Mono<Part> previous = completePart();
+				this.partCount++;
+				this.headers = token.headers();
+				this.content = new PartContent(this.headers.getContentDisposition().getFilename() != null);
+				return previous;
+			}
+			PartContent content = this.content;
+			if (content == null) {
+				DataBufferUtils.release(token.buffer());
+				return Mono.error(new IllegalStateException("Body token without preceding headers"));
+			}
+			return content.write(token.buffer(), this.partCount).then(Mono.empty());
+		}
+
+		public Mono<Part> onComplete() {
+			return completePart();
+		}
+
+		private Mono<Part> completePart() {
+			HttpHeaders headers = this.headers;
+			PartContent content = this.content;
+			this.headers = null;
+			this.content = null;
+			return (headers != null && content != null ? content.complete(headers) : Mono.empty());
+		}
+
+		public void dispose() {
+			if (this.content != null) {
+				this.content.dispose();
+				this.content = null;
+			}
+		}
+	}
+
+
+	/**
+	 * The content of the part that is currently being parsed: a list of buffer
+	 * slices at first, and a temporary file once a file part exceeds the
+	 * in-memory limit.
+	 */
+	private final class PartContent {
+
+		private final boolean filePart;
+
+		private final List<DataBuffer> buffers = new ArrayList<>();
+
+		private long size;
+
+		@Nullable
+		private Path file;
+
+		@Nullable
+		private FileChannel channel;
+
+		PartContent(boolean filePart) {
+			this.filePart = filePart;
+		}
+
+		public Mono<Void> write(DataBuffer buffer, int partIndex) {
+			this.size += buffer.readableByteCount();
+			if (!this.filePart) {
+				if (maxInMemorySize > 0 && this.size > maxInMemorySize) {
+					DataBufferUtils.release(buffer);
+					return Mono.error(new DataBufferLimitException("Part[" + partIndex + "] " +
+							"exceeded the in-memory limit of " + maxInMemorySize + " bytes"));
+				}
+				this.buffers.add(buffer);
+				return Mono.empty();
+			}
+			if (maxDiskUsagePerPart > 0 && this.size > maxDiskUsagePerPart) {
+				DataBufferUtils.release(buffer);
+				return Mono.error(new DecodingException("Part[" + partIndex + "] " +
+						"exceeded the disk usage limit of " + maxDiskUsagePerPart + " bytes"));
+			}
+			if (this.file == null && maxInMemorySize > 0 && this.size <= maxInMemorySize) {
+				this.buffers.add(buffer);
+				return Mono.empty();
+			}
+			List<DataBuffer> pending = new ArrayList<>(this.buffers);
+			pending.add(buffer);
+			this.buffers.clear();
+			return Mono.fromCallable(() -> writeToFile(pending))
+					.subscribeOn(blockingOperationScheduler)
+					.then();
+		}
+
+		@Nullable
+		private Void writeToFile(List<DataBuffer> pending) throws IOException {
+			try {
+				FileChannel channel = this.channel;
+				if (channel == null) {
+					Path file = Files.createTempFile(getFileStorageDirectory(), null, ".multipart");
+					this.file = file;
+					channel = FileChannel.open(file, StandardOpenOption.WRITE);
+					this.channel = channel;
+				}
+				for (DataBuffer buffer : pending) {
+					ByteBuffer byteBuffer = buffer.asByteBuffer();
+					while (byteBuffer.hasRemaining()) {
+						channel.write(byteBuffer);
+					}
+				}
+				return null;
+			}
+			finally {
+				pending.forEach(DataBufferUtils::release);
+			}
+		}
+
+		public Mono<Part> complete(HttpHeaders headers) {
+			String filename = headers.getContentDisposition().getFilename();
+			FileChannel channel = this.channel;
+			Path file = this.file;
+			if (channel != null && file != null) {
+				return Mono.fromCallable(() -> {
+					channel.close();
+					return createPart(headers, filename, new FileContent(file));
+				}).subscribeOn(blockingOperationScheduler);
+			}
+			if (!this.filePart && isFormField(headers)) {
+				return Mono.just(new DefaultFormFieldPart(headers, readValue(headers)));
+			}
+			return Mono.just(createPart(headers, filename, new MemoryContent(this.buffers)));
+		}
+
+		private Part createPart(HttpHeaders headers, @Nullable String filename, Content content) {
+			return (filename != null ? new ContentFilePart(headers, filename, content) :
+					new ContentPart(headers, content));
+		}
+
+		private String readValue(HttpHeaders headers) {
+			MediaType contentType = headers.getContentType();
+			Charset charset = (contentType != null && contentType.getCharset() != null ?
+					contentType.getCharset() : StandardCharsets.UTF_8);
+			byte[] bytes = new byte[(int) this.size];
+			int offset = 0;
+			for (DataBuffer buffer : this.buffers) {
+				int count = buffer.readableByteCount();
+				buffer.read(bytes, offset, count);
+				offset += count;
+				DataBufferUtils.release(buffer);
+			}
+			this.buffers.clear();
+			return new String(bytes, charset);
+		}
+
+		public void dispose() {
+			this.buffers.forEach(DataBufferUtils::release);
+			this.buffers.clear();
+			FileChannel channel = this.channel;
+			Path file = this.file;
+			if (channel != null && file != null) {
+				blockingOperationScheduler.schedule(() -> {
+					try {
+						channel.close();
+						Files.deleteIfExists(file);
+					}
+					catch (IOException ex) {
+						// ignore
+					}
+				});
+			}
+		}
+	}
+
+
+	/**
+	 * One-shot content of a parsed part.
+	 */
+	private abstract static class Content {
+
+		private final AtomicBoolean consumed = new AtomicBoolean();
+
+		public Flux<DataBuffer> content() {
+			return Flux.defer(() -> (this.consumed.compareAndSet(false, true) ? doGetContent() :
+					Flux.error(new IllegalStateException("Part content has already been consumed"))));
+		}
+
+		public Mono<Void> transferTo(Path dest) {
+			return Mono.defer(() -> (this.consumed.compareAndSet(false, true) ? doTransferTo(dest) :
+					Mono.error(new IllegalStateException("Part content has already been consumed"))));
+		}
+
+		public Mono<Void> delete() {
+			return Mono.defer(() -> {
+				this.consumed.set(true);
+				return doDelete();
+			});
+		}
+
+		protected abstract Flux<DataBuffer> doGetContent();
+
+		protected abstract Mono<Void> doTransferTo(Path dest);
+
+		protected abstract Mono<Void> doDelete();
+	}
+
+
+	private static final class MemoryContent extends Content {
+
+		private final Queue<DataBuffer> buffers;
+
+		MemoryContent(List<DataBuffer> buffers) {
+			this.buffers = new ConcurrentLinkedQueue<>(buffers);
+		}
+
+		@Override
+		protected Flux<DataBuffer> doGetContent() {
+			// Hand out one buffer per request, so that buffers not emitted before
+			// cancellation, or before the part is deleted, can still be released
+			return Flux.<DataBuffer>generate(sink -> {
+						DataBuffer buffer = this.buffers.poll();
+						if (buffer != null) {
+							sink.next(buffer);
+						}
+						else {
+							sink.complete();
+						}
+					})
+					.doFinally(signalType -> releaseBuffers());
+		}
+
+		@Override
+		protected Mono<Void> doTransferTo(Path dest) {
+			return DataBufferUtils.write(doGetContent(), dest);
+		}
+
+		@Override
+		protected Mono<Void> doDelete() {
+			return Mono.fromRunnable(this::releaseBuffers);
+		}
+
+		private void releaseBuffers() {
+			DataBuffer buffer;
+			while ((buffer = this.buffers.poll()) != null) {
+				DataBufferUtils.release(buffer);
+			}
+		}
+	}
+
+
+	private final class FileContent extends Content {
+
+		private final Path file;
+
+		FileContent(Path file) {
+			this.file = file;
+		}
+
+		@Override
+		protected Flux<DataBuffer> doGetContent() {
+			return DataBufferUtils.readByteChannel(() -> FileChannel.open(this.file, StandardOpenOption.READ),
+							bufferFactory, 4096)
+					.subscribeOn(blockingOperationScheduler)
+					.doFinally(signalType -> deleteFile());
+		}
+
+		@Override
+		protected Mono<Void> doTransferTo(Path dest) {
+			return Mono.fromCallable(() -> Files.move(this.file, dest, StandardCopyOption.REPLACE_EXISTING))
+					.subscribeOn(blockingOperationScheduler)
+					.then();
+		}
+
+		@Override
+		protected Mono<Void> doDelete() {
+			return Mono.fromCallable(() -> Files.deleteIfExists(this.file))
+					.subscribeOn(blockingOperationScheduler)
+					.then();
+		}
+
+		private void deleteFile() {
+			blockingOperationScheduler.schedule(() -> {
+				try {
+					Files.deleteIfExists(this.file);
+				}
+				catch (IOException ex) {
+					// ignore
+				}
+			});
+		}
+	}
+
+
+	private abstract static class AbstractPart implements Part {
+
+		private final String name;
+
+		private final HttpHeaders headers;
+
+		AbstractPart(HttpHeaders headers) {
+			String name = headers.getContentDisposition().getName();
+			this.name = (name != null ? name : "");
+			this.headers = headers;
+		}
+
+		@Override
+		public String name() {
+			return this.name;
+		}
+
+		@Override
+		public HttpHeaders headers() {
+			return this.headers;
+		}
+
+		@Override
+		public String toString() {
+			return "Part '" + this.name + "', headers=" + this.headers;
+		}
+	}
+
+
+	private static class ContentPart extends AbstractPart {
+
+		private final Content content;
+
+		ContentPart(HttpHeaders headers, Content content) {
+			super(headers);
+			this.content = content;
+		}
+
+		@Override
+		public Flux<DataBuffer> content() {
+			return this.content.content();
+		}
+
+		@Override
+		public Mono<Void> delete() {
+			return this.content.delete();
+		}
+
+		protected Content getContent() {
+			return this.content;
+		}
+	}
+
+
+	private static class ContentFilePart extends ContentPart implements FilePart {
+
+		private final String filename;
+
+		ContentFilePart(HttpHeaders headers, String filename, Content content) {
+			super(headers, content);
+			this.filename = filename;
+		}
+
+		@Override
+		public String filename() {
+			return this.filename;
+		}
+
+		@Override
+		public Mono<Void> transferTo(Path dest) {
+			return getContent().transferTo(dest);
+		}
+
+		@Override
+		public String toString() {
+			return "Part '" + name() + "', filename='" + this.filename + "'";
+		}
+	}
+
+
+	private static class DefaultFormFieldPart extends AbstractPart implements FormFieldPart {
+
+		private final String value;
+
+		DefaultFormFieldPart(HttpHeaders headers, String value) {
+			super(headers);
+			this.value = value;
+		}
+
+		@Override
+		public String value() {
+			return this.value;
+		}
+
+		@Override
+		public Flux<DataBuffer> content() {
+			MediaType contentType = headers().getContentType();
+			Charset charset = (contentType != null && contentType.getCharset() != null ?
+					contentType.getCharset() : StandardCharsets.UTF_8);
+			return Flux.just(bufferFactory.wrap(this.value.getBytes(charset)));
+		}
+
+		@Override
+		public String toString() {
+			return "Part '" + name() + "=" + this.value + "'";
+		}
+	}
+
+}
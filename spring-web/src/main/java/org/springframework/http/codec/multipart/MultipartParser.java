@@ -0,0 +1,456 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.SignalType;
+
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+
+/**
+ * Subscribes to a buffer stream and splits it into a stream of
+ * {@linkplain Token tokens}: a {@link HeadersToken} at the start of each part,
+ * followed by {@link BodyToken BodyTokens} for the content of that part.
+ *
+ * <p>Boundaries are located with a {@link DataBufferUtils.Matcher} that keeps its
+ * state across buffers, and part content is emitted as slices of the incoming
+ * buffers, so body bytes are never copied by the parser itself. Only the header
+ * block of each part is accumulated, bounded by the configured maximum size.
+ *
+ * @since 5.2.13
+ * @see DefaultPartHttpMessageReader
+ */
+final class MultipartParser extends BaseSubscriber<DataBuffer> implements Consumer<FluxSink<MultipartParser.Token>> {
+
+	private static final byte HYPHEN = '-';
+
+	private static final byte CR = '\r';
+
+	private static final byte LF = '\n';
+
+	private static final byte[] CR_LF = {CR, LF};
+
+	private static final byte[] TWO_HYPHENS = {HYPHEN, HYPHEN};
+
+	private static final byte[] DOUBLE_CR_LF = {CR, LF, CR, LF};
+
+
+	private final Publisher<DataBuffer> source;
+
+	private final int maxHeadersSize;
+
+	private final Charset headersCharset;
+
+	private final DataBufferUtils.Matcher preambleMatcher;
+
+	private final DataBufferUtils.Matcher headersMatcher = DataBufferUtils.matcher(DOUBLE_CR_LF);
+
+	private final DataBufferUtils.Matcher bodyMatcher;
+
+	private final int bodyDelimiterLength;
+
+	private final ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+
+	/** Body buffers that may still contain the start of the next delimiter. */
+	private final Deque<DataBuffer> bodyQueue = new ArrayDeque<>();
+
+	private int bodyQueueSize;
+
+	private State state = State.PREAMBLE;
+
+	@Nullable
+	private FluxSink<Token> sink;
+
+
+	private MultipartParser(Publisher<DataBuffer> source, byte[] boundary, int maxHeadersSize, Charset headersCharset) {
+		this.source = source;
+		this.maxHeadersSize = maxHeadersSize;
+		this.headersCharset = headersCharset;
+		this.preambleMatcher = DataBufferUtils.matcher(concat(TWO_HYPHENS, boundary));
+		byte[] bodyDelimiter = concat(CR_LF, TWO_HYPHENS, boundary);
+		this.bodyMatcher = DataBufferUtils.matcher(bodyDelimiter);
+		this.bodyDelimiterLength = bodyDelimiter.length;
+	}
+
+
+	/**
+	 * Parse the given stream of buffers into a stream of tokens.
+	 * @param buffers the input buffers
+	 * @param boundary the multipart boundary, as found in the content type
+	 * @param maxHeadersSize the maximum size of the header block of a part
+	 * @param headersCharset the charset to use for decoding headers
+	 * @return a stream of parsed tokens
+	 */
+	public static Flux<Token> parse(
+			Publisher<DataBuffer> buffers, byte[] boundary, int maxHeadersSize, Charset headersCharset) {
+
+		return Flux.create(new MultipartParser(buffers, boundary, maxHeadersSize, headersCharset));
+	}
+
+
+	@Override
+	public void accept(FluxSink<Token> sink) {
+		this.sink = sink;
+		// Subscribe first: requests are only passed on once we have a subscription
+		this.source.subscribe(this);
+		sink.onRequest(this::request);
+		sink.onCancel(this::cancel);
+	}
+
+	@Override
+	protected void hookOnSubscribe(Subscription subscription) {
+		// Requests are driven by the demand of the token sink
+	}
+
+	@Override
+	protected void hookOnNext(DataBuffer buffer) {
+		try {
+			switch (this.state) {
+				case PREAMBLE:
+					onPreamble(buffer);
+					break;
+				case HEADERS:
+					onHeaders(buffer);
+					break;
+				case BODY:
+					onBody(buffer);
+					break;
+				default:
+					// Epilogue: ignore anything after the closing delimiter
+					DataBufferUtils.release(buffer);
+			}
+		}
+		catch (Throwable ex) {
+			cancel();
+			onFailure(ex);
+		}
+	}
+
+	@Override
+	protected void hookOnError(Throwable ex) {
+		onFailure(ex);
+	}
+
+	@Override
+	protected void hookOnComplete() {
+		if (this.state == State.DONE) {
+			obtainSink().complete();
+		}
+		else if (this.state == State.PREAMBLE) {
+			onFailure(new DecodingException("Could not find first boundary"));
+		}
+		else {
+			onFailure(new DecodingException("Could not find end of body"));
+		}
+	}
+
+	@Override
+	protected void hookFinally(SignalType type) {
+		releaseBodyQueue();
+	}
+
+	private void onFailure(Throwable ex) {
+		this.state = State.DONE;
+		releaseBodyQueue();
+		obtainSink().error(ex instanceof DecodingException || ex instanceof DataBufferLimitException ? ex :
+				new DecodingException("Failed to parse multipart data", ex));
+	}
+
+	private FluxSink<Token> obtainSink() {
+		FluxSink<Token> sink = this.sink;
+		if (sink == null) {
+			throw new IllegalStateException("Not subscribed to token sink");
+		}
+		return sink;
+	}
+
+
+	/**
+	 * Skip everything up to (and including) the first boundary.
+	 */
+	private void onPreamble(DataBuffer buffer) {
+		int endIdx = this.preambleMatcher.match(buffer);
+		if (endIdx == -1) {
+			DataBufferUtils.release(buffer);
+			requestMore();
+			return;
+		}
+		DataBuffer remainder = sliceFrom(buffer, endIdx + 1);
+		DataBufferUtils.release(buffer);
+		startHeaders();
+		onHeaders(remainder);
+	}
+
+	/**
+	 * Accumulate the remainder of the boundary line together with the header
+	 * block of the current part, until the empty line that separates the
+	 * headers from the body.
+	 */
+	private void onHeaders(DataBuffer buffer) {
+		if (isClosingDelimiter(buffer)) {
+			DataBufferUtils.release(buffer);
+			this.state = State.DONE;
+			// Drain the epilogue, if any
+			request(Long.MAX_VALUE);
+			return;
+		}
+		int endIdx = this.headersMatcher.match(buffer);
+		int end = (endIdx != -1 ? endIdx + 1 : buffer.writePosition());
+		int length = end - buffer.readPosition();
+		if (this.headerBytes.size() + length > this.maxHeadersSize) {
+			DataBufferUtils.release(buffer);
+			throw new DataBufferLimitException("Part headers exceeded the limit of " +
+					this.maxHeadersSize + " bytes");
+		}
+		byte[] bytes = new byte[length];
+		buffer.read(bytes);
+		this.headerBytes.write(bytes, 0, length);
+
+		if (endIdx != -1) {
+			HttpHeaders headers = parseHeaders();
+			DataBuffer remainder = sliceFrom(buffer, end);
+			DataBufferUtils.release(buffer);
+			this.state = State.BODY;
+			this.bodyMatcher.reset();
+			obtainSink().next(new HeadersToken(headers));
+			onBody(remainder);
+		}
+		else {
+			DataBufferUtils.release(buffer);
+			requestMore();
+		}
+	}
+
+	/**
+	 * Emit body content until the next delimiter, holding back just enough
+	 * bytes to be able to strip a delimiter that spans multiple buffers.
+	 */
+	private void onBody(DataBuffer buffer) {
+		int endIdx = this.bodyMatcher.match(buffer);
+		if (endIdx == -1) {
+			if (buffer.readableByteCount() > 0) {
+				this.bodyQueue.add(buffer);
+				this.bodyQueueSize += buffer.readableByteCount();
+			}
+			else {
+				DataBufferUtils.release(buffer);
+			}
+			boolean emitted = false;
+			while (!this.bodyQueue.isEmpty() &&
+					this.bodyQueueSize - this.bodyQueue.peek().readableByteCount() >= this.bodyDelimiterLength) {
+				DataBuffer head = this.bodyQueue.poll();
+				this.bodyQueueSize -= head.readableByteCount();
+				emitBody(head);
+				emitted = true;
+			}
+			if (!emitted) {
+				requestMore();
+			}
+			return;
+		}
+
+		// Number of delimiter bytes that were part of previously queued buffers
+		int delimiterStart = endIdx + 1 - this.bodyDelimiterLength;
+		int overlap = Math.max(0, buffer.readPosition() - delimiterStart);
+		int bodyLength = this.bodyQueueSize - overlap;
+		DataBuffer previous;
+		while ((previous = this.bodyQueue.poll()) != null) {
+			int count = previous.readableByteCount();
+			if (bodyLength >= count) {
+				emitBody(previous);
+			}
+			else {
+				if (bodyLength > 0) {
+					emitBody(previous.retainedSlice(previous.readPosition(), bodyLength));
+				}
+				DataBufferUtils.release(previous);
+			}
+			bodyLength = Math.max(0, bodyLength - count);
+		}
+		this.bodyQueueSize = 0;
+		if (delimiterStart > buffer.readPosition()) {
+			emitBody(buffer.retainedSlice(buffer.readPosition(), delimiterStart - buffer.readPosition()));
+		}
+		DataBuffer remainder = sliceFrom(buffer, endIdx + 1);
+		DataBufferUtils.release(buffer);
+		startHeaders();
+		onHeaders(remainder);
+	}
+
+	private void emitBody(DataBuffer buffer) {
+		obtainSink().next(new BodyToken(buffer));
+	}
+
+	private void requestMore() {
+		if (!isDisposed() && obtainSink().requestedFromDownstream() > 0) {
+			request(1);
+		}
+	}
+
+	private void startHeaders() {
+		this.state = State.HEADERS;
+		this.headersMatcher.reset();
+		this.headerBytes.reset();
+	}
+
+	/**
+	 * Check whether the boundary line that precedes the header block ends with
+	 * two hyphens, i.e. whether the last delimiter was the closing delimiter.
+	 */
+	private boolean isClosingDelimiter(DataBuffer buffer) {
+		int accumulated = this.headerBytes.size();
+		if (accumulated >= 2) {
+			// Already checked when the first two bytes came in
+			return false;
+		}
+		byte[] prefix = Arrays.copyOf(this.headerBytes.toByteArray(), 2);
+		int pos = buffer.readPosition();
+		for (int i = accumulated; i < 2; i++) {
+			if (pos >= buffer.writePosition()) {
+				return false;
+			}
+			prefix[i] = buffer.getByte(pos++);
+		}
+		return (prefix[0] == HYPHEN && prefix[1] == HYPHEN);
+	}
+
+	/**
+	 * Parse the accumulated header block. The first line holds the remainder of
+	 * the boundary line (typically empty) and is skipped.
+	 */
+	private HttpHeaders parseHeaders() {
+		byte[] bytes = this.headerBytes.toByteArray();
+		String block = new String(bytes, 0, bytes.length - DOUBLE_CR_LF.length, this.headersCharset);
+		String[] lines = StringUtils.delimitedListToStringArray(block, "\r\n");
+		HttpHeaders headers = new HttpHeaders();
+		for (int i = 1; i < lines.length; i++) {
+			int idx = lines[i].indexOf(':');
+			if (idx > 0) {
+				headers.add(lines[i].substring(0, idx).trim(), lines[i].substring(idx + 1).trim());
+			}
+		}
+		return headers;
+	}
+
+	private void releaseBodyQueue() {
+		DataBuffer buffer;
+		while ((buffer = this.bodyQueue.poll()) != null) {
+			DataBufferUtils.release(buffer);
+		}
+		this.bodyQueueSize = 0;
+	}
+
+	private static DataBuffer sliceFrom(DataBuffer buffer, int index) {
+		return buffer.retainedSlice(index, buffer.writePosition() - index);
+	}
+
+	private static byte[] concat(byte[]... byteArrays) {
+		int length = 0;
+		for (byte[] byteArray : byteArrays) {
+			length += byteArray.length;
+		}
+		byte[] result = new byte[length];
+		int offset = 0;
+		for (byte[] byteArray : byteArrays) {
+			System.arraycopy(byteArray, 0, result, offset, byteArray.length);
+			offset += byteArray.length;
+		}
+		return result;
+	}
+
+
+	private enum State {
+
+		PREAMBLE, HEADERS, BODY, DONE
+	}
+
+
+	/**
+	 * Output of the parser: either the headers of a new part, or a buffer with
+	 * content of the current part.
+	 */
+	public abstract static class Token {
+
+		public abstract HttpHeaders headers();
+
+		public abstract DataBuffer buffer();
+	}
+
+
+	/**
+	 * Token that marks the start of a new part.
+	 */
+	public static final class HeadersToken extends Token {
+
+		private final HttpHeaders headers;
+
+		HeadersToken(HttpHeaders headers) {
+			this.headers = headers;
+		}
+
+		@Override
+		public HttpHeaders headers() {
+			return this.headers;
+		}
+
+		@Override
+		public DataBuffer buffer() {
+			throw new IllegalStateException("Headers token has no buffer");
+		}
+	}
+
+
+	/**
+	 * Token with (a slice of) the content of the current part.
+	 */
+	public static final class BodyToken extends Token {
+
+		private final DataBuffer buffer;
+
+		BodyToken(DataBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public HttpHeaders headers() {
+			throw new IllegalStateException("Body token has no headers");
+		}
+
+		@Override
+		public DataBuffer buffer() {
+			return this.buffer;
+		}
+	}
+
+}
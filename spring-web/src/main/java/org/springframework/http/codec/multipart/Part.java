@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.http.codec.multipart;
 
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
@@ -57,4 +58,18 @@ public interface Part {
 	 */
 	Flux<DataBuffer> content();
 
+	/**
+	 * Return a mono that, when subscribed to, releases the underlying storage
+	 * for this part, such as buffers held in memory or a temporary file.
+	 * <p>This is invoked for the parts of the
+	 * {@link org.springframework.web.server.ServerWebExchange#getMultipartData()
+	 * multipart data} when the exchange completes. Parts read in any other way
+	 * should be deleted by the application if their content is not consumed.
+	 * <p>The default implementation returns an empty mono.
+	 * @since 5.2.13
+	 */
+	default Mono<Void> delete() {
+		return Mono.empty();
+	}
+
 }
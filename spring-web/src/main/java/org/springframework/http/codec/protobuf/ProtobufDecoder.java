@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,7 @@ import java.util.function.Function;
 import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.ExtensionRegistry;
 import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -35,6 +36,7 @@ import reactor.core.publisher.Mono;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.codec.Decoder;
 import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.CompositeDataBuffer;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferLimitException;
 import org.springframework.core.io.buffer.DataBufferUtils;
@@ -76,7 +78,8 @@ public class ProtobufDecoder extends ProtobufCodecSupport implements Decoder<Mes
 	/** The default max size for aggregating messages. */
 	protected static final int DEFAULT_MESSAGE_MAX_SIZE = 256 * 1024;
 
-	private static final ConcurrentMap<Class<?>, Method> methodCache = new ConcurrentReferenceHashMap<>();
+	private static final ConcurrentMap<Class<?>, Parser<? extends Message>> parserCache =
+			new ConcurrentReferenceHashMap<>();
 
 
 	private final ExtensionRegistry extensionRegistry;
@@ -134,14 +137,14 @@ public class ProtobufDecoder extends ProtobufCodecSupport implements Decoder<Mes
 
 		return Flux.from(inputStream)
 				.flatMapIterable(decoderFunction)
-				.doOnTerminate(decoderFunction::discard);
+				.doFinally(signalType -> decoderFunction.discard());
 	}
 
 	@Override
 	public Mono<Message> decodeToMono(Publisher<DataBuffer> inputStream, ResolvableType elementType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
-		return DataBufferUtils.join(inputStream, this.maxMessageSize)
+		return DataBufferUtils.compose(inputStream, this.maxMessageSize)
 				.map(dataBuffer -> decode(dataBuffer, elementType, mimeType, hints));
 	}
 
@@ -150,10 +153,7 @@ public class ProtobufDecoder extends ProtobufCodecSupport implements Decoder<Mes
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) throws DecodingException {
 
 		try {
-			Message.Builder builder = getMessageBuilder(targetType.toClass());
-			ByteBuffer buffer = dataBuffer.asByteBuffer();
-			builder.mergeFrom(CodedInputStream.newInstance(buffer), this.extensionRegistry);
-			return builder.build();
+			return readMessage(dataBuffer, getParser(targetType.toClass()));
 		}
 		catch (IOException ex) {
 			throw new DecodingException("I/O error while parsing input stream", ex);
@@ -168,16 +168,30 @@ public class ProtobufDecoder extends ProtobufCodecSupport implements Decoder<Mes
 
 
 	/**
-	 * Create a new {@code Message.Builder} instance for the given class.
-	 * <p>This method uses a ConcurrentHashMap for caching method lookups.
+	 * Parse a message from the readable bytes of the given buffer, directly
+	 * from its memory rather than from a copy.
 	 */
-	private static Message.Builder getMessageBuilder(Class<?> clazz) throws Exception {
-		Method method = methodCache.get(clazz);
-		if (method == null) {
-			method = clazz.getMethod("newBuilder");
-			methodCache.put(clazz, method);
+	private Message readMessage(DataBuffer dataBuffer, Parser<? extends Message> parser) throws IOException {
+		// Read composed buffers as a stream, rather than copying them into one ByteBuffer
+		CodedInputStream input = (dataBuffer instanceof CompositeDataBuffer ?
+				CodedInputStream.newInstance(dataBuffer.asInputStream()) :
+				CodedInputStream.newInstance(dataBuffer.asByteBuffer()));
+		return parser.parseFrom(input, this.extensionRegistry);
+	}
+
+	/**
+	 * Return the {@code Parser} for the given message class.
+	 * <p>This method uses a ConcurrentHashMap for caching parser lookups,
+	 * so that reflection is only involved once per message class.
+	 */
+	private static Parser<? extends Message> getParser(Class<?> clazz) throws Exception {
+		Parser<? extends Message> parser = parserCache.get(clazz);
+		if (parser == null) {
+			Method method = clazz.getMethod("getDefaultInstance");
+			parser = ((Message) method.invoke(clazz)).getParserForType();
+			parserCache.put(clazz, parser);
 		}
-		return (Message.Builder) method.invoke(clazz);
+		return parser;
 	}
 
 	@Override
@@ -193,7 +207,14 @@ public class ProtobufDecoder extends ProtobufCodecSupport implements Decoder<Mes
 		private final int maxMessageSize;
 
 		@Nullable
-		private DataBuffer output;
+		private Parser<? extends Message> parser;
+
+		/**
+		 * Retained slices of the current message when it spans several input
+		 * buffers, or {@code null} while reading the size of the next message.
+		 */
+		@Nullable
+		private List<DataBuffer> messageBuffers;
 
 		private int messageBytesToRead;
 
@@ -210,11 +231,8 @@ public class ProtobufDecoder extends ProtobufCodecSupport implements Decoder<Mes
 		public Iterable<? extends Message> apply(DataBuffer input) {
 			try {
 				List<Message> messages = new ArrayList<>();
-				int remainingBytesToRead;
-				int chunkBytesToRead;
-
 				do {
-					if (this.output == null) {
+					if (this.messageBuffers == null) {
 						if (!readMessageSize(input)) {
 							return messages;
 						}
@@ -224,27 +242,36 @@ public class ProtobufDecoder extends ProtobufCodecSupport implements Decoder<Mes
 											"(" + this.messageBytesToRead + ") exceeds " +
 											"the configured limit (" + this.maxMessageSize + ")");
 						}
-						this.output = input.factory().allocateBuffer(this.messageBytesToRead);
+						if (input.readableByteCount() >= this.messageBytesToRead) {
+							// Whole message available: parse it in place
+							int readPosition = input.readPosition();
+							ByteBuffer byteBuffer = input.asByteBuffer(readPosition, this.messageBytesToRead);
+							input.readPosition(readPosition + this.messageBytesToRead);
+							messages.add(getParser().parseFrom(
+									CodedInputStream.newInstance(byteBuffer), extensionRegistry));
+							continue;
+						}
+						this.messageBuffers = new ArrayList<>();
 					}
 
-					chunkBytesToRead = Math.min(this.messageBytesToRead, input.readableByteCount());
-					remainingBytesToRead = input.readableByteCount() - chunkBytesToRead;
-
-					byte[] bytesToWrite = new byte[chunkBytesToRead];
-					input.read(bytesToWrite, 0, chunkBytesToRead);
-					this.output.write(bytesToWrite);
-					this.messageBytesToRead -= chunkBytesToRead;
+					int chunkBytesToRead = Math.min(this.messageBytesToRead, input.readableByteCount());
+					if (chunkBytesToRead > 0) {
+						this.messageBuffers.add(input.retainedSlice(input.readPosition(), chunkBytesToRead));
+						input.readPosition(input.readPosition() + chunkBytesToRead);
+						this.messageBytesToRead -= chunkBytesToRead;
+					}
 
 					if (this.messageBytesToRead == 0) {
-						CodedInputStream stream = CodedInputStream.newInstance(this.output.asByteBuffer());
-						DataBufferUtils.release(this.output);
-						this.output = null;
-						Message message = getMessageBuilder(this.elementType.toClass())
-								.mergeFrom(stream, extensionRegistry)
-								.build();
-						messages.add(message);
+						DataBuffer message = DataBufferUtils.compose(this.messageBuffers);
+						this.messageBuffers = null;
+						try {
+							messages.add(readMessage(message, getParser()));
+						}
+						finally {
+							DataBufferUtils.release(message);
+						}
 					}
-				} while (remainingBytesToRead > 0);
+				} while (input.readableByteCount() > 0);
 				return messages;
 			}
 			catch (DecodingException ex) {
@@ -261,6 +288,13 @@ public class ProtobufDecoder extends ProtobufCodecSupport implements Decoder<Mes
 			}
 		}
 
+		private Parser<? extends Message> getParser() throws Exception {
+			if (this.parser == null) {
+				this.parser = ProtobufDecoder.getParser(this.elementType.toClass());
+			}
+			return this.parser;
+		}
+
 		/**
 		 * Parse message size as a varint from the input stream, updating {@code messageBytesToRead} and
 		 * {@code offset} fields if needed to allow processing of upcoming chunks.
@@ -313,8 +347,9 @@ public class ProtobufDecoder extends ProtobufCodecSupport implements Decoder<Mes
 		}
 
 		public void discard() {
-			if (this.output != null) {
-				DataBufferUtils.release(this.output);
+			if (this.messageBuffers != null) {
+				this.messageBuffers.forEach(DataBufferUtils::release);
+				this.messageBuffers = null;
 			}
 		}
 	}
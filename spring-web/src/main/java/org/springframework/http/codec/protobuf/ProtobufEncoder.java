@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.Message;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
@@ -45,6 +46,9 @@ import org.springframework.util.MimeType;
  * with the size of each message specified before the message itself. Single values are
  * serialized using regular Protobuf message format (without the size prepended before the message).
  *
+ * <p>Each message is written directly into a data buffer allocated with the exact serialized
+ * size, which avoids intermediate copies and lets pooled buffer factories recycle the memory.
+ *
  * <p>To generate {@code Message} Java classes, you need to install the {@code protoc} binary.
  *
  * <p>This encoder requires Protobuf 3 or higher, and supports
@@ -86,15 +90,20 @@ public class ProtobufEncoder extends ProtobufCodecSupport implements HttpMessage
 
 	private DataBuffer encodeValue(Message message, DataBufferFactory bufferFactory, boolean delimited) {
 
-		DataBuffer buffer = bufferFactory.allocateBuffer();
+		int messageSize = message.getSerializedSize();
+		int length = (delimited ? CodedOutputStream.computeUInt32SizeNoTag(messageSize) + messageSize : messageSize);
+		DataBuffer buffer = bufferFactory.allocateBuffer(length);
 		boolean release = true;
 		try {
+			int writePosition = buffer.writePosition();
+			CodedOutputStream output = CodedOutputStream.newInstance(buffer.asByteBuffer(writePosition, length));
 			if (delimited) {
-				message.writeDelimitedTo(buffer.asOutputStream());
-			}
-			else {
-				message.writeTo(buffer.asOutputStream());
+				output.writeUInt32NoTag(messageSize);
 			}
+			message.writeTo(output);
+			output.flush();
+			output.checkNoSpaceLeft();
+			buffer.writePosition(writePosition + length);
 			release = false;
 			return buffer;
 		}
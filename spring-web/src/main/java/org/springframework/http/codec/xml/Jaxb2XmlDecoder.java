@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,16 @@
 
 package org.springframework.http.codec.xml;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
@@ -34,9 +42,15 @@ import javax.xml.bind.annotation.XmlType;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.XMLEvent;
 
+import com.fasterxml.aalto.AsyncByteBufferFeeder;
+import com.fasterxml.aalto.AsyncXMLInputFactory;
+import com.fasterxml.aalto.AsyncXMLStreamReader;
+import com.fasterxml.aalto.stax.InputFactoryImpl;
 import org.reactivestreams.Publisher;
 import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
@@ -157,42 +171,44 @@ public class Jaxb2XmlDecoder extends AbstractDecoder<Object> {
 	public Flux<Object> decode(Publisher<DataBuffer> inputStream, ResolvableType elementType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
-		Flux<XMLEvent> xmlEventFlux = this.xmlEventDecoder.decode(
-				inputStream, ResolvableType.forClass(XMLEvent.class), mimeType, hints);
-
 		Class<?> outputClass = elementType.toClass();
 		QName typeName = toQName(outputClass);
+
+		if (this.xmlEventDecoder.useAalto) {
+			AaltoElementSplitter splitter = new AaltoElementSplitter(typeName,
+					streamReader -> unmarshal(streamReader, outputClass), this.maxInMemorySize);
+			return Flux.from(inputStream)
+					.concatMapIterable(splitter)
+					.doOnNext(value -> logValue(value, hints))
+					.doFinally(signalType -> splitter.release());
+		}
+
+		Flux<XMLEvent> xmlEventFlux = this.xmlEventDecoder.decode(
+				inputStream, ResolvableType.forClass(XMLEvent.class), mimeType, hints);
 		Flux<List<XMLEvent>> splitEvents = split(xmlEventFlux, typeName);
 
 		return splitEvents.map(events -> {
 			Object value = unmarshal(events, outputClass);
-			LogFormatUtils.traceDebug(logger, traceOn -> {
-				String formatted = LogFormatUtils.formatValue(value, !traceOn);
-				return Hints.getLogPrefix(hints) + "Decoded [" + formatted + "]";
-			});
+			logValue(value, hints);
 			return value;
 		});
 	}
 
 	@Override
-	@SuppressWarnings({"rawtypes", "unchecked", "cast"})  // XMLEventReader is Iterator<Object> on JDK 9
 	public Mono<Object> decodeToMono(Publisher<DataBuffer> input, ResolvableType elementType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
-		return DataBufferUtils.join(input, this.maxInMemorySize)
+		return DataBufferUtils.compose(input, this.maxInMemorySize)
 				.map(dataBuffer -> decode(dataBuffer, elementType, mimeType, hints));
 	}
 
 	@Override
-	@SuppressWarnings({"rawtypes", "unchecked", "cast"})  // XMLEventReader is Iterator<Object> on JDK 9
 	public Object decode(DataBuffer dataBuffer, ResolvableType targetType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) throws DecodingException {
 
 		try {
-			Iterator eventReader = inputFactory.createXMLEventReader(dataBuffer.asInputStream());
-			List<XMLEvent> events = new ArrayList<>();
-			eventReader.forEachRemaining(event -> events.add((XMLEvent) event));
-			return unmarshal(events, targetType.toClass());
+			XMLStreamReader streamReader = inputFactory.createXMLStreamReader(dataBuffer.asInputStream());
+			return unmarshal(streamReader, targetType.toClass());
 		}
 		catch (XMLStreamException ex) {
 			throw Exceptions.propagate(ex);
@@ -226,11 +242,41 @@ public class Jaxb2XmlDecoder extends AbstractDecoder<Object> {
 		}
 	}
 
+	private Object unmarshal(XMLStreamReader streamReader, Class<?> outputClass) {
+		try {
+			Unmarshaller unmarshaller = initUnmarshaller(outputClass);
+			if (outputClass.isAnnotationPresent(XmlRootElement.class)) {
+				return unmarshaller.unmarshal(streamReader);
+			}
+			else {
+				JAXBElement<?> jaxbElement = unmarshaller.unmarshal(streamReader, outputClass);
+				return jaxbElement.getValue();
+			}
+		}
+		catch (UnmarshalException ex) {
+			if (ex.getLinkedException() instanceof XMLStreamException) {
+				// Not well-formed: report as a parse error, like for event-based parsing
+				throw Exceptions.propagate(ex.getLinkedException());
+			}
+			throw new DecodingException("Could not unmarshal XML to " + outputClass, ex);
+		}
+		catch (JAXBException ex) {
+			throw new CodecException("Invalid JAXB configuration", ex);
+		}
+	}
+
 	private Unmarshaller initUnmarshaller(Class<?> outputClass) throws CodecException, JAXBException {
 		Unmarshaller unmarshaller = this.jaxbContexts.createUnmarshaller(outputClass);
 		return this.unmarshallerProcessor.apply(unmarshaller);
 	}
 
+	private void logValue(Object value, @Nullable Map<String, Object> hints) {
+		LogFormatUtils.traceDebug(logger, traceOn -> {
+			String formatted = LogFormatUtils.formatValue(value, !traceOn);
+			return Hints.getLogPrefix(hints) + "Decoded [" + formatted + "]";
+		});
+	}
+
 	/**
 	 * Returns the qualified name for the given class, according to the mapping rules
 	 * in the JAXB specification.
@@ -340,4 +386,229 @@ public class Jaxb2XmlDecoder extends AbstractDecoder<Object> {
 		}
 	}
 
+
+	/*
+	 * Separate static class to isolate Aalto dependency.
+	 */
+	private static class AaltoElementSplitter implements Function<DataBuffer, List<Object>> {
+
+		private static final AsyncXMLInputFactory asyncInputFactory =
+				StaxUtils.createDefensiveInputFactory(InputFactoryImpl::new);
+
+		private static final String WRAPPER_ELEMENT = "wrapper";
+
+		private final AsyncXMLStreamReader<AsyncByteBufferFeeder> streamReader =
+				asyncInputFactory.createAsyncForByteBuffer();
+
+		private final QName desiredName;
+
+		private final Function<XMLStreamReader, Object> unmarshaller;
+
+		private final int maxInMemorySize;
+
+		private final Deque<DataBuffer> buffers = new ArrayDeque<>();
+
+		// Absolute offset of the first buffer, and number of bytes in all buffers
+		private long bufferOffset;
+
+		private long bufferedByteCount;
+
+		// Alternating prefixes and URIs of the namespaces in scope
+		private final List<String> namespaces = new ArrayList<>();
+
+		private int[] namespaceCounts = new int[16];
+
+		private int elementDepth;
+
+		private long lastEventStart;
+
+		private long elementStart = -1;
+
+		private int barrier = Integer.MAX_VALUE;
+
+		@Nullable
+		private Map<String, String> elementNamespaces;
+
+		public AaltoElementSplitter(QName desiredName, Function<XMLStreamReader, Object> unmarshaller,
+				int maxInMemorySize) {
+
+			this.desiredName = desiredName;
+			this.unmarshaller = unmarshaller;
+			this.maxInMemorySize = maxInMemorySize;
+		}
+
+		@Override
+		public List<Object> apply(DataBuffer dataBuffer) {
+			this.buffers.add(dataBuffer);
+			this.bufferedByteCount += dataBuffer.readableByteCount();
+			List<Object> result = new ArrayList<>(1);
+			try {
+				this.streamReader.getInputFeeder().feedInput(dataBuffer.asByteBuffer());
+				while (true) {
+					int event = this.streamReader.next();
+					if (event == AsyncXMLStreamReader.EVENT_INCOMPLETE ||
+							event == XMLStreamConstants.END_DOCUMENT) {
+						break;
+					}
+					this.lastEventStart = this.streamReader.getLocationInfo().getStartingByteOffset();
+					if (event == XMLStreamConstants.START_ELEMENT) {
+						startElement();
+					}
+					else if (event == XMLStreamConstants.END_ELEMENT && endElement()) {
+						result.add(unmarshalElement());
+					}
+				}
+				// Only keep the bytes that may still be part of a desired element
+				releaseBuffers(this.elementStart != -1 ? this.elementStart : this.lastEventStart);
+				if (this.maxInMemorySize >= 0 && this.bufferedByteCount > this.maxInMemorySize) {
+					throw new DataBufferLimitException(
+							"Exceeded limit on max bytes per XML top-level node: " + this.maxInMemorySize);
+				}
+				return result;
+			}
+			catch (XMLStreamException ex) {
+				throw Exceptions.propagate(ex);
+			}
+		}
+
+		private void startElement() {
+			int depth = this.elementDepth++;
+			if (depth == this.namespaceCounts.length) {
+				this.namespaceCounts = Arrays.copyOf(this.namespaceCounts, depth * 2);
+			}
+			this.namespaceCounts[depth] = this.namespaces.size();
+			if (this.barrier == Integer.MAX_VALUE && isDesiredElement()) {
+				this.barrier = depth;
+				this.elementStart = this.lastEventStart;
+				this.elementNamespaces = getNamespacesInScope();
+			}
+			for (int i = 0; i < this.streamReader.getNamespaceCount(); i++) {
+				String prefix = this.streamReader.getNamespacePrefix(i);
+				String namespaceUri = this.streamReader.getNamespaceURI(i);
+				this.namespaces.add(prefix != null ? prefix : XMLConstants.DEFAULT_NS_PREFIX);
+				this.namespaces.add(namespaceUri != null ? namespaceUri : XMLConstants.NULL_NS_URI);
+			}
+		}
+
+		private boolean isDesiredElement() {
+			String namespaceUri = this.streamReader.getNamespaceURI();
+			return (this.desiredName.getLocalPart().equals(this.streamReader.getLocalName()) &&
+					this.desiredName.getNamespaceURI().equals(namespaceUri != null ? namespaceUri : XMLConstants.NULL_NS_URI));
+		}
+
+		@Nullable
+		private Map<String, String> getNamespacesInScope() {
+			if (this.namespaces.isEmpty()) {
+				return null;
+			}
+			Map<String, String> result = new LinkedHashMap<>();
+			for (int i = 0; i < this.namespaces.size(); i += 2) {
+				result.put(this.namespaces.get(i), this.namespaces.get(i + 1));
+			}
+			return result;
+		}
+
+		/**
+		 * Process the end of an element, returning whether it ends a desired element.
+		 */
+		private boolean endElement() {
+			int depth = --this.elementDepth;
+			int count = this.namespaceCounts[depth];
+			while (this.namespaces.size() > count) {
+				this.namespaces.remove(this.namespaces.size() - 1);
+			}
+			if (depth == this.barrier) {
+				this.barrier = Integer.MAX_VALUE;
+				return true;
+			}
+			return false;
+		}
+
+		private Object unmarshalElement() throws XMLStreamException {
+			long end = this.streamReader.getLocationInfo().getEndingByteOffset();
+			DataBuffer element = slice(this.elementStart, end);
+			Map<String, String> namespaces = this.elementNamespaces;
+			this.elementStart = -1;
+			this.elementNamespaces = null;
+			try {
+				String encoding = this.streamReader.getEncoding();
+				Charset charset = (encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8);
+				InputStream inputStream = element.asInputStream();
+				if (namespaces != null) {
+					inputStream = wrap(inputStream, namespaces, charset);
+				}
+				XMLStreamReader elementReader = inputFactory.createXMLStreamReader(inputStream, charset.name());
+				if (namespaces != null) {
+					elementReader.nextTag();
+					elementReader.nextTag();
+				}
+				return this.unmarshaller.apply(elementReader);
+			}
+			finally {
+				DataBufferUtils.release(element);
+			}
+		}
+
+		/**
+		 * Surround the element with a start and end tag that declares the
+		 * namespaces of its ancestors, since the element may refer to them.
+		 */
+		private InputStream wrap(InputStream inputStream, Map<String, String> namespaces, Charset charset) {
+			StringBuilder builder = new StringBuilder("<").append(WRAPPER_ELEMENT);
+			namespaces.forEach((prefix, namespaceUri) -> {
+				builder.append(" xmlns");
+				if (!prefix.isEmpty()) {
+					builder.append(':').append(prefix);
+				}
+				builder.append("=\"").append(namespaceUri.replace("&", "&amp;")
+						.replace("<", "&lt;").replace("\"", "&quot;")).append('"');
+			});
+			builder.append('>');
+			byte[] start = builder.toString().getBytes(charset);
+			byte[] end = ("</" + WRAPPER_ELEMENT + ">").getBytes(charset);
+			return new SequenceInputStream(new SequenceInputStream(
+					new ByteArrayInputStream(start), inputStream), new ByteArrayInputStream(end));
+		}
+
+		/**
+		 * Return the given range of the buffered input, sharing data with the buffers.
+		 */
+		private DataBuffer slice(long start, long end) {
+			List<DataBuffer> slices = new ArrayList<>();
+			long offset = this.bufferOffset;
+			for (DataBuffer buffer : this.buffers) {
+				long bufferEnd = offset + buffer.readableByteCount();
+				if (bufferEnd > start && offset < end) {
+					int from = (int) (Math.max(start, offset) - offset);
+					int to = (int) (Math.min(end, bufferEnd) - offset);
+					slices.add(buffer.retainedSlice(buffer.readPosition() + from, to - from));
+				}
+				offset = bufferEnd;
+			}
+			return DataBufferUtils.compose(slices);
+		}
+
+		/**
+		 * Release buffers that end before the given absolute offset.
+		 */
+		private void releaseBuffers(long offset) {
+			while (!this.buffers.isEmpty()) {
+				DataBuffer buffer = this.buffers.peek();
+				int count = buffer.readableByteCount();
+				if (this.bufferOffset + count > offset) {
+					break;
+				}
+				this.buffers.poll();
+				this.bufferOffset += count;
+				this.bufferedByteCount -= count;
+				DataBufferUtils.release(buffer);
+			}
+		}
+
+		public void release() {
+			this.buffers.forEach(DataBufferUtils::release);
+			this.buffers.clear();
+		}
+	}
+
 }
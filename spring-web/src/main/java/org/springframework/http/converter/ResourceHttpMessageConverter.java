@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -131,6 +131,12 @@ public class ResourceHttpMessageConverter extends AbstractHttpMessageConverter<R
 
 	protected void writeContent(Resource resource, HttpOutputMessage outputMessage)
 			throws IOException, HttpMessageNotWritableException {
+
+		// Write in-memory content at once, rather than copying it through a stream
+		if (resource instanceof ByteArrayResource) {
+			outputMessage.getBody().write(((ByteArrayResource) resource).getByteArray());
+			return;
+		}
 		try {
 			InputStream in = resource.getInputStream();
 			try {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.http.server.reactive;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
 
@@ -23,16 +24,21 @@ import io.netty.buffer.ByteBuf;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.NettyOutbound;
 import reactor.netty.http.server.HttpServerResponse;
 
+import org.springframework.core.io.Resource;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.core.io.support.ResourceRegion;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.ZeroCopyHttpOutputMessage;
 import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
 
 /**
  * Adapt {@link ServerHttpResponse} to the {@link HttpServerResponse}.
@@ -109,6 +115,32 @@ class ReactorServerHttpResponse extends AbstractServerHttpResponse implements Ze
 		return doCommit(() -> this.response.sendFile(file, position, count).then());
 	}
 
+	@Override
+	public Mono<Void> writeWith(List<ResourceRegion> regions) {
+		return doCommit(() -> {
+			NettyOutbound outbound = this.response;
+			for (ResourceRegion region : regions) {
+				outbound = send(outbound, region);
+			}
+			return outbound.then();
+		});
+	}
+
+	private NettyOutbound send(NettyOutbound outbound, ResourceRegion region) {
+		Resource resource = region.getResource();
+		if (resource.isFile()) {
+			try {
+				return outbound.sendFile(resource.getFile().toPath(), region.getPosition(), region.getCount());
+			}
+			catch (IOException ex) {
+				// fallback to reading the resource, below
+			}
+		}
+		Flux<DataBuffer> buffers = DataBufferUtils.takeUntilByteCount(DataBufferUtils.read(
+				resource, region.getPosition(), bufferFactory(), StreamUtils.BUFFER_SIZE), region.getCount());
+		return outbound.send(toByteBufs(buffers));
+	}
+
 	private Publisher<ByteBuf> toByteBufs(Publisher<? extends DataBuffer> dataBuffers) {
 		return dataBuffers instanceof Mono ?
 				Mono.from(dataBuffers).map(NettyDataBufferFactory::toByteBuf) :
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.List;
 
 import io.undertow.server.HttpServerExchange;
 import io.undertow.server.handlers.Cookie;
@@ -28,18 +29,22 @@ import io.undertow.server.handlers.CookieImpl;
 import org.reactivestreams.Processor;
 import org.reactivestreams.Publisher;
 import org.xnio.channels.StreamSinkChannel;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.MonoSink;
 
+import org.springframework.core.io.Resource;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.support.ResourceRegion;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.ZeroCopyHttpOutputMessage;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
 
 /**
  * Adapt {@link ServerHttpResponse} to the Undertow {@link HttpServerExchange}.
@@ -128,24 +133,63 @@ class UndertowServerHttpResponse extends AbstractListenerServerHttpResponse impl
 
 	@Override
 	public Mono<Void> writeWith(Path file, long position, long count) {
-		return doCommit(() ->
-				Mono.create(sink -> {
-					try {
-						FileChannel source = FileChannel.open(file, StandardOpenOption.READ);
+		return doCommit(() -> transfer(file, position, count));
+	}
 
-						TransferBodyListener listener = new TransferBodyListener(source, position,
-								count, sink);
-						sink.onDispose(listener::closeSource);
+	@Override
+	public Mono<Void> writeWith(List<ResourceRegion> regions) {
+		return doCommit(() -> Flux.fromIterable(regions).concatMap(this::transfer).then());
+	}
 
-						StreamSinkChannel destination = this.exchange.getResponseChannel();
-						destination.getWriteSetter().set(listener::transfer);
+	private Mono<Void> transfer(ResourceRegion region) {
+		Resource resource = region.getResource();
+		if (resource.isFile()) {
+			try {
+				return transfer(resource.getFile().toPath(), region.getPosition(), region.getCount());
+			}
+			catch (IOException ex) {
+				// fallback to reading the resource, below
+			}
+		}
+		return DataBufferUtils.join(DataBufferUtils.takeUntilByteCount(DataBufferUtils.read(
+				resource, region.getPosition(), bufferFactory(), StreamUtils.BUFFER_SIZE), region.getCount()))
+				.flatMap(this::write);
+	}
 
-						listener.transfer(destination);
-					}
-					catch (IOException ex) {
-						sink.error(ex);
-					}
-				}));
+	private Mono<Void> transfer(Path file, long position, long count) {
+		return Mono.create(sink -> {
+			try {
+				FileChannel source = FileChannel.open(file, StandardOpenOption.READ);
+
+				TransferBodyListener listener = new TransferBodyListener(source, position,
+						count, sink);
+				sink.onDispose(listener::closeSource);
+
+				StreamSinkChannel destination = getResponseChannel();
+				destination.getWriteSetter().set(listener::transfer);
+
+				listener.transfer(destination);
+			}
+			catch (IOException ex) {
+				sink.error(ex);
+			}
+		});
+	}
+
+	private Mono<Void> write(DataBuffer dataBuffer) {
+		return Mono.<Void>create(sink -> {
+			WriteBodyListener listener = new WriteBodyListener(dataBuffer.asByteBuffer(), sink);
+			StreamSinkChannel destination = getResponseChannel();
+			destination.getWriteSetter().set(listener::write);
+			listener.write(destination);
+		}).doFinally(signalType -> DataBufferUtils.release(dataBuffer));
+	}
+
+	private StreamSinkChannel getResponseChannel() {
+		if (this.responseChannel == null) {
+			this.responseChannel = this.exchange.getResponseChannel();
+		}
+		return this.responseChannel;
 	}
 
 	@Override
@@ -154,10 +198,7 @@ class UndertowServerHttpResponse extends AbstractListenerServerHttpResponse impl
 	}
 
 	private ResponseBodyProcessor createBodyProcessor() {
-		if (this.responseChannel == null) {
-			this.responseChannel = this.exchange.getResponseChannel();
-		}
-		return new ResponseBodyProcessor(this.responseChannel);
+		return new ResponseBodyProcessor(getResponseChannel());
 	}
 
 
@@ -339,6 +380,7 @@ class UndertowServerHttpResponse extends AbstractListenerServerHttpResponse impl
 						return;
 					}
 				}
+				destination.suspendWrites();
 				this.sink.success();
 			}
 			catch (IOException ex) {
@@ -354,8 +396,36 @@ class UndertowServerHttpResponse extends AbstractListenerServerHttpResponse impl
 			catch (IOException ignore) {
 			}
 		}
+	}
+
+
+	private static class WriteBodyListener {
 
+		private final ByteBuffer source;
+
+		private final MonoSink<Void> sink;
+
+
+		public WriteBodyListener(ByteBuffer source, MonoSink<Void> sink) {
+			this.source = source;
+			this.sink = sink;
+		}
 
+		public void write(StreamSinkChannel destination) {
+			try {
+				while (this.source.hasRemaining()) {
+					if (destination.write(this.source) == 0) {
+						destination.resumeWrites();
+						return;
+					}
+				}
+				destination.suspendWrites();
+				this.sink.success();
+			}
+			catch (IOException ex) {
+				this.sink.error(ex);
+			}
+		}
 	}
 
 }
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.filter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.GzipCompressor;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * {@link javax.servlet.Filter} that compresses response bodies with gzip for
+ * clients that accept it, as negotiated through the {@code Accept-Encoding}
+ * header, including the output of
+ * {@link org.springframework.http.converter.HttpMessageConverter HttpMessageConverters}
+ * and views. Which responses are compressed, and how, is determined by the
+ * {@link GzipCompressor}.
+ *
+ * <p>The response body is cached in memory and compressed once it is complete,
+ * so that the compressed content length can be set. Compression is skipped for
+ * responses that already have a {@code Content-Encoding}, that have a
+ * {@code Cache-Control: no-transform} directive, or for which
+ * {@link ShallowEtagHeaderFilter#disableContentCaching content caching has been
+ * disabled}, e.g. for streaming. If the {@code GzipCompressor} has a cache,
+ * responses with a strong ETag are compressed only once for the same request URI,
+ * as far as {@linkplain GzipCompressor#getCacheKey suitable for caching}. The
+ * ETag of compressed responses is turned into a weak one.
+ *
+ * <p>To compress responses with an ETag generated by the
+ * {@link ShallowEtagHeaderFilter}, this filter must be ordered before it, so that
+ * the ETag reflects the uncompressed content.
+ *
+ * @since 5.2.13
+ * @see org.springframework.web.filter.reactive.CompressionWebFilter
+ */
+public class CompressionFilter extends OncePerRequestFilter {
+
+	private static final String DIRECTIVE_NO_TRANSFORM = "no-transform";
+
+
+	private GzipCompressor compressor = new GzipCompressor();
+
+
+	/**
+	 * Set the {@link GzipCompressor} to negotiate and apply compression with.
+	 * <p>By default, a {@code GzipCompressor} with default settings is used.
+	 */
+	public void setCompressor(GzipCompressor compressor) {
+		Assert.notNull(compressor, "GzipCompressor must not be null");
+		this.compressor = compressor;
+	}
+
+	/**
+	 * Return the configured {@link GzipCompressor}.
+	 */
+	public GzipCompressor getCompressor() {
+		return this.compressor;
+	}
+
+
+	/**
+	 * The default value is {@code false} so that the filter may delay the
+	 * compression of the response body until the last asynchronously dispatched
+	 * thread.
+	 */
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		return false;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+
+		if (!this.compressor.acceptsGzip(Collections.list(request.getHeaders(HttpHeaders.ACCEPT_ENCODING)))) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+
+		HttpServletResponse responseToUse = response;
+		if (!isAsyncDispatch(request) && !(response instanceof CompressionResponseWrapper)) {
+			responseToUse = new CompressionResponseWrapper(response, request);
+		}
+
+		filterChain.doFilter(request, responseToUse);
+
+		if (!isAsyncStarted(request)) {
+			updateResponse(request, responseToUse);
+		}
+	}
+
+	private void updateResponse(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		CompressionResponseWrapper wrapper = WebUtils.getNativeResponse(response, CompressionResponseWrapper.class);
+		if (wrapper == null) {
+			// Not wrapped on the initial dispatch: nothing to compress
+			return;
+		}
+		HttpServletResponse rawResponse = (HttpServletResponse) wrapper.getResponse();
+		int contentSize = wrapper.getContentSize();
+
+		if (!ShallowEtagHeaderFilter.isContentCachingDisabled(request) &&
+				isEligibleForCompression(request, wrapper, contentSize)) {
+
+			String cacheKey = (this.compressor.getCacheSize() > 0 ? GzipCompressor.getCacheKey(
+					getPathAndQuery(request), new ServletServerHttpRequest(request).getHeaders(),
+					getResponseHeaders(wrapper)) : null);
+			byte[] compressed = (cacheKey != null ? this.compressor.getCachedContent(cacheKey, contentSize) : null);
+			if (compressed == null) {
+				compressed = this.compressor.compress(wrapper.getContentInputStream(), contentSize);
+				if (cacheKey != null) {
+					this.compressor.cacheContent(cacheKey, contentSize, compressed);
+				}
+			}
+			if (compressed.length < contentSize) {
+				rawResponse.setHeader(HttpHeaders.CONTENT_ENCODING, GzipCompressor.GZIP_ENCODING);
+				addVaryHeader(rawResponse);
+				String eTag = rawResponse.getHeader(HttpHeaders.ETAG);
+				if (eTag != null) {
+					rawResponse.setHeader(HttpHeaders.ETAG, GzipCompressor.getCompressedETag(eTag));
+				}
+				if (rawResponse.getHeader(HttpHeaders.TRANSFER_ENCODING) == null) {
+					rawResponse.setContentLength(compressed.length);
+				}
+				rawResponse.getOutputStream().write(compressed);
+				wrapper.resetBuffer();
+				rawResponse.flushBuffer();
+				return;
+			}
+		}
+
+		wrapper.copyBodyToResponse();
+	}
+
+	/**
+	 * Whether the response body should be compressed. By default this is
+	 * {@code true} if all of the following match:
+	 * <ul>
+	 * <li>Response is not committed.</li>
+	 * <li>Response status code is in the {@code 2xx} series, other than 204 and 206.</li>
+	 * <li>Response has no {@code Content-Encoding} header.</li>
+	 * <li>Response Cache-Control header does not contain "no-transform" (or is not present at all).</li>
+	 * <li>Response content type and size are {@linkplain GzipCompressor#isCompressible compressible}.</li>
+	 * </ul>
+	 * @param request the HTTP request
+	 * @param response the HTTP response
+	 * @param contentSize the size of the uncompressed response body
+	 * @return {@code true} if the response body should be compressed, {@code false} otherwise
+	 */
+	protected boolean isEligibleForCompression(HttpServletRequest request, HttpServletResponse response,
+			int contentSize) {
+
+		int status = response.getStatus();
+		if (response.isCommitted() || status < 200 || status >= 300 ||
+				status == HttpServletResponse.SC_NO_CONTENT || status == HttpServletResponse.SC_PARTIAL_CONTENT ||
+				response.getHeader(HttpHeaders.CONTENT_ENCODING) != null) {
+			return false;
+		}
+		String cacheControl = response.getHeader(HttpHeaders.CACHE_CONTROL);
+		if (cacheControl != null && cacheControl.contains(DIRECTIVE_NO_TRANSFORM)) {
+			return false;
+		}
+		return this.compressor.isCompressible(parseContentType(response.getContentType()), contentSize);
+	}
+
+	@Nullable
+	private static MimeType parseContentType(@Nullable String contentType) {
+		if (contentType == null) {
+			return null;
+		}
+		try {
+			return MimeTypeUtils.parseMimeType(contentType);
+		}
+		catch (InvalidMimeTypeException ex) {
+			return null;
+		}
+	}
+
+	private static String getPathAndQuery(HttpServletRequest request) {
+		String query = request.getQueryString();
+		return (query != null ? request.getRequestURI() + "?" + query : request.getRequestURI());
+	}
+
+	private static HttpHeaders getResponseHeaders(HttpServletResponse response) {
+		HttpHeaders headers = new HttpHeaders();
+		for (String name : response.getHeaderNames()) {
+			headers.put(name, new ArrayList<>(response.getHeaders(name)));
+		}
+		return headers;
+	}
+
+	private static void addVaryHeader(HttpServletResponse response) {
+		for (String vary : response.getHeaders(HttpHeaders.VARY)) {
+			for (String value : vary.split(",")) {
+				String name = value.trim();
+				if (name.equals("*") || name.equalsIgnoreCase(HttpHeaders.ACCEPT_ENCODING)) {
+					return;
+				}
+			}
+		}
+		response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+	}
+
+
+	/**
+	 * Returns the raw OutputStream, instead of the one that does caching,
+	 * if {@link ShallowEtagHeaderFilter#disableContentCaching content caching
+	 * has been disabled}.
+	 */
+	private static class CompressionResponseWrapper extends ContentCachingResponseWrapper {
+
+		private final HttpServletRequest request;
+
+		CompressionResponseWrapper(HttpServletResponse response, HttpServletRequest request) {
+			super(response);
+			this.request = request;
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			return (ShallowEtagHeaderFilter.isContentCachingDisabled(this.request) ?
+					getResponse().getOutputStream() : super.getOutputStream());
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			return (ShallowEtagHeaderFilter.isContentCachingDisabled(this.request) ?
+					getResponse().getWriter() : super.getWriter());
+		}
+	}
+
+}
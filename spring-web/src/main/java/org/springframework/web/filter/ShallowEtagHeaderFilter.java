@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,8 @@ package org.springframework.web.filter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -29,6 +31,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.DigestUtils;
 import org.springframework.util.StringUtils;
@@ -46,6 +49,11 @@ import org.springframework.web.util.WebUtils;
  * (e.g. a {@link org.springframework.web.servlet.View}) is still rendered.
  * As such, this filter only saves bandwidth, not server performance.
  *
+ * <p>By default, the complete response body is cached in memory. A
+ * {@link #setContentCacheLimit content cache limit} allows for streaming larger
+ * response bodies without an ETag instead, and a {@link #setChecksumETag checksum}
+ * computed while the body is being written can be used instead of an MD5 hash.
+ *
  * <p><b>NOTE:</b> As of Spring Framework 5.0, this filter uses request/response
  * decorators built on the Servlet 3.1 API.
  *
@@ -64,6 +72,10 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 
 	private boolean writeWeakETag = false;
 
+	private int contentCacheLimit = -1;
+
+	private boolean checksumETag = false;
+
 
 	/**
 	 * Set whether the ETag value written to the response should be weak, as per RFC 7232.
@@ -84,6 +96,45 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 		return this.writeWeakETag;
 	}
 
+	/**
+	 * Set the maximum number of response body bytes to cache for ETag generation.
+	 * A response body that exceeds this limit is written to the response as it
+	 * is being produced, without an ETag.
+	 * <p>Default is -1, caching the complete response body.
+	 * @since 5.2.13
+	 */
+	public void setContentCacheLimit(int contentCacheLimit) {
+		this.contentCacheLimit = contentCacheLimit;
+	}
+
+	/**
+	 * Return the maximum number of response body bytes to cache for ETag generation.
+	 * @since 5.2.13
+	 */
+	public int getContentCacheLimit() {
+		return this.contentCacheLimit;
+	}
+
+	/**
+	 * Set whether the ETag value should be derived from a CRC32 checksum and the
+	 * length of the response body, updated while the body is being written, rather
+	 * than from an MD5 hash of the complete body once it has been written.
+	 * <p>Default is {@code false}. Note that the ETag value is then not generated
+	 * through {@link #generateETagHeaderValue(InputStream, boolean)}.
+	 * @since 5.2.13
+	 */
+	public void setChecksumETag(boolean checksumETag) {
+		this.checksumETag = checksumETag;
+	}
+
+	/**
+	 * Return whether the ETag value should be derived from a CRC32 checksum.
+	 * @since 5.2.13
+	 */
+	public boolean isChecksumETag() {
+		return this.checksumETag;
+	}
+
 
 	/**
 	 * The default value is {@code false} so that the filter may delay the generation
@@ -100,7 +151,8 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 
 		HttpServletResponse responseToUse = response;
 		if (!isAsyncDispatch(request) && !(response instanceof ConditionalContentCachingResponseWrapper)) {
-			responseToUse = new ConditionalContentCachingResponseWrapper(response, request);
+			responseToUse = new ConditionalContentCachingResponseWrapper(
+					response, request, this.contentCacheLimit, this.checksumETag);
 		}
 
 		filterChain.doFilter(request, responseToUse);
@@ -116,10 +168,14 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 		Assert.notNull(wrapper, "ContentCachingResponseWrapper not found");
 		HttpServletResponse rawResponse = (HttpServletResponse) wrapper.getResponse();
 
-		if (isEligibleForEtag(request, wrapper, wrapper.getStatus(), wrapper.getContentInputStream())) {
+		if (!wrapper.isContentCacheLimitExceeded() &&
+				isEligibleForEtag(request, wrapper, wrapper.getStatus(), wrapper.getContentInputStream())) {
 			String eTag = wrapper.getHeader(HttpHeaders.ETAG);
 			if (!StringUtils.hasText(eTag)) {
-				eTag = generateETagHeaderValue(wrapper.getContentInputStream(), this.writeWeakETag);
+				Checksum checksum = wrapper.getChecksum();
+				eTag = (checksum != null ?
+						generateChecksumETagHeaderValue(checksum, wrapper.getContentSize(), this.writeWeakETag) :
+						generateETagHeaderValue(wrapper.getContentInputStream(), this.writeWeakETag));
 				rawResponse.setHeader(HttpHeaders.ETAG, eTag);
 			}
 			if (new ServletWebRequest(request, rawResponse).checkNotModified(eTag)) {
@@ -179,6 +235,16 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 		return builder.toString();
 	}
 
+	private String generateChecksumETagHeaderValue(Checksum checksum, int contentSize, boolean isWeak) {
+		StringBuilder builder = new StringBuilder(22);
+		if (isWeak) {
+			builder.append("W/");
+		}
+		builder.append('"').append(Long.toHexString(checksum.getValue()));
+		builder.append('-').append(Integer.toHexString(contentSize)).append('"');
+		return builder.toString();
+	}
+
 	private boolean compareETagHeaderValue(String requestETag, String responseETag) {
 		if (requestETag.startsWith("W/")) {
 			requestETag = requestETag.substring(2);
@@ -204,22 +270,34 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 		request.setAttribute(STREAMING_ATTRIBUTE, true);
 	}
 
-	private static boolean isContentCachingDisabled(HttpServletRequest request) {
+	static boolean isContentCachingDisabled(HttpServletRequest request) {
 		return (request.getAttribute(STREAMING_ATTRIBUTE) != null);
 	}
 
 
 	/**
 	 * Returns the raw OutputStream, instead of the one that does caching,
-	 * if {@link #isContentCachingDisabled}.
+	 * if {@link #isContentCachingDisabled}. Optionally updates a checksum
+	 * of the content while it is being cached.
 	 */
 	private static class ConditionalContentCachingResponseWrapper extends ContentCachingResponseWrapper {
 
 		private final HttpServletRequest request;
 
-		ConditionalContentCachingResponseWrapper(HttpServletResponse response, HttpServletRequest request) {
-			super(response);
+		@Nullable
+		private final Checksum checksum;
+
+		ConditionalContentCachingResponseWrapper(HttpServletResponse response, HttpServletRequest request,
+				int contentCacheLimit, boolean checksumETag) {
+
+			super(response, (contentCacheLimit >= 0 ? contentCacheLimit : Integer.MAX_VALUE));
 			this.request = request;
+			this.checksum = (checksumETag ? new CRC32() : null);
+		}
+
+		@Nullable
+		public Checksum getChecksum() {
+			return this.checksum;
 		}
 
 		@Override
@@ -237,6 +315,44 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 		private boolean hasETag() {
 			return StringUtils.hasText(getHeader(HttpHeaders.ETAG));
 		}
+
+		@Override
+		protected void contentCached(int b) {
+			if (this.checksum != null) {
+				this.checksum.update(b);
+			}
+		}
+
+		@Override
+		protected void contentCached(byte[] b, int off, int len) {
+			if (this.checksum != null) {
+				this.checksum.update(b, off, len);
+			}
+		}
+
+		@Override
+		protected void copyBodyToResponse(boolean complete) throws IOException {
+			super.copyBodyToResponse(complete);
+			resetChecksum();
+		}
+
+		@Override
+		public void resetBuffer() {
+			super.resetBuffer();
+			resetChecksum();
+		}
+
+		@Override
+		public void reset() {
+			super.reset();
+			resetChecksum();
+		}
+
+		private void resetChecksum() {
+			if (this.checksum != null) {
+				this.checksum.reset();
+			}
+		}
 	}
 
 }
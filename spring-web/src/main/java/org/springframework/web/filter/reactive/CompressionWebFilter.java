@@ -0,0 +1,345 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.filter.reactive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.FastByteArrayOutputStream;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.GzipCompressor;
+
+/**
+ * {@link WebFilter} that compresses response bodies with gzip for clients that
+ * accept it, as negotiated through the {@code Accept-Encoding} header. Which
+ * responses are compressed, and how, is determined by the {@link GzipCompressor}.
+ *
+ * <p>Response bodies are compressed as they are written, into data buffers
+ * allocated from the {@linkplain ServerHttpResponse#bufferFactory() response
+ * buffer factory}, which pools buffers on Reactor Netty. Compression is skipped
+ * for responses that already have a {@code Content-Encoding}, that have a
+ * {@code Cache-Control: no-transform} directive, and for bodies written with
+ * {@link ServerHttpResponse#writeAndFlushWith}, e.g. server-sent events. If the
+ * {@code GzipCompressor} has a cache, responses with a strong ETag are compressed
+ * only once for the same request URI, as far as
+ * {@linkplain GzipCompressor#getCacheKey suitable for caching}. The ETag of
+ * compressed responses is turned into a weak one.
+ *
+ * <p>Note that responses are not written with zero-copy file transfers when
+ * this filter is applied, since their content has to be compressed.
+ *
+ * @since 5.2.13
+ * @see org.springframework.web.filter.CompressionFilter
+ */
+public class CompressionWebFilter implements WebFilter {
+
+	private static final String DIRECTIVE_NO_TRANSFORM = "no-transform";
+
+
+	private final GzipCompressor compressor;
+
+
+	/**
+	 * Create a filter with a {@link GzipCompressor} with default settings.
+	 */
+	public CompressionWebFilter() {
+		this(new GzipCompressor());
+	}
+
+	/**
+	 * Create a filter with the given {@link GzipCompressor}.
+	 * @param compressor the compressor to negotiate and apply compression with
+	 */
+	public CompressionWebFilter(GzipCompressor compressor) {
+		Assert.notNull(compressor, "GzipCompressor must not be null");
+		this.compressor = compressor;
+	}
+
+
+	/**
+	 * Return the configured {@link GzipCompressor}.
+	 */
+	public GzipCompressor getCompressor() {
+		return this.compressor;
+	}
+
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		if (request.getMethod() == HttpMethod.HEAD ||
+				!this.compressor.acceptsGzip(request.getHeaders().get(HttpHeaders.ACCEPT_ENCODING))) {
+			return chain.filter(exchange);
+		}
+		String path = request.getURI().getRawPath();
+		String query = request.getURI().getRawQuery();
+		CompressingResponse response = new CompressingResponse(
+				exchange.getResponse(), (query != null ? path + "?" + query : path), request.getHeaders());
+		return chain.filter(exchange.mutate().response(response).build());
+	}
+
+
+	private class CompressingResponse extends ServerHttpResponseDecorator {
+
+		private final String pathAndQuery;
+
+		private final HttpHeaders requestHeaders;
+
+		CompressingResponse(ServerHttpResponse delegate, String pathAndQuery, HttpHeaders requestHeaders) {
+			super(delegate);
+			this.pathAndQuery = pathAndQuery;
+			this.requestHeaders = requestHeaders;
+		}
+
+		@Override
+		public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+			HttpHeaders headers = getHeaders();
+			long contentLength = headers.getContentLength();
+			if (!isEligibleForCompression(headers, contentLength)) {
+				return super.writeWith(body);
+			}
+
+			GzipCompressor compressor = CompressionWebFilter.this.compressor;
+			// Cookies are written to the Set-Cookie header only when the response is committed
+			String cacheKey = (compressor.getCacheSize() > 0 && getCookies().isEmpty() ?
+					GzipCompressor.getCacheKey(this.pathAndQuery, this.requestHeaders, headers) : null);
+			byte[] cached = (cacheKey != null ? compressor.getCachedContent(cacheKey, contentLength) : null);
+
+			headers.set(HttpHeaders.CONTENT_ENCODING, GzipCompressor.GZIP_ENCODING);
+			addVaryHeader(headers);
+			String eTag = headers.getETag();
+			if (eTag != null) {
+				headers.set(HttpHeaders.ETAG, GzipCompressor.getCompressedETag(eTag));
+			}
+			if (cached != null) {
+				headers.setContentLength(cached.length);
+				return Flux.from(body)
+						.doOnNext(DataBufferUtils::release)
+						.then(Mono.defer(() -> super.writeWith(Mono.just(bufferFactory().wrap(cached)))));
+			}
+			headers.remove(HttpHeaders.CONTENT_LENGTH);
+			return super.writeWith(Flux.using(
+					() -> new CompressingStream(compressor, bufferFactory(), cacheKey),
+					stream -> Flux.from(body)
+							.<DataBuffer>handle((buffer, sink) -> {
+								DataBuffer compressed = stream.compress(buffer);
+								if (compressed.readableByteCount() > 0) {
+									sink.next(compressed);
+								}
+								else {
+									DataBufferUtils.release(compressed);
+								}
+							})
+							.concatWith(Mono.fromCallable(stream::finish)),
+					CompressingStream::close));
+		}
+
+		private boolean isEligibleForCompression(HttpHeaders headers, long contentLength) {
+			HttpStatus status = getStatusCode();
+			if (status != null && (!status.is2xxSuccessful() ||
+					status == HttpStatus.NO_CONTENT || status == HttpStatus.PARTIAL_CONTENT)) {
+				return false;
+			}
+			if (headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+				return false;
+			}
+			String cacheControl = headers.getCacheControl();
+			if (cacheControl != null && cacheControl.contains(DIRECTIVE_NO_TRANSFORM)) {
+				return false;
+			}
+			return CompressionWebFilter.this.compressor.isCompressible(headers.getContentType(), contentLength);
+		}
+
+		private void addVaryHeader(HttpHeaders headers) {
+			List<String> varyValues = headers.getVary();
+			if (!varyValues.contains("*") && varyValues.stream().noneMatch(HttpHeaders.ACCEPT_ENCODING::equalsIgnoreCase)) {
+				headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+			}
+		}
+	}
+
+
+	/**
+	 * Compresses data buffers, writing compressed output into buffers allocated
+	 * from the given factory, and optionally collecting it for the cache.
+	 */
+	private static class CompressingStream extends OutputStream {
+
+		private final GzipCompressor compressor;
+
+		private final DataBufferFactory bufferFactory;
+
+		@Nullable
+		private final String cacheKey;
+
+		@Nullable
+		private FastByteArrayOutputStream cacheContent;
+
+		@Nullable
+		private GZIPOutputStream gzip;
+
+		@Nullable
+		private DataBuffer output;
+
+		private long contentLength;
+
+		@Nullable
+		private byte[] readBuffer;
+
+		private boolean closed;
+
+		CompressingStream(GzipCompressor compressor, DataBufferFactory bufferFactory, @Nullable String cacheKey) {
+			this.compressor = compressor;
+			this.bufferFactory = bufferFactory;
+			this.cacheKey = cacheKey;
+			this.cacheContent = (cacheKey != null ? new FastByteArrayOutputStream() : null);
+		}
+
+		private GZIPOutputStream gzip() throws IOException {
+			if (this.gzip == null) {
+				// Created once an output buffer is available, since it writes the gzip header
+				this.gzip = this.compressor.createOutputStream(this);
+			}
+			return this.gzip;
+		}
+
+		public DataBuffer compress(DataBuffer input) {
+			try {
+				this.output = this.bufferFactory.allocateBuffer(this.compressor.getBufferSize());
+				this.contentLength += input.readableByteCount();
+				ByteBuffer byteBuffer = input.asByteBuffer();
+				GZIPOutputStream gzip = gzip();
+				if (byteBuffer.hasArray()) {
+					gzip.write(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(),
+							byteBuffer.remaining());
+				}
+				else {
+					byte[] readBuffer = this.readBuffer;
+					if (readBuffer == null) {
+						readBuffer = new byte[this.compressor.getBufferSize()];
+						this.readBuffer = readBuffer;
+					}
+					while (byteBuffer.hasRemaining()) {
+						int length = Math.min(byteBuffer.remaining(), readBuffer.length);
+						byteBuffer.get(readBuffer, 0, length);
+						gzip.write(readBuffer, 0, length);
+					}
+				}
+				return takeOutput();
+			}
+			catch (IOException ex) {
+				releaseOutput();
+				throw new UncheckedIOException(ex);
+			}
+			finally {
+				DataBufferUtils.release(input);
+			}
+		}
+
+		public DataBuffer finish() throws IOException {
+			this.output = this.bufferFactory.allocateBuffer(this.compressor.getBufferSize());
+			try {
+				gzip().finish();
+			}
+			catch (IOException ex) {
+				releaseOutput();
+				throw ex;
+			}
+			if (this.cacheKey != null && this.cacheContent != null) {
+				byte[] compressed = this.cacheContent.toByteArrayUnsafe();
+				this.compressor.cacheContent(this.cacheKey, this.contentLength, compressed);
+			}
+			return takeOutput();
+		}
+
+		private DataBuffer takeOutput() {
+			DataBuffer output = this.output;
+			Assert.state(output != null, "No output buffer");
+			this.output = null;
+			return output;
+		}
+
+		private void releaseOutput() {
+			if (this.output != null) {
+				DataBufferUtils.release(this.output);
+				this.output = null;
+			}
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			// No output buffer after cancellation: discard the gzip trailer
+			if (this.output != null) {
+				this.output.write(b, off, len);
+			}
+			if (this.cacheContent != null) {
+				if (this.cacheContent.size() + len <= this.compressor.getCacheSize()) {
+					this.cacheContent.write(b, off, len);
+				}
+				else {
+					this.cacheContent = null;
+				}
+			}
+		}
+
+		@Override
+		public void close() {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			releaseOutput();
+			this.cacheContent = null;
+			if (this.gzip != null) {
+				try {
+					// Also ends the deflater, releasing its native memory
+					this.gzip.close();
+				}
+				catch (IOException ex) {
+					// ignore
+				}
+			}
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -91,6 +91,8 @@ public class DefaultServerWebExchange implements ServerWebExchange {
 
 	private final Mono<MultiValueMap<String, Part>> multipartDataMono;
 
+	private volatile boolean multipartRead = false;
+
 	@Nullable
 	private final ApplicationContext applicationContext;
 
@@ -129,7 +131,8 @@ public class DefaultServerWebExchange implements ServerWebExchange {
 		this.sessionMono = sessionManager.getSession(this).cache();
 		this.localeContextResolver = localeContextResolver;
 		this.formDataMono = initFormData(request, codecConfigurer, getLogPrefix());
-		this.multipartDataMono = initMultipartData(request, codecConfigurer, getLogPrefix());
+		this.multipartDataMono = initMultipartData(request, codecConfigurer, getLogPrefix())
+				.doOnSubscribe(subscription -> this.multipartRead = true);
 		this.applicationContext = applicationContext;
 	}
 
@@ -221,6 +224,26 @@ public class DefaultServerWebExchange implements ServerWebExchange {
 		return this.multipartDataMono;
 	}
 
+	/**
+	 * Release the storage of all parts of the {@link #getMultipartData()
+	 * multipart data}, if it was read.
+	 * @since 5.2.13
+	 * @see Part#delete()
+	 */
+	Mono<Void> cleanupMultipart() {
+		return Mono.defer(() -> {
+			if (!this.multipartRead) {
+				return Mono.empty();
+			}
+			return getMultipartData()
+					.onErrorResume(ex -> Mono.empty())
+					.flatMapIterable(Map::values)
+					.flatMapIterable(Function.identity())
+					.flatMap(part -> part.delete().onErrorResume(ex -> Mono.empty()))
+					.then();
+		});
+	}
+
 	@Override
 	public LocaleContext getLocaleContext() {
 		return this.localeContextResolver.resolveLocaleContext(this);
@@ -244,6 +244,7 @@ public class HttpWebHandlerAdapter extends WebHandlerDecorator implements HttpHa
 		return getDelegate().handle(exchange)
 				.doOnSuccess(aVoid -> logResponse(exchange))
 				.onErrorResume(ex -> handleUnresolvedError(exchange, ex))
+				.then(cleanupMultipart(exchange))
 				.then(Mono.defer(response::setComplete));
 	}
 
@@ -307,6 +308,11 @@ public class HttpWebHandlerAdapter extends WebHandlerDecorator implements HttpHa
 		}
 	}
 
+	private Mono<Void> cleanupMultipart(ServerWebExchange exchange) {
+		return (exchange instanceof DefaultServerWebExchange ?
+				((DefaultServerWebExchange) exchange).cleanupMultipart() : Mono.empty());
+	}
+
 	private boolean isDisconnectedClientError(Throwable ex) {
 		String message = NestedExceptionUtils.getMostSpecificCause(ex).getMessage();
 		if (message != null) {
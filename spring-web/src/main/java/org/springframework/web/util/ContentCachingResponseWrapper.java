@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.web.util;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
@@ -47,6 +48,11 @@ public class ContentCachingResponseWrapper extends HttpServletResponseWrapper {
 
 	private final FastByteArrayOutputStream content = new FastByteArrayOutputStream(1024);
 
+	@Nullable
+	private final Integer contentCacheLimit;
+
+	private boolean contentCacheLimitExceeded;
+
 	@Nullable
 	private ServletOutputStream outputStream;
 
@@ -63,6 +69,23 @@ public class ContentCachingResponseWrapper extends HttpServletResponseWrapper {
 	 */
 	public ContentCachingResponseWrapper(HttpServletResponse response) {
 		super(response);
+		this.contentCacheLimit = null;
+	}
+
+	/**
+	 * Create a new ContentCachingResponseWrapper for the given servlet response.
+	 * <p>Once more content than the given limit has been written, the cached
+	 * content is copied to the response and any further content is written
+	 * to the response directly, without caching.
+	 * @param response the original servlet response
+	 * @param contentCacheLimit the maximum number of bytes to cache per response
+	 * @since 5.2.13
+	 * @see #isContentCacheLimitExceeded()
+	 * @see #handleContentOverflow(int)
+	 */
+	public ContentCachingResponseWrapper(HttpServletResponse response, int contentCacheLimit) {
+		super(response);
+		this.contentCacheLimit = contentCacheLimit;
 	}
 
 
@@ -117,14 +140,16 @@ public class ContentCachingResponseWrapper extends HttpServletResponseWrapper {
 
 	@Override
 	public void flushBuffer() throws IOException {
-		// do not flush the underlying response as the content as not been copied to it yet
+		// do not flush the underlying response as the content as not been copied to it yet,
+		// unless the content is not being cached anymore
+		if (this.contentCacheLimitExceeded) {
+			super.flushBuffer();
+		}
 	}
 
 	@Override
 	public void setContentLength(int len) {
-		if (len > this.content.size()) {
-			this.content.resize(len);
-		}
+		resizeContent(len);
 		this.contentLength = len;
 	}
 
@@ -136,14 +161,19 @@ public class ContentCachingResponseWrapper extends HttpServletResponseWrapper {
 					Integer.MAX_VALUE + "): " + len);
 		}
 		int lenInt = (int) len;
-		if (lenInt > this.content.size()) {
-			this.content.resize(lenInt);
-		}
+		resizeContent(lenInt);
 		this.contentLength = lenInt;
 	}
 
 	@Override
 	public void setBufferSize(int size) {
+		resizeContent(size);
+	}
+
+	private void resizeContent(int size) {
+		if (this.contentCacheLimit != null) {
+			size = Math.min(size, this.contentCacheLimit);
+		}
 		if (size > this.content.size()) {
 			this.content.resize(size);
 		}
@@ -192,6 +222,17 @@ public class ContentCachingResponseWrapper extends HttpServletResponseWrapper {
 		return this.content.size();
 	}
 
+	/**
+	 * Return whether more content than the content cache limit has been written,
+	 * in which case the content has been written to the response directly and
+	 * is not available from this wrapper anymore.
+	 * @since 5.2.13
+	 * @see #ContentCachingResponseWrapper(HttpServletResponse, int)
+	 */
+	public boolean isContentCacheLimitExceeded() {
+		return this.contentCacheLimitExceeded;
+	}
+
 	/**
 	 * Copy the complete cached body content to the response.
 	 * @since 4.2
@@ -223,6 +264,73 @@ public class ContentCachingResponseWrapper extends HttpServletResponseWrapper {
 		}
 	}
 
+	/**
+	 * Template method for handling a content overflow: specifically, content
+	 * written to the response that exceeds the specified content cache limit.
+	 * <p>The default implementation copies the cached content to the response,
+	 * with all further content getting written to the response directly.
+	 * Subclasses may override this, e.g. for discarding state derived from the
+	 * cached content, but need to call this implementation.
+	 * @param contentCacheLimit the maximum number of bytes to cache per response
+	 * which has just been exceeded
+	 * @since 5.2.13
+	 * @see #ContentCachingResponseWrapper(HttpServletResponse, int)
+	 */
+	protected void handleContentOverflow(int contentCacheLimit) throws IOException {
+		this.contentCacheLimitExceeded = true;
+		copyBodyToResponse(false);
+	}
+
+	/**
+	 * Template method for a byte that got added to the cached content,
+	 * e.g. for computing a checksum while the content is being written.
+	 * <p>The default implementation is empty.
+	 * @param b the byte that got cached
+	 * @since 5.2.13
+	 */
+	protected void contentCached(int b) {
+	}
+
+	/**
+	 * Template method for bytes that got added to the cached content,
+	 * e.g. for computing a checksum while the content is being written.
+	 * <p>The default implementation is empty.
+	 * @param b the array that contains the cached bytes
+	 * @param off the start offset of the cached bytes in the array
+	 * @param len the number of cached bytes
+	 * @since 5.2.13
+	 */
+	protected void contentCached(byte[] b, int off, int len) {
+	}
+
+	private void writeContent(int b) throws IOException {
+		if (!this.contentCacheLimitExceeded && this.contentCacheLimit != null &&
+				this.content.size() >= this.contentCacheLimit) {
+			handleContentOverflow(this.contentCacheLimit);
+		}
+		if (this.contentCacheLimitExceeded) {
+			getResponse().getOutputStream().write(b);
+		}
+		else {
+			this.content.write(b);
+			contentCached(b);
+		}
+	}
+
+	private void writeContent(byte[] b, int off, int len) throws IOException {
+		if (!this.contentCacheLimitExceeded && this.contentCacheLimit != null &&
+				len > this.contentCacheLimit - this.content.size()) {
+			handleContentOverflow(this.contentCacheLimit);
+		}
+		if (this.contentCacheLimitExceeded) {
+			getResponse().getOutputStream().write(b, off, len);
+		}
+		else {
+			this.content.write(b, off, len);
+			contentCached(b, off, len);
+		}
+	}
+
 
 	private class ResponseServletOutputStream extends ServletOutputStream {
 
@@ -234,12 +342,12 @@ public class ContentCachingResponseWrapper extends HttpServletResponseWrapper {
 
 		@Override
 		public void write(int b) throws IOException {
-			content.write(b);
+			writeContent(b);
 		}
 
 		@Override
 		public void write(byte[] b, int off, int len) throws IOException {
-			content.write(b, off, len);
+			writeContent(b, off, len);
 		}
 
 		@Override
@@ -254,10 +362,24 @@ public class ContentCachingResponseWrapper extends HttpServletResponseWrapper {
 	}
 
 
+	private class ContentOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			writeContent(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			writeContent(b, off, len);
+		}
+	}
+
+
 	private class ResponsePrintWriter extends PrintWriter {
 
 		public ResponsePrintWriter(String characterEncoding) throws UnsupportedEncodingException {
-			super(new OutputStreamWriter(content, characterEncoding));
+			super(new OutputStreamWriter(new ContentOutputStream(), characterEncoding));
 		}
 
 		@Override
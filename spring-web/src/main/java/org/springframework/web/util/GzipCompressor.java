@@ -0,0 +1,427 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.FastByteArrayOutputStream;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Negotiates and applies gzip compression of response bodies, as shared by
+ * {@link org.springframework.web.filter.CompressionFilter} and
+ * {@link org.springframework.web.filter.reactive.CompressionWebFilter}.
+ *
+ * <p>Only response bodies of a {@linkplain #setMimeTypes compressible media type}
+ * and of at least the {@linkplain #setMinSize minimum size} are compressed.
+ * Optionally, compressed bodies can be {@linkplain #setCacheSize cached} by the
+ * strong ETag of the response, so that repeated responses with the same content
+ * are compressed only once. Compressed responses get a weak ETag, since they are
+ * not byte-for-byte identical to the uncompressed representation.
+ *
+ * @since 5.2.13
+ */
+public class GzipCompressor {
+
+	/**
+	 * The {@code Content-Encoding} value for gzip compressed content.
+	 */
+	public static final String GZIP_ENCODING = "gzip";
+
+	/**
+	 * The default minimum size of a response body to compress: 2048 bytes.
+	 */
+	public static final int DEFAULT_MIN_SIZE = 2048;
+
+	/**
+	 * The media types compressed by default.
+	 */
+	public static final List<MimeType> DEFAULT_MIME_TYPES = Collections.unmodifiableList(Arrays.asList(
+			MimeTypeUtils.parseMimeType("text/html"),
+			MimeTypeUtils.parseMimeType("text/xml"),
+			MimeTypeUtils.parseMimeType("text/plain"),
+			MimeTypeUtils.parseMimeType("text/css"),
+			MimeTypeUtils.parseMimeType("text/javascript"),
+			MimeTypeUtils.parseMimeType("application/javascript"),
+			MimeTypeUtils.parseMimeType("application/json"),
+			MimeTypeUtils.parseMimeType("application/*+json"),
+			MimeTypeUtils.parseMimeType("application/x-ndjson"),
+			MimeTypeUtils.parseMimeType("application/xml"),
+			MimeTypeUtils.parseMimeType("application/*+xml"),
+			MimeTypeUtils.parseMimeType("image/svg+xml")));
+
+	private static final String DIRECTIVE_PRIVATE = "private";
+
+	private static final String DIRECTIVE_NO_STORE = "no-store";
+
+	private static final String DIRECTIVE_PUBLIC = "public";
+
+
+	private int level = Deflater.DEFAULT_COMPRESSION;
+
+	private int minSize = DEFAULT_MIN_SIZE;
+
+	private List<MimeType> mimeTypes = DEFAULT_MIME_TYPES;
+
+	private int bufferSize = StreamUtils.BUFFER_SIZE;
+
+	private long cacheSize = 0;
+
+	private final Map<String, CachedContent> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long cachedSize;
+
+
+	/**
+	 * Set the compression level, from {@link Deflater#BEST_SPEED} to
+	 * {@link Deflater#BEST_COMPRESSION}.
+	 * <p>By default this is set to {@link Deflater#DEFAULT_COMPRESSION}.
+	 */
+	public void setLevel(int level) {
+		Assert.isTrue(level == Deflater.DEFAULT_COMPRESSION ||
+				(level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION),
+				"Invalid compression level");
+		this.level = level;
+	}
+
+	/**
+	 * Return the configured compression level.
+	 */
+	public int getLevel() {
+		return this.level;
+	}
+
+	/**
+	 * Set the minimum size of a response body to compress. Smaller bodies are
+	 * written as they are, since compression would not save enough to outweigh
+	 * its cost.
+	 * <p>By default this is set to {@link #DEFAULT_MIN_SIZE}.
+	 */
+	public void setMinSize(int minSize) {
+		Assert.isTrue(minSize >= 0, "'minSize' must not be negative");
+		this.minSize = minSize;
+	}
+
+	/**
+	 * Return the configured minimum size of a response body to compress.
+	 */
+	public int getMinSize() {
+		return this.minSize;
+	}
+
+	/**
+	 * Set the media types of response bodies to compress, possibly with wildcards.
+	 * <p>By default this is set to {@link #DEFAULT_MIME_TYPES}.
+	 */
+	public void setMimeTypes(Collection<? extends MimeType> mimeTypes) {
+		Assert.notNull(mimeTypes, "'mimeTypes' must not be null");
+		this.mimeTypes = Collections.unmodifiableList(new ArrayList<>(mimeTypes));
+	}
+
+	/**
+	 * Return the configured media types of response bodies to compress.
+	 */
+	public List<MimeType> getMimeTypes() {
+		return this.mimeTypes;
+	}
+
+	/**
+	 * Set the size of the buffer used by the deflater.
+	 * <p>By default this is set to {@link StreamUtils#BUFFER_SIZE}.
+	 */
+	public void setBufferSize(int bufferSize) {
+		Assert.isTrue(bufferSize > 0, "'bufferSize' must be larger than 0");
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Return the configured size of the buffer used by the deflater.
+	 */
+	public int getBufferSize() {
+		return this.bufferSize;
+	}
+
+	/**
+	 * Set the maximum number of compressed bytes to cache by ETag. Once the
+	 * limit is exceeded, the least recently used entries are evicted.
+	 * <p>By default this is set to 0, i.e. no caching.
+	 */
+	public void setCacheSize(long cacheSize) {
+		Assert.isTrue(cacheSize >= 0, "'cacheSize' must not be negative");
+		synchronized (this.cache) {
+			this.cacheSize = cacheSize;
+			evict();
+		}
+	}
+
+	/**
+	 * Return the configured maximum number of compressed bytes to cache.
+	 */
+	public long getCacheSize() {
+		return this.cacheSize;
+	}
+
+
+	/**
+	 * Whether the given {@code Accept-Encoding} header values accept gzip, either
+	 * explicitly or through a wildcard, with a quality value larger than 0.
+	 * @param acceptEncodings the {@code Accept-Encoding} header values, if any
+	 */
+	public boolean acceptsGzip(@Nullable List<String> acceptEncodings) {
+		if (acceptEncodings == null) {
+			return false;
+		}
+		float wildcardQuality = 0;
+		for (String header : acceptEncodings) {
+			for (String encoding : StringUtils.tokenizeToStringArray(header, ",")) {
+				int index = encoding.indexOf(';');
+				String name = (index != -1 ? encoding.substring(0, index) : encoding).trim().toLowerCase(Locale.ROOT);
+				float quality = (index != -1 ? parseQuality(encoding.substring(index + 1)) : 1);
+				if (name.equals(GZIP_ENCODING) || name.equals("x-gzip")) {
+					return (quality > 0);
+				}
+				if (name.equals("*")) {
+					wildcardQuality = quality;
+				}
+			}
+		}
+		return (wildcardQuality > 0);
+	}
+
+	private static float parseQuality(String parameters) {
+		for (String parameter : StringUtils.tokenizeToStringArray(parameters, ";")) {
+			int index = parameter.indexOf('=');
+			if (index != -1 && parameter.substring(0, index).trim().equalsIgnoreCase("q")) {
+				try {
+					return Float.parseFloat(parameter.substring(index + 1).trim());
+				}
+				catch (NumberFormatException ex) {
+					return 0;
+				}
+			}
+		}
+		return 1;
+	}
+
+	/**
+	 * Whether a response body of the given media type and length should be
+	 * compressed.
+	 * @param contentType the media type of the body, if known
+	 * @param contentLength the length of the body, or -1 if not known
+	 */
+	public boolean isCompressible(@Nullable MimeType contentType, long contentLength) {
+		if (contentType == null || (contentLength >= 0 && contentLength < this.minSize)) {
+			return false;
+		}
+		for (MimeType mimeType : this.mimeTypes) {
+			if (mimeType.includes(contentType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Create a stream that compresses all content written to it into the given
+	 * stream, which receives the gzip trailer when the returned stream is
+	 * {@linkplain GZIPOutputStream#finish() finished}.
+	 * @param out the stream to write compressed content to
+	 */
+	public GZIPOutputStream createOutputStream(OutputStream out) throws IOException {
+		return new LevelGzipOutputStream(out, this.bufferSize, this.level);
+	}
+
+	/**
+	 * Compress the given content.
+	 * @param content the content to compress
+	 * @param contentLength the length of the content, used as a size estimate
+	 * @return the compressed content
+	 */
+	public byte[] compress(InputStream content, int contentLength) throws IOException {
+		FastByteArrayOutputStream out = new FastByteArrayOutputStream(Math.max(contentLength / 4, 256));
+		try (GZIPOutputStream gzip = createOutputStream(out)) {
+			StreamUtils.copy(content, gzip);
+		}
+		return out.toByteArrayUnsafe();
+	}
+
+
+	/**
+	 * Return the cached compressed content for the given key.
+	 * @param key the cache key, as determined by {@link #getCacheKey}
+	 * @param contentLength the length of the uncompressed content, to verify
+	 * the cached entry against, or -1 if not known
+	 * @return the cached content, or {@code null} if none
+	 */
+	@Nullable
+	public byte[] getCachedContent(String key, long contentLength) {
+		if (this.cacheSize == 0) {
+			return null;
+		}
+		synchronized (this.cache) {
+			CachedContent cached = this.cache.get(key);
+			if (cached == null || (contentLength >= 0 && cached.contentLength != contentLength)) {
+				return null;
+			}
+			return cached.compressed;
+		}
+	}
+
+	/**
+	 * Cache compressed content under the given key, if it fits in the cache.
+	 * <p><strong>Note:</strong> The key must only be derived from a strong ETag,
+	 * since a weak ETag does not guarantee the same content, and must account
+	 * for everything else the content may vary by: see {@link #getCacheKey}.
+	 * @param key the cache key, as determined by {@link #getCacheKey}
+	 * @param contentLength the length of the uncompressed content
+	 * @param compressed the compressed content
+	 */
+	public void cacheContent(String key, long contentLength, byte[] compressed) {
+		if (compressed.length > this.cacheSize) {
+			return;
+		}
+		synchronized (this.cache) {
+			CachedContent previous = this.cache.put(key, new CachedContent(contentLength, compressed));
+			if (previous != null) {
+				this.cachedSize -= previous.compressed.length;
+			}
+			this.cachedSize += compressed.length;
+			evict();
+		}
+	}
+
+	/**
+	 * Return the total size of the currently cached compressed content.
+	 */
+	public long getCachedSize() {
+		synchronized (this.cache) {
+			return this.cachedSize;
+		}
+	}
+
+	/**
+	 * Remove all entries from the cache.
+	 */
+	public void clearCache() {
+		synchronized (this.cache) {
+			this.cache.clear();
+			this.cachedSize = 0;
+		}
+	}
+
+	private void evict() {
+		Iterator<CachedContent> iterator = this.cache.values().iterator();
+		while (this.cachedSize > this.cacheSize && iterator.hasNext()) {
+			this.cachedSize -= iterator.next().compressed.length;
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Return the cache key for compressed content of the given response, or
+	 * {@code null} if the response is not suitable for caching compressed content.
+	 * <p>Following the rules of a shared HTTP cache, this is the case for
+	 * responses without a strong ETag, with a {@code Set-Cookie} header, with a
+	 * {@code private} or {@code no-store} cache directive, or with
+	 * {@code Vary: *}, as well as for responses to requests with an
+	 * {@code Authorization} header unless marked as {@code public}. The values
+	 * of request headers that the response varies by are part of the key.
+	 * @param path the path and query of the request
+	 * @param requestHeaders the headers of the request
+	 * @param responseHeaders the headers of the response
+	 */
+	@Nullable
+	public static String getCacheKey(String path, HttpHeaders requestHeaders, HttpHeaders responseHeaders) {
+		String eTag = responseHeaders.getETag();
+		if (!StringUtils.hasText(eTag) || eTag.startsWith("W/") ||
+				responseHeaders.containsKey(HttpHeaders.SET_COOKIE)) {
+			return null;
+		}
+		String cacheControl = StringUtils.collectionToCommaDelimitedString(
+				responseHeaders.getOrEmpty(HttpHeaders.CACHE_CONTROL)).toLowerCase(Locale.ROOT);
+		if (cacheControl.contains(DIRECTIVE_PRIVATE) || cacheControl.contains(DIRECTIVE_NO_STORE) ||
+				(requestHeaders.containsKey(HttpHeaders.AUTHORIZATION) && !cacheControl.contains(DIRECTIVE_PUBLIC))) {
+			return null;
+		}
+		StringBuilder key = new StringBuilder(path).append(' ').append(eTag);
+		for (String vary : responseHeaders.getVary()) {
+			if (vary.equals("*")) {
+				return null;
+			}
+			if (!vary.equalsIgnoreCase(HttpHeaders.ACCEPT_ENCODING)) {
+				key.append(' ').append(vary.toLowerCase(Locale.ROOT)).append('=')
+						.append(requestHeaders.getOrEmpty(vary));
+			}
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Return the ETag to use for the compressed representation of a response
+	 * with the given ETag: strong ETags are turned into weak ones, since they
+	 * identify the byte-for-byte identical uncompressed representation.
+	 * @param eTag the ETag of the response
+	 */
+	public static String getCompressedETag(String eTag) {
+		return (eTag.startsWith("W/") ? eTag : "W/" + eTag);
+	}
+
+
+	private static final class CachedContent {
+
+		final long contentLength;
+
+		final byte[] compressed;
+
+		CachedContent(long contentLength, byte[] compressed) {
+			this.contentLength = contentLength;
+			this.compressed = compressed;
+		}
+	}
+
+
+	/**
+	 * {@link GZIPOutputStream} with a configurable compression level.
+	 */
+	private static final class LevelGzipOutputStream extends GZIPOutputStream {
+
+		LevelGzipOutputStream(OutputStream out, int bufferSize, int level) throws IOException {
+			super(out, bufferSize);
+			this.def.setLevel(level);
+		}
+	}
+
+}
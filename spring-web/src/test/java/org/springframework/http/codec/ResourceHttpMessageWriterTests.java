@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,19 +17,25 @@
 package org.springframework.http.codec;
 
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
 import org.springframework.util.MimeTypeUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.testfixture.http.server.reactive.MockServerHttpRequest;
@@ -129,6 +135,42 @@ public class ResourceHttpMessageWriterTests {
 				.verify();
 	}
 
+	@Test
+	public void writeMultipleRegionsZeroCopy(@TempDir Path tempDir) throws Exception {
+		Path file = tempDir.resolve("test.txt");
+		Files.write(file, "Spring Framework test resource content.".getBytes(StandardCharsets.UTF_8));
+		ZeroCopyResponse response = new ZeroCopyResponse();
+
+		MockServerHttpRequest request = get("/").range(of(0, 5), of(7, 15)).build();
+		Mono<Void> mono = this.writer.write(Mono.just(new FileSystemResource(file)), null, null,
+				TEXT_PLAIN, request, response, HINTS);
+		StepVerifier.create(mono).expectComplete().verify();
+
+		assertThat(response.regions).hasSize(5);
+		assertThat(response.regions.get(1).getResource().isFile()).isTrue();
+		assertThat(response.regions.get(3).getResource().isFile()).isTrue();
+
+		String boundary = response.getHeaders().getContentType().toString().substring(30);
+		StepVerifier.create(response.getBodyAsString())
+				.consumeNextWith(content -> {
+					String[] actualRanges = StringUtils.tokenizeToStringArray(content, "\r\n", false, true);
+					String[] expected = new String[] {
+							"--" + boundary,
+							"Content-Type: text/plain",
+							"Content-Range: bytes 0-5/39",
+							"Spring",
+							"--" + boundary,
+							"Content-Type: text/plain",
+							"Content-Range: bytes 7-15/39",
+							"Framework",
+							"--" + boundary + "--"
+					};
+					assertThat(actualRanges).isEqualTo(expected);
+				})
+				.expectComplete()
+				.verify();
+	}
+
 	@Test
 	public void invalidRange() throws Exception {
 
@@ -148,4 +190,21 @@ public class ResourceHttpMessageWriterTests {
 		return HttpRange.createByteRange(first, last);
 	}
 
+
+	private static class ZeroCopyResponse extends MockServerHttpResponse implements ZeroCopyHttpOutputMessage {
+
+		private List<ResourceRegion> regions = Collections.emptyList();
+
+		@Override
+		public Mono<Void> writeWith(Path file, long position, long count) {
+			return Mono.error(new UnsupportedOperationException());
+		}
+
+		@Override
+		public Mono<Void> writeWith(List<ResourceRegion> regions) {
+			this.regions = regions;
+			return ZeroCopyHttpOutputMessage.super.writeWith(regions);
+		}
+	}
+
 }
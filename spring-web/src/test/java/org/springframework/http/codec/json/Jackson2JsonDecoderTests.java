@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -40,6 +40,7 @@ import org.springframework.core.ResolvableType;
 import org.springframework.core.codec.CodecException;
 import org.springframework.core.codec.DecodingException;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
 import org.springframework.core.testfixture.codec.AbstractDecoderTests;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.json.JacksonViewBean.MyJacksonView1;
@@ -139,6 +140,44 @@ public class Jackson2JsonDecoderTests extends AbstractDecoderTests<Jackson2JsonD
 	}
 
 
+	@Test
+	public void decodeToMonoWithValueSplitAcrossBuffers() {
+		Flux<DataBuffer> input = Flux.concat(
+				stringBuffer("{\"bar\":\"b"),
+				stringBuffer("1\",\"fo"),
+				stringBuffer("o\":\"f1\"}"),
+				stringBuffer("\n"));
+
+		testDecodeToMono(input, Pojo.class, step -> step
+				.expectNext(pojo1)
+				.verifyComplete());
+	}
+
+	@Test
+	public void decodeToMonoIgnoresContentAfterFirstValue() {
+		Flux<DataBuffer> input = Flux.concat(
+				stringBuffer("{\"bar\":\"b1\",\"foo\":\"f1\"}"),
+				stringBuffer("{\"bar\":\"b2\",\"foo\":\"f2\"}"),
+				stringBuffer("not json"));
+
+		testDecodeToMono(input, Pojo.class, step -> step
+				.expectNext(pojo1)
+				.verifyComplete());
+	}
+
+	@Test
+	public void decodeToMonoExceedingLimit() {
+		Flux<DataBuffer> input = Flux.concat(
+				stringBuffer("{\"bar\":\"b1\",\"foo\":"),
+				stringBuffer("\"f1\"}"));
+
+		Jackson2JsonDecoder decoder = new Jackson2JsonDecoder();
+		decoder.setMaxInMemorySize(16);
+
+		StepVerifier.create(decoder.decodeToMono(input, forClass(Pojo.class), null, emptyMap()))
+				.verifyError(DataBufferLimitException.class);
+	}
+
 	@Test
 	public void decodeEmptyArrayToFlux() {
 		Flux<DataBuffer> input = Flux.from(stringBuffer("[]"));
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,8 +18,10 @@ package org.springframework.http.codec.json;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
@@ -34,6 +36,8 @@ import reactor.test.StepVerifier;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.core.testfixture.codec.AbstractEncoderTests;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerSentEvent;
@@ -100,6 +104,63 @@ public class Jackson2JsonEncoderTests extends AbstractEncoderTests<Jackson2JsonE
 				APPLICATION_STREAM_JSON, null);
 	}
 
+	@Test
+	public void encodeWriteDirectlyToDataBuffer() {
+		this.encoder.setWriteDirectlyToDataBuffer(true);
+		Flux<Object> input = Flux.just(new Pojo("foo", "bar"),
+				new Pojo("foofoo", "barbar"),
+				new Pojo("foofoofoo", "barbarbar"));
+
+		testEncodeAll(input, ResolvableType.forClass(Pojo.class), step -> step
+				.consumeNextWith(expectString("{\"foo\":\"foo\",\"bar\":\"bar\"}\n"))
+				.consumeNextWith(expectString("{\"foo\":\"foofoo\",\"bar\":\"barbar\"}\n"))
+				.consumeNextWith(expectString("{\"foo\":\"foofoofoo\",\"bar\":\"barbarbar\"}\n"))
+				.verifyComplete(),
+				APPLICATION_STREAM_JSON, null);
+	}
+
+	@Test
+	public void encodeNonStreamWriteDirectlyToDataBuffer() {
+		this.encoder.setWriteDirectlyToDataBuffer(true);
+		Flux<Pojo> input = Flux.just(
+				new Pojo("foo", "bar"),
+				new Pojo("foofoo", "barbar")
+		);
+
+		testEncode(input, Pojo.class, step -> step
+				.consumeNextWith(expectString("[" +
+						"{\"foo\":\"foo\",\"bar\":\"bar\"}," +
+						"{\"foo\":\"foofoo\",\"bar\":\"barbar\"}]"))
+				.verifyComplete());
+	}
+
+	@Test
+	public void writeDirectlyToDataBufferWithCappedSizeHint() {
+		this.encoder.setWriteDirectlyToDataBuffer(true);
+		List<Integer> capacities = new ArrayList<>();
+		DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory() {
+			@Override
+			public DefaultDataBuffer allocateBuffer(int initialCapacity) {
+				capacities.add(initialCapacity);
+				return super.allocateBuffer(initialCapacity);
+			}
+		};
+		ResolvableType pojoType = ResolvableType.forClass(Pojo.class);
+		Pojo large = new Pojo(String.join("", Collections.nCopies(100000, "a")), "bar");
+		Pojo small = new Pojo("foo", "bar");
+
+		this.encoder.encodeValue(large, bufferFactory, pojoType, APPLICATION_JSON, null);
+		this.encoder.encodeValue(small, bufferFactory, pojoType, APPLICATION_JSON, null);
+		assertThat(capacities).containsExactly(256, 4096);
+
+		capacities.clear();
+		this.encoder.encode(Flux.just(large, small), bufferFactory, pojoType, APPLICATION_STREAM_JSON, null)
+				.blockLast(Duration.ofSeconds(5));
+		this.encoder.encode(Flux.just(small), bufferFactory, pojoType, APPLICATION_STREAM_JSON, null)
+				.blockLast(Duration.ofSeconds(5));
+		assertThat(capacities).containsExactly(257, 4097, 257);
+	}
+
 	@Test // SPR-15866
 	public void canEncodeWithCustomMimeType() {
 		MimeType textJavascript = new MimeType("text", "javascript", StandardCharsets.UTF_8);
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.testfixture.io.buffer.AbstractLeakCheckingTests;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.testfixture.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.testfixture.http.server.reactive.MockServerHttpRequest;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link DefaultPartHttpMessageReader}.
+ */
+class DefaultPartHttpMessageReaderTests extends AbstractLeakCheckingTests {
+
+	private static final ResolvableType PART_TYPE = ResolvableType.forClass(Part.class);
+
+	private static final String LOREM_IPSUM =
+			"Lorem ipsum dolor sit amet, consectetur adipiscing elit. Integer iaculis metus id vestibulum nullam.";
+
+	private static final String MUSPI_MEROL =
+			".mallun mulubitsev di sutem silucai regetnI .tile gnicsipida rutetcesnoc ,tema tis rolod muspi meroL";
+
+	private final DefaultPartHttpMessageReader reader = new DefaultPartHttpMessageReader();
+
+	@TempDir
+	Path tempDir;
+
+
+	@Test
+	void canRead() {
+		assertThat(this.reader.canRead(PART_TYPE, MediaType.MULTIPART_FORM_DATA)).isTrue();
+		assertThat(this.reader.canRead(PART_TYPE, MediaType.MULTIPART_MIXED)).isTrue();
+		assertThat(this.reader.canRead(PART_TYPE, null)).isTrue();
+		assertThat(this.reader.canRead(PART_TYPE, MediaType.APPLICATION_FORM_URLENCODED)).isFalse();
+		assertThat(this.reader.canRead(ResolvableType.forClass(String.class), MediaType.MULTIPART_FORM_DATA)).isFalse();
+	}
+
+	@Test
+	void resolveParts() {
+		List<Part> parts = this.reader.read(PART_TYPE, generateMultipartRequest(), emptyMap())
+				.collectList().block(Duration.ofSeconds(5));
+
+		assertThat(parts).hasSize(2);
+		Part part = parts.get(0);
+		assertThat(part).isInstanceOf(FilePart.class);
+		assertThat(part.name()).isEqualTo("filePart");
+		assertThat(((FilePart) part).filename()).isEqualTo("foo.txt");
+		assertThat(contentAsString(part)).isEqualTo("Lorem Ipsum.");
+
+		part = parts.get(1);
+		assertThat(part).isInstanceOf(FormFieldPart.class);
+		assertThat(part.name()).isEqualTo("textPart");
+		assertThat(((FormFieldPart) part).value()).isEqualTo("sample-text");
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {1, 7, 64, 4096})
+	void delimiterAcrossBuffers(int bufferSize) throws IOException {
+		ServerHttpRequest request = fileRequest("firefox.multipart", "---------------------------18399284482060392383840973206", bufferSize);
+		List<Part> parts = this.reader.read(PART_TYPE, request, emptyMap())
+				.collectList().block(Duration.ofSeconds(5));
+
+		assertThat(parts).hasSize(5);
+		assertThat(((FormFieldPart) parts.get(0)).value()).isEqualTo("a");
+		assertThat(((FormFieldPart) parts.get(1)).value()).isEqualTo("b");
+		assertThat(((FilePart) parts.get(2)).filename()).isEqualTo("a.txt");
+		assertThat(contentAsString(parts.get(2))).isEqualTo(LOREM_IPSUM + "\r\n");
+		assertThat(parts.get(3).name()).isEqualTo("file2");
+		assertThat(contentAsString(parts.get(3))).isEqualTo(LOREM_IPSUM + "\r\n");
+		assertThat(((FilePart) parts.get(4)).filename()).isEqualTo("b.txt");
+		assertThat(contentAsString(parts.get(4))).isEqualTo(MUSPI_MEROL + "\r\n");
+	}
+
+	@Test
+	void contentWrittenToDisk() {
+		this.reader.setMaxInMemorySize(5);
+		this.reader.setFileStorageDirectory(this.tempDir);
+		List<Part> parts = this.reader.read(PART_TYPE, generateMultipartRequest(), emptyMap())
+				.collectList().block(Duration.ofSeconds(5));
+
+		assertThat(parts).hasSize(2);
+		Part part = parts.get(0);
+		assertThat(part).isInstanceOf(FilePart.class);
+		assertThat(contentAsString(part)).isEqualTo("Lorem Ipsum.");
+		StepVerifier.create(part.content())
+				.expectError(IllegalStateException.class)
+				.verify();
+	}
+
+	@Test
+	void transferToFromDisk() throws IOException {
+		this.reader.setMaxInMemorySize(5);
+		this.reader.setFileStorageDirectory(this.tempDir);
+		List<Part> parts = this.reader.read(PART_TYPE, generateMultipartRequest(), emptyMap())
+				.collectList().block(Duration.ofSeconds(5));
+
+		FilePart part = (FilePart) parts.get(0);
+		Path dest = Files.createTempFile("DefaultPartHttpMessageReaderTests", ".txt");
+		try {
+			part.transferTo(dest).block(Duration.ofSeconds(5));
+			assertThat(new String(Files.readAllBytes(dest), UTF_8)).isEqualTo("Lorem Ipsum.");
+			assertThat(Files.list(this.tempDir)).isEmpty();
+		}
+		finally {
+			Files.deleteIfExists(dest);
+		}
+	}
+
+	@Test
+	void transferToFromMemory() throws IOException {
+		List<Part> parts = this.reader.read(PART_TYPE, generateMultipartRequest(), emptyMap())
+				.collectList().block(Duration.ofSeconds(5));
+
+		FilePart part = (FilePart) parts.get(0);
+		Path dest = Files.createTempFile("DefaultPartHttpMessageReaderTests", ".txt");
+		try {
+			part.transferTo(dest).block(Duration.ofSeconds(5));
+			assertThat(new String(Files.readAllBytes(dest), UTF_8)).isEqualTo("Lorem Ipsum.");
+		}
+		finally {
+			Files.deleteIfExists(dest);
+		}
+	}
+
+	@Test
+	void deleteReleasesContentInMemory() {
+		List<Part> parts = this.reader.read(PART_TYPE, generateMultipartRequest(), emptyMap())
+				.collectList().block(Duration.ofSeconds(5));
+
+		Part part = parts.get(0);
+		part.delete().block(Duration.ofSeconds(5));
+		StepVerifier.create(part.content())
+				.expectError(IllegalStateException.class)
+				.verify();
+	}
+
+	@Test
+	void deleteRemovesFile() throws IOException {
+		this.reader.setMaxInMemorySize(5);
+		this.reader.setFileStorageDirectory(this.tempDir);
+		List<Part> parts = this.reader.read(PART_TYPE, generateMultipartRequest(), emptyMap())
+				.collectList().block(Duration.ofSeconds(5));
+
+		assertThat(Files.list(this.tempDir)).hasSize(1);
+		parts.get(0).delete().block(Duration.ofSeconds(5));
+		assertThat(Files.list(this.tempDir)).isEmpty();
+	}
+
+	@Test
+	void cancelContentReleasesRemainingBuffers() throws IOException {
+		ServerHttpRequest request = fileRequest("firefox.multipart", "---------------------------18399284482060392383840973206", 7);
+		List<Part> parts = this.reader.read(PART_TYPE, request, emptyMap())
+				.collectList().block(Duration.ofSeconds(5));
+
+		StepVerifier.create(parts.get(2).content(), 1)
+				.consumeNextWith(DataBufferUtils::release)
+				.thenCancel()
+				.verify();
+		Flux.fromIterable(parts).flatMap(Part::delete).blockLast(Duration.ofSeconds(5));
+	}
+
+	@Test
+	void readTooManyParts() {
+		testMultipartExceptions(reader -> reader.setMaxParts(1), ex ->
+				assertThat(ex)
+						.isInstanceOf(DecodingException.class)
+						.hasMessage("Too many parts (1 allowed)"));
+	}
+
+	@Test
+	void readFilePartTooBig() {
+		testMultipartExceptions(reader -> reader.setMaxDiskUsagePerPart(5), ex ->
+				assertThat(ex)
+						.isInstanceOf(DecodingException.class)
+						.hasMessage("Part[1] exceeded the disk usage limit of 5 bytes"));
+	}
+
+	@Test
+	void readFormFieldTooBig() {
+		testMultipartExceptions(reader -> {
+					reader.setMaxInMemorySize(5);
+					reader.setFileStorageDirectory(this.tempDir);
+				}, ex ->
+				assertThat(ex)
+						.isInstanceOf(DataBufferLimitException.class)
+						.hasMessage("Part[2] exceeded the in-memory limit of 5 bytes"));
+	}
+
+	@Test
+	void readHeadersTooBig() {
+		testMultipartExceptions(reader -> reader.setMaxHeadersSize(10), ex ->
+				assertThat(ex)
+						.isInstanceOf(DataBufferLimitException.class)
+						.hasMessage("Part headers exceeded the limit of 10 bytes"));
+	}
+
+	@Test
+	void noEndBoundary() throws IOException {
+		ServerHttpRequest request = fileRequest("part-no-end-boundary.multipart", "boundary", 1024);
+		StepVerifier.create(this.reader.read(PART_TYPE, request, emptyMap()))
+				.expectError(DecodingException.class)
+				.verify();
+	}
+
+	@Test
+	void noBoundaryParameter() {
+		ServerHttpRequest request = MockServerHttpRequest.post("/")
+				.contentType(MediaType.MULTIPART_FORM_DATA)
+				.body(Flux.just(this.bufferFactory.wrap("invalid content".getBytes(UTF_8))));
+		StepVerifier.create(this.reader.read(PART_TYPE, request, emptyMap()))
+				.expectError(DecodingException.class)
+				.verify();
+	}
+
+
+	private void testMultipartExceptions(
+			Consumer<DefaultPartHttpMessageReader> configurer, Consumer<Throwable> assertions) {
+
+		configurer.accept(this.reader);
+		StepVerifier.create(this.reader.read(PART_TYPE, generateMultipartRequest(), emptyMap()))
+				.thenConsumeWhile(part -> true)
+				.consumeErrorWith(assertions)
+				.verify();
+	}
+
+	private ServerHttpRequest generateMultipartRequest() {
+		MultipartBodyBuilder partsBuilder = new MultipartBodyBuilder();
+		partsBuilder.part("filePart", new ClassPathResource("org/springframework/http/codec/multipart/foo.txt"));
+		partsBuilder.part("textPart", "sample-text");
+
+		MockClientHttpRequest outputMessage = new MockClientHttpRequest(HttpMethod.POST, "/");
+		new MultipartHttpMessageWriter()
+				.write(Mono.just(partsBuilder.build()), null, MediaType.MULTIPART_FORM_DATA, outputMessage, null)
+				.block(Duration.ofSeconds(5));
+		Flux<DataBuffer> requestBody = outputMessage.getBody()
+				.map(buffer -> this.bufferFactory.wrap(buffer.asByteBuffer()));
+		return MockServerHttpRequest.post("/")
+				.contentType(outputMessage.getHeaders().getContentType())
+				.body(requestBody);
+	}
+
+	private ServerHttpRequest fileRequest(String fileName, String boundary, int bufferSize) throws IOException {
+		ReadableByteChannel channel = new ClassPathResource(fileName, getClass()).readableChannel();
+		Flux<DataBuffer> body = DataBufferUtils.readByteChannel(() -> channel, this.bufferFactory, bufferSize);
+		MediaType contentType = new MediaType("multipart", "form-data", singletonMap("boundary", boundary));
+		return MockServerHttpRequest.post("/")
+				.contentType(contentType)
+				.body(body);
+	}
+
+	private static String contentAsString(Part part) {
+		DataBuffer buffer = DataBufferUtils.join(part.content()).block(Duration.ofSeconds(5));
+		assertThat(buffer).isNotNull();
+		String result = buffer.toString(UTF_8);
+		DataBufferUtils.release(buffer);
+		return result;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.http.codec.protobuf;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
 
@@ -200,6 +201,31 @@ public class ProtobufDecoderTests extends AbstractDecoderTests<ProtobufDecoder>
 				.verifyComplete());
 	}
 
+	@Test
+	public void decodeMessagesSpanningSeveralChunks() throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		this.testMsg1.writeDelimitedTo(bos);
+		this.testMsg2.writeDelimitedTo(bos);
+		Msg.getDefaultInstance().writeDelimitedTo(bos);
+		this.testMsg1.writeDelimitedTo(bos);
+		byte[] bytes = bos.toByteArray();
+
+		Flux<DataBuffer> input = Flux.range(0, (bytes.length + 2) / 3)
+				.map(i -> {
+					int length = Math.min(3, bytes.length - i * 3);
+					DataBuffer buffer = this.bufferFactory.allocateBuffer(length);
+					buffer.write(bytes, i * 3, length);
+					return buffer;
+				});
+
+		testDecode(input, Msg.class, step -> step
+				.expectNext(this.testMsg1)
+				.expectNext(this.testMsg2)
+				.expectNext(Msg.getDefaultInstance())
+				.expectNext(this.testMsg1)
+				.verifyComplete());
+	}
+
 	@Test
 	public void decodeMergedChunks() throws IOException {
 		DataBuffer buffer = this.bufferFactory.allocateBuffer();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -97,6 +97,18 @@ public class ProtobufEncoderTests extends AbstractEncoderTests<ProtobufEncoder>
 				.verifyComplete());
 	}
 
+	@Test
+	public void encodeValueWithExactSize() throws IOException {
+		DataBuffer buffer = this.encoder.encodeValue(this.msg1, this.bufferFactory, forClass(Msg.class), null, null);
+		try {
+			assertThat(buffer.readableByteCount()).isEqualTo(this.msg1.getSerializedSize());
+			assertThat(Msg.parseFrom(buffer.asInputStream())).isEqualTo(this.msg1);
+		}
+		finally {
+			DataBufferUtils.release(buffer);
+		}
+	}
+
 	protected final Consumer<DataBuffer> expect(Msg msg) {
 		return dataBuffer -> {
 			try {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.http.codec.xml;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -206,6 +207,38 @@ public class Jaxb2XmlDecoderTests extends AbstractLeakCheckingTests {
 				.verify();
 	}
 
+	@Test
+	public void decodeMultipleXmlRootElementSplitAcrossBuffers() {
+		List<String> chunks = new ArrayList<>();
+		for (int i = 0; i < POJO_CHILD.length(); i += 5) {
+			chunks.add(POJO_CHILD.substring(i, Math.min(i + 5, POJO_CHILD.length())));
+		}
+		Flux<DataBuffer> source = Flux.fromIterable(chunks).concatMap(this::toDataBufferMono);
+		Flux<Object> output = this.decoder.decode(source, ResolvableType.forClass(Pojo.class), null, HINTS);
+
+		StepVerifier.create(output)
+				.expectNext(new Pojo("foo", "bar"))
+				.expectNext(new Pojo("foofoo", "barbar"))
+				.expectComplete()
+				.verify();
+	}
+
+	@Test
+	public void decodeMultipleXmlRootElementWithAncestorNamespace() {
+		Mono<DataBuffer> source = toDataBufferMono("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+				"<i:items xmlns:i=\"urn:items\">" +
+				"<i:item><foo>foo</foo></i:item>" +
+				"<i:item><foo>foofoo</foo></i:item>" +
+				"</i:items>");
+		Flux<Object> output = this.decoder.decode(source, ResolvableType.forClass(NamespacedPojo.class), null, HINTS);
+
+		StepVerifier.create(output)
+				.consumeNextWith(o -> assertThat(((NamespacedPojo) o).getFoo()).isEqualTo("foo"))
+				.consumeNextWith(o -> assertThat(((NamespacedPojo) o).getFoo()).isEqualTo("foofoo"))
+				.expectComplete()
+				.verify();
+	}
+
 	@Test
 	public void decodeError() {
 		Flux<DataBuffer> source = Flux.concat(
@@ -253,6 +286,21 @@ public class Jaxb2XmlDecoderTests extends AbstractLeakCheckingTests {
 	}
 
 
+	@javax.xml.bind.annotation.XmlRootElement(name = "item", namespace = "urn:items")
+	public static class NamespacedPojo {
+
+		private String foo;
+
+		public String getFoo() {
+			return this.foo;
+		}
+
+		public void setFoo(String foo) {
+			this.foo = foo;
+		}
+	}
+
+
 	@javax.xml.bind.annotation.XmlType(name = "pojo")
 	public static class TypePojo {
 
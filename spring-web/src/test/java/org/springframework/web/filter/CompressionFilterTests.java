@@ -0,0 +1,175 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.filter;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.testfixture.servlet.MockHttpServletRequest;
+import org.springframework.web.testfixture.servlet.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link CompressionFilter}.
+ */
+public class CompressionFilterTests {
+
+	private static final byte[] CONTENT =
+			String.join("", Collections.nCopies(500, "Hello World ")).getBytes(StandardCharsets.UTF_8);
+
+
+	private final CompressionFilter filter = new CompressionFilter();
+
+
+	@Test
+	public void compress() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hello");
+		request.addHeader("Accept-Encoding", "gzip, deflate");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, writeContent("text/plain;charset=UTF-8", CONTENT));
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+		assertThat(response.getHeader("Vary")).isEqualTo("Accept-Encoding");
+		assertThat(response.getContentLength()).isEqualTo(response.getContentAsByteArray().length);
+		assertThat(response.getContentLength()).isLessThan(CONTENT.length);
+		assertThat(decompress(response.getContentAsByteArray())).isEqualTo(CONTENT);
+	}
+
+	@Test
+	public void noCompressionWithoutAcceptEncoding() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hello");
+		request.addHeader("Accept-Encoding", "br, gzip;q=0");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, writeContent("text/plain", CONTENT));
+
+		assertThat(response.getHeader("Content-Encoding")).isNull();
+		assertThat(response.getContentAsByteArray()).isEqualTo(CONTENT);
+	}
+
+	@Test
+	public void noCompressionForIneligibleResponses() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hello");
+		request.addHeader("Accept-Encoding", "gzip");
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.filter.doFilter(request, response, writeContent("image/png", CONTENT));
+		assertThat(response.getHeader("Content-Encoding")).isNull();
+		assertThat(response.getContentAsByteArray()).isEqualTo(CONTENT);
+		assertThat(response.getContentLength()).isEqualTo(CONTENT.length);
+
+		byte[] smallContent = "Hello World".getBytes(StandardCharsets.UTF_8);
+		response = new MockHttpServletResponse();
+		this.filter.doFilter(request, response, writeContent("text/plain", smallContent));
+		assertThat(response.getHeader("Content-Encoding")).isNull();
+		assertThat(response.getContentAsByteArray()).isEqualTo(smallContent);
+
+		response = new MockHttpServletResponse();
+		this.filter.doFilter(request, response, (filterRequest, filterResponse) -> {
+			((HttpServletResponse) filterResponse).setHeader("Cache-Control", "no-transform");
+			writeContent("text/plain", CONTENT).doFilter(filterRequest, filterResponse);
+		});
+		assertThat(response.getHeader("Content-Encoding")).isNull();
+		assertThat(response.getContentAsByteArray()).isEqualTo(CONTENT);
+	}
+
+	@Test
+	public void compressOnceWithCache() throws Exception {
+		this.filter.getCompressor().setCacheSize(1024 * 1024);
+		AtomicInteger invocations = new AtomicInteger();
+		FilterChain filterChain = (filterRequest, filterResponse) -> {
+			invocations.incrementAndGet();
+			((HttpServletResponse) filterResponse).setHeader("ETag", "\"123\"");
+			writeContent("text/plain", CONTENT).doFilter(filterRequest, filterResponse);
+		};
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hello");
+		request.addHeader("Accept-Encoding", "gzip");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.filter.doFilter(request, response, filterChain);
+		byte[] compressed = response.getContentAsByteArray();
+		assertThat(this.filter.getCompressor().getCachedSize()).isEqualTo(compressed.length);
+
+		response = new MockHttpServletResponse();
+		this.filter.doFilter(request, response, filterChain);
+		assertThat(invocations.get()).isEqualTo(2);
+		assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+		assertThat(response.getHeader("ETag")).isEqualTo("W/\"123\"");
+		assertThat(response.getContentAsByteArray()).isEqualTo(compressed);
+		assertThat(decompress(response.getContentAsByteArray())).isEqualTo(CONTENT);
+	}
+
+	@Test
+	public void noCacheWithSetCookie() throws Exception {
+		this.filter.getCompressor().setCacheSize(1024 * 1024);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hello");
+		request.addHeader("Accept-Encoding", "gzip");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, (filterRequest, filterResponse) -> {
+			((HttpServletResponse) filterResponse).setHeader("ETag", "\"123\"");
+			((HttpServletResponse) filterResponse).addHeader("Set-Cookie", "id=1");
+			writeContent("text/plain", CONTENT).doFilter(filterRequest, filterResponse);
+		});
+		assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+		assertThat(response.getHeader("ETag")).isEqualTo("W/\"123\"");
+		assertThat(this.filter.getCompressor().getCachedSize()).isEqualTo(0);
+	}
+
+	@Test
+	public void streamingWithContentCachingDisabled() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hello");
+		request.addHeader("Accept-Encoding", "gzip");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.filter.doFilter(request, response, (filterRequest, filterResponse) -> {
+			ShallowEtagHeaderFilter.disableContentCaching(filterRequest);
+			filterResponse.setContentType("text/plain");
+			FileCopyUtils.copy(CONTENT, filterResponse.getOutputStream());
+		});
+
+		assertThat(response.getHeader("Content-Encoding")).isNull();
+		assertThat(response.getContentAsByteArray()).isEqualTo(CONTENT);
+	}
+
+
+	private static FilterChain writeContent(String contentType, byte[] content) {
+		return (filterRequest, filterResponse) -> {
+			filterResponse.setContentType(contentType);
+			filterResponse.setContentLength(content.length);
+			FileCopyUtils.copy(content, filterResponse.getOutputStream());
+		};
+	}
+
+	private static byte[] decompress(byte[] content) throws Exception {
+		return StreamUtils.copyToByteArray(new GZIPInputStream(new ByteArrayInputStream(content)));
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -266,4 +266,83 @@ public class ShallowEtagHeaderFilterTests {
 		assertThat(response.getContentAsByteArray()).as("Invalid content").isEqualTo(responseBody);
 	}
 
+	@Test
+	public void filterNoMatchChecksumETag() throws Exception {
+		this.filter.setChecksumETag(true);
+		final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hotels");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		final byte[] responseBody = "Hello World".getBytes(StandardCharsets.UTF_8);
+		FilterChain filterChain = (filterRequest, filterResponse) -> {
+			((HttpServletResponse) filterResponse).setStatus(HttpServletResponse.SC_OK);
+			filterResponse.getOutputStream().write(responseBody, 0, 5);
+			filterResponse.getOutputStream().write(responseBody[5]);
+			filterResponse.getOutputStream().write(responseBody, 6, 5);
+		};
+		filter.doFilter(request, response, filterChain);
+
+		assertThat(response.getStatus()).as("Invalid status").isEqualTo(200);
+		assertThat(response.getHeader("ETag")).as("Invalid ETag").isEqualTo("\"4a17b156-b\"");
+		assertThat(response.getContentLength() > 0).as("Invalid Content-Length header").isTrue();
+		assertThat(response.getContentAsByteArray()).as("Invalid content").isEqualTo(responseBody);
+	}
+
+	@Test
+	public void filterMatchChecksumETagWithWriter() throws Exception {
+		this.filter.setChecksumETag(true);
+		final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hotels");
+		request.addHeader("If-None-Match", "\"4a17b156-b\"");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		FilterChain filterChain = (filterRequest, filterResponse) -> {
+			((HttpServletResponse) filterResponse).setStatus(HttpServletResponse.SC_OK);
+			filterResponse.setCharacterEncoding("UTF-8");
+			filterResponse.getWriter().write("Hello World");
+		};
+		filter.doFilter(request, response, filterChain);
+
+		assertThat(response.getStatus()).as("Invalid status").isEqualTo(304);
+		assertThat(response.getHeader("ETag")).as("Invalid ETag").isEqualTo("\"4a17b156-b\"");
+		assertThat(response.getContentAsByteArray()).as("Invalid content").isEmpty();
+	}
+
+	@Test
+	public void filterContentCacheLimitExceeded() throws Exception {
+		this.filter.setContentCacheLimit(5);
+		final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hotels");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		final byte[] responseBody = "Hello World".getBytes(StandardCharsets.UTF_8);
+		FilterChain filterChain = (filterRequest, filterResponse) -> {
+			((HttpServletResponse) filterResponse).setStatus(HttpServletResponse.SC_OK);
+			filterResponse.getOutputStream().write(responseBody, 0, 5);
+			assertThat(response.getContentAsByteArray()).isEmpty();
+			filterResponse.getOutputStream().write(responseBody, 5, 6);
+			assertThat(response.getContentAsByteArray()).isEqualTo(responseBody);
+		};
+		filter.doFilter(request, response, filterChain);
+
+		assertThat(response.getStatus()).as("Invalid status").isEqualTo(200);
+		assertThat(response.getHeader("ETag")).as("Invalid ETag").isNull();
+		assertThat(response.getContentAsByteArray()).as("Invalid content").isEqualTo(responseBody);
+	}
+
+	@Test
+	public void filterContentCacheLimitNotExceeded() throws Exception {
+		this.filter.setContentCacheLimit(11);
+		final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hotels");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		final byte[] responseBody = "Hello World".getBytes(StandardCharsets.UTF_8);
+		FilterChain filterChain = (filterRequest, filterResponse) -> {
+			((HttpServletResponse) filterResponse).setStatus(HttpServletResponse.SC_OK);
+			FileCopyUtils.copy(responseBody, filterResponse.getOutputStream());
+		};
+		filter.doFilter(request, response, filterChain);
+
+		assertThat(response.getStatus()).as("Invalid status").isEqualTo(200);
+		assertThat(response.getHeader("ETag")).as("Invalid ETag").isEqualTo("\"0b10a8db164e0754105b7a99be72e3fe5\"");
+		assertThat(response.getContentAsByteArray()).as("Invalid content").isEqualTo(responseBody);
+	}
+
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.filter.reactive;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.testfixture.http.server.reactive.MockServerHttpRequest;
+import org.springframework.web.testfixture.http.server.reactive.MockServerHttpResponse;
+import org.springframework.web.testfixture.server.MockServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link CompressionWebFilter}.
+ */
+public class CompressionWebFilterTests {
+
+	private static final String CHUNK = String.join("", Collections.nCopies(100, "Hello World "));
+
+	private static final byte[] CONTENT =
+			String.join("", Collections.nCopies(5, CHUNK)).getBytes(StandardCharsets.UTF_8);
+
+
+	private final CompressionWebFilter filter = new CompressionWebFilter();
+
+
+	@Test
+	public void compress() throws Exception {
+		MockServerWebExchange exchange = exchange("gzip, deflate");
+		this.filter.filter(exchange, writeContent(MediaType.TEXT_PLAIN, headers -> {})).block(Duration.ofSeconds(5));
+
+		MockServerHttpResponse response = exchange.getResponse();
+		assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+		assertThat(response.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+		assertThat(response.getHeaders().getContentLength()).isEqualTo(-1);
+		byte[] compressed = getBody(response);
+		assertThat(compressed.length).isLessThan(CONTENT.length);
+		assertThat(decompress(compressed)).isEqualTo(CONTENT);
+	}
+
+	@Test
+	public void noCompressionWithoutAcceptEncoding() throws Exception {
+		MockServerWebExchange exchange = exchange("identity");
+		this.filter.filter(exchange, writeContent(MediaType.TEXT_PLAIN, headers -> {})).block(Duration.ofSeconds(5));
+
+		MockServerHttpResponse response = exchange.getResponse();
+		assertThat(response.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+		assertThat(getBody(response)).isEqualTo(CONTENT);
+	}
+
+	@Test
+	public void noCompressionForIneligibleResponses() throws Exception {
+		MockServerWebExchange exchange = exchange("gzip");
+		this.filter.filter(exchange, writeContent(MediaType.IMAGE_PNG, headers -> {})).block(Duration.ofSeconds(5));
+		assertThat(exchange.getResponse().getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+		assertThat(getBody(exchange.getResponse())).isEqualTo(CONTENT);
+
+		exchange = exchange("gzip");
+		this.filter.filter(exchange, writeContent(MediaType.TEXT_PLAIN,
+				headers -> headers.setCacheControl("no-transform"))).block(Duration.ofSeconds(5));
+		assertThat(exchange.getResponse().getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+		assertThat(getBody(exchange.getResponse())).isEqualTo(CONTENT);
+
+		exchange = exchange("gzip");
+		this.filter.filter(exchange, writeContent(MediaType.TEXT_PLAIN,
+				headers -> headers.set(HttpHeaders.CONTENT_ENCODING, "br"))).block(Duration.ofSeconds(5));
+		assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("br");
+		assertThat(getBody(exchange.getResponse())).isEqualTo(CONTENT);
+	}
+
+	@Test
+	public void compressOnceWithCache() throws Exception {
+		this.filter.getCompressor().setCacheSize(1024 * 1024);
+		AtomicInteger invocations = new AtomicInteger();
+		WebFilterChain chain = writeContent(MediaType.TEXT_PLAIN, headers -> {
+			invocations.incrementAndGet();
+			headers.setETag("\"123\"");
+			headers.setContentLength(CONTENT.length);
+		});
+
+		MockServerWebExchange exchange = exchange("gzip");
+		this.filter.filter(exchange, chain).block(Duration.ofSeconds(5));
+		byte[] compressed = getBody(exchange.getResponse());
+		assertThat(this.filter.getCompressor().getCachedSize()).isEqualTo(compressed.length);
+
+		exchange = exchange("gzip");
+		this.filter.filter(exchange, chain).block(Duration.ofSeconds(5));
+		assertThat(invocations.get()).isEqualTo(2);
+		assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+		assertThat(exchange.getResponse().getHeaders().getContentLength()).isEqualTo(compressed.length);
+		assertThat(exchange.getResponse().getHeaders().getETag()).isEqualTo("W/\"123\"");
+		assertThat(getBody(exchange.getResponse())).isEqualTo(compressed);
+	}
+
+	@Test
+	public void noCacheWithSetCookie() throws Exception {
+		this.filter.getCompressor().setCacheSize(1024 * 1024);
+		MockServerWebExchange exchange = exchange("gzip");
+		this.filter.filter(exchange, writeContent(MediaType.TEXT_PLAIN, headers -> {
+			headers.setETag("\"123\"");
+			headers.add(HttpHeaders.SET_COOKIE, "id=1");
+		})).block(Duration.ofSeconds(5));
+
+		assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+		assertThat(exchange.getResponse().getHeaders().getETag()).isEqualTo("W/\"123\"");
+		assertThat(this.filter.getCompressor().getCachedSize()).isEqualTo(0);
+	}
+
+
+	private static MockServerWebExchange exchange(String acceptEncoding) {
+		return MockServerWebExchange.from(
+				MockServerHttpRequest.get("/hello").header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding));
+	}
+
+	private static WebFilterChain writeContent(MediaType contentType, Consumer<HttpHeaders> headersConsumer) {
+		return exchange -> {
+			ServerHttpResponse response = exchange.getResponse();
+			response.getHeaders().setContentType(contentType);
+			headersConsumer.accept(response.getHeaders());
+			return response.writeWith(Flux.range(0, 5).map(i -> {
+				byte[] bytes = CHUNK.getBytes(StandardCharsets.UTF_8);
+				DataBuffer buffer = response.bufferFactory().allocateBuffer(bytes.length);
+				return buffer.write(bytes);
+			}));
+		};
+	}
+
+	private static byte[] getBody(MockServerHttpResponse response) {
+		DataBuffer buffer = DataBufferUtils.join(response.getBody()).block(Duration.ofSeconds(5));
+		byte[] bytes = new byte[buffer.readableByteCount()];
+		buffer.read(bytes);
+		DataBufferUtils.release(buffer);
+		return bytes;
+	}
+
+	private static byte[] decompress(byte[] content) throws Exception {
+		return StreamUtils.copyToByteArray(new GZIPInputStream(new ByteArrayInputStream(content)));
+	}
+
+}
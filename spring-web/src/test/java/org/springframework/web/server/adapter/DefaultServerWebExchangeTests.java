@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,12 +16,28 @@
 
 package org.springframework.web.server.adapter;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
 
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.multipart.DefaultPartHttpMessageReader;
+import org.springframework.http.codec.multipart.MultipartHttpMessageReader;
+import org.springframework.http.codec.multipart.MultipartHttpMessageWriter;
+import org.springframework.http.codec.multipart.Part;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.i18n.AcceptHeaderLocaleContextResolver;
 import org.springframework.web.server.session.DefaultWebSessionManager;
+import org.springframework.web.testfixture.http.client.reactive.MockClientHttpRequest;
 import org.springframework.web.testfixture.http.server.reactive.MockServerHttpRequest;
 import org.springframework.web.testfixture.http.server.reactive.MockServerHttpResponse;
 
@@ -57,6 +73,36 @@ public class DefaultServerWebExchangeTests {
 	}
 
 
+	@Test
+	public void cleanupMultipart(@TempDir Path tempDir) throws Exception {
+		MultipartBodyBuilder builder = new MultipartBodyBuilder();
+		builder.part("filePart", new ClassPathResource("org/springframework/http/codec/multipart/foo.txt"));
+		MockClientHttpRequest outputMessage = new MockClientHttpRequest(HttpMethod.POST, "/");
+		new MultipartHttpMessageWriter()
+				.write(Mono.just(builder.build()), null, MediaType.MULTIPART_FORM_DATA, outputMessage, null)
+				.block(Duration.ofSeconds(5));
+		MockServerHttpRequest request = MockServerHttpRequest.post("https://example.com")
+				.contentType(outputMessage.getHeaders().getContentType())
+				.body(outputMessage.getBody());
+
+		DefaultPartHttpMessageReader partReader = new DefaultPartHttpMessageReader();
+		partReader.setMaxInMemorySize(5);
+		partReader.setFileStorageDirectory(tempDir);
+		ServerCodecConfigurer codecConfigurer = ServerCodecConfigurer.create();
+		codecConfigurer.registerDefaults(false);
+		codecConfigurer.customCodecs().register(new MultipartHttpMessageReader(partReader));
+		DefaultServerWebExchange exchange = new DefaultServerWebExchange(request, new MockServerHttpResponse(),
+				new DefaultWebSessionManager(), codecConfigurer, new AcceptHeaderLocaleContextResolver());
+
+		MultiValueMap<String, Part> parts = exchange.getMultipartData().block(Duration.ofSeconds(5));
+		assertThat(parts).containsOnlyKeys("filePart");
+		assertThat(Files.list(tempDir)).hasSize(1);
+
+		exchange.cleanupMultipart().block(Duration.ofSeconds(5));
+		assertThat(Files.list(tempDir)).isEmpty();
+	}
+
+
 	private DefaultServerWebExchange createExchange() {
 		MockServerHttpRequest request = MockServerHttpRequest.get("https://example.com").build();
 		return createExchange(request);
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.util;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link GzipCompressor}.
+ */
+public class GzipCompressorTests {
+
+	private final GzipCompressor compressor = new GzipCompressor();
+
+
+	@Test
+	public void acceptsGzip() {
+		assertThat(this.compressor.acceptsGzip(null)).isFalse();
+		assertThat(this.compressor.acceptsGzip(Collections.singletonList("identity"))).isFalse();
+		assertThat(this.compressor.acceptsGzip(Collections.singletonList("gzip"))).isTrue();
+		assertThat(this.compressor.acceptsGzip(Collections.singletonList("deflate, GZIP;q=0.5"))).isTrue();
+		assertThat(this.compressor.acceptsGzip(Arrays.asList("br", "x-gzip"))).isTrue();
+		assertThat(this.compressor.acceptsGzip(Collections.singletonList("gzip;q=0, *"))).isFalse();
+		assertThat(this.compressor.acceptsGzip(Collections.singletonList("br, *;q=0.1"))).isTrue();
+		assertThat(this.compressor.acceptsGzip(Collections.singletonList("*;q=0"))).isFalse();
+	}
+
+	@Test
+	public void isCompressible() {
+		assertThat(this.compressor.isCompressible(MediaType.APPLICATION_JSON, 4096)).isTrue();
+		assertThat(this.compressor.isCompressible(MediaType.APPLICATION_JSON, -1)).isTrue();
+		assertThat(this.compressor.isCompressible(MediaType.valueOf("application/hal+json;charset=UTF-8"), 4096)).isTrue();
+		assertThat(this.compressor.isCompressible(MediaType.APPLICATION_JSON, 100)).isFalse();
+		assertThat(this.compressor.isCompressible(MediaType.IMAGE_PNG, 4096)).isFalse();
+		assertThat(this.compressor.isCompressible(null, 4096)).isFalse();
+
+		this.compressor.setMinSize(0);
+		this.compressor.setMimeTypes(Collections.singletonList(MediaType.IMAGE_PNG));
+		assertThat(this.compressor.isCompressible(MediaType.IMAGE_PNG, 100)).isTrue();
+		assertThat(this.compressor.isCompressible(MediaType.APPLICATION_JSON, 100)).isFalse();
+	}
+
+	@Test
+	public void compress() throws Exception {
+		byte[] content = String.join("", Collections.nCopies(1000, "Hello World ")).getBytes(StandardCharsets.UTF_8);
+		this.compressor.setLevel(Deflater.BEST_COMPRESSION);
+
+		byte[] compressed = this.compressor.compress(new ByteArrayInputStream(content), content.length);
+		assertThat(compressed.length).isLessThan(content.length);
+		assertThat(StreamUtils.copyToByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed))))
+				.isEqualTo(content);
+	}
+
+	@Test
+	public void cacheContent() {
+		String fooKey = GzipCompressor.getCacheKey("/foo", new HttpHeaders(), eTagHeaders("\"123\""));
+		String barKey = GzipCompressor.getCacheKey("/bar", new HttpHeaders(), eTagHeaders("\"123\""));
+		assertThat(fooKey).isNotNull().isNotEqualTo(barKey);
+
+		this.compressor.cacheContent(fooKey, 100, new byte[10]);
+		assertThat(this.compressor.getCachedContent(fooKey, 100)).isNull();
+
+		this.compressor.setCacheSize(15);
+		this.compressor.cacheContent(fooKey, 100, new byte[10]);
+		assertThat(this.compressor.getCachedContent(fooKey, 100)).hasSize(10);
+		assertThat(this.compressor.getCachedContent(fooKey, -1)).hasSize(10);
+		assertThat(this.compressor.getCachedContent(fooKey, 99)).isNull();
+
+		this.compressor.cacheContent(barKey, 100, new byte[10]);
+		assertThat(this.compressor.getCachedContent(fooKey, 100)).isNull();
+		assertThat(this.compressor.getCachedContent(barKey, 100)).hasSize(10);
+		assertThat(this.compressor.getCachedSize()).isEqualTo(10);
+
+		this.compressor.clearCache();
+		assertThat(this.compressor.getCachedContent(barKey, 100)).isNull();
+	}
+
+	@Test
+	public void cacheKeyRequiresStrongETag() {
+		assertThat(GzipCompressor.getCacheKey("/foo", new HttpHeaders(), new HttpHeaders())).isNull();
+		assertThat(GzipCompressor.getCacheKey("/foo", new HttpHeaders(), eTagHeaders("W/\"123\""))).isNull();
+		assertThat(GzipCompressor.getCacheKey("/foo", new HttpHeaders(), eTagHeaders("\"123\""))).isNotNull();
+	}
+
+	@Test
+	public void cacheKeyForPrivateResponse() {
+		HttpHeaders responseHeaders = eTagHeaders("\"123\"");
+		responseHeaders.add(HttpHeaders.SET_COOKIE, "id=1");
+		assertThat(GzipCompressor.getCacheKey("/foo", new HttpHeaders(), responseHeaders)).isNull();
+
+		responseHeaders = eTagHeaders("\"123\"");
+		responseHeaders.setCacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePrivate());
+		assertThat(GzipCompressor.getCacheKey("/foo", new HttpHeaders(), responseHeaders)).isNull();
+
+		responseHeaders = eTagHeaders("\"123\"");
+		responseHeaders.setCacheControl(CacheControl.noStore());
+		assertThat(GzipCompressor.getCacheKey("/foo", new HttpHeaders(), responseHeaders)).isNull();
+
+		HttpHeaders requestHeaders = new HttpHeaders();
+		requestHeaders.setBasicAuth("user", "secret");
+		responseHeaders = eTagHeaders("\"123\"");
+		assertThat(GzipCompressor.getCacheKey("/foo", requestHeaders, responseHeaders)).isNull();
+		responseHeaders.setCacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic());
+		assertThat(GzipCompressor.getCacheKey("/foo", requestHeaders, responseHeaders)).isNotNull();
+	}
+
+	@Test
+	public void cacheKeyWithVary() {
+		HttpHeaders responseHeaders = eTagHeaders("\"123\"");
+		responseHeaders.setVary(Arrays.asList(HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ACCEPT_LANGUAGE));
+		HttpHeaders englishHeaders = new HttpHeaders();
+		englishHeaders.set(HttpHeaders.ACCEPT_LANGUAGE, "en");
+		HttpHeaders germanHeaders = new HttpHeaders();
+		germanHeaders.set(HttpHeaders.ACCEPT_LANGUAGE, "de");
+		HttpHeaders gzipHeaders = new HttpHeaders();
+		gzipHeaders.set(HttpHeaders.ACCEPT_LANGUAGE, "en");
+		gzipHeaders.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+		String englishKey = GzipCompressor.getCacheKey("/foo", englishHeaders, responseHeaders);
+		assertThat(englishKey).isNotNull()
+				.isNotEqualTo(GzipCompressor.getCacheKey("/foo", germanHeaders, responseHeaders))
+				.isEqualTo(GzipCompressor.getCacheKey("/foo", gzipHeaders, responseHeaders));
+
+		responseHeaders.setVary(Collections.singletonList("*"));
+		assertThat(GzipCompressor.getCacheKey("/foo", englishHeaders, responseHeaders)).isNull();
+	}
+
+	@Test
+	public void compressedETag() {
+		assertThat(GzipCompressor.getCompressedETag("\"123\"")).isEqualTo("W/\"123\"");
+		assertThat(GzipCompressor.getCompressedETag("W/\"123\"")).isEqualTo("W/\"123\"");
+	}
+
+
+	private static HttpHeaders eTagHeaders(String eTag) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setETag(eTag);
+		return headers;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -37,6 +37,7 @@ import reactor.core.publisher.Mono;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.MethodIntrospector;
+import org.springframework.http.server.PathContainer;
 import org.springframework.http.server.RequestPath;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -47,6 +48,7 @@ import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.reactive.HandlerMapping;
 import org.springframework.web.reactive.handler.AbstractHandlerMapping;
 import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
 
 /**
  * Abstract base class for {@link HandlerMapping} implementations that define
@@ -311,7 +313,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	@Nullable
 	protected HandlerMethod lookupHandlerMethod(ServerWebExchange exchange) throws Exception {
 		List<Match> matches = new ArrayList<>();
-		addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, exchange);
+		PathContainer lookupPath = exchange.getRequest().getPath().pathWithinApplication();
+		addMatchingMappings(this.mappingRegistry.getMappingsByPathPrefix(lookupPath), matches, exchange);
 
 		if (!matches.isEmpty()) {
 			Comparator<Match> comparator = new MatchComparator(getMappingComparator(exchange));
@@ -412,6 +415,23 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	@Nullable
 	protected abstract T getMappingForMethod(Method method, Class<?> handlerType);
 
+	/**
+	 * Return the path patterns under which the supplied mapping is indexed,
+	 * in order to narrow down the mappings to check for a given lookup path to
+	 * those whose patterns start with the same literal path segments.
+	 * <p>Implementations may only return patterns if the mapping can match a
+	 * request solely when one of these patterns matches the path within the
+	 * application, using "/" as separator.
+	 * <p>The default implementation returns an empty set, in which case the
+	 * mapping is checked for every request.
+	 * @param mapping the mapping to index
+	 * @return the path patterns to index the mapping by (never {@code null})
+	 * @since 5.2.13
+	 */
+	protected Set<PathPattern> getIndexedPathPatterns(T mapping) {
+		return Collections.emptySet();
+	}
+
 	/**
 	 * Check if a mapping matches the current request and return a (potentially
 	 * new) mapping with conditions relevant to the current request.
@@ -443,6 +463,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 		private final Map<T, HandlerMethod> mappingLookup = new LinkedHashMap<>();
 
+		private final PathPrefixIndex<T> pathPrefixIndex = new PathPrefixIndex<>();
+
 		private final Map<HandlerMethod, CorsConfiguration> corsLookup = new ConcurrentHashMap<>();
 
 		private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
@@ -455,6 +477,17 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return this.mappingLookup;
 		}
 
+		/**
+		 * Return the mappings whose literal path prefix matches the given path,
+		 * in registration order. Not thread-safe.
+		 * @since 5.2.13
+		 * @see #acquireReadLock()
+		 * @see AbstractHandlerMethodMapping#getIndexedPathPatterns
+		 */
+		public List<T> getMappingsByPathPrefix(PathContainer path) {
+			return this.pathPrefixIndex.getCandidates(path);
+		}
+
 		/**
 		 * Return CORS configuration. Thread-safe for concurrent use.
 		 */
@@ -485,12 +518,15 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 				validateMethodMapping(handlerMethod, mapping);
 				this.mappingLookup.put(mapping, handlerMethod);
 
+				Set<PathPattern> indexedPatterns = getIndexedPathPatterns(mapping);
+				this.pathPrefixIndex.add(mapping, indexedPatterns);
+
 				CorsConfiguration corsConfig = initCorsConfiguration(handler, method, mapping);
 				if (corsConfig != null) {
 					this.corsLookup.put(handlerMethod, corsConfig);
 				}
 
-				this.registry.put(mapping, new MappingRegistration<>(mapping, handlerMethod));
+				this.registry.put(mapping, new MappingRegistration<>(mapping, handlerMethod, indexedPatterns));
 			}
 			finally {
 				this.readWriteLock.writeLock().unlock();
@@ -517,6 +553,7 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 				}
 
 				this.mappingLookup.remove(definition.getMapping());
+				this.pathPrefixIndex.remove(definition.getMapping(), definition.getIndexedPatterns());
 				this.corsLookup.remove(definition.getHandlerMethod());
 			}
 			finally {
@@ -532,11 +569,14 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 		private final HandlerMethod handlerMethod;
 
-		public MappingRegistration(T mapping, HandlerMethod handlerMethod) {
+		private final Set<PathPattern> indexedPatterns;
+
+		public MappingRegistration(T mapping, HandlerMethod handlerMethod, Set<PathPattern> indexedPatterns) {
 			Assert.notNull(mapping, "Mapping must not be null");
 			Assert.notNull(handlerMethod, "HandlerMethod must not be null");
 			this.mapping = mapping;
 			this.handlerMethod = handlerMethod;
+			this.indexedPatterns = indexedPatterns;
 		}
 
 		public T getMapping() {
@@ -547,6 +587,9 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return this.handlerMethod;
 		}
 
+		public Set<PathPattern> getIndexedPatterns() {
+			return this.indexedPatterns;
+		}
 	}
 
 
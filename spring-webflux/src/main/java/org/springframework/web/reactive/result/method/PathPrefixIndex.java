@@ -0,0 +1,228 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.reactive.result.method;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.pattern.PathPattern;
+
+/**
+ * Segment trie that indexes mappings by the literal leading segments of their
+ * {@link PathPattern PathPatterns}, used to narrow down the mappings to check
+ * for a lookup path.
+ *
+ * <p>A pattern such as {@code "/api/orders/{id}/items"} is indexed under its
+ * literal leading segments {@code "api"} and {@code "orders"}. The last segment
+ * of a pattern is never indexed since it may be subject to optional trailing
+ * separator matching. Mappings without patterns, or with a pattern that does not
+ * start with a literal segment, are candidates for every lookup path.
+ *
+ * <p>Segments are trimmed and compared ignoring case, and empty segments are
+ * ignored, so that the candidates for a lookup path are always a superset of the
+ * mappings whose "/"-separated patterns match that path. Candidates are returned
+ * in registration order.
+ *
+ * <p>This class is not thread-safe: callers are expected to guard access
+ * with the read-write lock of the mapping registry.
+ *
+ * @since 5.2.13
+ * @param <T> the mapping type
+ */
+final class PathPrefixIndex<T> {
+
+	private static final String PATH_SEPARATOR = "/";
+
+	private final Node<T> root = new Node<>();
+
+	private long sequence;
+
+
+	/**
+	 * Index the given mapping under the literal prefixes of the given patterns.
+	 */
+	public void add(T mapping, Collection<PathPattern> patterns) {
+		Entry<T> entry = new Entry<>(mapping, this.sequence++);
+		for (List<String> prefix : getPrefixes(patterns)) {
+			Node<T> node = this.root;
+			for (String segment : prefix) {
+				node = node.children.computeIfAbsent(segment, key -> new Node<>());
+			}
+			if (!node.contains(mapping)) {
+				node.entries.add(entry);
+			}
+		}
+	}
+
+	/**
+	 * Remove the given mapping, previously indexed with the same patterns.
+	 */
+	public void remove(T mapping, Collection<PathPattern> patterns) {
+		for (List<String> prefix : getPrefixes(patterns)) {
+			remove(this.root, prefix, 0, mapping);
+		}
+	}
+
+	private boolean remove(Node<T> node, List<String> prefix, int index, T mapping) {
+		if (index == prefix.size()) {
+			node.entries.removeIf(entry -> entry.mapping.equals(mapping));
+		}
+		else {
+			Node<T> child = node.children.get(prefix.get(index));
+			if (child != null && remove(child, prefix, index + 1, mapping)) {
+				node.children.remove(prefix.get(index));
+			}
+		}
+		return (node.entries.isEmpty() && node.children.isEmpty());
+	}
+
+	/**
+	 * Return the mappings whose literal prefixes match the given lookup path.
+	 */
+	public List<T> getCandidates(PathContainer lookupPath) {
+		List<Entry<T>> entries = new ArrayList<>(this.root.entries);
+		boolean sort = false;
+		Node<T> node = this.root;
+		for (PathContainer.Element element : lookupPath.elements()) {
+			if (!(element instanceof PathContainer.PathSegment)) {
+				continue;
+			}
+			String segment = normalize(((PathContainer.PathSegment) element).valueToMatch().trim());
+			if (segment.isEmpty()) {
+				continue;
+			}
+			node = node.children.get(segment);
+			if (node == null) {
+				break;
+			}
+			if (!node.entries.isEmpty()) {
+				sort = !entries.isEmpty();
+				entries.addAll(node.entries);
+			}
+		}
+		if (sort) {
+			entries.sort((entry1, entry2) -> Long.compare(entry1.sequence, entry2.sequence));
+		}
+		List<T> candidates = new ArrayList<>(entries.size());
+		for (Entry<T> entry : entries) {
+			candidates.add(entry.mapping);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Return the literal prefixes of the given patterns, leaving out prefixes that
+	 * extend another one, so that a mapping is found once at most per lookup path.
+	 */
+	private List<List<String>> getPrefixes(Collection<PathPattern> patterns) {
+		if (patterns.isEmpty()) {
+			return Collections.singletonList(Collections.emptyList());
+		}
+		List<List<String>> prefixes = new ArrayList<>(patterns.size());
+		for (PathPattern pattern : patterns) {
+			List<String> prefix = getLiteralPrefix(pattern.getPatternString());
+			if (prefixes.stream().noneMatch(other -> startsWith(prefix, other))) {
+				prefixes.removeIf(other -> startsWith(other, prefix));
+				prefixes.add(prefix);
+			}
+		}
+		return prefixes;
+	}
+
+	private static List<String> getLiteralPrefix(String pattern) {
+		List<String> segments = tokenize(pattern);
+		List<String> prefix = new ArrayList<>(segments.size());
+		for (Iterator<String> it = segments.iterator(); it.hasNext();) {
+			String segment = it.next();
+			if (!it.hasNext() || !isLiteral(segment)) {
+				break;
+			}
+			prefix.add(segment);
+		}
+		return prefix;
+	}
+
+	private static boolean isLiteral(String segment) {
+		for (int i = 0; i < segment.length(); i++) {
+			char c = segment.charAt(i);
+			if (c == '*' || c == '?' || c == '{' || c == '}' || c == '\\') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean startsWith(List<String> prefix, List<String> other) {
+		return (prefix.size() >= other.size() && prefix.subList(0, other.size()).equals(other));
+	}
+
+	private static List<String> tokenize(String path) {
+		String[] tokens = StringUtils.tokenizeToStringArray(path, PATH_SEPARATOR);
+		List<String> segments = new ArrayList<>(tokens.length);
+		for (String token : tokens) {
+			segments.add(normalize(token));
+		}
+		return segments;
+	}
+
+	private static String normalize(String segment) {
+		char[] chars = segment.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			// Same equivalence as String#equalsIgnoreCase
+			chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+		}
+		return new String(chars);
+	}
+
+
+	private static class Node<T> {
+
+		private final Map<String, Node<T>> children = new HashMap<>();
+
+		private final List<Entry<T>> entries = new ArrayList<>(1);
+
+		boolean contains(T mapping) {
+			for (Entry<T> entry : this.entries) {
+				if (entry.mapping.equals(mapping)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+
+	private static class Entry<T> {
+
+		private final T mapping;
+
+		private final long sequence;
+
+		Entry(T mapping, long sequence) {
+			this.mapping = mapping;
+			this.sequence = sequence;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -47,6 +47,7 @@ import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.ServerWebInputException;
 import org.springframework.web.server.UnsupportedMediaTypeStatusException;
 import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 /**
  * Abstract base class for classes for which {@link RequestMappingInfo} defines
@@ -71,6 +72,21 @@ public abstract class RequestMappingInfoHandlerMapping extends AbstractHandlerMe
 	}
 
 
+	/**
+	 * Index the supplied {@link RequestMappingInfo} by its URL path patterns,
+	 * provided that the configured {@link #getPathPatternParser() PathPatternParser}
+	 * is a plain {@link PathPatternParser} that uses "/" as separator.
+	 * @since 5.2.13
+	 */
+	@Override
+	protected Set<PathPattern> getIndexedPathPatterns(RequestMappingInfo info) {
+		PathPatternParser parser = getPathPatternParser();
+		// Subclasses and custom separators may not match literal "/" segments as such
+		boolean indexable = (parser.getClass() == PathPatternParser.class &&
+				parser.getPathOptions().separator() == '/');
+		return (indexable ? info.getPatternsCondition().getPatterns() : Collections.emptySet());
+	}
+
 	/**
 	 * Check if the given RequestMappingInfo matches the current request and
 	 * return a (potentially new) instance with conditions that match the
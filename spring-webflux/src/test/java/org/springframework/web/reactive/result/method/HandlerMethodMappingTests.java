@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,7 +17,9 @@
 package org.springframework.web.reactive.result.method;
 
 import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -90,6 +92,26 @@ public class HandlerMethodMappingTests {
 		assertThat(((HandlerMethod) result.block()).getMethod()).isEqualTo(this.method1);
 	}
 
+	@Test
+	public void patternMatchByPathPrefix() throws Exception {
+		this.mapping.registerMapping("/api/orders/{id}", this.handler, this.method1);
+		this.mapping.registerMapping("/api/users/{id}", this.handler, this.method2);
+		this.mapping.registerMapping("/*/users/**", this.handler, this.method2);
+
+		assertThat(this.mapping.getMappingRegistry().getMappingsByPathPrefix(PathContainer.parsePath("/api/users/1")))
+				.containsExactly("/api/users/{id}", "/*/users/**");
+		assertThat(this.mapping.getMappingRegistry().getMappingsByPathPrefix(PathContainer.parsePath("/other/users/1")))
+				.containsExactly("/*/users/**");
+
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders/1"));
+		Mono<Object> result = this.mapping.getHandler(exchange);
+		assertThat(((HandlerMethod) result.block()).getMethod()).isEqualTo(this.method1);
+
+		this.mapping.unregisterMapping("/api/orders/{id}");
+		assertThat(this.mapping.getMappingRegistry().getMappingsByPathPrefix(PathContainer.parsePath("/api/orders/1")))
+				.containsExactly("/*/users/**");
+	}
+
 	@Test
 	public void ambiguousMatch() throws Exception {
 		this.mapping.registerMapping("/f?o", this.handler, this.method1);
@@ -155,6 +177,11 @@ public class HandlerMethodMappingTests {
 			return methodName.startsWith("handler") ? methodName : null;
 		}
 
+		@Override
+		protected Set<PathPattern> getIndexedPathPatterns(String pattern) {
+			return Collections.singleton(this.parser.parse(pattern));
+		}
+
 		@Override
 		protected String getMatchingMapping(String pattern, ServerWebExchange exchange) {
 			PathContainer lookupPath = exchange.getRequest().getPath().pathWithinApplication();
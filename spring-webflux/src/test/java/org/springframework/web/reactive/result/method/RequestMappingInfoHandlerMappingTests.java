@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -57,6 +57,7 @@ import org.springframework.web.server.UnsupportedMediaTypeStatusException;
 import org.springframework.web.testfixture.http.server.reactive.MockServerHttpRequest;
 import org.springframework.web.testfixture.server.MockServerWebExchange;
 import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
@@ -94,6 +95,21 @@ public class RequestMappingInfoHandlerMappingTests {
 	}
 
 
+	@Test
+	public void getIndexedPathPatterns() {
+		RequestMappingInfo info = paths("/foo/*", "/bar").build();
+		assertThat(this.handlerMapping.getIndexedPathPatterns(info)).hasSize(2);
+
+		PathPatternParser customParser = new PathPatternParser() {};
+		TestRequestMappingInfoHandlerMapping mapping = new TestRequestMappingInfoHandlerMapping() {
+			@Override
+			public PathPatternParser getPathPatternParser() {
+				return customParser;
+			}
+		};
+		assertThat(mapping.getIndexedPathPatterns(info)).isEmpty();
+	}
+
 	@Test
 	public void getHandlerDirectMatch() {
 		Method expected = on(TestController.class).annot(getMapping("/foo").params()).resolveMethod();
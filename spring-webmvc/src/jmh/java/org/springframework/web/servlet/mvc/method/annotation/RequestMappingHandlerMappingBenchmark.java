@@ -0,0 +1,102 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.mvc.method.annotation;
+
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.testfixture.servlet.MockHttpServletRequest;
+
+/**
+ * Benchmarks for handler lookups in {@link RequestMappingHandlerMapping},
+ * with a varying number of registered endpoints.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class RequestMappingHandlerMappingBenchmark {
+
+	@Benchmark
+	public HandlerExecutionChain lookupDirectPath(MappingData data) throws Exception {
+		return data.handlerMapping.getHandler(data.request("GET", "/api/resource" + data.target + "/items"));
+	}
+
+	@Benchmark
+	public HandlerExecutionChain lookupPatternPath(MappingData data) throws Exception {
+		return data.handlerMapping.getHandler(data.request("GET", "/api/resource" + data.target + "/items/42"));
+	}
+
+	@Benchmark
+	public HandlerExecutionChain lookupNoMatch(MappingData data) throws Exception {
+		return data.handlerMapping.getHandler(data.request("GET", "/api/unknown/items/42"));
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class MappingData {
+
+		@Param({"100", "2500"})
+		public int endpoints;
+
+		public int target;
+
+		public RequestMappingHandlerMapping handlerMapping;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.handlerMapping = new RequestMappingHandlerMapping();
+			Method method = ReflectionUtils.findMethod(SampleController.class, "handle");
+			SampleController controller = new SampleController();
+			for (int i = 0; i < this.endpoints; i++) {
+				String prefix = "/api/resource" + i;
+				register(prefix + "/items", RequestMethod.GET, controller, method);
+				register(prefix + "/items", RequestMethod.POST, controller, method);
+				register(prefix + "/items/{id}", RequestMethod.GET, controller, method);
+				register(prefix + "/items/{id}", RequestMethod.DELETE, controller, method);
+			}
+			this.target = this.endpoints / 2;
+		}
+
+		private void register(String path, RequestMethod httpMethod, Object controller, Method method) {
+			RequestMappingInfo info = RequestMappingInfo.paths(path).methods(httpMethod).build();
+			this.handlerMapping.registerMapping(info, controller, method);
+		}
+
+		public MockHttpServletRequest request(String method, String path) {
+			return new MockHttpServletRequest(method, path);
+		}
+	}
+
+
+	static class SampleController {
+
+		public String handle() {
+			return "handled";
+		}
+	}
+
+}
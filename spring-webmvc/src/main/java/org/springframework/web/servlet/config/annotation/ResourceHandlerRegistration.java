@@ -25,6 +25,7 @@ import org.springframework.http.CacheControl;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.web.servlet.resource.PathResourceResolver;
+import org.springframework.web.servlet.resource.ResourceContentCache;
 import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
 
 /**
@@ -50,6 +51,9 @@ public class ResourceHandlerRegistration {
 	@Nullable
 	private ResourceChainRegistration resourceChainRegistration;
 
+	@Nullable
+	private ResourceContentCache contentCache;
+
 
 	/**
 	 * Create a {@link ResourceHandlerRegistration} instance.
@@ -109,6 +113,18 @@ public class ResourceHandlerRegistration {
 		return this;
 	}
 
+	/**
+	 * Keep the content of frequently requested resources in memory, within
+	 * the budget of the given {@link ResourceContentCache}.
+	 * @param contentCache the content cache to use
+	 * @return the same {@link ResourceHandlerRegistration} instance, for chained method invocation
+	 * @since 5.2.13
+	 */
+	public ResourceHandlerRegistration setContentCache(ResourceContentCache contentCache) {
+		this.contentCache = contentCache;
+		return this;
+	}
+
 	/**
 	 * Configure a chain of resource resolvers and transformers to use. This
 	 * can be useful, for example, to apply a version strategy to resource URLs.
@@ -172,6 +188,7 @@ public class ResourceHandlerRegistration {
 		else if (this.cachePeriod != null) {
 			handler.setCacheSeconds(this.cachePeriod);
 		}
+		handler.setContentCache(this.contentCache);
 		return handler;
 	}
 
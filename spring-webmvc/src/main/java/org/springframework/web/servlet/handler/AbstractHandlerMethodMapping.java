@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -389,8 +389,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			addMatchingMappings(directPathMatches, matches, request);
 		}
 		if (matches.isEmpty()) {
-			// No choice but to go through all mappings...
-			addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, request);
+			// Go through all mappings whose literal path prefix matches...
+			addMatchingMappings(this.mappingRegistry.getMappingsByPathPrefix(lookupPath), matches, request);
 		}
 
 		if (!matches.isEmpty()) {
@@ -504,6 +504,23 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	 */
 	protected abstract Set<String> getMappingPathPatterns(T mapping);
 
+	/**
+	 * Return the URL path patterns under which the supplied mapping is indexed,
+	 * in order to narrow down the mappings to check for a given lookup path to
+	 * those whose patterns start with the same literal path segments.
+	 * <p>Implementations may only return patterns if the mapping can match a
+	 * request solely when one of these patterns matches the lookup path according
+	 * to an {@link org.springframework.util.AntPathMatcher} with "/" separators.
+	 * <p>The default implementation returns an empty set, in which case the
+	 * mapping is checked for every request without a direct path match.
+	 * @param mapping the mapping to index
+	 * @return the path patterns to index the mapping by (never {@code null})
+	 * @since 5.2.13
+	 */
+	protected Set<String> getIndexedPathPatterns(T mapping) {
+		return Collections.emptySet();
+	}
+
 	/**
 	 * Check if a mapping matches the current request and return a (potentially
 	 * new) mapping with conditions relevant to the current request.
@@ -536,6 +553,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 		private final MultiValueMap<String, T> urlLookup = new LinkedMultiValueMap<>();
 
+		private final PathPrefixIndex<T> pathPrefixIndex = new PathPrefixIndex<>();
+
 		private final Map<String, List<HandlerMethod>> nameLookup = new ConcurrentHashMap<>();
 
 		private final Map<HandlerMethod, CorsConfiguration> corsLookup = new ConcurrentHashMap<>();
@@ -559,6 +578,17 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return this.urlLookup.get(urlPath);
 		}
 
+		/**
+		 * Return the mappings whose literal path prefix matches the given URL path,
+		 * in registration order. Not thread-safe.
+		 * @since 5.2.13
+		 * @see #acquireReadLock()
+		 * @see AbstractHandlerMethodMapping#getIndexedPathPatterns
+		 */
+		public List<T> getMappingsByPathPrefix(String urlPath) {
+			return this.pathPrefixIndex.getCandidates(urlPath);
+		}
+
 		/**
 		 * Return handler methods by mapping name. Thread-safe for concurrent use.
 		 */
@@ -608,6 +638,9 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 					this.urlLookup.add(url, mapping);
 				}
 
+				Set<String> indexedPatterns = getIndexedPathPatterns(mapping);
+				this.pathPrefixIndex.add(mapping, indexedPatterns);
+
 				String name = null;
 				if (getNamingStrategy() != null) {
 					name = getNamingStrategy().getName(handlerMethod, mapping);
@@ -619,7 +652,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 					this.corsLookup.put(handlerMethod, corsConfig);
 				}
 
-				this.registry.put(mapping, new MappingRegistration<>(mapping, handlerMethod, directUrls, name));
+				this.registry.put(mapping,
+						new MappingRegistration<>(mapping, handlerMethod, directUrls, indexedPatterns, name));
 			}
 			finally {
 				this.readWriteLock.writeLock().unlock();
@@ -685,6 +719,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 					}
 				}
 
+				this.pathPrefixIndex.remove(definition.getMapping(), definition.getIndexedPatterns());
+
 				removeMappingName(definition);
 
 				this.corsLookup.remove(definition.getHandlerMethod());
@@ -727,17 +763,20 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 		private final List<String> directUrls;
 
+		private final Set<String> indexedPatterns;
+
 		@Nullable
 		private final String mappingName;
 
-		public MappingRegistration(T mapping, HandlerMethod handlerMethod,
-				@Nullable List<String> directUrls, @Nullable String mappingName) {
+		public MappingRegistration(T mapping, HandlerMethod handlerMethod, @Nullable List<String> directUrls,
+				@Nullable Set<String> indexedPatterns, @Nullable String mappingName) {
 
 			Assert.notNull(mapping, "Mapping must not be null");
 			Assert.notNull(handlerMethod, "HandlerMethod must not be null");
 			this.mapping = mapping;
 			this.handlerMethod = handlerMethod;
 			this.directUrls = (directUrls != null ? directUrls : Collections.emptyList());
+			this.indexedPatterns = (indexedPatterns != null ? indexedPatterns : Collections.emptySet());
 			this.mappingName = mappingName;
 		}
 
@@ -753,6 +792,10 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return this.directUrls;
 		}
 
+		public Set<String> getIndexedPatterns() {
+			return this.indexedPatterns;
+		}
+
 		@Nullable
 		public String getMappingName() {
 			return this.mappingName;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,8 +33,10 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.PathMatcher;
 import org.springframework.util.StringUtils;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.HttpMediaTypeNotSupportedException;
@@ -84,6 +86,21 @@ public abstract class RequestMappingInfoHandlerMapping extends AbstractHandlerMe
 		return info.getPatternsCondition().getPatterns();
 	}
 
+	/**
+	 * Index the supplied {@link RequestMappingInfo} by its URL path patterns,
+	 * provided that the configured {@link #getPathMatcher() PathMatcher} is a
+	 * plain {@link AntPathMatcher} with the default "/" path separator.
+	 * @since 5.2.13
+	 */
+	@Override
+	protected Set<String> getIndexedPathPatterns(RequestMappingInfo info) {
+		PathMatcher pathMatcher = getPathMatcher();
+		// Subclasses and custom separators may not match literal "/" segments as such
+		boolean indexable = (pathMatcher.getClass() == AntPathMatcher.class &&
+				pathMatcher.combine("a", "b").equals("a" + AntPathMatcher.DEFAULT_PATH_SEPARATOR + "b"));
+		return (indexable ? getMappingPathPatterns(info) : Collections.emptySet());
+	}
+
 	/**
 	 * Check if the given RequestMappingInfo matches the current request and
 	 * return a (potentially new) instance with conditions that match the
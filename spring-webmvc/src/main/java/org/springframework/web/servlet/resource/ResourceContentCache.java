@@ -0,0 +1,256 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+
+/**
+ * A bounded, in-memory cache for the content of static resources, which allows
+ * {@link ResourceHttpRequestHandler} to serve frequently requested resources
+ * with a single write, rather than opening and copying an {@code InputStream}
+ * on every request.
+ *
+ * <p>Resources are cached along with their content length, last-modified
+ * timestamp and {@linkplain HttpResource response headers}, so precompressed
+ * variants resolved through {@link EncodedResourceResolver} are cached
+ * separately with their {@code Content-Encoding}. An ETag computed from the
+ * content is added, unless the resource already provides one.
+ *
+ * <p>Once the total size of cached content exceeds the configured budget, the
+ * least recently used entries are evicted. An entry is reloaded whenever the
+ * content length or last-modified timestamp of the underlying resource changes.
+ *
+ * @since 5.2.13
+ * @see ResourceHttpRequestHandler#setContentCache
+ */
+public class ResourceContentCache {
+
+	/**
+	 * The default maximum size of all cached content: 16MB.
+	 */
+	public static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+	/**
+	 * The default maximum size of a single cached resource: 1MB.
+	 */
+	public static final long DEFAULT_MAX_ENTRY_SIZE = 1024 * 1024;
+
+
+	private final long maxSize;
+
+	private final long maxEntrySize;
+
+	private final Map<String, CachedResource> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long size;
+
+
+	/**
+	 * Create a cache with the {@link #DEFAULT_MAX_SIZE default budget}.
+	 */
+	public ResourceContentCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Create a cache with the given budget.
+	 * @param maxSize the maximum number of bytes to cache
+	 */
+	public ResourceContentCache(long maxSize) {
+		this(maxSize, Math.min(maxSize, DEFAULT_MAX_ENTRY_SIZE));
+	}
+
+	/**
+	 * Create a cache with the given budget.
+	 * @param maxSize the maximum number of bytes to cache
+	 * @param maxEntrySize the maximum size of a single resource to cache;
+	 * larger resources are served as they are
+	 */
+	public ResourceContentCache(long maxSize, long maxEntrySize) {
+		Assert.isTrue(maxSize > 0, "'maxSize' must be larger than 0");
+		Assert.isTrue(maxEntrySize > 0 && maxEntrySize <= maxSize,
+				"'maxEntrySize' must be larger than 0 and not exceed 'maxSize'");
+		this.maxSize = maxSize;
+		this.maxEntrySize = maxEntrySize;
+	}
+
+
+	/**
+	 * Return the maximum number of bytes to cache.
+	 */
+	public long getMaxSize() {
+		return this.maxSize;
+	}
+
+	/**
+	 * Return the maximum size of a single cached resource.
+	 */
+	public long getMaxEntrySize() {
+		return this.maxEntrySize;
+	}
+
+	/**
+	 * Return the total size of the currently cached content.
+	 */
+	public long getSize() {
+		synchronized (this.cache) {
+			return this.size;
+		}
+	}
+
+	/**
+	 * Return an in-memory copy of the given resource, loading it into the cache
+	 * if necessary, or the given resource itself if it cannot be cached, e.g.
+	 * because it is too large or already held in memory.
+	 * @param resource the resolved and transformed resource to serve
+	 * @return the resource to serve instead
+	 * @throws IOException if the resource cannot be read
+	 */
+	public Resource getResource(Resource resource) throws IOException {
+		if (resource instanceof ByteArrayResource || resource instanceof InputStreamResource) {
+			return resource;
+		}
+
+		// Wrapping resources may share the description of the original
+		// resource but contribute different response headers...
+		String key = resource.getClass().getName() + ":" + resource.getDescription();
+		long contentLength = resource.contentLength();
+		long lastModified = resource.lastModified();
+
+		CachedResource cached;
+		synchronized (this.cache) {
+			cached = this.cache.get(key);
+		}
+		if (cached != null && cached.contentLength() == contentLength && cached.lastModified() == lastModified) {
+			return cached;
+		}
+		if (contentLength > this.maxEntrySize) {
+			if (cached != null) {
+				remove(key, cached);
+			}
+			return resource;
+		}
+
+		byte[] content;
+		try (InputStream inputStream = resource.getInputStream()) {
+			content = StreamUtils.copyToByteArray(inputStream);
+		}
+		if (content.length != contentLength) {
+			// Changed while reading: serve as is, and cache on a later request
+			return resource;
+		}
+		cached = new CachedResource(resource, content, lastModified);
+		put(key, cached);
+		return cached;
+	}
+
+	/**
+	 * Remove all entries from the cache.
+	 */
+	public void clear() {
+		synchronized (this.cache) {
+			this.cache.clear();
+			this.size = 0;
+		}
+	}
+
+	private void put(String key, CachedResource resource) {
+		synchronized (this.cache) {
+			CachedResource previous = this.cache.put(key, resource);
+			if (previous != null) {
+				this.size -= previous.contentLength();
+			}
+			this.size += resource.contentLength();
+			Iterator<CachedResource> iterator = this.cache.values().iterator();
+			while (this.size > this.maxSize && iterator.hasNext()) {
+				this.size -= iterator.next().contentLength();
+				iterator.remove();
+			}
+		}
+	}
+
+	private void remove(String key, CachedResource resource) {
+		synchronized (this.cache) {
+			if (this.cache.remove(key, resource)) {
+				this.size -= resource.contentLength();
+			}
+		}
+	}
+
+
+	/**
+	 * An in-memory copy of a resource, preserving all other information.
+	 */
+	private static final class CachedResource extends ByteArrayResource implements HttpResource {
+
+		@Nullable
+		private final String filename;
+
+		private final long lastModified;
+
+		private final HttpHeaders headers;
+
+		CachedResource(Resource original, byte[] content, long lastModified) {
+			super(content, original.getDescription());
+			this.filename = original.getFilename();
+			this.lastModified = lastModified;
+			HttpHeaders headers = new HttpHeaders();
+			if (original instanceof HttpResource) {
+				headers.putAll(((HttpResource) original).getResponseHeaders());
+			}
+			if (headers.getETag() == null) {
+				headers.setETag("\"" + DigestUtils.md5DigestAsHex(content) + "\"");
+			}
+			this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+		}
+
+		@Override
+		@Nullable
+		public String getFilename() {
+			return this.filename;
+		}
+
+		@Override
+		public long contentLength() {
+			return getByteArray().length;
+		}
+
+		@Override
+		public long lastModified() {
+			return this.lastModified;
+		}
+
+		@Override
+		public HttpHeaders getResponseHeaders() {
+			return this.headers;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -126,6 +126,9 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 	@Nullable
 	private ResourceRegionHttpMessageConverter resourceRegionHttpMessageConverter;
 
+	@Nullable
+	private ResourceContentCache contentCache;
+
 	@Nullable
 	private ContentNegotiationManager contentNegotiationManager;
 
@@ -256,6 +259,25 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 		return this.resourceRegionHttpMessageConverter;
 	}
 
+	/**
+	 * Configure a {@link ResourceContentCache} to keep the content of
+	 * frequently requested resources in memory, along with an ETag.
+	 * <p>By default, this is not set, and resources are read on every request.
+	 * @since 5.2.13
+	 */
+	public void setContentCache(@Nullable ResourceContentCache contentCache) {
+		this.contentCache = contentCache;
+	}
+
+	/**
+	 * Return the configured resource content cache, if any.
+	 * @since 5.2.13
+	 */
+	@Nullable
+	public ResourceContentCache getContentCache() {
+		return this.contentCache;
+	}
+
 	/**
 	 * Configure a {@code ContentNegotiationManager} to help determine the
 	 * media types for resources being served. If the manager contains a path
@@ -497,8 +519,14 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 		// Supported methods and required session
 		checkRequest(request);
 
+		if (this.contentCache != null) {
+			resource = this.contentCache.getResource(resource);
+		}
+
 		// Header phase
-		if (new ServletWebRequest(request, response).checkNotModified(resource.lastModified())) {
+		String eTag = (resource instanceof HttpResource ?
+				((HttpResource) resource).getResponseHeaders().getETag() : null);
+		if (new ServletWebRequest(request, response).checkNotModified(eTag, resource.lastModified())) {
 			logger.trace("Resource not modified");
 			return;
 		}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -99,6 +99,29 @@ public class HandlerMethodMappingTests {
 		assertThat(request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE)).isEqualTo(result);
 	}
 
+	@Test
+	public void patternMatchByPathPrefix() throws Exception {
+		this.mapping.registerMapping("/api/orders/{id}", this.handler, this.method1);
+		this.mapping.registerMapping("/api/users/{id}", this.handler, this.method2);
+		this.mapping.registerMapping("/*/users/**", this.handler, this.method2);
+
+		assertThat(this.mapping.getMappingRegistry().getMappingsByPathPrefix("/api/users/1"))
+				.containsExactly("/api/users/{id}", "/*/users/**");
+		assertThat(this.mapping.getMappingRegistry().getMappingsByPathPrefix("/API/Orders/1"))
+				.containsExactly("/api/orders/{id}", "/*/users/**");
+		assertThat(this.mapping.getMappingRegistry().getMappingsByPathPrefix("/other/users/1"))
+				.containsExactly("/*/users/**");
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/orders/1");
+		HandlerMethod result = this.mapping.getHandlerInternal(request);
+		assertThat(result.getMethod()).isEqualTo(method1);
+
+		this.mapping.unregisterMapping("/api/orders/{id}");
+		assertThat(this.mapping.getMappingRegistry().getMappingsByPathPrefix("/api/orders/1"))
+				.containsExactly("/*/users/**");
+		assertThat(this.mapping.getHandlerInternal(new MockHttpServletRequest("GET", "/api/orders/1"))).isNull();
+	}
+
 	@Test
 	public void ambiguousMatch() throws Exception {
 		this.mapping.registerMapping("/f?o", this.handler, this.method1);
@@ -275,6 +298,11 @@ public class HandlerMethodMappingTests {
 			return (this.pathMatcher.isPattern(key) ? Collections.<String>emptySet() : Collections.singleton(key));
 		}
 
+		@Override
+		protected Set<String> getIndexedPathPatterns(String key) {
+			return Collections.singleton(key);
+		}
+
 		@Override
 		protected CorsConfiguration initCorsConfiguration(Object handler, Method method, String mapping) {
 			CorsConfiguration corsConfig = new CorsConfiguration();
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.handler;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link PathPrefixIndex}.
+ */
+public class PathPrefixIndexTests {
+
+	private final PathPrefixIndex<String> index = new PathPrefixIndex<>();
+
+
+	@Test
+	public void literalPrefixes() {
+		this.index.add("orders", Collections.singleton("/api/orders/{id}"));
+		this.index.add("users", Collections.singleton("/api/users/{id}/**"));
+		this.index.add("api", Collections.singleton("/api/{resource}"));
+
+		assertThat(this.index.getCandidates("/api/orders/42")).containsExactly("orders", "api");
+		assertThat(this.index.getCandidates("/api/users/42/roles")).containsExactly("users", "api");
+		assertThat(this.index.getCandidates("/api")).containsExactly("api");
+		assertThat(this.index.getCandidates("/other/orders/42")).isEmpty();
+	}
+
+	@Test
+	public void lastSegmentIsNotIndexed() {
+		this.index.add("users", Collections.singleton("/api/users"));
+
+		assertThat(this.index.getCandidates("/api/users.json")).containsExactly("users");
+		assertThat(this.index.getCandidates("/api/users/")).containsExactly("users");
+	}
+
+	@Test
+	public void mappingsWithoutLiteralPrefix() {
+		this.index.add("users", Collections.singleton("/api/users/{id}"));
+		this.index.add("any", Collections.emptySet());
+		this.index.add("wildcard", Collections.singleton("/*/users/{id}"));
+
+		assertThat(this.index.getCandidates("/api/users/42")).containsExactly("users", "any", "wildcard");
+		assertThat(this.index.getCandidates("/other")).containsExactly("any", "wildcard");
+	}
+
+	@Test
+	public void segmentsAreNormalized() {
+		this.index.add("users", Collections.singleton("/api/users/{id}"));
+
+		assertThat(this.index.getCandidates("/API//Users/42")).containsExactly("users");
+	}
+
+	@Test
+	public void multiplePatternsAreFoundOnce() {
+		this.index.add("users", Arrays.asList("/api/{id}", "/api/users/{id}", "/admin/users/{id}"));
+
+		assertThat(this.index.getCandidates("/api/users/42")).containsExactly("users");
+		assertThat(this.index.getCandidates("/admin/users/42")).containsExactly("users");
+	}
+
+	@Test
+	public void remove() {
+		this.index.add("users", Arrays.asList("/api/users/{id}", "/admin/users/{id}"));
+		this.index.add("orders", Collections.singleton("/api/orders/{id}"));
+		this.index.remove("users", Arrays.asList("/api/users/{id}", "/admin/users/{id}"));
+
+		assertThat(this.index.getCandidates("/api/users/42")).isEmpty();
+		assertThat(this.index.getCandidates("/admin/users/42")).isEmpty();
+		assertThat(this.index.getCandidates("/api/orders/42")).containsExactly("orders");
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,6 +32,7 @@ import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.HttpMediaTypeNotSupportedException;
@@ -105,6 +106,19 @@ public class RequestMappingInfoHandlerMappingTests {
 		assertThat(actual).isEqualTo(new HashSet<>(Arrays.asList(patterns)));
 	}
 
+	@Test
+	public void getIndexedPathPatterns() {
+		String[] patterns = {"/foo/*", "/bar"};
+		RequestMappingInfo info = RequestMappingInfo.paths(patterns).build();
+		assertThat(this.handlerMapping.getIndexedPathPatterns(info)).containsExactlyInAnyOrder(patterns);
+
+		this.handlerMapping.setPathMatcher(new AntPathMatcher("."));
+		assertThat(this.handlerMapping.getIndexedPathPatterns(info)).isEmpty();
+
+		this.handlerMapping.setPathMatcher(new AntPathMatcher() {});
+		assertThat(this.handlerMapping.getIndexedPathPatterns(info)).isEmpty();
+	}
+
 	@Test
 	public void getHandlerDirectMatch() throws Exception {
 		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/foo");
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.resource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link ResourceContentCache}.
+ */
+public class ResourceContentCacheTests {
+
+	@TempDir
+	Path tempDir;
+
+
+	@Test
+	public void getResource() throws Exception {
+		ResourceContentCache cache = new ResourceContentCache();
+		Resource original = createResource("foo.css", "h1 { color:red; }");
+
+		Resource cached = cache.getResource(original);
+		assertThat(cached).isInstanceOf(HttpResource.class);
+		assertThat(cached.getFilename()).isEqualTo("foo.css");
+		assertThat(cached.contentLength()).isEqualTo(17);
+		assertThat(cached.lastModified()).isEqualTo(original.lastModified());
+		assertThat(((HttpResource) cached).getResponseHeaders().getETag()).isNotNull();
+		assertThat(StreamUtils.copyToString(cached.getInputStream(), StandardCharsets.UTF_8))
+				.isEqualTo("h1 { color:red; }");
+		assertThat(cache.getSize()).isEqualTo(17);
+
+		assertThat(cache.getResource(original)).isSameAs(cached);
+	}
+
+	@Test
+	public void reloadModifiedResource() throws Exception {
+		ResourceContentCache cache = new ResourceContentCache();
+		Resource original = createResource("foo.css", "h1 { color:red; }");
+		Resource cached = cache.getResource(original);
+
+		Path file = original.getFile().toPath();
+		Files.write(file, "h1 { color:blue; }".getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(file, FileTime.fromMillis(cached.lastModified() + 2000));
+
+		Resource reloaded = cache.getResource(original);
+		assertThat(reloaded).isNotSameAs(cached);
+		assertThat(StreamUtils.copyToString(reloaded.getInputStream(), StandardCharsets.UTF_8))
+				.isEqualTo("h1 { color:blue; }");
+		assertThat(((HttpResource) reloaded).getResponseHeaders().getETag())
+				.isNotEqualTo(((HttpResource) cached).getResponseHeaders().getETag());
+		assertThat(cache.getSize()).isEqualTo(18);
+	}
+
+	@Test
+	public void evictLeastRecentlyUsed() throws Exception {
+		ResourceContentCache cache = new ResourceContentCache(10);
+		Resource foo = createResource("foo.txt", "foo");
+		Resource bar = createResource("bar.txt", "bar");
+		Resource baz = createResource("baz.txt", "baz");
+		Resource qux = createResource("qux.txt", "qux");
+
+		Resource cachedFoo = cache.getResource(foo);
+		Resource cachedBar = cache.getResource(bar);
+		cache.getResource(baz);
+		assertThat(cache.getResource(foo)).isSameAs(cachedFoo);
+		cache.getResource(qux);
+
+		assertThat(cache.getSize()).isEqualTo(9);
+		assertThat(cache.getResource(foo)).isSameAs(cachedFoo);
+		assertThat(cache.getResource(bar)).isNotSameAs(cachedBar);
+	}
+
+	@Test
+	public void doNotCacheLargeOrInMemoryResources() throws Exception {
+		ResourceContentCache cache = new ResourceContentCache(100, 10);
+		Resource large = createResource("large.txt", "larger than ten bytes");
+		Resource inMemory = new ByteArrayResource(new byte[] {1, 2, 3});
+
+		assertThat(cache.getResource(large)).isSameAs(large);
+		assertThat(cache.getResource(inMemory)).isSameAs(inMemory);
+		assertThat(cache.getSize()).isEqualTo(0);
+	}
+
+
+	private Resource createResource(String filename, String content) throws Exception {
+		Path file = this.tempDir.resolve(filename);
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+		return new FileSystemResource(file);
+	}
+
+}
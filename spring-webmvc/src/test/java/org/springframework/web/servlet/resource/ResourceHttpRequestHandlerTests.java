@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -104,6 +104,29 @@ public class ResourceHttpRequestHandlerTests {
 		assertThat(this.response.getContentAsString()).isEqualTo("h1 { color:red; }");
 	}
 
+	@Test
+	public void getResourceWithContentCache() throws Exception {
+		ResourceContentCache contentCache = new ResourceContentCache();
+		this.handler.setContentCache(contentCache);
+		this.request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, "foo.css");
+		this.handler.handleRequest(this.request, this.response);
+
+		String eTag = this.response.getHeader("ETag");
+		assertThat(eTag).startsWith("\"");
+		assertThat(this.response.getContentType()).isEqualTo("text/css");
+		assertThat(this.response.getContentLength()).isEqualTo(17);
+		assertThat(this.response.getDateHeader("Last-Modified") / 1000).isEqualTo(resourceLastModified("test/foo.css") / 1000);
+		assertThat(this.response.getContentAsString()).isEqualTo("h1 { color:red; }");
+		assertThat(contentCache.getSize()).isEqualTo(17);
+
+		this.request.addHeader("If-None-Match", eTag);
+		this.response = new MockHttpServletResponse();
+		this.handler.handleRequest(this.request, this.response);
+
+		assertThat(this.response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+		assertThat(this.response.getContentAsByteArray()).isEmpty();
+	}
+
 	@Test
 	public void getResourceHttpHeader() throws Exception {
 		this.request.setMethod("HEAD");